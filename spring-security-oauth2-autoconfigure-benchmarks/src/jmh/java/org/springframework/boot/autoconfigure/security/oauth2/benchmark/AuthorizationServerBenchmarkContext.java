@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.oauth2.OAuth2ClientProperties;
+import org.springframework.boot.autoconfigure.security.oauth2.authserver.OAuth2AuthorizationServerConfiguration;
+import org.springframework.boot.autoconfigure.security.oauth2.client.ClientProperties;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.oauth2.config.annotation.web.configuration.EnableAuthorizationServer;
+import org.springframework.security.oauth2.provider.endpoint.TokenEndpoint;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+/**
+ * Starts the same {@link OAuth2AuthorizationServerConfiguration} that an authorization
+ * server uses, with its in-memory client registered for the {@code client_credentials}
+ * and {@code password} grants and a single in-memory user. The password of the user is
+ * encoded with the default password encoder (bcrypt), as it would be in production.
+ *
+ * @since 2.7.0
+ */
+final class AuthorizationServerBenchmarkContext implements AutoCloseable {
+
+	static final String USER_PASSWORD = "benchmark-password";
+
+	private final ConfigurableApplicationContext context;
+
+	AuthorizationServerBenchmarkContext(String... properties) {
+		this.context = new SpringApplicationBuilder(AuthorizationConfiguration.class).web(WebApplicationType.NONE)
+				.logStartupInfo(false)
+				.properties("security.oauth2.client.client-id=" + BenchmarkTokens.CLIENT_ID,
+						"security.oauth2.client.client-secret=" + BenchmarkTokens.CLIENT_SECRET,
+						"security.oauth2.client.authorized-grant-types=client_credentials,password",
+						"security.oauth2.client.scope=read,write")
+				.properties(properties).run();
+	}
+
+	TokenEndpoint getTokenEndpoint() {
+		return this.context.getBean(TokenEndpoint.class);
+	}
+
+	@Override
+	public void close() {
+		this.context.close();
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@EnableWebSecurity
+	@EnableAuthorizationServer
+	@Import({ OAuth2AuthorizationServerConfiguration.class, PropertyPlaceholderAutoConfiguration.class })
+	@EnableConfigurationProperties({ OAuth2ClientProperties.class, ClientProperties.class })
+	static class AuthorizationConfiguration {
+
+		@Bean
+		UserDetailsService userDetailsService() {
+			return new InMemoryUserDetailsManager(User.withUsername(BenchmarkTokens.USER_NAME)
+					.password(PasswordEncoderFactories.createDelegatingPasswordEncoder().encode(USER_PASSWORD))
+					.roles("USER").build());
+		}
+
+	}
+
+}
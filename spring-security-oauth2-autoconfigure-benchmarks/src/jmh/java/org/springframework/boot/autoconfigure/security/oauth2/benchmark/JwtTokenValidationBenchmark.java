@@ -0,0 +1,113 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.benchmark;
+
+import java.io.IOException;
+import java.security.KeyPair;
+import java.security.interfaces.RSAPublicKey;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+/**
+ * Benchmarks the validation of a signed JWT access token by each of the local strategies
+ * that {@code ResourceServerTokenServicesConfiguration} can configure: a symmetric (HMAC)
+ * key, a PEM-encoded RSA public key, a key store and a JSON Web Key Set. The key set is
+ * served by a {@link StubAuthorizationServer} and is only fetched once, so the JWK
+ * figures reflect the steady state.
+ *
+ * @since 2.7.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtTokenValidationBenchmark {
+
+	@Param({ "hmac", "rsa", "key-store", "jwk" })
+	private String strategy;
+
+	private StubAuthorizationServer server;
+
+	private ResourceServerBenchmarkContext context;
+
+	private ResourceServerTokenServices tokenServices;
+
+	private String token;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		switch (this.strategy) {
+		case "hmac":
+			this.context = new ResourceServerBenchmarkContext(
+					"security.oauth2.resource.jwt.key-value=" + BenchmarkTokens.HMAC_SECRET);
+			this.token = BenchmarkTokens.hmac();
+			break;
+		case "rsa":
+			KeyPair keyPair = BenchmarkTokens.generateRsaKeyPair(2048);
+			this.context = new ResourceServerBenchmarkContext("security.oauth2.resource.jwt.key-value="
+					+ BenchmarkTokens.pem((RSAPublicKey) keyPair.getPublic()));
+			this.token = BenchmarkTokens.rsa(keyPair);
+			break;
+		case "key-store":
+			this.context = new ResourceServerBenchmarkContext(
+					"security.oauth2.resource.jwt.key-store=" + BenchmarkTokens.KEY_STORE,
+					"security.oauth2.resource.jwt.key-store-password=" + BenchmarkTokens.KEY_STORE_PASSWORD,
+					"security.oauth2.resource.jwt.key-alias=" + BenchmarkTokens.KEY_ALIAS);
+			this.token = BenchmarkTokens.rsa(BenchmarkTokens.loadKeyStoreKeyPair());
+			break;
+		case "jwk":
+			KeyPair jwkKeyPair = BenchmarkTokens.generateRsaKeyPair(2048);
+			this.server = new StubAuthorizationServer(1).json("/token_keys", BenchmarkTokens.jwks(jwkKeyPair));
+			this.context = new ResourceServerBenchmarkContext(
+					"security.oauth2.resource.jwk.key-set-uri=" + this.server.uri("/token_keys"));
+			this.token = BenchmarkTokens.jwk(jwkKeyPair);
+			break;
+		default:
+			throw new IllegalStateException("Unknown strategy " + this.strategy);
+		}
+		this.tokenServices = this.context.getTokenServices();
+		if (this.tokenServices.loadAuthentication(this.token) == null) {
+			throw new IllegalStateException("Token was not authenticated by " + this.strategy);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.context.close();
+		if (this.server != null) {
+			this.server.close();
+		}
+	}
+
+	@Benchmark
+	public OAuth2Authentication loadAuthentication() {
+		return this.tokenServices.loadAuthentication(this.token);
+	}
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.benchmark;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+/**
+ * Benchmarks the validation of an opaque access token by the remote strategies that
+ * {@code ResourceServerTokenServicesConfiguration} can configure: the token info endpoint
+ * ({@code RemoteTokenServices}) and the user info endpoint
+ * ({@code UserInfoTokenServices}), both against a {@link StubAuthorizationServer} on the
+ * loopback interface. Each strategy is measured with and without the authentication
+ * cache. The stub disables Nagle's algorithm, otherwise the delayed acknowledgements of
+ * the loopback interface, rather than the token services, dominate the uncached figures.
+ *
+ * @since 2.7.0
+ */
+@State(Scope.Benchmark)
+@Fork(jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RemoteTokenValidationBenchmark {
+
+	@Param({ "token-info", "user-info" })
+	private String strategy;
+
+	@Param({ "false", "true" })
+	private boolean cache;
+
+	@Param({ "4" })
+	private int serverThreads;
+
+	private StubAuthorizationServer server;
+
+	private ResourceServerBenchmarkContext context;
+
+	private ResourceServerTokenServices tokenServices;
+
+	private final String token = "benchmark-opaque-token";
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		this.server = new StubAuthorizationServer(this.serverThreads).json("/check_token", BenchmarkTokens.claims())
+				.json("/userinfo", StubAuthorizationServer.map("name", BenchmarkTokens.USER_NAME, "authorities",
+						Arrays.asList("ROLE_USER")));
+		String clientId = "security.oauth2.client.client-id=" + BenchmarkTokens.CLIENT_ID;
+		String clientSecret = "security.oauth2.client.client-secret=" + BenchmarkTokens.CLIENT_SECRET;
+		String cacheEnabled = "security.oauth2.resource.cache.enabled=" + this.cache;
+		switch (this.strategy) {
+		case "token-info":
+			this.context = new ResourceServerBenchmarkContext(clientId, clientSecret, cacheEnabled,
+					"security.oauth2.resource.token-info-uri=" + this.server.uri("/check_token"));
+			break;
+		case "user-info":
+			this.context = new ResourceServerBenchmarkContext(clientId, clientSecret, cacheEnabled,
+					"security.oauth2.resource.user-info-uri=" + this.server.uri("/userinfo"));
+			break;
+		default:
+			throw new IllegalStateException("Unknown strategy " + this.strategy);
+		}
+		this.tokenServices = this.context.getTokenServices();
+		if (this.tokenServices.loadAuthentication(this.token) == null) {
+			throw new IllegalStateException("Token was not authenticated by " + this.strategy);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.context.close();
+		this.server.close();
+	}
+
+	@Benchmark
+	public OAuth2Authentication loadAuthentication() {
+		return this.tokenServices.loadAuthentication(this.token);
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.oauth2.OAuth2ClientProperties;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.ResourceServerProperties;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.ResourceServerTokenServicesConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+/**
+ * Starts the same {@link ResourceServerTokenServicesConfiguration} that a resource server
+ * uses, so that the benchmarks measure the token services exactly as they are wired,
+ * decorators included.
+ *
+ * @since 2.7.0
+ */
+final class ResourceServerBenchmarkContext implements AutoCloseable {
+
+	private final ConfigurableApplicationContext context;
+
+	ResourceServerBenchmarkContext(String... properties) {
+		this.context = new SpringApplicationBuilder(ResourceConfiguration.class).web(WebApplicationType.NONE)
+				.logStartupInfo(false).properties(properties).run();
+	}
+
+	ResourceServerTokenServices getTokenServices() {
+		return this.context.getBean(ResourceServerTokenServices.class);
+	}
+
+	@Override
+	public void close() {
+		this.context.close();
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@Import({ ResourceServerTokenServicesConfiguration.class, PropertyPlaceholderAutoConfiguration.class })
+	@EnableConfigurationProperties(OAuth2ClientProperties.class)
+	static class ResourceConfiguration {
+
+		@Bean
+		ResourceServerProperties resourceServerProperties(OAuth2ClientProperties credentials) {
+			return new ResourceServerProperties(credentials.getClientId(), credentials.getClientSecret());
+		}
+
+	}
+
+}
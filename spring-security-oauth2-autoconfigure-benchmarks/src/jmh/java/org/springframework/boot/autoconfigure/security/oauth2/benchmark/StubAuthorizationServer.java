@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Minimal in-process authorization server that serves canned JSON responses on the
+ * loopback interface, so that the remote token validation strategies can be benchmarked
+ * without any network access. Responses are serialized once, when the endpoint is
+ * registered, so that the stub adds as little noise as possible to the measurements.
+ *
+ * @since 2.7.0
+ */
+final class StubAuthorizationServer implements AutoCloseable {
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	private final HttpServer server;
+
+	private final ExecutorService executor;
+
+	StubAuthorizationServer(int threads) throws IOException {
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 128);
+		this.executor = Executors.newFixedThreadPool(threads);
+		this.server.setExecutor(this.executor);
+		this.server.start();
+	}
+
+	/**
+	 * Serve the given JSON document on the given path.
+	 * @param path the path of the endpoint
+	 * @param body the document to serialize
+	 * @return this server
+	 * @throws IOException if the document cannot be serialized
+	 */
+	StubAuthorizationServer json(String path, Object body) throws IOException {
+		byte[] content = OBJECT_MAPPER.writeValueAsBytes(body);
+		return respond(path, () -> content);
+	}
+
+	private StubAuthorizationServer respond(String path, Supplier<byte[]> content) {
+		this.server.createContext(path, (exchange) -> {
+			try {
+				drain(exchange);
+				byte[] body = content.get();
+				exchange.getResponseHeaders().set("Content-Type", "application/json");
+				exchange.sendResponseHeaders(200, body.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(body);
+				}
+			}
+			finally {
+				exchange.close();
+			}
+		});
+		return this;
+	}
+
+	private void drain(HttpExchange exchange) throws IOException {
+		byte[] buffer = new byte[1024];
+		try (InputStream in = exchange.getRequestBody()) {
+			while (in.read(buffer) != -1) {
+				// Consume the request so that the connection can be reused
+			}
+		}
+	}
+
+	/**
+	 * Return the URI of the given path on this server.
+	 * @param path the path
+	 * @return the URI
+	 */
+	String uri(String path) {
+		return "http://localhost:" + this.server.getAddress().getPort() + path;
+	}
+
+	@Override
+	public void close() {
+		this.server.stop(0);
+		this.executor.shutdownNow();
+	}
+
+	static Map<String, Object> map(Object... keysAndValues) {
+		Map<String, Object> map = new LinkedHashMap<>();
+		for (int i = 0; i < keysAndValues.length; i += 2) {
+			map.put((String) keysAndValues[i], keysAndValues[i + 1]);
+		}
+		return Collections.unmodifiableMap(map);
+	}
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.benchmark;
+
+import java.security.KeyPair;
+import java.security.interfaces.RSAPrivateKey;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+
+/**
+ * Benchmarks {@link JwtAccessTokenConverter} on its own, configured the way
+ * {@code AuthorizationServerTokenServicesConfiguration} configures it for each key type
+ * and size. {@code enhance} is what the token services call for every issued token,
+ * {@code encode} is the claims conversion and signature that it includes.
+ *
+ * @since 2.7.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TokenEnhancementBenchmark {
+
+	@Param({ "hmac", "rsa-2048", "rsa-3072", "rsa-4096", "key-store" })
+	private String keyType;
+
+	private EncodingJwtAccessTokenConverter converter;
+
+	private OAuth2AccessToken accessToken;
+
+	private OAuth2Authentication authentication;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		this.converter = new EncodingJwtAccessTokenConverter();
+		if ("hmac".equals(this.keyType)) {
+			this.converter.setVerifierKey(BenchmarkTokens.HMAC_SECRET);
+			this.converter.setSigningKey(BenchmarkTokens.HMAC_SECRET);
+		}
+		else if ("key-store".equals(this.keyType)) {
+			this.converter.setKeyPair(BenchmarkTokens.loadKeyStoreKeyPair());
+		}
+		else {
+			KeyPair keyPair = BenchmarkTokens.generateRsaKeyPair(BenchmarkTokens.rsaKeySize(this.keyType));
+			this.converter.setSigningKey(BenchmarkTokens.pem((RSAPrivateKey) keyPair.getPrivate()));
+		}
+		this.converter.afterPropertiesSet();
+		Set<String> scope = new HashSet<>(Arrays.asList("read", "write"));
+		List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("ROLE_USER");
+		OAuth2Request request = new OAuth2Request(Collections.singletonMap("grant_type", "password"),
+				BenchmarkTokens.CLIENT_ID, authorities, true, scope, null, null, null, null);
+		this.authentication = new OAuth2Authentication(request,
+				new UsernamePasswordAuthenticationToken(BenchmarkTokens.USER_NAME, null, authorities));
+		DefaultOAuth2AccessToken accessToken = new DefaultOAuth2AccessToken(UUID.randomUUID().toString());
+		accessToken.setScope(scope);
+		accessToken.setExpiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(12)));
+		this.accessToken = accessToken;
+	}
+
+	@Benchmark
+	public OAuth2AccessToken enhance() {
+		return this.converter.enhance(this.accessToken, this.authentication);
+	}
+
+	@Benchmark
+	public String encode() {
+		return this.converter.encode(this.accessToken, this.authentication);
+	}
+
+	/**
+	 * {@link JwtAccessTokenConverter} that exposes its {@code encode} method.
+	 */
+	static class EncodingJwtAccessTokenConverter extends JwtAccessTokenConverter {
+
+		@Override
+		protected String encode(OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+			return super.encode(accessToken, authentication);
+		}
+
+	}
+
+}
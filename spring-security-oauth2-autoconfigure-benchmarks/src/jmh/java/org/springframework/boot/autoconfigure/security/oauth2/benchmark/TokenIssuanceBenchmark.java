@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.benchmark;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.endpoint.TokenEndpoint;
+
+/**
+ * Benchmarks the issuance of a JWT access token through the {@link TokenEndpoint} that
+ * {@code OAuth2AuthorizationServerConfiguration} configures, for each grant type of its
+ * in-memory client and each signing key that
+ * {@code AuthorizationServerTokenServicesConfiguration} supports. The client is already
+ * authenticated, as it would be by the filter chain in front of the endpoint, so the
+ * figures cover the client lookup, the grant, the user authentication of the password
+ * grant and the token enhancement. The user authentication includes a bcrypt password
+ * check, which dominates the password grant.
+ *
+ * @since 2.7.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TokenIssuanceBenchmark {
+
+	@Param({ "hmac", "rsa-2048", "rsa-3072", "rsa-4096", "key-store" })
+	private String keyType;
+
+	@Param({ "client_credentials", "password" })
+	private String grantType;
+
+	private AuthorizationServerBenchmarkContext context;
+
+	private TokenEndpoint tokenEndpoint;
+
+	private UsernamePasswordAuthenticationToken client;
+
+	private Map<String, String> parameters;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		this.context = new AuthorizationServerBenchmarkContext(BenchmarkTokens.signingKeyProperties(this.keyType));
+		this.tokenEndpoint = this.context.getTokenEndpoint();
+		this.client = new UsernamePasswordAuthenticationToken(BenchmarkTokens.CLIENT_ID, null, Collections.emptyList());
+		Map<String, String> parameters = new HashMap<>();
+		parameters.put("grant_type", this.grantType);
+		parameters.put("scope", "read");
+		if ("password".equals(this.grantType)) {
+			parameters.put("username", BenchmarkTokens.USER_NAME);
+			parameters.put("password", AuthorizationServerBenchmarkContext.USER_PASSWORD);
+		}
+		this.parameters = Collections.unmodifiableMap(parameters);
+		if (issue() == null) {
+			throw new IllegalStateException("No token was issued for " + this.grantType);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.context.close();
+	}
+
+	@Benchmark
+	public OAuth2AccessToken issue() throws Exception {
+		return this.tokenEndpoint.postAccessToken(this.client, this.parameters).getBody();
+	}
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * HTTP client for the two operations of the load test: acquiring a token from the
+ * provider sample with the {@code client_credentials} grant and calling the
+ * {@code FlightController} of the resource sample with it. Connections are kept alive, as
+ * they would be by a real client.
+ *
+ * @since 2.7.0
+ */
+final class FlightClient {
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	private static final byte[] TOKEN_REQUEST = "grant_type=client_credentials&scope=any"
+			.getBytes(StandardCharsets.UTF_8);
+
+	private final URL tokenUrl;
+
+	private final URL flightUrl;
+
+	private final String clientAuthorization;
+
+	FlightClient(int providerPort, int resourcePort, String clientId, String clientSecret) throws IOException {
+		this.tokenUrl = new URL("http://localhost:" + providerPort + "/oauth/token");
+		this.flightUrl = new URL("http://localhost:" + resourcePort + "/flights/1");
+		this.clientAuthorization = "Basic "
+				+ Base64.getEncoder().encodeToString((clientId + ":" + clientSecret).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Acquire an access token.
+	 * @return the token value
+	 * @throws IOException if the token cannot be acquired
+	 */
+	String acquireToken() throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) this.tokenUrl.openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setRequestProperty("Authorization", this.clientAuthorization);
+		connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+		connection.setFixedLengthStreamingMode(TOKEN_REQUEST.length);
+		try (OutputStream out = connection.getOutputStream()) {
+			out.write(TOKEN_REQUEST);
+		}
+		byte[] body = exchange(connection);
+		String token = OBJECT_MAPPER.readTree(body).path("access_token").asText(null);
+		if (token == null) {
+			throw new IOException("Token response did not contain an access token");
+		}
+		return token;
+	}
+
+	/**
+	 * Get a flight with the given access token.
+	 * @param token the access token
+	 * @throws IOException if the flight cannot be retrieved
+	 */
+	void getFlight(String token) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) this.flightUrl.openConnection();
+		connection.setRequestProperty("Authorization", "Bearer " + token);
+		connection.setRequestProperty("Accept", "application/json");
+		exchange(connection);
+	}
+
+	private byte[] exchange(HttpURLConnection connection) throws IOException {
+		int status = connection.getResponseCode();
+		// Always consume the body so that the connection is returned to the keep-alive
+		// cache
+		InputStream in = (status < 400) ? connection.getInputStream() : connection.getErrorStream();
+		byte[] body = (in != null) ? read(in) : new byte[0];
+		if (status != 200) {
+			throw new IOException(connection.getRequestMethod() + " " + connection.getURL() + " returned " + status);
+		}
+		return body;
+	}
+
+	private byte[] read(InputStream in) throws IOException {
+		try (InputStream stream = in) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = stream.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			return out.toByteArray();
+		}
+	}
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.loadtest;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives load against the samples with a {@link FlightClient}. Each client acquires a
+ * token and then uses it for a number of flight calls before acquiring a new one.
+ * <ul>
+ * <li>The closed model runs a fixed number of users that each send their next request as
+ * soon as the previous one completes. It measures the capacity of the samples.</li>
+ * <li>The open model sends requests at a fixed rate, regardless of how fast they
+ * complete. Latencies are measured from the time each request was due, so that they
+ * include the time spent waiting behind slower requests instead of hiding it.</li>
+ * </ul>
+ *
+ * @since 2.7.0
+ */
+final class LoadGenerator {
+
+	private final FlightClient client;
+
+	private final int flightsPerToken;
+
+	LoadGenerator(FlightClient client, int flightsPerToken) {
+		this.client = client;
+		this.flightsPerToken = flightsPerToken;
+	}
+
+	/**
+	 * Run the closed model.
+	 * @param users the number of concurrent users
+	 * @param durationSeconds how long to run
+	 * @return the result
+	 * @throws InterruptedException if interrupted while waiting for the users
+	 */
+	LoadResult runClosed(int users, int durationSeconds) throws InterruptedException {
+		LoadResult result = new LoadResult("closed", LoadResult.parameters("users", users, "durationSeconds",
+				durationSeconds, "flightsPerToken", this.flightsPerToken));
+		ExecutorService executor = Executors.newFixedThreadPool(users);
+		CountDownLatch done = new CountDownLatch(users);
+		long start = System.nanoTime();
+		long end = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+		for (int i = 0; i < users; i++) {
+			executor.execute(() -> {
+				try {
+					while (System.nanoTime() < end) {
+						String token = acquireToken(result, System.nanoTime());
+						for (int j = 0; token != null && j < this.flightsPerToken && System.nanoTime() < end; j++) {
+							getFlight(result, token, System.nanoTime());
+						}
+					}
+				}
+				finally {
+					done.countDown();
+				}
+			});
+		}
+		done.await();
+		result.setElapsedNanos(System.nanoTime() - start);
+		executor.shutdown();
+		return result;
+	}
+
+	/**
+	 * Run the open model. One request in {@code flightsPerToken + 1} acquires a token
+	 * that the following flight calls use.
+	 * @param rate the number of requests to send per second
+	 * @param maxConcurrency the maximum number of requests in flight, requests that are
+	 * due when that many are in flight wait for one of them to complete
+	 * @param durationSeconds how long to send requests for
+	 * @return the result
+	 * @throws IOException if the initial token cannot be acquired
+	 * @throws InterruptedException if interrupted while waiting for the requests
+	 */
+	LoadResult runOpen(int rate, int maxConcurrency, int durationSeconds) throws IOException, InterruptedException {
+		LoadResult result = new LoadResult("open", LoadResult.parameters("rate", rate, "maxConcurrency", maxConcurrency,
+				"durationSeconds", durationSeconds, "flightsPerToken", this.flightsPerToken));
+		AtomicReference<String> token = new AtomicReference<>(this.client.acquireToken());
+		ExecutorService executor = Executors.newFixedThreadPool(maxConcurrency);
+		long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+		long start = System.nanoTime();
+		long end = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+		for (long i = 0;; i++) {
+			long due = start + i * interval;
+			if (due >= end) {
+				break;
+			}
+			long wait = due - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			if (i % (this.flightsPerToken + 1) == 0) {
+				executor.execute(() -> {
+					String acquired = acquireToken(result, due);
+					if (acquired != null) {
+						token.set(acquired);
+					}
+				});
+			}
+			else {
+				executor.execute(() -> getFlight(result, token.get(), due));
+			}
+		}
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.MINUTES);
+		result.setElapsedNanos(System.nanoTime() - start);
+		return result;
+	}
+
+	private String acquireToken(LoadResult result, long due) {
+		try {
+			String token = this.client.acquireToken();
+			result.recordSuccess(LoadResult.TOKEN, System.nanoTime() - due);
+			return token;
+		}
+		catch (IOException ex) {
+			result.recordError(LoadResult.TOKEN);
+			return null;
+		}
+	}
+
+	private void getFlight(LoadResult result, String token, long due) {
+		try {
+			this.client.getFlight(token);
+			result.recordSuccess(LoadResult.FLIGHT, System.nanoTime() - due);
+		}
+		catch (IOException ex) {
+			result.recordError(LoadResult.FLIGHT);
+		}
+	}
+
+}
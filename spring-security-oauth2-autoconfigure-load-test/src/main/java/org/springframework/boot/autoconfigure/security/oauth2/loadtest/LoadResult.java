@@ -0,0 +1,166 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.loadtest;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * The result of one load run: a latency histogram and an error count for each operation.
+ * Latencies are recorded in microseconds.
+ *
+ * @since 2.7.0
+ */
+final class LoadResult {
+
+	static final String TOKEN = "token";
+
+	static final String FLIGHT = "flight";
+
+	private static final List<Double> PERCENTILES = Arrays.asList(50.0, 90.0, 99.0, 99.9);
+
+	private final String model;
+
+	private final Map<String, Object> parameters;
+
+	private final Map<String, Operation> operations = new LinkedHashMap<>();
+
+	private long elapsedNanos;
+
+	LoadResult(String model, Map<String, Object> parameters) {
+		this.model = model;
+		this.parameters = parameters;
+		this.operations.put(TOKEN, new Operation());
+		this.operations.put(FLIGHT, new Operation());
+	}
+
+	void recordSuccess(String operation, long latencyNanos) {
+		this.operations.get(operation).histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+	}
+
+	void recordError(String operation) {
+		this.operations.get(operation).errors.increment();
+	}
+
+	void setElapsedNanos(long elapsedNanos) {
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	String getModel() {
+		return this.model;
+	}
+
+	long getCount(String operation) {
+		return this.operations.get(operation).histogram.getTotalCount();
+	}
+
+	long getErrors(String operation) {
+		return this.operations.get(operation).errors.sum();
+	}
+
+	Histogram getHistogram(String operation) {
+		return this.operations.get(operation).histogram;
+	}
+
+	double getThroughput(String operation) {
+		return (this.elapsedNanos > 0) ? getCount(operation) * 1e9 / this.elapsedNanos : 0;
+	}
+
+	void print(PrintStream out) {
+		out.printf("%n%s model %s, %.1f s%n", this.model, this.parameters, this.elapsedNanos / 1e9);
+		out.printf("%-8s %10s %8s %12s %10s %10s %10s %10s %10s%n", "", "count", "errors", "ops/s", "p50 us", "p90 us",
+				"p99 us", "p99.9 us", "max us");
+		for (Map.Entry<String, Operation> entry : this.operations.entrySet()) {
+			Histogram histogram = entry.getValue().histogram;
+			out.printf("%-8s %10d %8d %12.1f %10d %10d %10d %10d %10d%n", entry.getKey(), histogram.getTotalCount(),
+					entry.getValue().errors.sum(), getThroughput(entry.getKey()), histogram.getValueAtPercentile(50.0),
+					histogram.getValueAtPercentile(90.0), histogram.getValueAtPercentile(99.0),
+					histogram.getValueAtPercentile(99.9), histogram.getMaxValue());
+		}
+	}
+
+	Map<String, Object> toMap() {
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("model", this.model);
+		map.put("parameters", this.parameters);
+		map.put("elapsedMillis", TimeUnit.NANOSECONDS.toMillis(this.elapsedNanos));
+		Map<String, Object> operations = new LinkedHashMap<>();
+		for (String operation : this.operations.keySet()) {
+			operations.put(operation, toMap(operation));
+		}
+		map.put("operations", operations);
+		return map;
+	}
+
+	private Map<String, Object> toMap(String operation) {
+		Histogram histogram = getHistogram(operation);
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("count", histogram.getTotalCount());
+		map.put("errors", getErrors(operation));
+		map.put("throughput", getThroughput(operation));
+		Map<String, Object> latency = new LinkedHashMap<>();
+		latency.put("min", histogram.getMinValue());
+		latency.put("mean", histogram.getMean());
+		for (double percentile : PERCENTILES) {
+			latency.put("p" + formatPercentile(percentile), histogram.getValueAtPercentile(percentile));
+		}
+		latency.put("max", histogram.getMaxValue());
+		map.put("latencyMicros", latency);
+		// The complete histogram, so that runs can be compared or merged later
+		map.put("histogram", encode(histogram));
+		return map;
+	}
+
+	private static String formatPercentile(double percentile) {
+		return (percentile == Math.rint(percentile)) ? String.valueOf((long) percentile)
+				: String.valueOf(percentile).replace('.', '_');
+	}
+
+	private static String encode(Histogram histogram) {
+		ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+		int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+		return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+	}
+
+	static Map<String, Object> parameters(Object... keysAndValues) {
+		Map<String, Object> map = new LinkedHashMap<>();
+		for (int i = 0; i < keysAndValues.length; i += 2) {
+			map.put((String) keysAndValues[i], keysAndValues[i + 1]);
+		}
+		return Collections.unmodifiableMap(map);
+	}
+
+	private static final class Operation {
+
+		private final Histogram histogram = new ConcurrentHistogram(3);
+
+		private final LongAdder errors = new LongAdder();
+
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Load test of the {@code spring-boot-sample-secure-oauth2-provider-jwt} and
+ * {@code spring-boot-sample-secure-oauth2-resource-jwt} samples. Both samples are started
+ * in-process on ephemeral ports of the loopback interface, so the test needs no network
+ * and no other machine. After a warmup, it runs the closed model, the open model or both,
+ * prints a summary and saves the results, including the complete latency histograms, to a
+ * timestamped JSON file.
+ *
+ * @since 2.7.0
+ * @see LoadTestSettings
+ */
+public final class LoadTest {
+
+	private static final String PROVIDER_MAIN_CLASS = "sample.SampleSecureOAuth2Application";
+
+	private static final String RESOURCE_MAIN_CLASS = "sample.SampleSecureOAuth2ResourceApplication";
+
+	private static final String CLIENT_ID = "first-client";
+
+	private static final String CLIENT_SECRET = "noonewilleverguess";
+
+	private static final DateTimeFormatter FILE_NAME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'")
+			.withZone(ZoneOffset.UTC);
+
+	private LoadTest() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+		// Keep a connection per concurrent client alive instead of the default 5
+		System.setProperty("http.maxConnections",
+				String.valueOf(Math.max(settings.getUsers(), settings.getMaxConcurrency())));
+		Instant started = Instant.now();
+		List<LoadResult> results = new ArrayList<>();
+		try (SampleApplication provider = SampleApplication.start("provider", PROVIDER_MAIN_CLASS,
+				settings.getProviderClassPath());
+				SampleApplication resource = SampleApplication.start("resource", RESOURCE_MAIN_CLASS,
+						settings.getResourceClassPath())) {
+			FlightClient client = new FlightClient(provider.getPort(), resource.getPort(), CLIENT_ID, CLIENT_SECRET);
+			LoadGenerator generator = new LoadGenerator(client, settings.getFlightsPerToken());
+			if (settings.getWarmupSeconds() > 0) {
+				System.out.printf("Warming up for %d s%n", settings.getWarmupSeconds());
+				generator.runClosed(settings.getUsers(), settings.getWarmupSeconds());
+			}
+			if (settings.isClosed()) {
+				results.add(generator.runClosed(settings.getUsers(), settings.getDurationSeconds()));
+			}
+			if (settings.isOpen()) {
+				results.add(generator.runOpen(settings.getRate(), settings.getMaxConcurrency(),
+						settings.getDurationSeconds()));
+			}
+		}
+		for (LoadResult result : results) {
+			result.print(System.out);
+		}
+		File file = write(settings, started, results);
+		System.out.printf("%nResults saved to %s%n", file);
+	}
+
+	private static File write(LoadTestSettings settings, Instant started, List<LoadResult> results) throws IOException {
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("started", started.toString());
+		report.put("settings", settings.toMap());
+		report.put("environment", environment());
+		List<Map<String, Object>> runs = new ArrayList<>();
+		for (LoadResult result : results) {
+			runs.add(result.toMap());
+		}
+		report.put("runs", runs);
+		File output = settings.getOutput();
+		if (!output.isDirectory() && !output.mkdirs()) {
+			throw new IOException("Unable to create " + output);
+		}
+		File file = new File(output, "load-test-" + FILE_NAME_FORMATTER.format(started) + ".json");
+		new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, report);
+		return file;
+	}
+
+	private static Map<String, Object> environment() {
+		Map<String, Object> environment = new LinkedHashMap<>();
+		environment.put("javaVersion", System.getProperty("java.version"));
+		environment.put("javaVm", System.getProperty("java.vm.name"));
+		environment.put("os", System.getProperty("os.name") + " " + System.getProperty("os.version"));
+		environment.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+		environment.put("maxMemory", Runtime.getRuntime().maxMemory());
+		environment.put("jvmArguments", jvmArguments());
+		return environment;
+	}
+
+	private static List<String> jvmArguments() {
+		List<String> arguments = new ArrayList<>();
+		for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+			if (!argument.startsWith("-Dloadtest.") || !argument.contains(".classpath=")) {
+				arguments.add(argument);
+			}
+		}
+		return arguments;
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.loadtest;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings of the load test, read from {@code loadtest.*} system properties.
+ *
+ * @since 2.7.0
+ */
+final class LoadTestSettings {
+
+	private final String providerClassPath;
+
+	private final String resourceClassPath;
+
+	private final String model;
+
+	private final int users;
+
+	private final int rate;
+
+	private final int maxConcurrency;
+
+	private final int durationSeconds;
+
+	private final int warmupSeconds;
+
+	private final int flightsPerToken;
+
+	private final File output;
+
+	private LoadTestSettings() {
+		this.providerClassPath = getRequired("loadtest.provider.classpath");
+		this.resourceClassPath = getRequired("loadtest.resource.classpath");
+		this.model = System.getProperty("loadtest.model", "both");
+		if (!"closed".equals(this.model) && !"open".equals(this.model) && !"both".equals(this.model)) {
+			throw new IllegalArgumentException("loadtest.model must be closed, open or both");
+		}
+		this.users = getPositive("loadtest.users", 16);
+		this.rate = getPositive("loadtest.rate", 500);
+		this.maxConcurrency = getPositive("loadtest.max-concurrency", 64);
+		this.durationSeconds = getPositive("loadtest.duration-seconds", 30);
+		this.warmupSeconds = Integer.getInteger("loadtest.warmup-seconds", 10);
+		this.flightsPerToken = getPositive("loadtest.flights-per-token", 10);
+		this.output = new File(System.getProperty("loadtest.output", "build/load-test"));
+	}
+
+	static LoadTestSettings fromSystemProperties() {
+		return new LoadTestSettings();
+	}
+
+	private static String getRequired(String name) {
+		String value = System.getProperty(name);
+		if (value == null || value.isEmpty()) {
+			throw new IllegalArgumentException(name + " must be set");
+		}
+		return value;
+	}
+
+	private static int getPositive(String name, int defaultValue) {
+		int value = Integer.getInteger(name, defaultValue);
+		if (value <= 0) {
+			throw new IllegalArgumentException(name + " must be positive");
+		}
+		return value;
+	}
+
+	String getProviderClassPath() {
+		return this.providerClassPath;
+	}
+
+	String getResourceClassPath() {
+		return this.resourceClassPath;
+	}
+
+	boolean isClosed() {
+		return !"open".equals(this.model);
+	}
+
+	boolean isOpen() {
+		return !"closed".equals(this.model);
+	}
+
+	int getUsers() {
+		return this.users;
+	}
+
+	int getRate() {
+		return this.rate;
+	}
+
+	int getMaxConcurrency() {
+		return this.maxConcurrency;
+	}
+
+	int getDurationSeconds() {
+		return this.durationSeconds;
+	}
+
+	int getWarmupSeconds() {
+		return this.warmupSeconds;
+	}
+
+	int getFlightsPerToken() {
+		return this.flightsPerToken;
+	}
+
+	File getOutput() {
+		return this.output;
+	}
+
+	Map<String, Object> toMap() {
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("model", this.model);
+		map.put("users", this.users);
+		map.put("rate", this.rate);
+		map.put("maxConcurrency", this.maxConcurrency);
+		map.put("durationSeconds", this.durationSeconds);
+		map.put("warmupSeconds", this.warmupSeconds);
+		map.put("flightsPerToken", this.flightsPerToken);
+		return map;
+	}
+
+}
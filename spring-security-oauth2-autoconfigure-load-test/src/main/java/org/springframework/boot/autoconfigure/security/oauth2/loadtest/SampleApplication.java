@@ -0,0 +1,150 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sample application running in-process, in its own class loader. The samples share a
+ * package and each ship an {@code application.yml}, so they cannot share a class path.
+ *
+ * @since 2.7.0
+ */
+final class SampleApplication implements AutoCloseable {
+
+	private final String name;
+
+	private final URLClassLoader classLoader;
+
+	private final Object context;
+
+	private final int port;
+
+	private SampleApplication(String name, URLClassLoader classLoader, Object context, int port) {
+		this.name = name;
+		this.classLoader = classLoader;
+		this.context = context;
+		this.port = port;
+	}
+
+	/**
+	 * Start the given sample on an ephemeral port of the loopback interface.
+	 * @param name the name of the sample
+	 * @param mainClass the name of its main class
+	 * @param classPath its class path
+	 * @param args additional arguments
+	 * @return the running sample
+	 * @throws Exception if the sample cannot be started
+	 */
+	static SampleApplication start(String name, String mainClass, String classPath, String... args) throws Exception {
+		URLClassLoader classLoader = new URLClassLoader(toUrls(classPath),
+				ClassLoader.getSystemClassLoader().getParent());
+		List<String> arguments = new ArrayList<>();
+		arguments.add("--server.port=0");
+		arguments.add("--server.address=127.0.0.1");
+		arguments.add("--spring.main.banner-mode=off");
+		arguments.add("--logging.level.root=WARN");
+		arguments.add("--logging.level.org.springframework.security=WARN");
+		for (String arg : args) {
+			arguments.add(arg);
+		}
+		Thread thread = Thread.currentThread();
+		ClassLoader previous = thread.getContextClassLoader();
+		thread.setContextClassLoader(classLoader);
+		try {
+			disableTomcatUrlStreamHandlerFactory(classLoader);
+			Class<?> application = classLoader.loadClass(mainClass);
+			Method run = classLoader.loadClass("org.springframework.boot.SpringApplication").getMethod("run",
+					Class.class, String[].class);
+			Object context = run.invoke(null, application, arguments.toArray(new String[0]));
+			Object environment = classLoader.loadClass("org.springframework.context.ConfigurableApplicationContext")
+					.getMethod("getEnvironment").invoke(context);
+			Object port = classLoader.loadClass("org.springframework.core.env.PropertyResolver")
+					.getMethod("getProperty", String.class).invoke(environment, "local.server.port");
+			return new SampleApplication(name, classLoader, context, Integer.parseInt((String) port));
+		}
+		catch (InvocationTargetException ex) {
+			classLoader.close();
+			throw new IllegalStateException("Failed to start the " + name + " sample", ex.getTargetException());
+		}
+		finally {
+			thread.setContextClassLoader(previous);
+		}
+	}
+
+	/**
+	 * Tomcat registers a JVM-wide {@link java.net.URLStreamHandlerFactory} that can only
+	 * be set once, so it must not be registered by the Tomcat of either sample.
+	 * @param classLoader the class loader of the sample
+	 * @throws Exception if the factory cannot be disabled
+	 */
+	private static void disableTomcatUrlStreamHandlerFactory(ClassLoader classLoader) throws Exception {
+		try {
+			classLoader.loadClass("org.apache.catalina.webresources.TomcatURLStreamHandlerFactory").getMethod("disable")
+					.invoke(null);
+		}
+		catch (ClassNotFoundException ex) {
+			// Not running on Tomcat
+		}
+	}
+
+	private static URL[] toUrls(String classPath) throws MalformedURLException {
+		List<URL> urls = new ArrayList<>();
+		for (String entry : classPath.split(File.pathSeparator)) {
+			if (!entry.isEmpty()) {
+				urls.add(new File(entry).toURI().toURL());
+			}
+		}
+		if (urls.isEmpty()) {
+			throw new IllegalArgumentException("Class path must not be empty");
+		}
+		return urls.toArray(new URL[0]);
+	}
+
+	String getName() {
+		return this.name;
+	}
+
+	int getPort() {
+		return this.port;
+	}
+
+	@Override
+	public void close() throws Exception {
+		try {
+			this.classLoader.loadClass("org.springframework.context.ConfigurableApplicationContext").getMethod("close")
+					.invoke(this.context);
+		}
+		finally {
+			try {
+				this.classLoader.close();
+			}
+			catch (IOException ex) {
+				// Ignore
+			}
+		}
+	}
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.actuate;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.util.Assert;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Probe of a remote endpoint whose result is reused for a given interval, so that health
+ * checks do not add load to the authorization server. Any response is recorded, an
+ * endpoint answering with a client error is still reachable.
+ *
+ * @since 2.7.0
+ */
+final class EndpointProbe {
+
+	private final RestTemplate restTemplate;
+
+	private final String uri;
+
+	private final HttpHeaders headers;
+
+	private final long interval;
+
+	private Clock clock = Clock.systemUTC();
+
+	private volatile Result result;
+
+	EndpointProbe(RestTemplate restTemplate, String uri, HttpHeaders headers, Duration interval) {
+		Assert.notNull(restTemplate, "RestTemplate must not be null");
+		Assert.hasText(uri, "Uri must not be empty");
+		Assert.notNull(interval, "Interval must not be null");
+		this.restTemplate = restTemplate;
+		this.uri = uri;
+		this.headers = (headers != null) ? headers : new HttpHeaders();
+		this.interval = interval.toMillis();
+		this.restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+
+			@Override
+			public boolean hasError(ClientHttpResponse response) throws IOException {
+				return false;
+			}
+
+		});
+	}
+
+	static EndpointProbe create(String uri, HttpHeaders headers, Duration timeout, Duration interval) {
+		SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+		requestFactory.setConnectTimeout((int) timeout.toMillis());
+		requestFactory.setReadTimeout((int) timeout.toMillis());
+		return new EndpointProbe(new RestTemplate(requestFactory), uri, headers, interval);
+	}
+
+	void setClock(Clock clock) {
+		Assert.notNull(clock, "Clock must not be null");
+		this.clock = clock;
+	}
+
+	String getUri() {
+		return this.uri;
+	}
+
+	/**
+	 * Return the result of the last probe if it is recent enough, or probe the endpoint.
+	 * @return the result of the probe
+	 */
+	Result probe() {
+		Result result = this.result;
+		if (result != null && this.clock.millis() - result.time < this.interval) {
+			return result;
+		}
+		synchronized (this) {
+			result = this.result;
+			long now = this.clock.millis();
+			if (result == null || now - result.time >= this.interval) {
+				result = execute(now);
+				this.result = result;
+			}
+			return result;
+		}
+	}
+
+	private Result execute(long now) {
+		long start = System.nanoTime();
+		try {
+			ResponseEntity<String> response = this.restTemplate.exchange(this.uri, HttpMethod.GET,
+					new HttpEntity<>(this.headers), String.class);
+			return new Result(now, System.nanoTime() - start, response.getStatusCodeValue(), response.getBody(), null);
+		}
+		catch (RestClientException ex) {
+			return new Result(now, System.nanoTime() - start, 0, null, ex.getMessage());
+		}
+	}
+
+	/**
+	 * The result of a probe.
+	 */
+	static final class Result {
+
+		private final long time;
+
+		private final Duration latency;
+
+		private final int status;
+
+		private final String body;
+
+		private final String error;
+
+		private Result(long time, long nanos, int status, String body, String error) {
+			this.time = time;
+			this.latency = Duration.ofNanos(nanos);
+			this.status = status;
+			this.body = body;
+			this.error = error;
+		}
+
+		long getTime() {
+			return this.time;
+		}
+
+		Duration getLatency() {
+			return this.latency;
+		}
+
+		String getBody() {
+			return this.body;
+		}
+
+		boolean isReachable() {
+			return this.error == null && this.status < 500;
+		}
+
+		boolean isSuccessful() {
+			return this.error == null && this.status >= 200 && this.status < 300;
+		}
+
+		String getError() {
+			return (this.error != null) ? this.error : "Responded with status " + this.status;
+		}
+
+	}
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.actuate;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.security.oauth2.actuate.EndpointProbe.Result;
+import org.springframework.util.Assert;
+
+/**
+ * Base {@link HealthIndicator} for an endpoint serving the keys used to verify JWTs. The
+ * keys are verified locally, so an unreachable endpoint is not a failure in itself. The
+ * endpoint is degraded when it is slower than the SLO, when the keys it serves do not
+ * match the ones in use, or when the keys were not confirmed for longer than their
+ * refresh interval. The keys are considered confirmed on startup, when they are loaded.
+ *
+ * @since 2.7.0
+ */
+abstract class KeyEndpointHealthIndicator implements HealthIndicator {
+
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final EndpointProbe probe;
+
+	private final Duration latencySlo;
+
+	private final long refreshInterval;
+
+	private Clock clock = Clock.systemUTC();
+
+	private volatile long confirmed;
+
+	KeyEndpointHealthIndicator(EndpointProbe probe, Duration latencySlo, Duration refreshInterval) {
+		Assert.notNull(probe, "Probe must not be null");
+		this.probe = probe;
+		this.latencySlo = latencySlo;
+		this.refreshInterval = refreshInterval.toMillis();
+		this.confirmed = this.clock.millis();
+	}
+
+	void setClock(Clock clock) {
+		Assert.notNull(clock, "Clock must not be null");
+		this.clock = clock;
+		this.confirmed = clock.millis();
+	}
+
+	@Override
+	public Health health() {
+		Health.Builder builder = new Health.Builder().withDetail("uri", this.probe.getUri());
+		Result result = this.probe.probe();
+		builder.withDetail("latencyMillis", result.getLatency().toMillis());
+		if (result.isSuccessful()) {
+			String problem = verify(read(result.getBody()), builder);
+			if (problem != null) {
+				return builder.status(RemoteEndpointHealthIndicator.DEGRADED).withDetail("error", problem).build();
+			}
+			this.confirmed = Math.max(this.confirmed, result.getTime());
+		}
+		else {
+			builder.withDetail("error", result.getError());
+		}
+		long age = this.clock.millis() - this.confirmed;
+		builder.withDetail("keyAgeSeconds", Duration.ofMillis(age).getSeconds());
+		if (age > this.refreshInterval || result.getLatency().compareTo(this.latencySlo) > 0) {
+			return builder.status(RemoteEndpointHealthIndicator.DEGRADED).build();
+		}
+		return builder.up().build();
+	}
+
+	private JsonNode read(String body) {
+		if (body == null) {
+			return null;
+		}
+		try {
+			return objectMapper.readTree(body);
+		}
+		catch (IOException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Verify the keys served by the endpoint.
+	 * @param keys the response of the endpoint or {@code null} if it is not valid JSON
+	 * @param builder the builder of the health, to add details
+	 * @return a description of the problem or {@code null} if the keys are valid
+	 */
+	protected abstract String verify(JsonNode keys, Health.Builder builder);
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.actuate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+/**
+ * {@link HealthIndicator} for the {@code jwk.key-set-uri}, checking that it serves at
+ * least one key and reporting the ids of the keys.
+ *
+ * @since 2.7.0
+ */
+class KeySetHealthIndicator extends KeyEndpointHealthIndicator {
+
+	KeySetHealthIndicator(EndpointProbe probe, Duration latencySlo, Duration refreshInterval) {
+		super(probe, latencySlo, refreshInterval);
+	}
+
+	@Override
+	protected String verify(JsonNode keys, Health.Builder builder) {
+		JsonNode set = (keys != null) ? keys.get("keys") : null;
+		if (set == null || !set.isArray() || set.size() == 0) {
+			return "No keys in the response";
+		}
+		List<String> ids = new ArrayList<>();
+		for (JsonNode key : set) {
+			JsonNode id = key.get("kid");
+			if (id != null && id.isTextual()) {
+				ids.add(id.asText());
+			}
+		}
+		builder.withDetail("keyIds", ids);
+		return null;
+	}
+
+}
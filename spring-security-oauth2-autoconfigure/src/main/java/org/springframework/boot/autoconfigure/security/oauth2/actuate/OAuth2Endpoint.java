@@ -0,0 +1,396 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.actuate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.CachingResourceServerTokenServices;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.CachingTokenServicesDecorator;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.LatencyTrackingResourceServerTokenServices;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.LatencyTrackingTokenServicesDecorator;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.ResilientResourceServerTokenServices;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.ResilientTokenServicesDecorator;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.ResourceServerProperties;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.TokenValidationStrategy;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link Endpoint @Endpoint} exposing the state of the OAuth2 token validation: the
+ * caches of authentications, the keys used to verify JWTs and the latency of the remote
+ * endpoints. The cached authentications can also be evicted, one token at a time or all
+ * at once.
+ * <p>
+ * Keys are identified by the SHA-256 fingerprint of their public key, symmetric keys are
+ * never fingerprinted. The age of a key is measured from the moment it was first seen by
+ * the endpoint, which for keys loaded on startup is the startup of the application.
+ *
+ * @since 2.7.0
+ */
+@Endpoint(id = "oauth2")
+public class OAuth2Endpoint implements SmartInitializingSingleton {
+
+	private static final double[] PERCENTILES = { 0.5, 0.95, 0.99 };
+
+	private final ObjectProvider<CachingTokenServicesDecorator> caching;
+
+	private final ObjectProvider<LatencyTrackingTokenServicesDecorator> latencyTracking;
+
+	private final ObjectProvider<ResilientTokenServicesDecorator> resilient;
+
+	private final ObjectProvider<JwtAccessTokenConverter> converters;
+
+	private final ObjectProvider<ResourceServerProperties> resource;
+
+	private final Map<String, Long> keysFirstSeen = new ConcurrentHashMap<>();
+
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Create a new {@link OAuth2Endpoint} instance.
+	 * @param caching the decorator caching the authentications, if any
+	 * @param latencyTracking the decorator tracking the latency of remote token services,
+	 * if any
+	 * @param resilient the decorator protecting remote token services, if any
+	 * @param converters the converters holding the keys used to verify JWTs
+	 * @param resource the properties of the resource server, if any
+	 */
+	public OAuth2Endpoint(ObjectProvider<CachingTokenServicesDecorator> caching,
+			ObjectProvider<LatencyTrackingTokenServicesDecorator> latencyTracking,
+			ObjectProvider<ResilientTokenServicesDecorator> resilient,
+			ObjectProvider<JwtAccessTokenConverter> converters, ObjectProvider<ResourceServerProperties> resource) {
+		this.caching = caching;
+		this.latencyTracking = latencyTracking;
+		this.resilient = resilient;
+		this.converters = converters;
+		this.resource = resource;
+	}
+
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "Clock must not be null");
+		this.clock = clock;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		keys();
+	}
+
+	@ReadOperation
+	public OAuth2Descriptor oauth2() {
+		return new OAuth2Descriptor(caches(), keys(), remoteEndpoints());
+	}
+
+	/**
+	 * Evict the authentication cached for the given token. The token is passed in the
+	 * body of the request rather than in its path so that it does not end up in access
+	 * logs.
+	 * @param token the token value
+	 * @return {@code true} if an authentication was evicted
+	 */
+	@WriteOperation
+	public boolean evict(String token) {
+		CachingTokenServicesDecorator caching = this.caching.getIfAvailable();
+		return caching != null && caching.evict(token);
+	}
+
+	/**
+	 * Evict all the cached authentications.
+	 */
+	@DeleteOperation
+	public void clear() {
+		CachingTokenServicesDecorator caching = this.caching.getIfAvailable();
+		if (caching != null) {
+			caching.clear();
+		}
+	}
+
+	private Map<String, CacheDescriptor> caches() {
+		CachingTokenServicesDecorator caching = this.caching.getIfAvailable();
+		if (caching == null) {
+			return Collections.emptyMap();
+		}
+		Map<String, CacheDescriptor> caches = new TreeMap<>();
+		caching.getCaches().forEach((strategy, cache) -> caches.put(strategy.getName(), new CacheDescriptor(cache)));
+		return caches;
+	}
+
+	private List<KeyDescriptor> keys() {
+		List<KeyDescriptor> keys = new ArrayList<>();
+		long now = this.clock.millis();
+		this.converters.orderedStream().forEach((converter) -> {
+			Map<String, String> key = converter.getKey();
+			String value = key.get("value");
+			if (value != null) {
+				String fingerprint = fingerprint(value);
+				long firstSeen = this.keysFirstSeen.computeIfAbsent(fingerprint, (id) -> now);
+				String id = value.startsWith("-----BEGIN") ? fingerprint : null;
+				keys.add(new KeyDescriptor("jwt", id, key.get("alg"), null, now - firstSeen));
+			}
+		});
+		ResourceServerProperties resource = this.resource.getIfAvailable();
+		if (resource != null && StringUtils.hasText(resource.getJwk().getKeySetUri())) {
+			keys.add(new KeyDescriptor("jwk", null, null, resource.getJwk().getKeySetUri(), null));
+		}
+		return keys;
+	}
+
+	private static String fingerprint(String value) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] hash = digest.digest(StringUtils.trimAllWhitespace(value).getBytes(StandardCharsets.UTF_8));
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException("SHA-256 is not supported", ex);
+		}
+	}
+
+	private Map<String, RemoteEndpointDescriptor> remoteEndpoints() {
+		LatencyTrackingTokenServicesDecorator latencyTracking = this.latencyTracking.getIfAvailable();
+		if (latencyTracking == null) {
+			return Collections.emptyMap();
+		}
+		ResilientTokenServicesDecorator resilient = this.resilient.getIfAvailable();
+		ResourceServerProperties resource = this.resource.getIfAvailable();
+		Map<String, RemoteEndpointDescriptor> endpoints = new TreeMap<>();
+		latencyTracking.getTokenServices().forEach((strategy, tokenServices) -> {
+			ResilientResourceServerTokenServices resilientTokenServices = (resilient != null)
+					? resilient.getTokenServices().get(strategy) : null;
+			endpoints.put(strategy.getName(),
+					new RemoteEndpointDescriptor(getUris(resource, strategy), tokenServices, resilientTokenServices));
+		});
+		return endpoints;
+	}
+
+	private static List<String> getUris(ResourceServerProperties resource, TokenValidationStrategy strategy) {
+		if (resource == null) {
+			return Collections.emptyList();
+		}
+		if (strategy == TokenValidationStrategy.TOKEN_INFO) {
+			// Requests can be balanced across a comma-separated list of endpoints
+			return Arrays.asList(StringUtils.tokenizeToStringArray(resource.getTokenInfoUri(), ","));
+		}
+		if (strategy == TokenValidationStrategy.USER_INFO && resource.getUserInfoUri() != null) {
+			return Collections.singletonList(resource.getUserInfoUri());
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Description of the state of the OAuth2 token validation.
+	 */
+	public static final class OAuth2Descriptor {
+
+		private final Map<String, CacheDescriptor> caches;
+
+		private final List<KeyDescriptor> keys;
+
+		private final Map<String, RemoteEndpointDescriptor> remoteEndpoints;
+
+		private OAuth2Descriptor(Map<String, CacheDescriptor> caches, List<KeyDescriptor> keys,
+				Map<String, RemoteEndpointDescriptor> remoteEndpoints) {
+			this.caches = caches;
+			this.keys = keys;
+			this.remoteEndpoints = remoteEndpoints;
+		}
+
+		public Map<String, CacheDescriptor> getCaches() {
+			return this.caches;
+		}
+
+		public List<KeyDescriptor> getKeys() {
+			return this.keys;
+		}
+
+		public Map<String, RemoteEndpointDescriptor> getRemoteEndpoints() {
+			return this.remoteEndpoints;
+		}
+
+	}
+
+	/**
+	 * Description of a cache of authentications.
+	 */
+	public static final class CacheDescriptor {
+
+		private final int size;
+
+		private final long hits;
+
+		private final long misses;
+
+		private final long staleHits;
+
+		private final long evictions;
+
+		private CacheDescriptor(CachingResourceServerTokenServices cache) {
+			this.size = cache.size();
+			this.hits = cache.getHitCount();
+			this.misses = cache.getMissCount();
+			this.staleHits = cache.getStaleHitCount();
+			this.evictions = cache.getEvictionCount();
+		}
+
+		public int getSize() {
+			return this.size;
+		}
+
+		public long getHits() {
+			return this.hits;
+		}
+
+		public long getMisses() {
+			return this.misses;
+		}
+
+		public long getStaleHits() {
+			return this.staleHits;
+		}
+
+		public long getEvictions() {
+			return this.evictions;
+		}
+
+		public double getHitRatio() {
+			long requests = this.hits + this.misses;
+			return (requests != 0) ? (double) this.hits / requests : 0;
+		}
+
+	}
+
+	/**
+	 * Description of a key used to verify JWTs.
+	 */
+	public static final class KeyDescriptor {
+
+		private final String type;
+
+		private final String id;
+
+		private final String algorithm;
+
+		private final String keySetUri;
+
+		private final Long ageSeconds;
+
+		private KeyDescriptor(String type, String id, String algorithm, String keySetUri, Long ageMillis) {
+			this.type = type;
+			this.id = id;
+			this.algorithm = algorithm;
+			this.keySetUri = keySetUri;
+			this.ageSeconds = (ageMillis != null) ? Duration.ofMillis(ageMillis).getSeconds() : null;
+		}
+
+		public String getType() {
+			return this.type;
+		}
+
+		public String getId() {
+			return this.id;
+		}
+
+		public String getAlgorithm() {
+			return this.algorithm;
+		}
+
+		public String getKeySetUri() {
+			return this.keySetUri;
+		}
+
+		public Long getAgeSeconds() {
+			return this.ageSeconds;
+		}
+
+	}
+
+	/**
+	 * Description of a remote endpoint called to validate tokens.
+	 */
+	public static final class RemoteEndpointDescriptor {
+
+		private final List<String> uris;
+
+		private final long calls;
+
+		private final long failures;
+
+		private final Map<String, Double> latencyMillis = new TreeMap<>();
+
+		private final String circuitBreaker;
+
+		private final Integer availableCalls;
+
+		private RemoteEndpointDescriptor(List<String> uris, LatencyTrackingResourceServerTokenServices tokenServices,
+				ResilientResourceServerTokenServices resilient) {
+			this.uris = uris;
+			this.calls = tokenServices.getCallCount();
+			this.failures = tokenServices.getFailureCount();
+			for (double percentile : PERCENTILES) {
+				this.latencyMillis.put("p" + Math.round(percentile * 100),
+						tokenServices.getLatency(percentile).toNanos() / 1000000.0);
+			}
+			this.circuitBreaker = (resilient != null) ? resilient.getCircuitBreaker().getState().name() : null;
+			this.availableCalls = (resilient != null) ? resilient.getAvailableCalls() : null;
+		}
+
+		public List<String> getUris() {
+			return this.uris;
+		}
+
+		public long getCalls() {
+			return this.calls;
+		}
+
+		public long getFailures() {
+			return this.failures;
+		}
+
+		public Map<String, Double> getLatencyMillis() {
+			return this.latencyMillis;
+		}
+
+		public String getCircuitBreaker() {
+			return this.circuitBreaker;
+		}
+
+		public Integer getAvailableCalls() {
+			return this.availableCalls;
+		}
+
+	}
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.actuate;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.security.oauth2.OAuth2AutoConfiguration;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.CachingTokenServicesDecorator;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.LatencyTrackingTokenServicesDecorator;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.ResilientTokenServicesDecorator;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.ResourceServerProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+
+/**
+ * {@link EnableAutoConfiguration Auto-configuration} for the {@link OAuth2Endpoint}. The
+ * latency of remote token services is only tracked when the endpoint is available or when
+ * their health is checked.
+ *
+ * @since 2.7.0
+ */
+@Configuration
+@ConditionalOnClass({ OAuth2AccessToken.class, Endpoint.class })
+@AutoConfigureAfter(OAuth2AutoConfiguration.class)
+public class OAuth2EndpointAutoConfiguration {
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnAvailableEndpoint
+	public OAuth2Endpoint oauth2Endpoint(ObjectProvider<CachingTokenServicesDecorator> caching,
+			ObjectProvider<LatencyTrackingTokenServicesDecorator> latencyTracking,
+			ObjectProvider<ResilientTokenServicesDecorator> resilient,
+			ObjectProvider<JwtAccessTokenConverter> converters, ObjectProvider<ResourceServerProperties> resource) {
+		return new OAuth2Endpoint(caching, latencyTracking, resilient, converters, resource);
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnAvailableEndpoint(endpoint = OAuth2Endpoint.class)
+	public LatencyTrackingTokenServicesDecorator latencyTrackingTokenServicesDecorator() {
+		return new LatencyTrackingTokenServicesDecorator();
+	}
+
+}
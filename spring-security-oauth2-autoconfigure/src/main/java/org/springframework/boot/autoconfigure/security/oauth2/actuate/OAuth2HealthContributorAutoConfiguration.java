@@ -0,0 +1,188 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.actuate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.health.ConditionalOnEnabledHealthIndicator;
+import org.springframework.boot.actuate.autoconfigure.health.HealthEndpointAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.health.HealthEndpointProperties;
+import org.springframework.boot.actuate.health.CompositeHealthContributor;
+import org.springframework.boot.actuate.health.HealthContributor;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.SimpleStatusAggregator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.actuate.health.StatusAggregator;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.oauth2.OAuth2AutoConfiguration;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.LatencyTrackingResourceServerTokenServices;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.LatencyTrackingTokenServicesDecorator;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.ResourceServerProperties;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.TokenValidationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link EnableAutoConfiguration Auto-configuration} for the health of the remote
+ * endpoints a resource server depends on: the token info, user info, JWT key and JWK set
+ * URIs. The token info and user info endpoints are judged on the real traffic when there
+ * is some, their latency is tracked for that purpose.
+ * <p>
+ * Unless a {@link StatusAggregator} is defined, the default one also knows about the
+ * {@code DEGRADED} status, so that it is not lost when the health of the application is
+ * aggregated. If {@code management.endpoint.health.status.order} is set, it must list
+ * {@code DEGRADED} itself.
+ *
+ * @since 2.7.0
+ */
+@Configuration
+@ConditionalOnClass({ OAuth2AccessToken.class, HealthContributor.class })
+@ConditionalOnEnabledHealthIndicator("oauth2")
+@ConditionalOnBean(ResourceServerProperties.class)
+@Conditional(OAuth2HealthContributorAutoConfiguration.RemoteEndpointCondition.class)
+@AutoConfigureAfter({ OAuth2AutoConfiguration.class, OAuth2EndpointAutoConfiguration.class })
+@AutoConfigureBefore(HealthEndpointAutoConfiguration.class)
+public class OAuth2HealthContributorAutoConfiguration {
+
+	@Bean
+	@ConditionalOnMissingBean
+	public LatencyTrackingTokenServicesDecorator latencyTrackingTokenServicesDecorator() {
+		return new LatencyTrackingTokenServicesDecorator();
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public StatusAggregator oauth2HealthStatusAggregator(ObjectProvider<HealthEndpointProperties> properties) {
+		HealthEndpointProperties health = properties.getIfAvailable();
+		List<String> order = (health != null) ? health.getStatus().getOrder() : null;
+		if (order == null || order.isEmpty()) {
+			order = Arrays.asList(Status.DOWN.getCode(), Status.OUT_OF_SERVICE.getCode(),
+					RemoteEndpointHealthIndicator.DEGRADED.getCode(), Status.UP.getCode(), Status.UNKNOWN.getCode());
+		}
+		return new SimpleStatusAggregator(order);
+	}
+
+	@Bean
+	@ConditionalOnMissingBean(name = "oauth2HealthContributor")
+	public HealthContributor oauth2HealthContributor(ResourceServerProperties resource,
+			ObjectProvider<LatencyTrackingTokenServicesDecorator> latencyTracking,
+			ObjectProvider<JwtAccessTokenConverter> converter) {
+		ResourceServerProperties.Health health = resource.getHealth();
+		Duration latencySlo = Duration.ofMillis(health.getLatencySloMillis());
+		Duration interval = Duration.ofSeconds(health.getProbeIntervalSeconds());
+		Duration timeout = Duration.ofMillis(health.getProbeTimeoutMillis());
+		Duration refreshInterval = Duration.ofSeconds(health.getKeyRefreshIntervalSeconds());
+		Map<String, HealthIndicator> indicators = new LinkedHashMap<>();
+		if (StringUtils.hasText(resource.getTokenInfoUri())) {
+			List<EndpointProbe> probes = new ArrayList<>();
+			for (String uri : StringUtils.tokenizeToStringArray(resource.getTokenInfoUri(), ",")) {
+				probes.add(EndpointProbe.create(uri, null, timeout, interval));
+			}
+			indicators.put("tokenInfoUri", new RemoteEndpointHealthIndicator(probes,
+					tracking(latencyTracking, TokenValidationStrategy.TOKEN_INFO), latencySlo, interval));
+		}
+		if (StringUtils.hasText(resource.getUserInfoUri())) {
+			indicators.put("userInfoUri",
+					new RemoteEndpointHealthIndicator(
+							EndpointProbe.create(resource.getUserInfoUri(), null, timeout, interval),
+							tracking(latencyTracking, TokenValidationStrategy.USER_INFO), latencySlo, interval));
+		}
+		if (StringUtils.hasText(resource.getJwt().getKeyUri())
+				&& !StringUtils.hasText(resource.getJwt().getKeyValue())) {
+			indicators.put("jwtKeyUri",
+					new VerifierKeyHealthIndicator(EndpointProbe.create(resource.getJwt().getKeyUri(),
+							getKeyUriHeaders(resource), timeout, interval), converter::getIfUnique, latencySlo,
+							refreshInterval));
+		}
+		if (StringUtils.hasText(resource.getJwk().getKeySetUri())) {
+			indicators.put("jwkKeySetUri",
+					new KeySetHealthIndicator(
+							EndpointProbe.create(resource.getJwk().getKeySetUri(), null, timeout, interval), latencySlo,
+							refreshInterval));
+		}
+		return CompositeHealthContributor.fromMap(indicators);
+	}
+
+	private static Supplier<LatencyTrackingResourceServerTokenServices> tracking(
+			ObjectProvider<LatencyTrackingTokenServicesDecorator> latencyTracking, TokenValidationStrategy strategy) {
+		return () -> {
+			LatencyTrackingTokenServicesDecorator decorator = latencyTracking.getIfAvailable();
+			return (decorator != null) ? decorator.getTokenServices().get(strategy) : null;
+		};
+	}
+
+	private static HttpHeaders getKeyUriHeaders(ResourceServerProperties resource) {
+		HttpHeaders headers = new HttpHeaders();
+		String username = resource.getClientId();
+		String password = resource.getClientSecret();
+		if (username != null && password != null) {
+			byte[] token = Base64.getEncoder().encode((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+			headers.add("Authorization", "Basic " + new String(token, StandardCharsets.UTF_8));
+		}
+		return headers;
+	}
+
+	static class RemoteEndpointCondition extends AnyNestedCondition {
+
+		RemoteEndpointCondition() {
+			super(ConfigurationPhase.REGISTER_BEAN);
+		}
+
+		@ConditionalOnProperty(prefix = "security.oauth2.resource", name = "token-info-uri")
+		static class TokenInfoUri {
+
+		}
+
+		@ConditionalOnProperty(prefix = "security.oauth2.resource", name = "user-info-uri")
+		static class UserInfoUri {
+
+		}
+
+		@ConditionalOnProperty(prefix = "security.oauth2.resource.jwt", name = "key-uri")
+		static class JwtKeyUri {
+
+		}
+
+		@ConditionalOnProperty(prefix = "security.oauth2.resource.jwk", name = "key-set-uri")
+		static class JwkKeySetUri {
+
+		}
+
+	}
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.actuate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.autoconfigure.security.oauth2.actuate.EndpointProbe.Result;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.LatencyTrackingResourceServerTokenServices;
+import org.springframework.util.Assert;
+
+/**
+ * {@link HealthIndicator} for a remote endpoint that validates tokens, such as a token
+ * info or a user info endpoint. When real traffic reached the endpoint recently, the
+ * health is derived from it: the endpoint is down if the last call failed and degraded if
+ * the 95th percentile of the recent latencies is over the SLO. Otherwise the endpoint is
+ * probed.
+ * <p>
+ * When requests are balanced across several equivalent endpoints, each of them is probed.
+ * They are down if none is reachable and degraded if only some are, since the remaining
+ * ones take over.
+ *
+ * @since 2.7.0
+ */
+class RemoteEndpointHealthIndicator implements HealthIndicator {
+
+	/**
+	 * Status of an endpoint that works but is slower than its SLO, or of keys that were
+	 * not confirmed for longer than their refresh interval. It ranks between
+	 * {@code OUT_OF_SERVICE} and {@code UP} in the aggregated health and is reported with
+	 * a 200 by default. Map it to a 503 with
+	 * {@code management.endpoint.health.status.http-mapping} to drain the node, keeping
+	 * the mappings of {@code DOWN} and {@code OUT_OF_SERVICE} as they are replaced.
+	 */
+	static final Status DEGRADED = new Status("DEGRADED", "Slower than its SLO or using keys due for a refresh");
+
+	private static final double PERCENTILE = 0.95;
+
+	private final List<EndpointProbe> probes;
+
+	private final Supplier<LatencyTrackingResourceServerTokenServices> tracking;
+
+	private final Duration latencySlo;
+
+	private final long window;
+
+	private Clock clock = Clock.systemUTC();
+
+	RemoteEndpointHealthIndicator(EndpointProbe probe, Supplier<LatencyTrackingResourceServerTokenServices> tracking,
+			Duration latencySlo, Duration window) {
+		this(Collections.singletonList(probe), tracking, latencySlo, window);
+	}
+
+	RemoteEndpointHealthIndicator(List<EndpointProbe> probes,
+			Supplier<LatencyTrackingResourceServerTokenServices> tracking, Duration latencySlo, Duration window) {
+		Assert.notEmpty(probes, "Probes must not be empty");
+		Assert.noNullElements(probes, "Probes must not contain null elements");
+		Assert.notNull(tracking, "Tracking must not be null");
+		this.probes = new ArrayList<>(probes);
+		this.tracking = tracking;
+		this.latencySlo = latencySlo;
+		this.window = window.toMillis();
+	}
+
+	void setClock(Clock clock) {
+		Assert.notNull(clock, "Clock must not be null");
+		this.clock = clock;
+	}
+
+	@Override
+	public Health health() {
+		Health.Builder builder = new Health.Builder();
+		if (this.probes.size() == 1) {
+			builder.withDetail("uri", this.probes.get(0).getUri());
+		}
+		else {
+			List<String> uris = new ArrayList<>(this.probes.size());
+			this.probes.forEach((probe) -> uris.add(probe.getUri()));
+			builder.withDetail("uris", uris);
+		}
+		LatencyTrackingResourceServerTokenServices tracking = this.tracking.get();
+		if (tracking != null) {
+			Instant lastSuccess = tracking.getLastSuccess();
+			Instant lastFailure = tracking.getLastFailure();
+			if (isRecent(lastSuccess) || isRecent(lastFailure)) {
+				Duration latency = tracking.getLatency(PERCENTILE);
+				builder.withDetail("source", "traffic").withDetail("latencyMillis", latency.toMillis())
+						.withDetail("failures", tracking.getFailureCount());
+				if (lastFailure != null && (lastSuccess == null || lastFailure.isAfter(lastSuccess))) {
+					return builder.down().withDetail("lastFailure", lastFailure.toString()).build();
+				}
+				return withLatency(builder, latency).build();
+			}
+		}
+		builder.withDetail("source", "probe");
+		if (this.probes.size() == 1) {
+			Result result = this.probes.get(0).probe();
+			builder.withDetail("latencyMillis", result.getLatency().toMillis());
+			if (!result.isReachable()) {
+				return builder.down().withDetail("error", result.getError()).build();
+			}
+			return withLatency(builder, result.getLatency()).build();
+		}
+		return probeAll(builder).build();
+	}
+
+	private Health.Builder probeAll(Health.Builder builder) {
+		Map<String, Map<String, Object>> endpoints = new LinkedHashMap<>();
+		Duration fastest = null;
+		boolean unreachable = false;
+		for (EndpointProbe probe : this.probes) {
+			Result result = probe.probe();
+			Map<String, Object> endpoint = new LinkedHashMap<>();
+			endpoint.put("latencyMillis", result.getLatency().toMillis());
+			if (result.isReachable()) {
+				fastest = (fastest == null || result.getLatency().compareTo(fastest) < 0) ? result.getLatency()
+						: fastest;
+			}
+			else {
+				unreachable = true;
+				endpoint.put("error", result.getError());
+			}
+			endpoints.put(probe.getUri(), endpoint);
+		}
+		builder.withDetail("endpoints", endpoints);
+		if (fastest == null) {
+			return builder.down();
+		}
+		return unreachable ? builder.status(DEGRADED) : withLatency(builder, fastest);
+	}
+
+	private boolean isRecent(Instant time) {
+		return time != null && this.clock.millis() - time.toEpochMilli() < this.window;
+	}
+
+	private Health.Builder withLatency(Health.Builder builder, Duration latency) {
+		return (latency.compareTo(this.latencySlo) > 0) ? builder.status(DEGRADED) : builder.up();
+	}
+
+}
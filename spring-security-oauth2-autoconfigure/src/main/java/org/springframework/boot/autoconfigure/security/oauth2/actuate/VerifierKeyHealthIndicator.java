@@ -0,0 +1,60 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.actuate;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link HealthIndicator} for the {@code jwt.key-uri}, checking that the key it serves is
+ * the verifier key in use.
+ *
+ * @since 2.7.0
+ */
+class VerifierKeyHealthIndicator extends KeyEndpointHealthIndicator {
+
+	private final Supplier<JwtAccessTokenConverter> converter;
+
+	VerifierKeyHealthIndicator(EndpointProbe probe, Supplier<JwtAccessTokenConverter> converter, Duration latencySlo,
+			Duration refreshInterval) {
+		super(probe, latencySlo, refreshInterval);
+		this.converter = converter;
+	}
+
+	@Override
+	protected String verify(JsonNode keys, Health.Builder builder) {
+		JsonNode value = (keys != null) ? keys.get("value") : null;
+		if (value == null || !value.isTextual()) {
+			return "No key value in the response";
+		}
+		JwtAccessTokenConverter converter = this.converter.get();
+		String current = (converter != null) ? converter.getKey().get("value") : null;
+		if (current != null
+				&& !StringUtils.trimAllWhitespace(current).equals(StringUtils.trimAllWhitespace(value.asText()))) {
+			return "The verifier key in use differs from the key served by the endpoint";
+		}
+		return null;
+	}
+
+}
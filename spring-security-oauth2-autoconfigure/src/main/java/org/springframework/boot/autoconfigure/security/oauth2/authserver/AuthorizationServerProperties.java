@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2019 the original author or authors.
+ * Copyright 2012-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -52,6 +52,21 @@ public class AuthorizationServerProperties {
 	 */
 	private Jwt jwt = new Jwt();
 
+	/**
+	 * Token revocation events configuration properties
+	 */
+	private RevocationEvents revocationEvents = new RevocationEvents();
+
+	/**
+	 * Token issuance metrics configuration properties
+	 */
+	private Metrics metrics = new Metrics();
+
+	/**
+	 * Flight recorder configuration properties
+	 */
+	private FlightRecorder flightRecorder = new FlightRecorder();
+
 	public String getCheckTokenAccess() {
 		return this.checkTokenAccess;
 	}
@@ -84,6 +99,30 @@ public class AuthorizationServerProperties {
 		this.jwt = jwt;
 	}
 
+	public RevocationEvents getRevocationEvents() {
+		return this.revocationEvents;
+	}
+
+	public void setRevocationEvents(RevocationEvents revocationEvents) {
+		this.revocationEvents = revocationEvents;
+	}
+
+	public Metrics getMetrics() {
+		return this.metrics;
+	}
+
+	public void setMetrics(Metrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public FlightRecorder getFlightRecorder() {
+		return this.flightRecorder;
+	}
+
+	public void setFlightRecorder(FlightRecorder flightRecorder) {
+		this.flightRecorder = flightRecorder;
+	}
+
 	/**
 	 * Configuration properties for Authorization Server Jwt configuration
 	 *
@@ -161,4 +200,87 @@ public class AuthorizationServerProperties {
 
 	}
 
+	/**
+	 * Configuration properties for the token revocation events stream.
+	 *
+	 * @since 2.7.0
+	 */
+	public class RevocationEvents {
+
+		/**
+		 * Whether to stream token revocations and user logouts to resource servers as
+		 * server-sent events.
+		 */
+		private boolean enabled;
+
+		/**
+		 * Time, in seconds, after which a subscription is closed. Subscribers reconnect
+		 * automatically.
+		 */
+		private long timeoutSeconds = 1800;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public long getTimeoutSeconds() {
+			return this.timeoutSeconds;
+		}
+
+		public void setTimeoutSeconds(long timeoutSeconds) {
+			this.timeoutSeconds = timeoutSeconds;
+		}
+
+	}
+
+	/**
+	 * Configuration properties for the token issuance metrics.
+	 *
+	 * @since 2.7.0
+	 */
+	public class Metrics {
+
+		/**
+		 * Whether to record the latency of the token requests by grant type, the time
+		 * spent in each of their phases and the size of the issued tokens, when a
+		 * MeterRegistry is available.
+		 */
+		private boolean enabled = true;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+	}
+
+	/**
+	 * Configuration properties for the flight recorder events.
+	 *
+	 * @since 2.7.0
+	 */
+	public class FlightRecorder {
+
+		/**
+		 * Whether to emit a Java Flight Recorder event for each token request.
+		 */
+		private boolean enabled;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+	}
+
 }
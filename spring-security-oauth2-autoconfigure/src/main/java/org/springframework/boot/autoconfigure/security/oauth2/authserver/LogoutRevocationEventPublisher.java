@@ -0,0 +1,48 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.authserver;
+
+import org.springframework.boot.autoconfigure.security.oauth2.revocation.TokenRevocationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationListener;
+import org.springframework.security.authentication.event.LogoutSuccessEvent;
+import org.springframework.util.Assert;
+
+/**
+ * Publishes a {@link TokenRevocationEvent} for the user of each
+ * {@link LogoutSuccessEvent}.
+ *
+ * @since 2.7.0
+ */
+public class LogoutRevocationEventPublisher implements ApplicationListener<LogoutSuccessEvent> {
+
+	private final ApplicationEventPublisher publisher;
+
+	public LogoutRevocationEventPublisher(ApplicationEventPublisher publisher) {
+		Assert.notNull(publisher, "Publisher must not be null");
+		this.publisher = publisher;
+	}
+
+	@Override
+	public void onApplicationEvent(LogoutSuccessEvent event) {
+		String name = event.getAuthentication().getName();
+		if (name != null && !name.isEmpty()) {
+			this.publisher.publishEvent(TokenRevocationEvent.user(this, name));
+		}
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.authserver;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.util.Assert;
+
+/**
+ * {@link TokenIssuanceObserver} that records Micrometer metrics:
+ * <ul>
+ * <li>an {@code oauth2.authorization.token.issuance} timer tagged with the
+ * {@code grant_type} and an {@code outcome} that is either {@code success} or
+ * {@code failure}, whose count is the number of token requests;</li>
+ * <li>an {@code oauth2.authorization.token.phase} timer tagged with the
+ * {@link TokenIssuancePhase#getName() phase}, where the client authentication is timed
+ * before, and not as part of, the issuance;</li>
+ * <li>an {@code oauth2.authorization.token.size} histogram of the length of the issued
+ * tokens, tagged with the {@code grant_type}.</li>
+ * </ul>
+ * Unknown grant types are tagged as {@code other} to keep the number of time series
+ * bounded. All the meters are registered upfront so that recording does not allocate.
+ *
+ * @since 2.7.0
+ */
+public class MetricsTokenIssuanceObserver implements TokenIssuanceObserver {
+
+	/**
+	 * The name of the timer recording the token requests.
+	 */
+	public static final String ISSUANCE_METRIC = "oauth2.authorization.token.issuance";
+
+	/**
+	 * The name of the timer recording the phases of the token requests.
+	 */
+	public static final String PHASE_METRIC = "oauth2.authorization.token.phase";
+
+	/**
+	 * The name of the distribution summary recording the size of the issued tokens.
+	 */
+	public static final String SIZE_METRIC = "oauth2.authorization.token.size";
+
+	private static final List<String> GRANT_TYPES = Collections.unmodifiableList(
+			Arrays.asList("authorization_code", "password", "client_credentials", "implicit", "refresh_token"));
+
+	private static final String OTHER_GRANT_TYPE = "other";
+
+	private final Map<String, GrantTypeMeters> grantTypes;
+
+	private final GrantTypeMeters otherGrantType;
+
+	private final Map<TokenIssuancePhase, Timer> phases = new EnumMap<>(TokenIssuancePhase.class);
+
+	/**
+	 * Create a new {@link MetricsTokenIssuanceObserver} instance.
+	 * @param registry the registry of the meters
+	 */
+	public MetricsTokenIssuanceObserver(MeterRegistry registry) {
+		Assert.notNull(registry, "Registry must not be null");
+		Map<String, GrantTypeMeters> grantTypes = new HashMap<>();
+		for (String grantType : GRANT_TYPES) {
+			grantTypes.put(grantType, new GrantTypeMeters(registry, grantType));
+		}
+		this.grantTypes = grantTypes;
+		this.otherGrantType = new GrantTypeMeters(registry, OTHER_GRANT_TYPE);
+		for (TokenIssuancePhase phase : TokenIssuancePhase.values()) {
+			this.phases.put(phase, Timer.builder(PHASE_METRIC).description("Phases of the OAuth2 token requests")
+					.tag("phase", phase.getName()).register(registry));
+		}
+	}
+
+	@Override
+	public void onIssuance(String grantType, OAuth2AccessToken accessToken, long nanos) {
+		GrantTypeMeters meters = (grantType != null) ? this.grantTypes.get(grantType) : null;
+		if (meters == null) {
+			meters = this.otherGrantType;
+		}
+		if (accessToken != null) {
+			meters.success.record(nanos, TimeUnit.NANOSECONDS);
+			String value = accessToken.getValue();
+			if (value != null) {
+				meters.size.record(value.length());
+			}
+		}
+		else {
+			meters.failure.record(nanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public void onPhase(TokenIssuancePhase phase, long nanos) {
+		this.phases.get(phase).record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	private static final class GrantTypeMeters {
+
+		private final Timer success;
+
+		private final Timer failure;
+
+		private final DistributionSummary size;
+
+		private GrantTypeMeters(MeterRegistry registry, String grantType) {
+			this.success = issuanceTimer(registry, grantType, "success");
+			this.failure = issuanceTimer(registry, grantType, "failure");
+			this.size = DistributionSummary.builder(SIZE_METRIC).description("Length of the issued OAuth2 tokens")
+					.baseUnit("bytes").tag("grant_type", grantType).publishPercentileHistogram().register(registry);
+		}
+
+		private static Timer issuanceTimer(MeterRegistry registry, String grantType, String outcome) {
+			return Timer.builder(ISSUANCE_METRIC).description("OAuth2 token requests").tag("grant_type", grantType)
+					.tag("outcome", outcome).register(registry);
+		}
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2019 the original author or authors.
+ * Copyright 2012-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,9 +16,16 @@
 
 package org.springframework.boot.autoconfigure.security.oauth2.authserver;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
+
+import javax.servlet.http.HttpServletRequest;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -28,9 +35,11 @@ import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.security.oauth2.client.ClientProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
@@ -49,7 +58,13 @@ import org.springframework.security.oauth2.config.annotation.web.configurers.Aut
 import org.springframework.security.oauth2.config.annotation.web.configurers.AuthorizationServerSecurityConfigurer;
 import org.springframework.security.oauth2.provider.client.BaseClientDetails;
 import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.TokenEnhancer;
 import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.util.ClassUtils;
 
 /**
  * Configuration for a Spring Security OAuth2 authorization server. Back off if another
@@ -83,16 +98,27 @@ public class OAuth2AuthorizationServerConfiguration {
 
 		private final AuthorizationServerProperties properties;
 
+		private final TokenIssuanceInstrumentation instrumentation;
+
+		private AuthorizationServerEndpointsConfigurer endpoints;
+
+		private volatile RequestMatcher tokenEndpoint;
+
 		public AuthorizationSecurityConfigurer(BaseClientDetails details,
 				AuthenticationConfiguration authenticationConfiguration, ObjectProvider<TokenStore> tokenStore,
-				ObjectProvider<AccessTokenConverter> tokenConverter, AuthorizationServerProperties properties)
-				throws Exception {
+				ObjectProvider<AccessTokenConverter> tokenConverter, AuthorizationServerProperties properties,
+				ObjectProvider<TokenIssuanceObserver> observers) throws Exception {
 
 			this.details = details;
 			this.authenticationManager = authenticationConfiguration.getAuthenticationManager();
 			this.tokenStore = tokenStore.getIfAvailable();
 			this.tokenConverter = tokenConverter.getIfAvailable();
 			this.properties = properties;
+			List<TokenIssuanceObserver> issuanceObservers = observers.orderedStream().collect(Collectors.toList());
+			boolean flightRecorder = properties.getFlightRecorder().isEnabled()
+					&& ClassUtils.isPresent("jdk.jfr.Event", getClass().getClassLoader());
+			this.instrumentation = (issuanceObservers.isEmpty() && !flightRecorder) ? null
+					: new TokenIssuanceInstrumentation(issuanceObservers, flightRecorder);
 		}
 
 		@Override
@@ -122,6 +148,7 @@ public class OAuth2AuthorizationServerConfiguration {
 
 		@Override
 		public void configure(AuthorizationServerEndpointsConfigurer endpoints) throws Exception {
+			this.endpoints = endpoints;
 			if (this.tokenConverter != null) {
 				endpoints.accessTokenConverter(this.tokenConverter);
 			}
@@ -129,13 +156,51 @@ public class OAuth2AuthorizationServerConfiguration {
 				endpoints.tokenStore(this.tokenStore);
 			}
 			if (this.details.getAuthorizedGrantTypes().contains("password")) {
-				endpoints.authenticationManager(this.authenticationManager);
+				endpoints.authenticationManager((this.instrumentation != null)
+						? this.instrumentation.authenticationManager(this.authenticationManager)
+						: this.authenticationManager);
+			}
+			if (this.instrumentation != null) {
+				instrument(endpoints);
+			}
+		}
+
+		private void instrument(AuthorizationServerEndpointsConfigurer endpoints) {
+			TokenEnhancer tokenEnhancer = endpoints.getTokenEnhancer();
+			if (tokenEnhancer == null && this.tokenConverter instanceof JwtAccessTokenConverter) {
+				tokenEnhancer = (JwtAccessTokenConverter) this.tokenConverter;
+			}
+			if (tokenEnhancer != null) {
+				endpoints.tokenEnhancer(this.instrumentation.tokenEnhancer(tokenEnhancer));
+			}
+			TokenStore tokenStore = endpoints.getTokenStore();
+			// JWTs are not stored and a JwtTokenStore also disables the approval store
+			if (!(tokenStore instanceof JwtTokenStore)) {
+				endpoints.tokenStore(this.instrumentation.tokenStore(tokenStore));
+			}
+			endpoints.tokenGranter(this.instrumentation.tokenGranter(endpoints.getTokenGranter()));
+		}
+
+		private boolean isTokenEndpointRequest(HttpServletRequest request) {
+			// Resolved on first request, once the endpoints are fully configured
+			RequestMatcher tokenEndpoint = this.tokenEndpoint;
+			if (tokenEndpoint == null) {
+				tokenEndpoint = new AntPathRequestMatcher(
+						this.endpoints.getFrameworkEndpointHandlerMapping().getServletPath("/oauth/token"));
+				this.tokenEndpoint = tokenEndpoint;
 			}
+			return tokenEndpoint.matches(request);
 		}
 
 		@Override
 		public void configure(AuthorizationServerSecurityConfigurer security) throws Exception {
-			security.passwordEncoder(NoOpPasswordEncoder.getInstance());
+			security.passwordEncoder((this.instrumentation != null)
+					? this.instrumentation.passwordEncoder(NoOpPasswordEncoder.getInstance())
+					: NoOpPasswordEncoder.getInstance());
+			if (this.instrumentation != null) {
+				security.addTokenEndpointAuthenticationFilter(
+						this.instrumentation.tokenEndpointFilter(this::isTokenEndpointRequest));
+			}
 			if (this.properties.getCheckTokenAccess() != null) {
 				security.checkTokenAccess(this.properties.getCheckTokenAccess());
 			}
@@ -201,4 +266,43 @@ public class OAuth2AuthorizationServerConfiguration {
 
 	}
 
+	@Bean
+	static RevocationEventPublishingPostProcessor revocationEventPublishingPostProcessor() {
+		return new RevocationEventPublishingPostProcessor();
+	}
+
+	@Configuration
+	@ConditionalOnClass(MeterRegistry.class)
+	@ConditionalOnBean(MeterRegistry.class)
+	@ConditionalOnProperty(prefix = "security.oauth2.authorization.metrics", name = "enabled", matchIfMissing = true)
+	protected static class TokenIssuanceMetricsConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public MetricsTokenIssuanceObserver metricsTokenIssuanceObserver(MeterRegistry registry) {
+			return new MetricsTokenIssuanceObserver(registry);
+		}
+
+	}
+
+	@Configuration
+	@ConditionalOnProperty(prefix = "security.oauth2.authorization.revocation-events", name = "enabled",
+			havingValue = "true")
+	protected static class TokenRevocationEventsConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public TokenRevocationEventsEndpoint tokenRevocationEventsEndpoint(AuthorizationServerProperties properties) {
+			return new TokenRevocationEventsEndpoint(
+					Duration.ofSeconds(properties.getRevocationEvents().getTimeoutSeconds()));
+		}
+
+		@Bean
+		@ConditionalOnMissingBean
+		public LogoutRevocationEventPublisher logoutRevocationEventPublisher(ApplicationEventPublisher publisher) {
+			return new LogoutRevocationEventPublisher(publisher);
+		}
+
+	}
+
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.authserver;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.security.oauth2.config.annotation.web.configuration.AuthorizationServerEndpointsConfiguration;
+import org.springframework.security.oauth2.provider.token.ConsumerTokenServices;
+
+/**
+ * {@link BeanPostProcessor} that wraps the {@link ConsumerTokenServices} exposed by
+ * {@link AuthorizationServerEndpointsConfiguration} so that revoking a token publishes a
+ * {@link org.springframework.boot.autoconfigure.security.oauth2.revocation.TokenRevocationEvent}.
+ * The endpoints create their own token services, whatever the token store, so this is the
+ * one place where every revocation goes through.
+ *
+ * @since 2.7.0
+ */
+class RevocationEventPublishingPostProcessor implements BeanPostProcessor, ApplicationEventPublisherAware {
+
+	static final String CONSUMER_TOKEN_SERVICES_BEAN_NAME = "consumerTokenServices";
+
+	private ApplicationEventPublisher publisher;
+
+	@Override
+	public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
+		this.publisher = publisher;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+		if (CONSUMER_TOKEN_SERVICES_BEAN_NAME.equals(beanName) && bean instanceof ConsumerTokenServices
+				&& !(bean instanceof RevocationEventPublishingTokenServices)) {
+			return new RevocationEventPublishingTokenServices((ConsumerTokenServices) bean, this.publisher);
+		}
+		return bean;
+	}
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.authserver;
+
+import org.springframework.boot.autoconfigure.security.oauth2.revocation.TokenRevocationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.oauth2.provider.token.ConsumerTokenServices;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ConsumerTokenServices} that publishes a {@link TokenRevocationEvent} whenever
+ * the delegate revokes an access token.
+ *
+ * @since 2.7.0
+ */
+public class RevocationEventPublishingTokenServices implements ConsumerTokenServices {
+
+	private final ConsumerTokenServices delegate;
+
+	private final ApplicationEventPublisher publisher;
+
+	/**
+	 * Create a new {@link RevocationEventPublishingTokenServices} instance.
+	 * @param delegate the token services that revoke the tokens
+	 * @param publisher the publisher of the revocation events
+	 */
+	public RevocationEventPublishingTokenServices(ConsumerTokenServices delegate, ApplicationEventPublisher publisher) {
+		Assert.notNull(delegate, "Delegate must not be null");
+		Assert.notNull(publisher, "Publisher must not be null");
+		this.delegate = delegate;
+		this.publisher = publisher;
+	}
+
+	@Override
+	public boolean revokeToken(String tokenValue) {
+		boolean revoked = this.delegate.revokeToken(tokenValue);
+		if (revoked) {
+			this.publisher.publishEvent(TokenRevocationEvent.token(this, tokenValue));
+		}
+		return revoked;
+	}
+
+	/**
+	 * Return the token services that revoke the tokens.
+	 * @return the delegate
+	 */
+	public ConsumerTokenServices getDelegate() {
+		return this.delegate;
+	}
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.authserver;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for the issuance of an access token. Only issuances taking longer
+ * than the threshold, 1 ms by default, are recorded. The threshold can be changed with
+ * the {@code threshold} setting of the
+ * {@code org.springframework.security.oauth2.TokenIssuance} event.
+ *
+ * @since 2.7.0
+ * @see TokenIssuanceInstrumentation
+ */
+@Name("org.springframework.security.oauth2.TokenIssuance")
+@Label("OAuth2 Token Issuance")
+@Description("Issuance of an OAuth2 access token by an authorization server")
+@Category({ "Spring Security", "OAuth2" })
+@Threshold("1 ms")
+@StackTrace(false)
+final class TokenIssuanceEvent extends Event {
+
+	@Label("Grant Type")
+	String grantType;
+
+	@Label("Outcome")
+	@Description("Outcome of the token request: success or failure")
+	String outcome;
+
+	static TokenIssuanceEvent start() {
+		TokenIssuanceEvent event = new TokenIssuanceEvent();
+		event.begin();
+		return event;
+	}
+
+	void end(String grantType, boolean success) {
+		end();
+		if (shouldCommit()) {
+			this.grantType = grantType;
+			this.outcome = success ? "success" : "failure";
+			commit();
+		}
+	}
+
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.authserver;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.TokenGranter;
+import org.springframework.security.oauth2.provider.TokenRequest;
+import org.springframework.security.oauth2.provider.token.TokenEnhancer;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.util.Assert;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Wraps the components involved in the issuance of an access token so that the
+ * {@link TokenIssuanceObserver observers} are notified of each token request and of the
+ * time taken by each of its {@link TokenIssuancePhase phases}, and optionally emits a
+ * {@link TokenIssuanceEvent flight recorder event} for each token request.
+ * <p>
+ * The client authentication precedes the issuance and is timed only for the requests that
+ * the {@link #tokenEndpointFilter(RequestMatcher) token endpoint filter} lets through, so
+ * that the client secret checks of the other endpoints are not reported.
+ *
+ * @since 2.7.0
+ */
+final class TokenIssuanceInstrumentation {
+
+	private final TokenIssuanceObserver[] observers;
+
+	private final boolean flightRecorder;
+
+	private final ThreadLocal<Boolean> tokenRequest = new ThreadLocal<>();
+
+	/**
+	 * Create a new {@link TokenIssuanceInstrumentation} instance.
+	 * @param observers the observers to notify
+	 * @param flightRecorder whether to emit a {@link TokenIssuanceEvent} for each token
+	 * request, which requires flight recorder to be available
+	 */
+	TokenIssuanceInstrumentation(List<TokenIssuanceObserver> observers, boolean flightRecorder) {
+		Assert.notNull(observers, "Observers must not be null");
+		this.observers = observers.toArray(new TokenIssuanceObserver[0]);
+		this.flightRecorder = flightRecorder;
+	}
+
+	TokenGranter tokenGranter(TokenGranter delegate) {
+		return (grantType, tokenRequest) -> grant(delegate, grantType, tokenRequest);
+	}
+
+	TokenEnhancer tokenEnhancer(TokenEnhancer delegate) {
+		return (accessToken, authentication) -> {
+			long start = System.nanoTime();
+			try {
+				return delegate.enhance(accessToken, authentication);
+			}
+			finally {
+				onPhase(TokenIssuancePhase.SIGNING, start);
+			}
+		};
+	}
+
+	TokenStore tokenStore(TokenStore delegate) {
+		return new InstrumentedTokenStore(delegate);
+	}
+
+	AuthenticationManager authenticationManager(AuthenticationManager delegate) {
+		return (authentication) -> {
+			long start = System.nanoTime();
+			try {
+				return delegate.authenticate(authentication);
+			}
+			finally {
+				onPhase(TokenIssuancePhase.USER_AUTHENTICATION, start);
+			}
+		};
+	}
+
+	PasswordEncoder passwordEncoder(PasswordEncoder delegate) {
+		return new InstrumentedPasswordEncoder(delegate);
+	}
+
+	/**
+	 * Return a filter marking the requests to the token endpoint, so that their client
+	 * authentication is timed. It must run before the client is authenticated.
+	 * @param tokenEndpoint the matcher for the token endpoint
+	 * @return the filter
+	 */
+	OncePerRequestFilter tokenEndpointFilter(RequestMatcher tokenEndpoint) {
+		return new OncePerRequestFilter() {
+
+			@Override
+			protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+					FilterChain filterChain) throws ServletException, IOException {
+				if (!tokenEndpoint.matches(request)) {
+					filterChain.doFilter(request, response);
+					return;
+				}
+				TokenIssuanceInstrumentation.this.tokenRequest.set(Boolean.TRUE);
+				try {
+					filterChain.doFilter(request, response);
+				}
+				finally {
+					TokenIssuanceInstrumentation.this.tokenRequest.remove();
+				}
+			}
+
+		};
+	}
+
+	private OAuth2AccessToken grant(TokenGranter delegate, String grantType, TokenRequest tokenRequest) {
+		// Typed as Object so that this class does not link against jdk.jfr
+		Object event = this.flightRecorder ? TokenIssuanceEvent.start() : null;
+		long start = System.nanoTime();
+		OAuth2AccessToken accessToken = null;
+		try {
+			accessToken = delegate.grant(grantType, tokenRequest);
+			return accessToken;
+		}
+		finally {
+			long nanos = System.nanoTime() - start;
+			for (TokenIssuanceObserver observer : this.observers) {
+				observer.onIssuance(grantType, accessToken, nanos);
+			}
+			if (event != null) {
+				((TokenIssuanceEvent) event).end(grantType, accessToken != null);
+			}
+		}
+	}
+
+	private void onPhase(TokenIssuancePhase phase, long start) {
+		long nanos = System.nanoTime() - start;
+		for (TokenIssuanceObserver observer : this.observers) {
+			observer.onPhase(phase, nanos);
+		}
+	}
+
+	private final class InstrumentedPasswordEncoder implements PasswordEncoder {
+
+		private final PasswordEncoder delegate;
+
+		private InstrumentedPasswordEncoder(PasswordEncoder delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public String encode(CharSequence rawPassword) {
+			return this.delegate.encode(rawPassword);
+		}
+
+		@Override
+		public boolean matches(CharSequence rawPassword, String encodedPassword) {
+			if (TokenIssuanceInstrumentation.this.tokenRequest.get() == null) {
+				return this.delegate.matches(rawPassword, encodedPassword);
+			}
+			long start = System.nanoTime();
+			try {
+				return this.delegate.matches(rawPassword, encodedPassword);
+			}
+			finally {
+				onPhase(TokenIssuancePhase.CLIENT_AUTHENTICATION, start);
+			}
+		}
+
+		@Override
+		public boolean upgradeEncoding(String encodedPassword) {
+			return this.delegate.upgradeEncoding(encodedPassword);
+		}
+
+	}
+
+	/**
+	 * {@link TokenStore} timing the writes of another {@link TokenStore}. Reads are
+	 * delegated as is.
+	 */
+	private final class InstrumentedTokenStore implements TokenStore {
+
+		private final TokenStore delegate;
+
+		private InstrumentedTokenStore(TokenStore delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public OAuth2Authentication readAuthentication(OAuth2AccessToken token) {
+			return this.delegate.readAuthentication(token);
+		}
+
+		@Override
+		public OAuth2Authentication readAuthentication(String token) {
+			return this.delegate.readAuthentication(token);
+		}
+
+		@Override
+		public void storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+			long start = System.nanoTime();
+			try {
+				this.delegate.storeAccessToken(token, authentication);
+			}
+			finally {
+				onPhase(TokenIssuancePhase.STORE, start);
+			}
+		}
+
+		@Override
+		public OAuth2AccessToken readAccessToken(String tokenValue) {
+			return this.delegate.readAccessToken(tokenValue);
+		}
+
+		@Override
+		public void removeAccessToken(OAuth2AccessToken token) {
+			long start = System.nanoTime();
+			try {
+				this.delegate.removeAccessToken(token);
+			}
+			finally {
+				onPhase(TokenIssuancePhase.STORE, start);
+			}
+		}
+
+		@Override
+		public void storeRefreshToken(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+			long start = System.nanoTime();
+			try {
+				this.delegate.storeRefreshToken(refreshToken, authentication);
+			}
+			finally {
+				onPhase(TokenIssuancePhase.STORE, start);
+			}
+		}
+
+		@Override
+		public OAuth2RefreshToken readRefreshToken(String tokenValue) {
+			return this.delegate.readRefreshToken(tokenValue);
+		}
+
+		@Override
+		public OAuth2Authentication readAuthenticationForRefreshToken(OAuth2RefreshToken token) {
+			return this.delegate.readAuthenticationForRefreshToken(token);
+		}
+
+		@Override
+		public void removeRefreshToken(OAuth2RefreshToken token) {
+			long start = System.nanoTime();
+			try {
+				this.delegate.removeRefreshToken(token);
+			}
+			finally {
+				onPhase(TokenIssuancePhase.STORE, start);
+			}
+		}
+
+		@Override
+		public void removeAccessTokenUsingRefreshToken(OAuth2RefreshToken refreshToken) {
+			long start = System.nanoTime();
+			try {
+				this.delegate.removeAccessTokenUsingRefreshToken(refreshToken);
+			}
+			finally {
+				onPhase(TokenIssuancePhase.STORE, start);
+			}
+		}
+
+		@Override
+		public OAuth2AccessToken getAccessToken(OAuth2Authentication authentication) {
+			return this.delegate.getAccessToken(authentication);
+		}
+
+		@Override
+		public Collection<OAuth2AccessToken> findTokensByClientIdAndUserName(String clientId, String userName) {
+			return this.delegate.findTokensByClientIdAndUserName(clientId, userName);
+		}
+
+		@Override
+		public Collection<OAuth2AccessToken> findTokensByClientId(String clientId) {
+			return this.delegate.findTokensByClientId(clientId);
+		}
+
+	}
+
+}
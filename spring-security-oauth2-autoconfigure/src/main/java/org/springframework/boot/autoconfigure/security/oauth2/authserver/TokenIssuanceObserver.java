@@ -0,0 +1,46 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.authserver;
+
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+
+/**
+ * Callback interface that can be implemented by beans wishing to be notified of the
+ * access tokens issued by the authorization server configured by
+ * {@link OAuth2AuthorizationServerConfiguration}. Callbacks are invoked on the request
+ * thread, so implementations should be fast and should not allocate.
+ *
+ * @since 2.7.0
+ */
+public interface TokenIssuanceObserver {
+
+	/**
+	 * Called when a token request has been handled.
+	 * @param grantType the requested grant type
+	 * @param accessToken the issued token or {@code null} if the request failed
+	 * @param nanos the time taken to create the token, in nanoseconds
+	 */
+	void onIssuance(String grantType, OAuth2AccessToken accessToken, long nanos);
+
+	/**
+	 * Called when a phase of a token request has completed.
+	 * @param phase the phase
+	 * @param nanos the time taken by the phase, in nanoseconds
+	 */
+	void onPhase(TokenIssuancePhase phase, long nanos);
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.authserver;
+
+/**
+ * The phases of the issuance of an access token that are reported to the
+ * {@link TokenIssuanceObserver observers}.
+ *
+ * @since 2.7.0
+ */
+public enum TokenIssuancePhase {
+
+	/**
+	 * The client secret is checked against the registered one. Only the checks of the
+	 * token endpoint requests are reported, and they are not part of the issuance time
+	 * since the client is authenticated before the request reaches the endpoint.
+	 */
+	CLIENT_AUTHENTICATION("client-authentication"),
+
+	/**
+	 * The resource owner is authenticated, for the {@code password} grant.
+	 */
+	USER_AUTHENTICATION("user-authentication"),
+
+	/**
+	 * The token is enhanced, which includes signing it when it is a JWT.
+	 */
+	SIGNING("signing"),
+
+	/**
+	 * The token is written to or removed from the token store.
+	 */
+	STORE("store");
+
+	private final String name;
+
+	TokenIssuancePhase(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Return the name of the phase, as used in tags.
+	 * @return the name
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.authserver;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.springframework.boot.autoconfigure.security.oauth2.revocation.TokenRevocationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.http.MediaType;
+import org.springframework.security.oauth2.provider.endpoint.FrameworkEndpoint;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Endpoint streaming {@link TokenRevocationEvent token revocation events} to resource
+ * servers as server-sent events, so that they can evict cached authentications as soon as
+ * a token is revoked or a user logs out.
+ *
+ * @since 2.7.0
+ */
+@FrameworkEndpoint
+public class TokenRevocationEventsEndpoint implements ApplicationListener<TokenRevocationEvent> {
+
+	/**
+	 * The default path of the endpoint.
+	 */
+	public static final String PATH = "/oauth/revocation_events";
+
+	private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+	private final long timeout;
+
+	/**
+	 * Create a new {@link TokenRevocationEventsEndpoint} instance.
+	 * @param timeout the time after which a subscription is closed, the subscriber being
+	 * expected to reconnect
+	 */
+	public TokenRevocationEventsEndpoint(Duration timeout) {
+		this.timeout = (timeout != null) ? timeout.toMillis() : 0;
+	}
+
+	@GetMapping(path = PATH, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	@ResponseBody
+	public SseEmitter subscribe() {
+		SseEmitter emitter = new SseEmitter(this.timeout);
+		emitter.onCompletion(() -> this.emitters.remove(emitter));
+		emitter.onTimeout(emitter::complete);
+		emitter.onError((ex) -> this.emitters.remove(emitter));
+		this.emitters.add(emitter);
+		return emitter;
+	}
+
+	@Override
+	public void onApplicationEvent(TokenRevocationEvent event) {
+		for (SseEmitter emitter : this.emitters) {
+			try {
+				emitter.send(SseEmitter.event().name(event.getType().getEventName()).data(event.getValue()));
+			}
+			catch (IOException | IllegalStateException ex) {
+				this.emitters.remove(emitter);
+				emitter.completeWithError(ex);
+			}
+		}
+	}
+
+	/**
+	 * Return the number of subscribers currently connected.
+	 * @return the number of subscribers
+	 */
+	public int getSubscriberCount() {
+		return this.emitters.size();
+	}
+
+}
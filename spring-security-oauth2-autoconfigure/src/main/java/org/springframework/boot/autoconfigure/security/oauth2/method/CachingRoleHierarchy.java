@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.method;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.boot.autoconfigure.security.oauth2.resource.AuthorityBitSet;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.util.Assert;
+
+/**
+ * {@link RoleHierarchy} that caches the authorities reachable from each distinct set of
+ * authorities, so that deep hierarchies are only expanded once per set. The delegate is
+ * expected not to change once the cache is in use. Once the cache is full, the least
+ * recently used set is evicted.
+ *
+ * @since 2.7.0
+ */
+public final class CachingRoleHierarchy implements RoleHierarchy {
+
+	private final RoleHierarchy delegate;
+
+	private final Map<Set<GrantedAuthority>, Collection<GrantedAuthority>> reachable;
+
+	/**
+	 * Create a new {@link CachingRoleHierarchy} instance.
+	 * @param delegate the role hierarchy to delegate to
+	 * @param maxSize the maximum number of cached sets of authorities
+	 */
+	public CachingRoleHierarchy(RoleHierarchy delegate, int maxSize) {
+		Assert.notNull(delegate, "Delegate must not be null");
+		Assert.isTrue(maxSize >= 0, "MaxSize must not be negative");
+		this.delegate = delegate;
+		this.reachable = new LinkedHashMap<Set<GrantedAuthority>, Collection<GrantedAuthority>>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Set<GrantedAuthority>, Collection<GrantedAuthority>> eldest) {
+				return size() > maxSize;
+			}
+
+		};
+	}
+
+	@Override
+	public Collection<? extends GrantedAuthority> getReachableGrantedAuthorities(
+			Collection<? extends GrantedAuthority> authorities) {
+		if (authorities == null || authorities.isEmpty()) {
+			return this.delegate.getReachableGrantedAuthorities(authorities);
+		}
+		Set<GrantedAuthority> key = (authorities instanceof AuthorityBitSet) ? ((AuthorityBitSet) authorities).asSet()
+				: Collections.unmodifiableSet(new HashSet<>(authorities));
+		Collection<GrantedAuthority> reachable;
+		synchronized (this.reachable) {
+			reachable = this.reachable.get(key);
+		}
+		if (reachable != null) {
+			return reachable;
+		}
+		reachable = Collections.unmodifiableList(new ArrayList<>(this.delegate.getReachableGrantedAuthorities(key)));
+		synchronized (this.reachable) {
+			Collection<GrantedAuthority> existing = this.reachable.putIfAbsent(key, reachable);
+			return (existing != null) ? existing : reachable;
+		}
+	}
+
+	/**
+	 * Return the role hierarchy this instance delegates to.
+	 * @return the delegate
+	 */
+	public RoleHierarchy getDelegate() {
+		return this.delegate;
+	}
+
+	/**
+	 * Return the number of cached sets of authorities.
+	 * @return the number of sets
+	 */
+	public int size() {
+		synchronized (this.reachable) {
+			return this.reachable.size();
+		}
+	}
+
+}
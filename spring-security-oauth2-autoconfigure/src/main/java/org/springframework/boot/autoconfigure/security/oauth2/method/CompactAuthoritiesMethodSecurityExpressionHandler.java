@@ -0,0 +1,217 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.method;
+
+import java.util.List;
+
+import org.aopalliance.intercept.MethodInvocation;
+
+import org.springframework.boot.autoconfigure.security.oauth2.resource.CompactOAuth2Authentication;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.MethodExecutor;
+import org.springframework.expression.MethodResolver;
+import org.springframework.expression.spel.support.BooleanTypedValue;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.security.access.expression.SecurityExpressionRoot;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionOperations;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.provider.expression.OAuth2MethodSecurityExpressionHandler;
+
+/**
+ * {@link OAuth2MethodSecurityExpressionHandler} that evaluates the role and authority
+ * checks of a {@link CompactOAuth2Authentication} against its encoded authorities, rather
+ * than against the set of authority names that the default expression root builds for
+ * every evaluation. The default root is used when a role hierarchy is configured, since
+ * the reachable authorities must then be expanded.
+ *
+ * @since 2.7.0
+ */
+class CompactAuthoritiesMethodSecurityExpressionHandler extends OAuth2MethodSecurityExpressionHandler {
+
+	@Override
+	public StandardEvaluationContext createEvaluationContextInternal(Authentication authentication,
+			MethodInvocation invocation) {
+		StandardEvaluationContext context = super.createEvaluationContextInternal(authentication, invocation);
+		if (authentication instanceof CompactOAuth2Authentication) {
+			context.addMethodResolver(EncodedAuthorityMethodResolver.INSTANCE);
+		}
+		return context;
+	}
+
+	@Override
+	protected MethodSecurityExpressionOperations createSecurityExpressionRoot(Authentication authentication,
+			MethodInvocation invocation) {
+		if (!(authentication instanceof CompactOAuth2Authentication) || getRoleHierarchy() != null) {
+			return super.createSecurityExpressionRoot(authentication, invocation);
+		}
+		CompactAuthoritiesExpressionRoot root = new CompactAuthoritiesExpressionRoot(
+				(CompactOAuth2Authentication) authentication, getDefaultRolePrefix());
+		root.setThis(invocation.getThis());
+		root.setPermissionEvaluator(getPermissionEvaluator());
+		root.setTrustResolver(getTrustResolver());
+		root.setDefaultRolePrefix(getDefaultRolePrefix());
+		return root;
+	}
+
+	/**
+	 * Expression root equivalent to the default one, with role and authority checks
+	 * against encoded authorities. The checks of {@link SecurityExpressionRoot} cannot be
+	 * overridden, so expressions reach them through an
+	 * {@link EncodedAuthorityMethodResolver}.
+	 */
+	static final class CompactAuthoritiesExpressionRoot extends SecurityExpressionRoot
+			implements MethodSecurityExpressionOperations {
+
+		private final CompactOAuth2Authentication compactAuthentication;
+
+		private final String rolePrefix;
+
+		private Object filterObject;
+
+		private Object returnObject;
+
+		private Object target;
+
+		CompactAuthoritiesExpressionRoot(CompactOAuth2Authentication authentication, String rolePrefix) {
+			super(authentication);
+			this.compactAuthentication = authentication;
+			this.rolePrefix = rolePrefix;
+		}
+
+		boolean hasEncodedAuthority(String authority) {
+			return this.compactAuthentication.hasAuthority(authority);
+		}
+
+		boolean hasAnyEncodedAuthority(String... authorities) {
+			return this.compactAuthentication.getAuthorities().hasAnyAuthority(authorities);
+		}
+
+		boolean hasEncodedRole(String role) {
+			return this.compactAuthentication.hasAuthority(withRolePrefix(role));
+		}
+
+		boolean hasAnyEncodedRole(String... roles) {
+			for (String role : roles) {
+				if (hasEncodedRole(role)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private String withRolePrefix(String role) {
+			if (role == null || this.rolePrefix == null || this.rolePrefix.isEmpty()
+					|| role.startsWith(this.rolePrefix)) {
+				return role;
+			}
+			return this.rolePrefix + role;
+		}
+
+		@Override
+		public void setFilterObject(Object filterObject) {
+			this.filterObject = filterObject;
+		}
+
+		@Override
+		public Object getFilterObject() {
+			return this.filterObject;
+		}
+
+		@Override
+		public void setReturnObject(Object returnObject) {
+			this.returnObject = returnObject;
+		}
+
+		@Override
+		public Object getReturnObject() {
+			return this.returnObject;
+		}
+
+		void setThis(Object target) {
+			this.target = target;
+		}
+
+		@Override
+		public Object getThis() {
+			return this.target;
+		}
+
+	}
+
+	/**
+	 * {@link MethodResolver} routing the role and authority checks of a
+	 * {@link CompactAuthoritiesExpressionRoot} to its encoded authorities. Calls with
+	 * other arguments than strings are left to the default resolver.
+	 */
+	static final class EncodedAuthorityMethodResolver implements MethodResolver {
+
+		static final EncodedAuthorityMethodResolver INSTANCE = new EncodedAuthorityMethodResolver();
+
+		private static final MethodExecutor HAS_AUTHORITY = (context, target, arguments) -> BooleanTypedValue
+				.forValue(((CompactAuthoritiesExpressionRoot) target).hasEncodedAuthority((String) arguments[0]));
+
+		private static final MethodExecutor HAS_ANY_AUTHORITY = (context, target, arguments) -> BooleanTypedValue
+				.forValue(((CompactAuthoritiesExpressionRoot) target).hasAnyEncodedAuthority(toStrings(arguments)));
+
+		private static final MethodExecutor HAS_ROLE = (context, target, arguments) -> BooleanTypedValue
+				.forValue(((CompactAuthoritiesExpressionRoot) target).hasEncodedRole((String) arguments[0]));
+
+		private static final MethodExecutor HAS_ANY_ROLE = (context, target, arguments) -> BooleanTypedValue
+				.forValue(((CompactAuthoritiesExpressionRoot) target).hasAnyEncodedRole(toStrings(arguments)));
+
+		@Override
+		public MethodExecutor resolve(EvaluationContext context, Object targetObject, String name,
+				List<TypeDescriptor> argumentTypes) {
+			if (!(targetObject instanceof CompactAuthoritiesExpressionRoot) || !allStrings(argumentTypes)) {
+				return null;
+			}
+			boolean single = argumentTypes.size() == 1;
+			switch (name) {
+			case "hasAuthority":
+				return single ? HAS_AUTHORITY : null;
+			case "hasAnyAuthority":
+				return HAS_ANY_AUTHORITY;
+			case "hasRole":
+				return single ? HAS_ROLE : null;
+			case "hasAnyRole":
+				return HAS_ANY_ROLE;
+			default:
+				return null;
+			}
+		}
+
+		private static boolean allStrings(List<TypeDescriptor> argumentTypes) {
+			for (TypeDescriptor argumentType : argumentTypes) {
+				if (argumentType == null || argumentType.getType() != String.class) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static String[] toStrings(Object[] arguments) {
+			String[] strings = new String[arguments.length];
+			for (int i = 0; i < arguments.length; i++) {
+				strings[i] = (String) arguments[i];
+			}
+			return strings;
+		}
+
+	}
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.method;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.ParserContext;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ExpressionParser} for security expressions that compiles the parsed expressions
+ * to bytecode once they have been evaluated a few times and shares them through a bounded
+ * cache. Simple checks such as {@code hasRole('ADMIN')} or
+ * {@code #oauth2.hasScope('read')} are evaluated directly, without going through SpEL.
+ *
+ * @since 2.7.0
+ */
+public final class CompiledExpressionParser implements ExpressionParser {
+
+	private static final CompiledExpressionParser SHARED = new CompiledExpressionParser(1024);
+
+	private final SpelExpressionParser parser;
+
+	private final Map<String, Expression> expressions = new ConcurrentHashMap<>();
+
+	private final int maxSize;
+
+	/**
+	 * Create a new {@link CompiledExpressionParser} instance.
+	 * @param maxSize the maximum number of cached expressions
+	 */
+	public CompiledExpressionParser(int maxSize) {
+		Assert.isTrue(maxSize >= 0, "MaxSize must not be negative");
+		this.parser = new SpelExpressionParser(
+				new SpelParserConfiguration(SpelCompilerMode.MIXED, CompiledExpressionParser.class.getClassLoader()));
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Return the instance shared by the method security expression handlers.
+	 * @return the shared instance
+	 */
+	public static CompiledExpressionParser getSharedInstance() {
+		return SHARED;
+	}
+
+	@Override
+	public Expression parseExpression(String expressionString) throws ParseException {
+		Expression expression = this.expressions.get(expressionString);
+		if (expression != null) {
+			return expression;
+		}
+		expression = FastPathExpression.of(this.parser.parseExpression(expressionString));
+		if (this.expressions.size() >= this.maxSize) {
+			return expression;
+		}
+		Expression existing = this.expressions.putIfAbsent(expressionString, expression);
+		return (existing != null) ? existing : expression;
+	}
+
+	@Override
+	public Expression parseExpression(String expressionString, ParserContext context) throws ParseException {
+		if (context == null || !context.isTemplate()) {
+			return parseExpression(expressionString);
+		}
+		return this.parser.parseExpression(expressionString, context);
+	}
+
+	/**
+	 * Return the number of cached expressions.
+	 * @return the number of expressions
+	 */
+	public int size() {
+		return this.expressions.size();
+	}
+
+}
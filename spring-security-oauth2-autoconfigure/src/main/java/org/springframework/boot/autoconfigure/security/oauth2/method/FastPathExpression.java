@@ -0,0 +1,318 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.method;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.boot.autoconfigure.security.oauth2.method.CompactAuthoritiesMethodSecurityExpressionHandler.CompactAuthoritiesExpressionRoot;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.EvaluationException;
+import org.springframework.expression.Expression;
+import org.springframework.security.access.expression.SecurityExpressionOperations;
+import org.springframework.security.oauth2.provider.expression.OAuth2ExpressionParser;
+import org.springframework.security.oauth2.provider.expression.OAuth2SecurityExpressionMethods;
+
+/**
+ * {@link Expression} that evaluates a simple role, authority or scope check by calling
+ * the security expression root or the {@code #oauth2} variable directly. Anything else,
+ * including evaluations against a different root object, is delegated to the parsed
+ * expression.
+ *
+ * @since 2.7.0
+ */
+final class FastPathExpression implements Expression {
+
+	private static final Pattern THROW_ON_ERROR = Pattern.compile("\\s*#oauth2\\.throwOnError\\((.*)\\)\\s*");
+
+	private static final Pattern CALL = Pattern
+			.compile("\\s*(#oauth2\\.)?(\\w+)\\(\\s*('[^']*'(?:\\s*,\\s*'[^']*')*)\\s*\\)\\s*");
+
+	private static final Pattern ARGUMENT = Pattern.compile("'([^']*)'");
+
+	private final Expression delegate;
+
+	private final Check check;
+
+	private final String[] arguments;
+
+	private final boolean throwOnError;
+
+	private final RequiredScopes scopes;
+
+	private FastPathExpression(Expression delegate, Check check, String[] arguments, boolean throwOnError) {
+		this.delegate = delegate;
+		this.check = check;
+		this.arguments = arguments;
+		this.throwOnError = throwOnError;
+		this.scopes = check.oauth2 ? new RequiredScopes(arguments) : null;
+	}
+
+	/**
+	 * Return a fast path for the given expression, or the expression itself if it is not
+	 * a simple check, possibly wrapped in {@code #oauth2.throwOnError(...)} by the
+	 * {@link OAuth2ExpressionParser}.
+	 * @param expression the parsed expression
+	 * @return the expression to use
+	 */
+	static Expression of(Expression expression) {
+		String expressionString = expression.getExpressionString();
+		Matcher throwOnError = THROW_ON_ERROR.matcher(expressionString);
+		boolean wrapped = throwOnError.matches();
+		Matcher matcher = CALL.matcher(wrapped ? throwOnError.group(1) : expressionString);
+		if (!matcher.matches()) {
+			return expression;
+		}
+		Check check = Check.forMethod(matcher.group(1) != null, matcher.group(2));
+		List<String> arguments = new ArrayList<>();
+		Matcher argument = ARGUMENT.matcher(matcher.group(3));
+		while (argument.find()) {
+			arguments.add(argument.group(1));
+		}
+		if (check == null || (!check.varargs && arguments.size() != 1)) {
+			return expression;
+		}
+		return new FastPathExpression(expression, check, arguments.toArray(new String[0]), wrapped);
+	}
+
+	private Boolean evaluate(EvaluationContext context) {
+		Object variable = context.lookupVariable("oauth2");
+		OAuth2SecurityExpressionMethods oauth2 = (variable instanceof OAuth2SecurityExpressionMethods)
+				? (OAuth2SecurityExpressionMethods) variable : null;
+		Object root = context.getRootObject().getValue();
+		if ((oauth2 == null && (this.check.oauth2 || this.throwOnError))
+				|| (!this.check.oauth2 && !(root instanceof SecurityExpressionOperations))) {
+			return null;
+		}
+		boolean result = this.check.oauth2 ? evaluateScopes(oauth2, root)
+				: this.check.evaluate((SecurityExpressionOperations) root, this.arguments);
+		return this.throwOnError ? oauth2.throwOnError(result) : result;
+	}
+
+	private boolean evaluateScopes(OAuth2SecurityExpressionMethods oauth2, Object root) {
+		if (root instanceof SecurityExpressionOperations
+				&& this.scopes.matchesAny(((SecurityExpressionOperations) root).getAuthentication())) {
+			return true;
+		}
+		// Let the expression methods record the missing scopes for throwOnError
+		return this.check.evaluate(oauth2, this.arguments);
+	}
+
+	@Override
+	public String getExpressionString() {
+		return this.delegate.getExpressionString();
+	}
+
+	@Override
+	public Object getValue() throws EvaluationException {
+		return this.delegate.getValue();
+	}
+
+	@Override
+	public <T> T getValue(Class<T> desiredResultType) throws EvaluationException {
+		return this.delegate.getValue(desiredResultType);
+	}
+
+	@Override
+	public Object getValue(Object rootObject) throws EvaluationException {
+		return this.delegate.getValue(rootObject);
+	}
+
+	@Override
+	public <T> T getValue(Object rootObject, Class<T> desiredResultType) throws EvaluationException {
+		return this.delegate.getValue(rootObject, desiredResultType);
+	}
+
+	@Override
+	public Object getValue(EvaluationContext context) throws EvaluationException {
+		Boolean result = evaluate(context);
+		return (result != null) ? result : this.delegate.getValue(context);
+	}
+
+	@Override
+	public Object getValue(EvaluationContext context, Object rootObject) throws EvaluationException {
+		return this.delegate.getValue(context, rootObject);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T getValue(EvaluationContext context, Class<T> desiredResultType) throws EvaluationException {
+		if (desiredResultType == null || desiredResultType.isAssignableFrom(Boolean.class)) {
+			Boolean result = evaluate(context);
+			if (result != null) {
+				return (T) result;
+			}
+		}
+		return this.delegate.getValue(context, desiredResultType);
+	}
+
+	@Override
+	public <T> T getValue(EvaluationContext context, Object rootObject, Class<T> desiredResultType)
+			throws EvaluationException {
+		return this.delegate.getValue(context, rootObject, desiredResultType);
+	}
+
+	@Override
+	public Class<?> getValueType() throws EvaluationException {
+		return this.delegate.getValueType();
+	}
+
+	@Override
+	public Class<?> getValueType(Object rootObject) throws EvaluationException {
+		return this.delegate.getValueType(rootObject);
+	}
+
+	@Override
+	public Class<?> getValueType(EvaluationContext context) throws EvaluationException {
+		return this.delegate.getValueType(context);
+	}
+
+	@Override
+	public Class<?> getValueType(EvaluationContext context, Object rootObject) throws EvaluationException {
+		return this.delegate.getValueType(context, rootObject);
+	}
+
+	@Override
+	public TypeDescriptor getValueTypeDescriptor() throws EvaluationException {
+		return this.delegate.getValueTypeDescriptor();
+	}
+
+	@Override
+	public TypeDescriptor getValueTypeDescriptor(Object rootObject) throws EvaluationException {
+		return this.delegate.getValueTypeDescriptor(rootObject);
+	}
+
+	@Override
+	public TypeDescriptor getValueTypeDescriptor(EvaluationContext context) throws EvaluationException {
+		return this.delegate.getValueTypeDescriptor(context);
+	}
+
+	@Override
+	public TypeDescriptor getValueTypeDescriptor(EvaluationContext context, Object rootObject)
+			throws EvaluationException {
+		return this.delegate.getValueTypeDescriptor(context, rootObject);
+	}
+
+	@Override
+	public boolean isWritable(Object rootObject) throws EvaluationException {
+		return this.delegate.isWritable(rootObject);
+	}
+
+	@Override
+	public boolean isWritable(EvaluationContext context) throws EvaluationException {
+		return this.delegate.isWritable(context);
+	}
+
+	@Override
+	public boolean isWritable(EvaluationContext context, Object rootObject) throws EvaluationException {
+		return this.delegate.isWritable(context, rootObject);
+	}
+
+	@Override
+	public void setValue(Object rootObject, Object value) throws EvaluationException {
+		this.delegate.setValue(rootObject, value);
+	}
+
+	@Override
+	public void setValue(EvaluationContext context, Object value) throws EvaluationException {
+		this.delegate.setValue(context, value);
+	}
+
+	@Override
+	public void setValue(EvaluationContext context, Object rootObject, Object value) throws EvaluationException {
+		this.delegate.setValue(context, rootObject, value);
+	}
+
+	@Override
+	public String toString() {
+		return this.delegate.toString();
+	}
+
+	private enum Check {
+
+		HAS_ROLE(false, false, "hasRole"),
+
+		HAS_ANY_ROLE(false, true, "hasAnyRole"),
+
+		HAS_AUTHORITY(false, false, "hasAuthority"),
+
+		HAS_ANY_AUTHORITY(false, true, "hasAnyAuthority"),
+
+		HAS_SCOPE(true, false, "hasScope"),
+
+		HAS_ANY_SCOPE(true, true, "hasAnyScope");
+
+		private final boolean oauth2;
+
+		private final boolean varargs;
+
+		private final String method;
+
+		Check(boolean oauth2, boolean varargs, String method) {
+			this.oauth2 = oauth2;
+			this.varargs = varargs;
+			this.method = method;
+		}
+
+		boolean evaluate(SecurityExpressionOperations root, String[] arguments) {
+			if (root instanceof CompactAuthoritiesExpressionRoot) {
+				return evaluate((CompactAuthoritiesExpressionRoot) root, arguments);
+			}
+			switch (this) {
+			case HAS_ROLE:
+				return root.hasRole(arguments[0]);
+			case HAS_ANY_ROLE:
+				return root.hasAnyRole(arguments);
+			case HAS_AUTHORITY:
+				return root.hasAuthority(arguments[0]);
+			default:
+				return root.hasAnyAuthority(arguments);
+			}
+		}
+
+		private boolean evaluate(CompactAuthoritiesExpressionRoot root, String[] arguments) {
+			switch (this) {
+			case HAS_ROLE:
+				return root.hasEncodedRole(arguments[0]);
+			case HAS_ANY_ROLE:
+				return root.hasAnyEncodedRole(arguments);
+			case HAS_AUTHORITY:
+				return root.hasEncodedAuthority(arguments[0]);
+			default:
+				return root.hasAnyEncodedAuthority(arguments);
+			}
+		}
+
+		boolean evaluate(OAuth2SecurityExpressionMethods oauth2, String[] arguments) {
+			return (this == HAS_SCOPE) ? oauth2.hasScope(arguments[0]) : oauth2.hasAnyScope(arguments);
+		}
+
+		static Check forMethod(boolean oauth2, String method) {
+			for (Check check : values()) {
+				if (check.oauth2 == oauth2 && check.method.equals(method)) {
+					return check;
+				}
+			}
+			return null;
+		}
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2021 the original author or authors.
+ * Copyright 2012-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -26,6 +26,8 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
 import org.springframework.security.authentication.AuthenticationTrustResolver;
 import org.springframework.security.config.annotation.method.configuration.GlobalMethodSecurityConfiguration;
@@ -89,7 +91,12 @@ public class OAuth2MethodSecurityConfiguration implements BeanFactoryPostProcess
 			if (trustResolver != null) {
 				handler.setTrustResolver(trustResolver);
 			}
-			handler.setExpressionParser(bean.getExpressionParser());
+			ExpressionParser parser = bean.getExpressionParser();
+			if (parser.getClass() == SpelExpressionParser.class && OAuth2MethodSecurityExpressionHandlerConfiguration
+					.useCompiledExpressions(this.applicationContext.getEnvironment())) {
+				parser = CompiledExpressionParser.getSharedInstance();
+			}
+			handler.setExpressionParser(parser);
 			return handler;
 		}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2021 the original author or authors.
+ * Copyright 2012-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,6 +23,7 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.security.access.PermissionEvaluator;
 import org.springframework.security.access.expression.method.MethodSecurityExpressionHandler;
 import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
@@ -30,6 +31,7 @@ import org.springframework.security.authentication.AuthenticationTrustResolver;
 import org.springframework.security.config.annotation.method.configuration.GlobalMethodSecurityConfiguration;
 import org.springframework.security.config.core.GrantedAuthorityDefaults;
 import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.expression.OAuth2ExpressionParser;
 import org.springframework.security.oauth2.provider.expression.OAuth2MethodSecurityExpressionHandler;
 
 /**
@@ -44,6 +46,12 @@ import org.springframework.security.oauth2.provider.expression.OAuth2MethodSecur
 @ConditionalOnBean(GlobalMethodSecurityConfiguration.class)
 public class OAuth2MethodSecurityExpressionHandlerConfiguration {
 
+	static final String COMPILED_EXPRESSIONS_PROPERTY = "security.oauth2.method.compiled-expressions";
+
+	static final String COMPACT_AUTHORITIES_PROPERTY = "security.oauth2.resource.compact-authorities.enabled";
+
+	private static final int ROLE_HIERARCHY_CACHE_SIZE = 1024;
+
 	@Bean
 	@ConditionalOnMissingBean(MethodSecurityExpressionHandler.class)
 	MethodSecurityExpressionHandler methodSecurityExpressionHandler(@Autowired ApplicationContext context,
@@ -51,13 +59,14 @@ public class OAuth2MethodSecurityExpressionHandlerConfiguration {
 			@Autowired(required = false) RoleHierarchy roleHierarchy,
 			@Autowired(required = false) AuthenticationTrustResolver trustResolver,
 			@Autowired(required = false) GrantedAuthorityDefaults grantedAuthorityDefaults) {
-		OAuth2MethodSecurityExpressionHandler expressionHandler = new OAuth2MethodSecurityExpressionHandler();
+		OAuth2MethodSecurityExpressionHandler expressionHandler = useCompactAuthorities(context.getEnvironment())
+				? new CompactAuthoritiesMethodSecurityExpressionHandler() : new OAuth2MethodSecurityExpressionHandler();
 		expressionHandler.setApplicationContext(context);
 		if (permissionEvaluator != null) {
 			expressionHandler.setPermissionEvaluator(permissionEvaluator);
 		}
 		if (roleHierarchy != null) {
-			expressionHandler.setRoleHierarchy(roleHierarchy);
+			expressionHandler.setRoleHierarchy(new CachingRoleHierarchy(roleHierarchy, ROLE_HIERARCHY_CACHE_SIZE));
 		}
 		if (trustResolver != null) {
 			expressionHandler.setTrustResolver(trustResolver);
@@ -65,7 +74,19 @@ public class OAuth2MethodSecurityExpressionHandlerConfiguration {
 		if (grantedAuthorityDefaults != null) {
 			expressionHandler.setDefaultRolePrefix(grantedAuthorityDefaults.getRolePrefix());
 		}
+		if (useCompiledExpressions(context.getEnvironment())) {
+			expressionHandler
+					.setExpressionParser(new OAuth2ExpressionParser(CompiledExpressionParser.getSharedInstance()));
+		}
 		return expressionHandler;
 	}
 
+	static boolean useCompiledExpressions(Environment environment) {
+		return environment.getProperty(COMPILED_EXPRESSIONS_PROPERTY, Boolean.class, false);
+	}
+
+	static boolean useCompactAuthorities(Environment environment) {
+		return environment.getProperty(COMPACT_AUTHORITIES_PROPERTY, Boolean.class, false);
+	}
+
 }
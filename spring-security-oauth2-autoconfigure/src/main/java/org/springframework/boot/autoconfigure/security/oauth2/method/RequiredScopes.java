@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.method;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import org.springframework.boot.autoconfigure.security.oauth2.resource.AuthorityBitSet;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.AuthorityDictionary;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.CompactOAuth2Authentication;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+
+/**
+ * The scopes required by a scope check, resolved once per expression. They are matched
+ * word by word against the scopes of a {@link CompactOAuth2Authentication} and looked up
+ * in the scope set of the request of any other {@link OAuth2Authentication}.
+ *
+ * @since 2.7.0
+ */
+final class RequiredScopes {
+
+	private final String[] scopes;
+
+	private final AuthorityBitSet bitSet;
+
+	RequiredScopes(String... scopes) {
+		this.scopes = scopes;
+		this.bitSet = AuthorityBitSet.ofNames(Arrays.asList(scopes), AuthorityDictionary.getSharedInstance());
+	}
+
+	/**
+	 * Return whether the given authentication was granted any of the required scopes.
+	 * @param authentication the authentication
+	 * @return {@code true} if one of the scopes is granted
+	 */
+	boolean matchesAny(Authentication authentication) {
+		if (authentication instanceof CompactOAuth2Authentication) {
+			return ((CompactOAuth2Authentication) authentication).getScopes().containsAny(this.bitSet);
+		}
+		if (authentication instanceof OAuth2Authentication) {
+			Set<String> granted = ((OAuth2Authentication) authentication).getOAuth2Request().getScope();
+			for (String scope : this.scopes) {
+				if (granted.contains(scope)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+}
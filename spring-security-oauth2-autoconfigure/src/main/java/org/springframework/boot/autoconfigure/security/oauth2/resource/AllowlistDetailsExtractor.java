@@ -0,0 +1,57 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.util.Assert;
+
+/**
+ * {@link DetailsExtractor} that keeps only some attributes of the resource server's
+ * response, in a {@link CompactAttributeMap}.
+ *
+ * @since 2.7.0
+ */
+public class AllowlistDetailsExtractor implements DetailsExtractor {
+
+	private final Set<String> attributes;
+
+	/**
+	 * Create a new {@link AllowlistDetailsExtractor} instance.
+	 * @param attributes the names of the attributes to keep
+	 */
+	public AllowlistDetailsExtractor(Collection<String> attributes) {
+		Assert.notNull(attributes, "Attributes must not be null");
+		this.attributes = new LinkedHashSet<>(attributes);
+	}
+
+	@Override
+	public Object extractDetails(Map<String, Object> map) {
+		Map<String, Object> details = new LinkedHashMap<>();
+		for (String attribute : this.attributes) {
+			if (map.containsKey(attribute)) {
+				details.put(attribute, map.get(attribute));
+			}
+		}
+		return CompactAttributeMap.of(details);
+	}
+
+}
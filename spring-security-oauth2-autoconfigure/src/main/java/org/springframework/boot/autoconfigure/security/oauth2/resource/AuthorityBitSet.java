@@ -0,0 +1,405 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Immutable list of authorities, in their original order, indexed by a bit set over the
+ * ids of an {@link AuthorityDictionary}, so that checking whether an authority is granted
+ * does not depend on the number of authorities. Only the words of the bit set that have a
+ * bit set are stored, so that a few authorities with high ids take a few words.
+ * Authorities that are not {@link SimpleGrantedAuthority simple authorities}, or whose
+ * name could not be added to a full dictionary, are kept as they are.
+ * <p>
+ * Instances are serialized as a regular list of authorities since ids are only meaningful
+ * to the dictionary of the current JVM.
+ *
+ * @since 2.7.0
+ */
+public final class AuthorityBitSet extends AbstractList<GrantedAuthority> implements RandomAccess, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int[] NO_INDEXES = {};
+
+	private static final long[] NO_WORDS = {};
+
+	private static final GrantedAuthority[] NO_AUTHORITIES = {};
+
+	private final transient AuthorityDictionary dictionary;
+
+	private final transient GrantedAuthority[] authorities;
+
+	private final transient int[] wordIndexes;
+
+	private final transient long[] words;
+
+	private final transient GrantedAuthority[] others;
+
+	private transient int hash;
+
+	private transient Set<GrantedAuthority> set;
+
+	private AuthorityBitSet(AuthorityDictionary dictionary, GrantedAuthority[] authorities, int[] ids, int idCount,
+			GrantedAuthority[] others) {
+		this.dictionary = dictionary;
+		this.authorities = authorities;
+		this.others = others;
+		Arrays.sort(ids, 0, idCount);
+		int[] wordIndexes = new int[idCount];
+		long[] words = new long[idCount];
+		int length = 0;
+		for (int i = 0; i < idCount; i++) {
+			int index = ids[i] >>> 6;
+			if (length == 0 || wordIndexes[length - 1] != index) {
+				wordIndexes[length++] = index;
+			}
+			words[length - 1] |= 1L << ids[i];
+		}
+		this.wordIndexes = (length > 0) ? Arrays.copyOf(wordIndexes, length) : NO_INDEXES;
+		this.words = (length > 0) ? Arrays.copyOf(words, length) : NO_WORDS;
+	}
+
+	/**
+	 * Create a new {@link AuthorityBitSet} from the given authorities.
+	 * @param authorities the authorities
+	 * @param dictionary the dictionary used to encode the authorities
+	 * @return the encoded authorities
+	 */
+	public static AuthorityBitSet of(Collection<? extends GrantedAuthority> authorities,
+			AuthorityDictionary dictionary) {
+		Assert.notNull(authorities, "Authorities must not be null");
+		Assert.notNull(dictionary, "Dictionary must not be null");
+		if (authorities instanceof AuthorityBitSet && ((AuthorityBitSet) authorities).dictionary == dictionary) {
+			return (AuthorityBitSet) authorities;
+		}
+		GrantedAuthority[] elements = new GrantedAuthority[authorities.size()];
+		int[] ids = new int[elements.length];
+		int idCount = 0;
+		List<GrantedAuthority> others = new ArrayList<>(0);
+		int size = 0;
+		for (GrantedAuthority authority : authorities) {
+			Assert.notNull(authority, "Authorities must not contain null elements");
+			int id = (authority.getClass() == SimpleGrantedAuthority.class)
+					? dictionary.getOrCreateId(authority.getAuthority()) : -1;
+			if (id < 0) {
+				if (!others.contains(authority)) {
+					others.add(authority);
+				}
+				elements[size++] = authority;
+			}
+			else {
+				ids[idCount++] = id;
+				elements[size++] = dictionary.getAuthority(id);
+			}
+		}
+		return new AuthorityBitSet(dictionary, elements, ids, idCount,
+				others.isEmpty() ? NO_AUTHORITIES : others.toArray(new GrantedAuthority[0]));
+	}
+
+	/**
+	 * Create a new {@link AuthorityBitSet} from the given names, for instance scopes.
+	 * Blank names are ignored.
+	 * @param names the names
+	 * @param dictionary the dictionary used to encode the names
+	 * @return the encoded names
+	 */
+	public static AuthorityBitSet ofNames(Collection<String> names, AuthorityDictionary dictionary) {
+		Assert.notNull(names, "Names must not be null");
+		List<GrantedAuthority> authorities = new ArrayList<>(names.size());
+		for (String name : names) {
+			if (StringUtils.hasText(name)) {
+				authorities.add(AuthorityInterner.getSharedInstance().getAuthority(name));
+			}
+		}
+		return of(authorities, dictionary);
+	}
+
+	/**
+	 * Return whether the authority with the given name is granted.
+	 * @param authority the name of the authority
+	 * @return {@code true} if the authority is granted
+	 */
+	public boolean hasAuthority(String authority) {
+		if (isSet(this.dictionary.getId(authority))) {
+			return true;
+		}
+		for (GrantedAuthority other : this.others) {
+			if (other.getAuthority() != null && other.getAuthority().equals(authority)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return whether any of the authorities with the given names is granted.
+	 * @param authorities the names of the authorities
+	 * @return {@code true} if one of the authorities is granted
+	 */
+	public boolean hasAnyAuthority(String... authorities) {
+		for (String authority : authorities) {
+			if (hasAuthority(authority)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return whether any of the given authorities is granted. Sets encoded with the same
+	 * dictionary are compared word by word.
+	 * @param authorities the authorities
+	 * @return {@code true} if one of the authorities is granted
+	 */
+	public boolean containsAny(AuthorityBitSet authorities) {
+		if (authorities.dictionary == this.dictionary) {
+			int i = 0;
+			int j = 0;
+			while (i < this.wordIndexes.length && j < authorities.wordIndexes.length) {
+				if (this.wordIndexes[i] < authorities.wordIndexes[j]) {
+					i++;
+				}
+				else if (this.wordIndexes[i] > authorities.wordIndexes[j]) {
+					j++;
+				}
+				else if ((this.words[i++] & authorities.words[j++]) != 0) {
+					return true;
+				}
+			}
+			for (GrantedAuthority authority : authorities.others) {
+				if (contains(authority)) {
+					return true;
+				}
+			}
+			for (GrantedAuthority authority : this.others) {
+				if (authorities.contains(authority)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		for (GrantedAuthority authority : authorities) {
+			if (contains(authority)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isSet(int id) {
+		if (id < 0) {
+			return false;
+		}
+		int position = Arrays.binarySearch(this.wordIndexes, id >>> 6);
+		return position >= 0 && (this.words[position] & (1L << id)) != 0;
+	}
+
+	@Override
+	public GrantedAuthority get(int index) {
+		return this.authorities[index];
+	}
+
+	@Override
+	public int size() {
+		return this.authorities.length;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (o != null && o.getClass() == SimpleGrantedAuthority.class
+				&& isSet(this.dictionary.getId(((GrantedAuthority) o).getAuthority()))) {
+			return true;
+		}
+		for (GrantedAuthority other : this.others) {
+			if (other.equals(o)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean containsAll(Collection<?> c) {
+		if (c instanceof AuthorityBitSet && ((AuthorityBitSet) c).dictionary == this.dictionary) {
+			AuthorityBitSet other = (AuthorityBitSet) c;
+			int i = 0;
+			for (int j = 0; j < other.wordIndexes.length; j++) {
+				while (i < this.wordIndexes.length && this.wordIndexes[i] < other.wordIndexes[j]) {
+					i++;
+				}
+				long word = (i < this.wordIndexes.length && this.wordIndexes[i] == other.wordIndexes[j]) ? this.words[i]
+						: 0;
+				if ((other.words[j] & ~word) != 0) {
+					return false;
+				}
+			}
+			for (GrantedAuthority authority : other.others) {
+				if (!contains(authority)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		for (Object element : c) {
+			if (!contains(element)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Return a view of the distinct authorities of this list, with the semantics of a
+	 * {@link Set}, for instance to use them as a key.
+	 * @return the distinct authorities
+	 */
+	public Set<GrantedAuthority> asSet() {
+		Set<GrantedAuthority> set = this.set;
+		if (set == null) {
+			set = new DistinctAuthorities();
+			this.set = set;
+		}
+		return set;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (obj instanceof AuthorityBitSet) {
+			return Arrays.equals(this.authorities, ((AuthorityBitSet) obj).authorities);
+		}
+		return super.equals(obj);
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = this.hash;
+		if (hash == 0) {
+			hash = Arrays.hashCode(this.authorities);
+			this.hash = hash;
+		}
+		return hash;
+	}
+
+	private Object writeReplace() {
+		return Collections.unmodifiableList(new ArrayList<>(this));
+	}
+
+	private final class DistinctAuthorities extends AbstractSet<GrantedAuthority> {
+
+		private final int size;
+
+		private int hash;
+
+		DistinctAuthorities() {
+			int size = AuthorityBitSet.this.others.length;
+			for (long word : AuthorityBitSet.this.words) {
+				size += Long.bitCount(word);
+			}
+			this.size = size;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return AuthorityBitSet.this.contains(o);
+		}
+
+		@Override
+		public boolean containsAll(Collection<?> c) {
+			return AuthorityBitSet.this
+					.containsAll((c instanceof DistinctAuthorities) ? ((DistinctAuthorities) c).list() : c);
+		}
+
+		private AuthorityBitSet list() {
+			return AuthorityBitSet.this;
+		}
+
+		@Override
+		public Iterator<GrantedAuthority> iterator() {
+			return new DistinctAuthorityIterator();
+		}
+
+		@Override
+		public int size() {
+			return this.size;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = this.hash;
+			if (hash == 0) {
+				hash = super.hashCode();
+				this.hash = hash;
+			}
+			return hash;
+		}
+
+	}
+
+	private final class DistinctAuthorityIterator implements Iterator<GrantedAuthority> {
+
+		private int word;
+
+		private long bits = (AuthorityBitSet.this.words.length > 0) ? AuthorityBitSet.this.words[0] : 0;
+
+		private int other;
+
+		@Override
+		public boolean hasNext() {
+			long[] words = AuthorityBitSet.this.words;
+			while (this.bits == 0 && this.word < words.length - 1) {
+				this.bits = words[++this.word];
+			}
+			return this.bits != 0 || this.other < AuthorityBitSet.this.others.length;
+		}
+
+		@Override
+		public GrantedAuthority next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			if (this.bits != 0) {
+				int id = (AuthorityBitSet.this.wordIndexes[this.word] << 6) + Long.numberOfTrailingZeros(this.bits);
+				this.bits &= this.bits - 1;
+				return AuthorityBitSet.this.dictionary.getAuthority(id);
+			}
+			return AuthorityBitSet.this.others[this.other++];
+		}
+
+	}
+
+}
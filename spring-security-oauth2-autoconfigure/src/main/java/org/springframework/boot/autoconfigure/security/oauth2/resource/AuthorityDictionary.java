@@ -0,0 +1,118 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.util.Assert;
+
+/**
+ * Bounded dictionary that maps authority names to dense ids, so that sets of authorities
+ * can be encoded as an {@link AuthorityBitSet}. Ids are never reused: once the dictionary
+ * is full, new names are no longer assigned an id.
+ *
+ * @since 2.7.0
+ */
+public final class AuthorityDictionary {
+
+	private static final AuthorityDictionary SHARED = new AuthorityDictionary(65536);
+
+	private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+	private final int maxSize;
+
+	private volatile GrantedAuthority[] authorities = new GrantedAuthority[64];
+
+	/**
+	 * Create a new {@link AuthorityDictionary} instance.
+	 * @param maxSize the maximum number of names the dictionary can hold
+	 */
+	public AuthorityDictionary(int maxSize) {
+		Assert.isTrue(maxSize >= 0, "MaxSize must not be negative");
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Return the instance shared by the token services of this module.
+	 * @return the shared instance
+	 */
+	public static AuthorityDictionary getSharedInstance() {
+		return SHARED;
+	}
+
+	/**
+	 * Return the id of the given authority name, assigning a new one if needed.
+	 * @param authority the name of the authority
+	 * @return the id or {@code -1} if the dictionary is full
+	 */
+	public int getOrCreateId(String authority) {
+		Assert.hasText(authority, "Authority must not be empty");
+		Integer id = this.ids.get(authority);
+		return (id != null) ? id : createId(authority);
+	}
+
+	private synchronized int createId(String authority) {
+		Integer id = this.ids.get(authority);
+		if (id != null) {
+			return id;
+		}
+		int size = this.ids.size();
+		if (size >= this.maxSize) {
+			return -1;
+		}
+		GrantedAuthority[] authorities = this.authorities;
+		if (size == authorities.length) {
+			authorities = Arrays.copyOf(authorities, Math.min(size * 2, this.maxSize));
+		}
+		authorities[size] = AuthorityInterner.getSharedInstance().getAuthority(authority);
+		this.authorities = authorities;
+		this.ids.put(authority, size);
+		return size;
+	}
+
+	/**
+	 * Return the id of the given authority name, without assigning a new one.
+	 * @param authority the name of the authority
+	 * @return the id or {@code -1} if the name is unknown
+	 */
+	public int getId(String authority) {
+		Integer id = (authority != null) ? this.ids.get(authority) : null;
+		return (id != null) ? id : -1;
+	}
+
+	/**
+	 * Return the authority with the given id.
+	 * @param id the id of the authority
+	 * @return the authority
+	 */
+	public GrantedAuthority getAuthority(int id) {
+		Assert.isTrue(id >= 0 && id < this.ids.size(), () -> "Unknown authority id " + id);
+		return this.authorities[id];
+	}
+
+	/**
+	 * Return the number of names held by the dictionary.
+	 * @return the number of names
+	 */
+	public int size() {
+		return this.ids.size();
+	}
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.util.Assert;
+
+/**
+ * Bounded pool of canonical {@link GrantedAuthority} instances and of immutable lists of
+ * authorities, shared by the token services so that authentications do not each allocate
+ * their own copies of the same few roles. Once a pool is full, new authorities or lists
+ * are still returned but no longer retained.
+ *
+ * @since 2.7.0
+ */
+public final class AuthorityInterner {
+
+	private static final AuthorityInterner SHARED = new AuthorityInterner(4096, 1024);
+
+	private final Map<String, GrantedAuthority> authorities = new ConcurrentHashMap<>();
+
+	private final Map<List<String>, List<GrantedAuthority>> authorityLists = new ConcurrentHashMap<>();
+
+	private final int maxAuthorities;
+
+	private final int maxAuthorityLists;
+
+	/**
+	 * Create a new {@link AuthorityInterner} instance.
+	 * @param maxAuthorities the maximum number of retained authorities
+	 * @param maxAuthorityLists the maximum number of retained lists of authorities
+	 */
+	public AuthorityInterner(int maxAuthorities, int maxAuthorityLists) {
+		Assert.isTrue(maxAuthorities >= 0, "MaxAuthorities must not be negative");
+		Assert.isTrue(maxAuthorityLists >= 0, "MaxAuthorityLists must not be negative");
+		this.maxAuthorities = maxAuthorities;
+		this.maxAuthorityLists = maxAuthorityLists;
+	}
+
+	/**
+	 * Return the instance shared by the token services of this module.
+	 * @return the shared instance
+	 */
+	public static AuthorityInterner getSharedInstance() {
+		return SHARED;
+	}
+
+	/**
+	 * Return the canonical authority with the given name.
+	 * @param authority the name of the authority
+	 * @return the authority
+	 */
+	public GrantedAuthority getAuthority(String authority) {
+		Assert.hasText(authority, "Authority must not be empty");
+		GrantedAuthority granted = this.authorities.get(authority);
+		if (granted != null) {
+			return granted;
+		}
+		granted = new SimpleGrantedAuthority(authority);
+		if (this.authorities.size() >= this.maxAuthorities) {
+			return granted;
+		}
+		GrantedAuthority existing = this.authorities.putIfAbsent(authority, granted);
+		return (existing != null) ? existing : granted;
+	}
+
+	/**
+	 * Return the canonical immutable list of the authorities with the given names. Names
+	 * are trimmed and blank names are ignored.
+	 * @param authorities the names of the authorities
+	 * @return the authorities
+	 */
+	public List<GrantedAuthority> getAuthorities(List<String> authorities) {
+		Assert.notNull(authorities, "Authorities must not be null");
+		List<GrantedAuthority> list = this.authorityLists.get(authorities);
+		if (list != null) {
+			return list;
+		}
+		List<GrantedAuthority> granted = new ArrayList<>(authorities.size());
+		for (String authority : authorities) {
+			String name = (authority != null) ? authority.trim() : "";
+			if (!name.isEmpty()) {
+				granted.add(getAuthority(name));
+			}
+		}
+		list = Collections.unmodifiableList(Arrays.asList(granted.toArray(new GrantedAuthority[0])));
+		if (this.authorityLists.size() >= this.maxAuthorityLists) {
+			return list;
+		}
+		List<String> key = Collections.unmodifiableList(new ArrayList<>(authorities));
+		List<GrantedAuthority> existing = this.authorityLists.putIfAbsent(key, list);
+		return (existing != null) ? existing : list;
+	}
+
+	/**
+	 * Return the canonical immutable list of the authorities with the given names,
+	 * converting each element with {@link Object#toString()}.
+	 * @param authorities the names of the authorities
+	 * @return the authorities
+	 */
+	public List<GrantedAuthority> getAuthorities(Collection<?> authorities) {
+		Assert.notNull(authorities, "Authorities must not be null");
+		if (authorities instanceof List && allStrings(authorities)) {
+			@SuppressWarnings("unchecked")
+			List<String> names = (List<String>) authorities;
+			return getAuthorities(names);
+		}
+		List<String> names = new ArrayList<>(authorities.size());
+		for (Object authority : authorities) {
+			names.add((authority != null) ? authority.toString() : null);
+		}
+		return getAuthorities(names);
+	}
+
+	private boolean allStrings(Collection<?> collection) {
+		for (Object element : collection) {
+			if (!(element instanceof String)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Return the number of retained authorities.
+	 * @return the number of authorities
+	 */
+	public int size() {
+		return this.authorities.size();
+	}
+
+}
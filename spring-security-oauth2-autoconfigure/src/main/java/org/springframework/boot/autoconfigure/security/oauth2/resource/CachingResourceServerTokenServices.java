@@ -0,0 +1,306 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ResourceServerTokenServices} that caches the authentications loaded by another
+ * {@link ResourceServerTokenServices}, so that a remote server is only called once per
+ * token and time to live. Entries can be evicted early, for instance when a token is
+ * revoked or when a user logs out.
+ * <p>
+ * An eviction also applies to the calls to the delegate that are in flight: an
+ * authentication loaded while its token, its user or the whole cache was evicted is
+ * returned but not cached, so that a revocation cannot be undone by a slow remote call.
+ *
+ * @since 2.7.0
+ */
+public class CachingResourceServerTokenServices implements ResourceServerTokenServices {
+
+	private static final int EVICTION_STRIPES = 64;
+
+	private final ResourceServerTokenServices delegate;
+
+	private final long timeToLive;
+
+	private final int maxSize;
+
+	private final Map<String, CachedAuthentication> cache = new ConcurrentHashMap<>();
+
+	private final AtomicLongArray tokenEvictions = new AtomicLongArray(EVICTION_STRIPES);
+
+	private final AtomicLong bulkEvictions = new AtomicLong();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	private final LongAdder staleHits = new LongAdder();
+
+	private long staleIfError;
+
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Create a new {@link CachingResourceServerTokenServices} instance.
+	 * @param delegate the token services to delegate to
+	 * @param timeToLive the time to live of a cached authentication
+	 * @param maxSize the maximum number of cached authentications
+	 */
+	public CachingResourceServerTokenServices(ResourceServerTokenServices delegate, Duration timeToLive, int maxSize) {
+		Assert.notNull(delegate, "Delegate must not be null");
+		Assert.isTrue(timeToLive != null && !timeToLive.isNegative() && !timeToLive.isZero(),
+				"TimeToLive must be positive");
+		Assert.isTrue(maxSize > 0, "MaxSize must be positive");
+		this.delegate = delegate;
+		this.timeToLive = timeToLive.toMillis();
+		this.maxSize = maxSize;
+	}
+
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "Clock must not be null");
+		this.clock = clock;
+	}
+
+	/**
+	 * Set for how long after its expiry a cached authentication can still be used when
+	 * the delegate throws a {@link TokenServicesUnavailableException}. Authentications
+	 * that were explicitly evicted are never served. Disabled by default.
+	 * @param staleIfError the grace period
+	 */
+	public void setStaleIfError(Duration staleIfError) {
+		Assert.notNull(staleIfError, "StaleIfError must not be null");
+		Assert.isTrue(!staleIfError.isNegative(), "StaleIfError must not be negative");
+		this.staleIfError = staleIfError.toMillis();
+	}
+
+	@Override
+	public OAuth2Authentication loadAuthentication(String accessToken)
+			throws AuthenticationException, InvalidTokenException {
+		long now = this.clock.millis();
+		CachedAuthentication cached = this.cache.get(accessToken);
+		if (cached != null && !cached.isExpired(now)) {
+			this.hits.increment();
+			ServerTiming.recordCache("hit");
+			return cached.authentication;
+		}
+		this.misses.increment();
+		ServerTiming.recordCache("miss");
+		int stripe = stripe(accessToken);
+		long tokenEvictions = this.tokenEvictions.get(stripe);
+		long bulkEvictions = this.bulkEvictions.get();
+		OAuth2Authentication authentication;
+		try {
+			authentication = this.delegate.loadAuthentication(accessToken);
+		}
+		catch (TokenServicesUnavailableException ex) {
+			if (cached != null && now < cached.expiresAt + this.staleIfError && this.cache.get(accessToken) == cached) {
+				this.staleHits.increment();
+				ServerTiming.recordCache("stale");
+				return cached.authentication;
+			}
+			remove(accessToken, cached);
+			throw ex;
+		}
+		catch (RuntimeException ex) {
+			remove(accessToken, cached);
+			throw ex;
+		}
+		remove(accessToken, cached);
+		if (authentication != null) {
+			CachedAuthentication loaded = new CachedAuthentication(authentication, now + this.timeToLive);
+			put(accessToken, loaded, now);
+			// Evictions bump their counter before removing, so one that raced with the
+			// call to the delegate either sees the new entry or is seen here
+			if (this.tokenEvictions.get(stripe) != tokenEvictions || this.bulkEvictions.get() != bulkEvictions) {
+				remove(accessToken, loaded);
+			}
+		}
+		return authentication;
+	}
+
+	private static int stripe(String accessToken) {
+		int hash = accessToken.hashCode();
+		return (hash ^ (hash >>> 16)) & (EVICTION_STRIPES - 1);
+	}
+
+	private void remove(String accessToken, CachedAuthentication cached) {
+		if (cached != null && this.cache.remove(accessToken, cached)) {
+			this.evictions.increment();
+		}
+	}
+
+	@Override
+	public OAuth2AccessToken readAccessToken(String accessToken) {
+		return this.delegate.readAccessToken(accessToken);
+	}
+
+	private void put(String accessToken, CachedAuthentication cached, long now) {
+		if (this.cache.size() >= this.maxSize) {
+			evictExpired(now);
+		}
+		Iterator<String> keys = this.cache.keySet().iterator();
+		while (this.cache.size() >= this.maxSize && keys.hasNext()) {
+			if (this.cache.remove(keys.next()) != null) {
+				this.evictions.increment();
+			}
+		}
+		this.cache.put(accessToken, cached);
+	}
+
+	private void evictExpired(long now) {
+		this.cache.entrySet().removeIf((entry) -> {
+			boolean expired = entry.getValue().isExpired(now);
+			if (expired) {
+				this.evictions.increment();
+			}
+			return expired;
+		});
+	}
+
+	/**
+	 * Return whether an authentication that has not expired is cached for the given
+	 * token.
+	 * @param accessToken the token value
+	 * @return {@code true} if a call with that token would be served by the cache
+	 */
+	public boolean contains(String accessToken) {
+		CachedAuthentication cached = this.cache.get(accessToken);
+		return cached != null && !cached.isExpired(this.clock.millis());
+	}
+
+	/**
+	 * Evict the authentication cached for the given token, if any.
+	 * @param accessToken the token value
+	 * @return {@code true} if an authentication was evicted
+	 */
+	public boolean evict(String accessToken) {
+		this.tokenEvictions.incrementAndGet(stripe(accessToken));
+		boolean evicted = this.cache.remove(accessToken) != null;
+		if (evicted) {
+			this.evictions.increment();
+		}
+		return evicted;
+	}
+
+	/**
+	 * Evict all the authentications cached for the user with the given name.
+	 * @param name the name of the user
+	 * @return the number of evicted authentications
+	 */
+	public int evictUser(String name) {
+		this.bulkEvictions.incrementAndGet();
+		int[] count = new int[1];
+		this.cache.values().removeIf((cached) -> {
+			boolean matches = name.equals(cached.authentication.getName());
+			if (matches) {
+				count[0]++;
+			}
+			return matches;
+		});
+		this.evictions.add(count[0]);
+		return count[0];
+	}
+
+	/**
+	 * Evict all the cached authentications.
+	 */
+	public void clear() {
+		this.bulkEvictions.incrementAndGet();
+		int size = this.cache.size();
+		this.cache.clear();
+		this.evictions.add(size);
+	}
+
+	/**
+	 * Return the number of cached authentications, including the ones that have expired
+	 * but have not yet been evicted.
+	 * @return the size of the cache
+	 */
+	public int size() {
+		return this.cache.size();
+	}
+
+	/**
+	 * Return the number of calls that were served by the cache.
+	 * @return the number of hits
+	 */
+	public long getHitCount() {
+		return this.hits.sum();
+	}
+
+	/**
+	 * Return the number of calls that were served with an expired authentication because
+	 * the delegate was unavailable.
+	 * @return the number of stale hits
+	 */
+	public long getStaleHitCount() {
+		return this.staleHits.sum();
+	}
+
+	/**
+	 * Return the number of calls that had to be delegated.
+	 * @return the number of misses
+	 */
+	public long getMissCount() {
+		return this.misses.sum();
+	}
+
+	/**
+	 * Return the number of authentications that were evicted, either because they
+	 * expired, because the cache was full or because they were explicitly evicted.
+	 * @return the number of evictions
+	 */
+	public long getEvictionCount() {
+		return this.evictions.sum();
+	}
+
+	private static final class CachedAuthentication {
+
+		private final OAuth2Authentication authentication;
+
+		private final long expiresAt;
+
+		private CachedAuthentication(OAuth2Authentication authentication, long expiresAt) {
+			this.authentication = authentication;
+			this.expiresAt = expiresAt;
+		}
+
+		private boolean isExpired(long now) {
+			return now >= this.expiresAt;
+		}
+
+	}
+
+}
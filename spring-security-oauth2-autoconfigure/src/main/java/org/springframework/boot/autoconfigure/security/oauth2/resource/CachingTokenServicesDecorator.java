@@ -0,0 +1,128 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.boot.autoconfigure.security.oauth2.revocation.TokenRevocationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.Ordered;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+/**
+ * {@link ResourceServerTokenServicesDecorator} that caches the authentications loaded by
+ * remote token services and evicts them when a {@link TokenRevocationEvent} is received.
+ *
+ * @since 2.7.0
+ * @see CachingResourceServerTokenServices
+ */
+public class CachingTokenServicesDecorator
+		implements ResourceServerTokenServicesDecorator, ApplicationListener<TokenRevocationEvent>, Ordered {
+
+	/**
+	 * The order of the decorator.
+	 */
+	public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 30;
+
+	private final Duration timeToLive;
+
+	private final int maxSize;
+
+	private final Map<TokenValidationStrategy, CachingResourceServerTokenServices> caches = new ConcurrentHashMap<>();
+
+	private Duration staleIfError = Duration.ZERO;
+
+	public CachingTokenServicesDecorator(Duration timeToLive, int maxSize) {
+		this.timeToLive = timeToLive;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Set for how long after its expiry a cached authentication can still be used when
+	 * the remote token services are unavailable.
+	 * @param staleIfError the grace period
+	 * @see CachingResourceServerTokenServices#setStaleIfError(Duration)
+	 */
+	public void setStaleIfError(Duration staleIfError) {
+		this.staleIfError = staleIfError;
+	}
+
+	@Override
+	public int getOrder() {
+		return ORDER;
+	}
+
+	@Override
+	public ResourceServerTokenServices decorate(ResourceServerTokenServices tokenServices,
+			TokenValidationStrategy strategy) {
+		if (!strategy.isRemote()) {
+			return tokenServices;
+		}
+		CachingResourceServerTokenServices cache = new CachingResourceServerTokenServices(tokenServices,
+				this.timeToLive, this.maxSize);
+		cache.setStaleIfError(this.staleIfError);
+		this.caches.put(strategy, cache);
+		return cache;
+	}
+
+	@Override
+	public void onApplicationEvent(TokenRevocationEvent event) {
+		if (event.getType() == TokenRevocationEvent.Type.TOKEN) {
+			evict(event.getValue());
+		}
+		else {
+			for (CachingResourceServerTokenServices cache : this.caches.values()) {
+				cache.evictUser(event.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Evict the authentication cached for the given token from every cache.
+	 * @param accessToken the token value
+	 * @return {@code true} if an authentication was evicted from at least one cache
+	 */
+	public boolean evict(String accessToken) {
+		boolean evicted = false;
+		for (CachingResourceServerTokenServices cache : this.caches.values()) {
+			evicted |= cache.evict(accessToken);
+		}
+		return evicted;
+	}
+
+	/**
+	 * Evict all the cached authentications from every cache.
+	 */
+	public void clear() {
+		for (CachingResourceServerTokenServices cache : this.caches.values()) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Return the caches created by this decorator, keyed by the strategy of the token
+	 * services they wrap.
+	 * @return the caches
+	 */
+	public Map<TokenValidationStrategy, CachingResourceServerTokenServices> getCaches() {
+		return Collections.unmodifiableMap(this.caches);
+	}
+
+}
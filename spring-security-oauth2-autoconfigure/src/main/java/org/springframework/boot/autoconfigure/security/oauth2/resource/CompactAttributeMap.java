@@ -0,0 +1,172 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.springframework.util.Assert;
+
+/**
+ * Immutable {@link Map} of attributes, typically the details of an authentication, that
+ * uses much less memory than a {@link java.util.LinkedHashMap}. Keys are kept sorted in
+ * an array and looked up with a binary search, values in a parallel array. Nested maps
+ * and lists are compacted too.
+ *
+ * @since 2.7.0
+ */
+public final class CompactAttributeMap extends AbstractMap<String, Object> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final CompactAttributeMap EMPTY = new CompactAttributeMap(new String[0], new Object[0]);
+
+	private final String[] keys;
+
+	private final Object[] values;
+
+	private CompactAttributeMap(String[] keys, Object[] values) {
+		this.keys = keys;
+		this.values = values;
+	}
+
+	/**
+	 * Return a {@link CompactAttributeMap} with the same entries as the given map.
+	 * @param map the source map, which must not contain {@code null} keys
+	 * @return the compact map
+	 */
+	public static CompactAttributeMap of(Map<String, ?> map) {
+		Assert.notNull(map, "Map must not be null");
+		if (map instanceof CompactAttributeMap) {
+			return (CompactAttributeMap) map;
+		}
+		if (map.isEmpty()) {
+			return EMPTY;
+		}
+		String[] keys = new String[map.size()];
+		int index = 0;
+		for (String key : map.keySet()) {
+			Assert.notNull(key, "Map must not contain null keys");
+			keys[index++] = key.intern();
+		}
+		Arrays.sort(keys);
+		Object[] values = new Object[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			values[i] = compact(map.get(keys[i]));
+		}
+		return new CompactAttributeMap(keys, values);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Object compact(Object value) {
+		if (value instanceof Map) {
+			return of((Map<String, ?>) value);
+		}
+		if (value instanceof List) {
+			List<?> list = (List<?>) value;
+			if (list.isEmpty()) {
+				return Collections.emptyList();
+			}
+			Object[] elements = new Object[list.size()];
+			for (int i = 0; i < elements.length; i++) {
+				elements[i] = compact(list.get(i));
+			}
+			return Collections.unmodifiableList(Arrays.asList(elements));
+		}
+		return value;
+	}
+
+	@Override
+	public int size() {
+		return this.keys.length;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	@Override
+	public Object get(Object key) {
+		int index = indexOf(key);
+		return (index >= 0) ? this.values[index] : null;
+	}
+
+	private int indexOf(Object key) {
+		return (key instanceof String) ? Arrays.binarySearch(this.keys, key) : -1;
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		return new AbstractSet<Entry<String, Object>>() {
+
+			@Override
+			public Iterator<Entry<String, Object>> iterator() {
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size() {
+				return CompactAttributeMap.this.keys.length;
+			}
+
+		};
+	}
+
+	private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+		input.defaultReadObject();
+		for (int i = 0; i < this.keys.length; i++) {
+			this.keys[i] = this.keys[i].intern();
+		}
+	}
+
+	private Object readResolve() {
+		return (this.keys.length == 0) ? EMPTY : this;
+	}
+
+	private final class EntryIterator implements Iterator<Entry<String, Object>> {
+
+		private int index;
+
+		@Override
+		public boolean hasNext() {
+			return this.index < CompactAttributeMap.this.keys.length;
+		}
+
+		@Override
+		public Entry<String, Object> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			int current = this.index++;
+			return new SimpleImmutableEntry<>(CompactAttributeMap.this.keys[current],
+					CompactAttributeMap.this.values[current]);
+		}
+
+	}
+
+}
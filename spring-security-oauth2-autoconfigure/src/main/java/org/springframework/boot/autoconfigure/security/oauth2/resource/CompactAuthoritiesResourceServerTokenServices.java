@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ResourceServerTokenServices} that turns the authentications loaded by other
+ * token services into {@link CompactOAuth2Authentication compact authentications}.
+ *
+ * @since 2.7.0
+ */
+public class CompactAuthoritiesResourceServerTokenServices implements ResourceServerTokenServices {
+
+	private final ResourceServerTokenServices delegate;
+
+	private final AuthorityDictionary dictionary;
+
+	public CompactAuthoritiesResourceServerTokenServices(ResourceServerTokenServices delegate,
+			AuthorityDictionary dictionary) {
+		Assert.notNull(delegate, "Delegate must not be null");
+		Assert.notNull(dictionary, "Dictionary must not be null");
+		this.delegate = delegate;
+		this.dictionary = dictionary;
+	}
+
+	@Override
+	public OAuth2Authentication loadAuthentication(String accessToken)
+			throws AuthenticationException, InvalidTokenException {
+		OAuth2Authentication authentication = this.delegate.loadAuthentication(accessToken);
+		if (authentication == null || authentication instanceof CompactOAuth2Authentication) {
+			return authentication;
+		}
+		return new CompactOAuth2Authentication(authentication, this.dictionary);
+	}
+
+	@Override
+	public OAuth2AccessToken readAccessToken(String accessToken) {
+		return this.delegate.readAccessToken(accessToken);
+	}
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.util.Assert;
+
+/**
+ * {@link OAuth2Authentication} whose {@link #getAuthorities() authorities} and
+ * {@link #getScopes() scopes} are encoded as {@link AuthorityBitSet bit sets}, so that
+ * checking whether an authority or a scope is granted does not depend on their number.
+ * The authorities keep the order in which the parent holds them. The request and the user
+ * authentication are held by the parent, so a compact authentication is equal to the
+ * authentication it was created from, and it is serialized as a regular
+ * {@link OAuth2Authentication}.
+ *
+ * @since 2.7.0
+ */
+public class CompactOAuth2Authentication extends OAuth2Authentication {
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient AuthorityBitSet authorities;
+
+	private final transient AuthorityBitSet scopes;
+
+	/**
+	 * Create a new {@link CompactOAuth2Authentication} instance.
+	 * @param authentication the authentication to copy
+	 * @param dictionary the dictionary used to encode the authorities
+	 */
+	public CompactOAuth2Authentication(OAuth2Authentication authentication, AuthorityDictionary dictionary) {
+		super(authentication.getOAuth2Request(), authentication.getUserAuthentication());
+		Assert.notNull(dictionary, "Dictionary must not be null");
+		this.authorities = AuthorityBitSet.of(super.getAuthorities(), dictionary);
+		this.scopes = AuthorityBitSet.ofNames(getOAuth2Request().getScope(), dictionary);
+		setDetails(authentication.getDetails());
+	}
+
+	@Override
+	public AuthorityBitSet getAuthorities() {
+		return this.authorities;
+	}
+
+	/**
+	 * Return whether the authority with the given name is granted.
+	 * @param authority the name of the authority
+	 * @return {@code true} if the authority is granted
+	 */
+	public boolean hasAuthority(String authority) {
+		return this.authorities.hasAuthority(authority);
+	}
+
+	/**
+	 * Return the scopes of the {@link #getOAuth2Request() request}, encoded as
+	 * authorities.
+	 * @return the scopes
+	 */
+	public AuthorityBitSet getScopes() {
+		return this.scopes;
+	}
+
+	/**
+	 * Return whether the given scope is granted.
+	 * @param scope the scope
+	 * @return {@code true} if the scope is granted
+	 */
+	public boolean hasScope(String scope) {
+		return this.scopes.hasAuthority(scope);
+	}
+
+	private Object writeReplace() {
+		OAuth2Authentication authentication = new OAuth2Authentication(getOAuth2Request(), getUserAuthentication());
+		authentication.setDetails(getDetails());
+		return authentication;
+	}
+
+}
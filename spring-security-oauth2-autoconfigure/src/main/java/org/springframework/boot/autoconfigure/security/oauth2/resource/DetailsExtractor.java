@@ -0,0 +1,38 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.Map;
+
+/**
+ * Strategy used by {@link UserInfoTokenServices} to extract the details of the
+ * authentication from the resource server's response. The details are retained for the
+ * life of the authentication, which can be the life of an HTTP session.
+ *
+ * @since 2.7.0
+ */
+@FunctionalInterface
+public interface DetailsExtractor {
+
+	/**
+	 * Extract the details that should be set on the authentication.
+	 * @param map the source map
+	 * @return the extracted details or {@code null}
+	 */
+	Object extractDetails(Map<String, Object> map);
+
+}
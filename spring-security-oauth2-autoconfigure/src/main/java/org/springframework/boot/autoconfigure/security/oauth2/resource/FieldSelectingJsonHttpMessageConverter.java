@@ -0,0 +1,181 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link HttpMessageConverter} that reads a JSON object into a {@link Map} containing
+ * only some of its fields. The response is read with the Jackson streaming API and the
+ * other fields are skipped without being bound, which saves time and memory when the
+ * token info or user info endpoints return large documents. Nested fields are selected
+ * with a dot-separated path, for instance {@code realm_access.roles}, or with the list of
+ * the names of the fields along the path when a name contains a dot, see
+ * {@link #forPaths(Collection)}. This converter cannot write.
+ *
+ * @since 2.7.0
+ */
+public class FieldSelectingJsonHttpMessageConverter extends AbstractHttpMessageConverter<Map<String, Object>> {
+
+	private final ObjectMapper objectMapper;
+
+	private final Map<String, Object> selection;
+
+	/**
+	 * Create a new {@link FieldSelectingJsonHttpMessageConverter} instance.
+	 * @param fields the paths of the fields to read
+	 */
+	public FieldSelectingJsonHttpMessageConverter(Collection<String> fields) {
+		this(new ObjectMapper(), fields);
+	}
+
+	/**
+	 * Create a new {@link FieldSelectingJsonHttpMessageConverter} instance.
+	 * @param objectMapper the object mapper used to bind the selected fields
+	 * @param fields the paths of the fields to read
+	 */
+	public FieldSelectingJsonHttpMessageConverter(ObjectMapper objectMapper, Collection<String> fields) {
+		this(objectMapper, select(split(fields)));
+	}
+
+	private FieldSelectingJsonHttpMessageConverter(ObjectMapper objectMapper, Map<String, Object> selection) {
+		super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+		Assert.notNull(objectMapper, "ObjectMapper must not be null");
+		this.objectMapper = objectMapper;
+		this.selection = selection;
+	}
+
+	/**
+	 * Create a new {@link FieldSelectingJsonHttpMessageConverter} instance reading the
+	 * fields at the given paths, each path being the list of the names of the fields from
+	 * the top-level one. Unlike the dot-separated syntax, names can contain dots, as the
+	 * namespaced claims such as {@code https://example.com/roles} do.
+	 * @param paths the paths of the fields to read
+	 * @return the converter
+	 */
+	public static FieldSelectingJsonHttpMessageConverter forPaths(Collection<? extends List<String>> paths) {
+		return new FieldSelectingJsonHttpMessageConverter(new ObjectMapper(), select(paths));
+	}
+
+	private static List<List<String>> split(Collection<String> fields) {
+		Assert.notNull(fields, "Fields must not be null");
+		List<List<String>> paths = new ArrayList<>(fields.size());
+		for (String field : fields) {
+			Assert.hasText(field, "Fields must not contain empty elements");
+			paths.add(Arrays.asList(StringUtils.delimitedListToStringArray(field, ".")));
+		}
+		return paths;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> select(Collection<? extends List<String>> paths) {
+		Assert.notNull(paths, "Paths must not be null");
+		Map<String, Object> selection = new LinkedHashMap<>();
+		for (List<String> path : paths) {
+			Assert.isTrue(path != null && !path.isEmpty(), "Paths must not contain empty elements");
+			Map<String, Object> node = selection;
+			for (int i = 0; i < path.size() && node != null; i++) {
+				String name = path.get(i);
+				if (i == path.size() - 1) {
+					node.put(name, null);
+				}
+				else if (node.containsKey(name)) {
+					node = (Map<String, Object>) node.get(name);
+				}
+				else {
+					Map<String, Object> child = new LinkedHashMap<>();
+					node.put(name, child);
+					node = child;
+				}
+			}
+		}
+		return Collections.unmodifiableMap(selection);
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return clazz.isAssignableFrom(LinkedHashMap.class);
+	}
+
+	@Override
+	public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+		return false;
+	}
+
+	@Override
+	protected Map<String, Object> readInternal(Class<? extends Map<String, Object>> clazz,
+			HttpInputMessage inputMessage) throws IOException {
+		try (JsonParser parser = this.objectMapper.getFactory().createParser(inputMessage.getBody())) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new HttpMessageNotReadableException("JSON object expected", inputMessage);
+			}
+			return readObject(parser, this.selection);
+		}
+		catch (JsonProcessingException ex) {
+			throw new HttpMessageNotReadableException("JSON parse error: " + ex.getOriginalMessage(), ex, inputMessage);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> readObject(JsonParser parser, Map<String, Object> selection) throws IOException {
+		Map<String, Object> result = new LinkedHashMap<>();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if (!selection.containsKey(name)) {
+				parser.skipChildren();
+				continue;
+			}
+			Map<String, Object> nested = (Map<String, Object>) selection.get(name);
+			if (nested != null && token == JsonToken.START_OBJECT) {
+				result.put(name, readObject(parser, nested));
+			}
+			else {
+				result.put(name, this.objectMapper.readValue(parser, Object.class));
+			}
+		}
+		return result;
+	}
+
+	@Override
+	protected void writeInternal(Map<String, Object> map, HttpOutputMessage outputMessage) {
+		throw new HttpMessageNotWritableException("FieldSelectingJsonHttpMessageConverter cannot write");
+	}
+
+}
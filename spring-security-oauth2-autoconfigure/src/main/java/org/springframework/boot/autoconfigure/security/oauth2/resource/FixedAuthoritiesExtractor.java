@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2017 the original author or authors.
+ * Copyright 2012-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,19 +17,21 @@
 package org.springframework.boot.autoconfigure.security.oauth2.resource;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
 /**
  * Default implementation of {@link AuthoritiesExtractor}. Extracts the authorities from
  * the map with the key {@code authorities}. If no such value exists, a single
- * {@code ROLE_USER} authority is returned.
+ * {@code ROLE_USER} authority is returned. The returned list is mutable, its elements are
+ * the canonical authorities of the {@link AuthorityInterner#getSharedInstance() shared
+ * interner}.
  *
  * @author Dave Syer
  * @since 1.3.0
@@ -38,7 +40,7 @@ public class FixedAuthoritiesExtractor implements AuthoritiesExtractor {
 
 	private static final String AUTHORITIES = "authorities";
 
-	private static final String[] AUTHORITY_KEYS = { "authority", "role", "value" };
+	static final String[] AUTHORITY_KEYS = { "authority", "role", "value" };
 
 	@Override
 	public List<GrantedAuthority> extractAuthorities(Map<String, Object> map) {
@@ -46,7 +48,9 @@ public class FixedAuthoritiesExtractor implements AuthoritiesExtractor {
 		if (map.containsKey(AUTHORITIES)) {
 			authorities = asAuthorities(map.get(AUTHORITIES));
 		}
-		return AuthorityUtils.commaSeparatedStringToAuthorityList(authorities);
+		// Copied as callers may add to the list, the authorities themselves are shared
+		return new ArrayList<>(AuthorityInterner.getSharedInstance()
+				.getAuthorities(Arrays.asList(StringUtils.tokenizeToStringArray(authorities, ","))));
 	}
 
 	private String asAuthorities(Object object) {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -27,8 +27,8 @@ import java.util.Map;
  */
 public class FixedPrincipalExtractor implements PrincipalExtractor {
 
-	private static final String[] PRINCIPAL_KEYS = new String[] { "user", "username", "userid", "user_id", "login",
-			"id", "name" };
+	static final String[] PRINCIPAL_KEYS = new String[] { "user", "username", "userid", "user_id", "login", "id",
+			"name" };
 
 	@Override
 	public Object extractPrincipal(Map<String, Object> map) {
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ResourceServerTokenServices} that emits a Java Flight Recorder event for each
+ * token validation made by another {@link ResourceServerTokenServices}. The event records
+ * the duration of the validation, the {@link TokenValidationStrategy#getName() strategy}
+ * and an outcome that is either {@code valid}, {@code invalid} or {@code error}. When the
+ * event is not enabled in a running recording, the overhead is limited to reading the
+ * clock.
+ *
+ * @since 2.7.0
+ */
+public class FlightRecorderResourceServerTokenServices implements ResourceServerTokenServices {
+
+	private final ResourceServerTokenServices delegate;
+
+	private final TokenValidationStrategy strategy;
+
+	/**
+	 * Create a new {@link FlightRecorderResourceServerTokenServices} instance.
+	 * @param delegate the token services to record
+	 * @param strategy the strategy of the token services
+	 */
+	public FlightRecorderResourceServerTokenServices(ResourceServerTokenServices delegate,
+			TokenValidationStrategy strategy) {
+		Assert.notNull(delegate, "Delegate must not be null");
+		Assert.notNull(strategy, "Strategy must not be null");
+		this.delegate = delegate;
+		this.strategy = strategy;
+	}
+
+	@Override
+	public OAuth2Authentication loadAuthentication(String accessToken)
+			throws AuthenticationException, InvalidTokenException {
+		TokenValidationEvent event = new TokenValidationEvent();
+		event.begin();
+		String outcome = "error";
+		try {
+			OAuth2Authentication authentication = this.delegate.loadAuthentication(accessToken);
+			outcome = (authentication != null) ? "valid" : "invalid";
+			return authentication;
+		}
+		catch (TokenServicesUnavailableException ex) {
+			throw ex;
+		}
+		catch (OAuth2Exception | AuthenticationException ex) {
+			outcome = "invalid";
+			throw ex;
+		}
+		finally {
+			event.end(this.strategy, outcome);
+		}
+	}
+
+	@Override
+	public OAuth2AccessToken readAccessToken(String accessToken) {
+		return this.delegate.readAccessToken(accessToken);
+	}
+
+}
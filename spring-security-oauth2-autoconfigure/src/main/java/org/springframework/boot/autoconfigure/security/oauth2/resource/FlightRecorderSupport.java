@@ -0,0 +1,57 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import org.springframework.util.ClassUtils;
+
+/**
+ * Records {@link RemoteEndpointEvent flight recorder events} when flight recorder is
+ * available, and does nothing otherwise. Events are typed as {@link Object} so that
+ * callers do not link against {@code jdk.jfr}.
+ *
+ * @since 2.7.0
+ */
+final class FlightRecorderSupport {
+
+	private static final boolean PRESENT = ClassUtils.isPresent("jdk.jfr.Event",
+			FlightRecorderSupport.class.getClassLoader());
+
+	private FlightRecorderSupport() {
+	}
+
+	/**
+	 * Begin recording a call to a remote endpoint.
+	 * @return the event or {@code null} if flight recorder is not available
+	 */
+	static Object beginRemoteCall() {
+		return PRESENT ? RemoteEndpointEvent.start() : null;
+	}
+
+	/**
+	 * End recording a call to a remote endpoint.
+	 * @param event the event returned by {@link #beginRemoteCall()}
+	 * @param endpoint the kind of endpoint, for instance {@code key-uri}
+	 * @param uri the URI of the endpoint
+	 * @param success whether the call succeeded
+	 */
+	static void endRemoteCall(Object event, String endpoint, String uri, boolean success) {
+		if (event != null) {
+			((RemoteEndpointEvent) event).end(endpoint, uri, success);
+		}
+	}
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import org.springframework.core.Ordered;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+/**
+ * {@link ResourceServerTokenServicesDecorator} that emits a Java Flight Recorder event
+ * for each token validation. Must only be used when flight recorder is available.
+ *
+ * @since 2.7.0
+ * @see FlightRecorderResourceServerTokenServices
+ */
+public class FlightRecorderTokenServicesDecorator implements ResourceServerTokenServicesDecorator, Ordered {
+
+	/**
+	 * The order of the decorator.
+	 */
+	public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 45;
+
+	@Override
+	public int getOrder() {
+		return ORDER;
+	}
+
+	@Override
+	public ResourceServerTokenServices decorate(ResourceServerTokenServices tokenServices,
+			TokenValidationStrategy strategy) {
+		return new FlightRecorderResourceServerTokenServices(tokenServices, strategy);
+	}
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ResourceServerTokenServices} that looks at the shape of a token to send JWTs to
+ * token services verifying them locally and any other (opaque) token to token services
+ * validating them remotely. Useful while migrating from opaque to JWT tokens.
+ *
+ * @since 2.7.0
+ */
+public class HybridResourceServerTokenServices implements ResourceServerTokenServices {
+
+	private final ResourceServerTokenServices jwtTokenServices;
+
+	private final ResourceServerTokenServices opaqueTokenServices;
+
+	/**
+	 * Create a new {@link HybridResourceServerTokenServices} instance.
+	 * @param jwtTokenServices the token services for JWTs
+	 * @param opaqueTokenServices the token services for the other tokens
+	 */
+	public HybridResourceServerTokenServices(ResourceServerTokenServices jwtTokenServices,
+			ResourceServerTokenServices opaqueTokenServices) {
+		Assert.notNull(jwtTokenServices, "JwtTokenServices must not be null");
+		Assert.notNull(opaqueTokenServices, "OpaqueTokenServices must not be null");
+		this.jwtTokenServices = jwtTokenServices;
+		this.opaqueTokenServices = opaqueTokenServices;
+	}
+
+	@Override
+	public OAuth2Authentication loadAuthentication(String accessToken)
+			throws AuthenticationException, InvalidTokenException {
+		return getTokenServices(accessToken).loadAuthentication(accessToken);
+	}
+
+	@Override
+	public OAuth2AccessToken readAccessToken(String accessToken) {
+		return getTokenServices(accessToken).readAccessToken(accessToken);
+	}
+
+	private ResourceServerTokenServices getTokenServices(String accessToken) {
+		return isJwt(accessToken) ? this.jwtTokenServices : this.opaqueTokenServices;
+	}
+
+	/**
+	 * Return whether the given token looks like a JWT: three dot-separated segments, the
+	 * first one being the Base64URL encoding of a JSON object.
+	 * @param accessToken the token value
+	 * @return {@code true} if the token looks like a JWT
+	 */
+	static boolean isJwt(String accessToken) {
+		if (accessToken == null || !accessToken.startsWith("eyJ")) {
+			return false;
+		}
+		int first = accessToken.indexOf('.');
+		int second = (first != -1) ? accessToken.indexOf('.', first + 1) : -1;
+		return second != -1 && accessToken.indexOf('.', second + 1) == -1;
+	}
+
+	public ResourceServerTokenServices getJwtTokenServices() {
+		return this.jwtTokenServices;
+	}
+
+	public ResourceServerTokenServices getOpaqueTokenServices() {
+		return this.opaqueTokenServices;
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.provider.token.DefaultUserAuthenticationConverter;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link DefaultUserAuthenticationConverter} that returns the canonical authorities of an
+ * {@link AuthorityInterner} rather than new instances for every token. Authorities are
+ * parsed exactly as by {@link DefaultUserAuthenticationConverter}: elements of a
+ * collection are split on commas and {@code null} elements become a {@code "null"}
+ * authority.
+ *
+ * @since 2.7.0
+ */
+public class InterningUserAuthenticationConverter extends DefaultUserAuthenticationConverter {
+
+	private final AuthorityInterner interner;
+
+	public InterningUserAuthenticationConverter() {
+		this(AuthorityInterner.getSharedInstance());
+	}
+
+	public InterningUserAuthenticationConverter(AuthorityInterner interner) {
+		this.interner = interner;
+	}
+
+	@Override
+	protected Collection<? extends GrantedAuthority> getAuthorities(Map<String, ?> map) {
+		Object authorities = map.get(AUTHORITIES);
+		if (authorities instanceof String) {
+			return this.interner
+					.getAuthorities(Arrays.asList(StringUtils.tokenizeToStringArray((String) authorities, ",")));
+		}
+		if (authorities instanceof Collection) {
+			Collection<?> collection = (Collection<?>) authorities;
+			if (isSplitNeeded(collection)) {
+				return this.interner.getAuthorities(Arrays.asList(StringUtils
+						.tokenizeToStringArray(StringUtils.collectionToCommaDelimitedString(collection), ",")));
+			}
+			return this.interner.getAuthorities(collection);
+		}
+		return super.getAuthorities(map);
+	}
+
+	private boolean isSplitNeeded(Collection<?> authorities) {
+		for (Object authority : authorities) {
+			if (!(authority instanceof String) || ((String) authority).indexOf(',') >= 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.Map;
+
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+import org.springframework.util.Assert;
+
+/**
+ * {@link AccessTokenConverter} that rejects the decoded tokens whose {@code jti} claim is
+ * in a {@link JtiRevocationList} before delegating to another converter.
+ *
+ * @since 2.7.0
+ */
+public class JtiRevocationCheckingAccessTokenConverter implements AccessTokenConverter {
+
+	private final AccessTokenConverter delegate;
+
+	private final JtiRevocationList revocationList;
+
+	public JtiRevocationCheckingAccessTokenConverter(AccessTokenConverter delegate, JtiRevocationList revocationList) {
+		Assert.notNull(delegate, "Delegate must not be null");
+		Assert.notNull(revocationList, "RevocationList must not be null");
+		this.delegate = delegate;
+		this.revocationList = revocationList;
+	}
+
+	@Override
+	public Map<String, ?> convertAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+		return this.delegate.convertAccessToken(token, authentication);
+	}
+
+	@Override
+	public OAuth2AccessToken extractAccessToken(String value, Map<String, ?> map) {
+		checkNotRevoked(map);
+		return this.delegate.extractAccessToken(value, map);
+	}
+
+	@Override
+	public OAuth2Authentication extractAuthentication(Map<String, ?> map) {
+		checkNotRevoked(map);
+		return this.delegate.extractAuthentication(map);
+	}
+
+	private void checkNotRevoked(Map<String, ?> map) {
+		Object jti = map.get(JTI);
+		if (jti instanceof String && this.revocationList.isRevoked((String) jti)) {
+			throw new InvalidTokenException("Token has been revoked");
+		}
+	}
+
+	/**
+	 * Return the converter this converter delegates to.
+	 * @return the delegate
+	 */
+	public AccessTokenConverter getDelegate() {
+		return this.delegate;
+	}
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.springframework.util.Assert;
+
+/**
+ * Compact, immutable-snapshot list of revoked JWT ids ({@code jti} claims). Lookups go
+ * through a Bloom filter backed by a {@code long[]} and positives are confirmed against a
+ * sorted array of 64-bit hashes, so that {@link #isRevoked(String)} runs in constant time
+ * and does not allocate. The whole list is replaced on each {@link #update(Collection)
+ * update}.
+ *
+ * @since 2.7.0
+ */
+public class JtiRevocationList {
+
+	private static final double LN2 = Math.log(2);
+
+	private final double falsePositiveProbability;
+
+	private volatile Filter filter = Filter.EMPTY;
+
+	/**
+	 * Create a new {@link JtiRevocationList} with a Bloom filter false positive
+	 * probability of 1%.
+	 */
+	public JtiRevocationList() {
+		this(0.01);
+	}
+
+	/**
+	 * Create a new {@link JtiRevocationList} instance.
+	 * @param falsePositiveProbability the target false positive probability of the Bloom
+	 * filter, false positives only costing an extra binary search
+	 */
+	public JtiRevocationList(double falsePositiveProbability) {
+		Assert.isTrue(falsePositiveProbability > 0 && falsePositiveProbability < 1,
+				"FalsePositiveProbability must be between 0 and 1");
+		this.falsePositiveProbability = falsePositiveProbability;
+	}
+
+	/**
+	 * Replace the revoked ids with the given ones.
+	 * @param jtis the ids of all the revoked tokens
+	 */
+	public void update(Collection<String> jtis) {
+		Assert.notNull(jtis, "Jtis must not be null");
+		long[] hashes = new long[jtis.size()];
+		int size = 0;
+		for (String jti : jtis) {
+			if (jti != null) {
+				hashes[size++] = hash(jti);
+			}
+		}
+		hashes = Arrays.copyOf(hashes, size);
+		Arrays.sort(hashes);
+		this.filter = (size != 0) ? new Filter(hashes, this.falsePositiveProbability) : Filter.EMPTY;
+	}
+
+	/**
+	 * Return whether the token with the given id has been revoked.
+	 * @param jti the id of the token, may be {@code null}
+	 * @return {@code true} if the token has been revoked
+	 */
+	public boolean isRevoked(String jti) {
+		Filter filter = this.filter;
+		if (jti == null || filter.hashes.length == 0) {
+			return false;
+		}
+		long hash = hash(jti);
+		return filter.mightContain(hash) && Arrays.binarySearch(filter.hashes, hash) >= 0;
+	}
+
+	/**
+	 * Return the number of revoked ids.
+	 * @return the size of the list
+	 */
+	public int size() {
+		return this.filter.hashes.length;
+	}
+
+	/**
+	 * 64-bit FNV-1a hash of the characters of the given value, finished with the
+	 * MurmurHash3 mixer so that every bit depends on the whole input.
+	 * @param value the value to hash
+	 * @return the hash
+	 */
+	static long hash(String value) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			hash ^= value.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return mix(hash);
+	}
+
+	private static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	private static final class Filter {
+
+		private static final Filter EMPTY = new Filter();
+
+		private final long[] hashes;
+
+		private final long[] bits;
+
+		private final int mask;
+
+		private final int probes;
+
+		private Filter() {
+			this.hashes = new long[0];
+			this.bits = new long[1];
+			this.mask = 63;
+			this.probes = 1;
+		}
+
+		private Filter(long[] hashes, double falsePositiveProbability) {
+			int n = hashes.length;
+			long optimal = (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (LN2 * LN2));
+			int size = (int) Math.min(1 << 30, Math.max(64, Long.highestOneBit(optimal - 1) << 1));
+			this.hashes = hashes;
+			this.bits = new long[size >>> 6];
+			this.mask = size - 1;
+			this.probes = (int) Math.max(1, Math.min(16, Math.round((double) size / n * LN2)));
+			for (long hash : hashes) {
+				int h1 = (int) hash;
+				int h2 = (int) (hash >>> 32) | 1;
+				for (int i = 0; i < this.probes; i++) {
+					int index = (h1 + i * h2) & this.mask;
+					this.bits[index >>> 6] |= 1L << index;
+				}
+			}
+		}
+
+		private boolean mightContain(long hash) {
+			int h1 = (int) hash;
+			int h2 = (int) (hash >>> 32) | 1;
+			for (int i = 0; i < this.probes; i++) {
+				int index = (h1 + i * h2) & this.mask;
+				if ((this.bits[index >>> 6] & (1L << index)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+}
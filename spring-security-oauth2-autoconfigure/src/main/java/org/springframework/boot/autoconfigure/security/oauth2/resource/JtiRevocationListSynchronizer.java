@@ -0,0 +1,124 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.Assert;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Periodically replaces the content of a {@link JtiRevocationList} with the JSON array of
+ * revoked token ids served at a given URI. The previous content is kept when the URI
+ * cannot be reached.
+ *
+ * @since 2.7.0
+ */
+public class JtiRevocationListSynchronizer implements SmartLifecycle {
+
+	private static final Log logger = LogFactory.getLog(JtiRevocationListSynchronizer.class);
+
+	private final JtiRevocationList revocationList;
+
+	private final String uri;
+
+	private final long interval;
+
+	private final RestTemplate restTemplate;
+
+	private final HttpHeaders headers;
+
+	private ScheduledExecutorService executor;
+
+	/**
+	 * Create a new {@link JtiRevocationListSynchronizer} instance.
+	 * @param revocationList the list to update
+	 * @param uri the URI of the revoked token ids
+	 * @param intervalSeconds the number of seconds between two synchronizations
+	 * @param restTemplate the rest template used to fetch the ids
+	 * @param headers additional headers to send, for instance to authenticate
+	 */
+	public JtiRevocationListSynchronizer(JtiRevocationList revocationList, String uri, long intervalSeconds,
+			RestTemplate restTemplate, HttpHeaders headers) {
+		Assert.notNull(revocationList, "RevocationList must not be null");
+		Assert.hasText(uri, "Uri must not be empty");
+		Assert.isTrue(intervalSeconds > 0, "IntervalSeconds must be positive");
+		Assert.notNull(restTemplate, "RestTemplate must not be null");
+		this.revocationList = revocationList;
+		this.uri = uri;
+		this.interval = intervalSeconds;
+		this.restTemplate = restTemplate;
+		this.headers = (headers != null) ? headers : new HttpHeaders();
+	}
+
+	@Override
+	public synchronized void start() {
+		if (this.executor != null) {
+			return;
+		}
+		this.executor = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+			Thread thread = new Thread(runnable, "oauth2-jti-revocation-sync");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.executor.scheduleWithFixedDelay(this::synchronizeQuietly, 0, this.interval, TimeUnit.SECONDS);
+	}
+
+	@Override
+	public synchronized void stop() {
+		if (this.executor != null) {
+			this.executor.shutdownNow();
+			this.executor = null;
+		}
+	}
+
+	@Override
+	public synchronized boolean isRunning() {
+		return this.executor != null;
+	}
+
+	/**
+	 * Fetch the revoked token ids and update the list.
+	 */
+	public void synchronize() {
+		String[] jtis = this.restTemplate
+				.exchange(this.uri, HttpMethod.GET, new HttpEntity<Void>(this.headers), String[].class).getBody();
+		if (jtis != null) {
+			this.revocationList.update(Arrays.asList(jtis));
+		}
+	}
+
+	private void synchronizeQuietly() {
+		try {
+			synchronize();
+		}
+		catch (Exception ex) {
+			logger.warn("Could not synchronize revoked token ids from " + this.uri + ": " + ex.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.util.Assert;
+
+/**
+ * Lock-free histogram of latencies used to estimate percentiles. Latencies are recorded
+ * in microseconds into log-linear buckets, four per power of two, so that a percentile is
+ * accurate to within 25%. Counts are halved once {@code decayThreshold} samples have been
+ * recorded so that the histogram follows recent latencies. A single thread halves the
+ * counts at a time, the one that moves the decay epoch from an even to an odd value.
+ *
+ * @since 2.7.0
+ */
+final class LatencyHistogram {
+
+	private static final int SUB_BUCKETS = 4;
+
+	private static final int MAX_EXPONENT = 31;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(MAX_EXPONENT * SUB_BUCKETS);
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong decayEpoch = new AtomicLong();
+
+	private final long decayThreshold;
+
+	LatencyHistogram(long decayThreshold) {
+		Assert.isTrue(decayThreshold > 1, "DecayThreshold must be greater than 1");
+		this.decayThreshold = decayThreshold;
+	}
+
+	void record(long nanos) {
+		this.buckets.incrementAndGet(index(TimeUnit.NANOSECONDS.toMicros(nanos)));
+		if (this.count.incrementAndGet() >= this.decayThreshold) {
+			// Read the epoch before the count so that a completed decay is always seen
+			long epoch = this.decayEpoch.get();
+			if ((epoch & 1) == 0 && this.count.get() >= this.decayThreshold
+					&& this.decayEpoch.compareAndSet(epoch, epoch + 1)) {
+				try {
+					decay();
+				}
+				finally {
+					this.decayEpoch.set(epoch + 2);
+				}
+			}
+		}
+	}
+
+	private void decay() {
+		long removed = 0;
+		for (int i = 0; i < this.buckets.length(); i++) {
+			long value = this.buckets.get(i);
+			if (value > 0) {
+				long delta = value - value / 2;
+				this.buckets.addAndGet(i, -delta);
+				removed += delta;
+			}
+		}
+		// Keep the samples recorded concurrently
+		this.count.addAndGet(-removed);
+	}
+
+	/**
+	 * Return the upper bound of the bucket holding the given percentile.
+	 * @param percentile the percentile, between 0 and 1
+	 * @return the percentile in nanoseconds or 0 if no latency was recorded
+	 */
+	long getPercentile(double percentile) {
+		Assert.isTrue(percentile >= 0 && percentile <= 1, "Percentile must be between 0 and 1");
+		long total = 0;
+		for (int i = 0; i < this.buckets.length(); i++) {
+			total += this.buckets.get(i);
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(total * percentile);
+		long seen = 0;
+		for (int i = 0; i < this.buckets.length(); i++) {
+			seen += this.buckets.get(i);
+			if (seen >= rank && seen > 0) {
+				return TimeUnit.MICROSECONDS.toNanos(upperBound(i));
+			}
+		}
+		return TimeUnit.MICROSECONDS.toNanos(upperBound(this.buckets.length() - 1));
+	}
+
+	long getCount() {
+		return this.count.get();
+	}
+
+	static int index(long micros) {
+		if (micros < SUB_BUCKETS) {
+			return (int) Math.max(micros, 0);
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		if (exponent > MAX_EXPONENT) {
+			return MAX_EXPONENT * SUB_BUCKETS - 1;
+		}
+		int subBucket = (int) (micros >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+		return (exponent - 1) * SUB_BUCKETS + subBucket;
+	}
+
+	static long upperBound(int index) {
+		if (index < SUB_BUCKETS) {
+			return index + 1;
+		}
+		int exponent = index / SUB_BUCKETS + 1;
+		int subBucket = index % SUB_BUCKETS;
+		return (long) (SUB_BUCKETS + subBucket + 1) << (exponent - 2);
+	}
+
+}
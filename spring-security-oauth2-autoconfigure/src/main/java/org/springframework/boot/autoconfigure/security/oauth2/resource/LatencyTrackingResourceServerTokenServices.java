@@ -0,0 +1,155 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ResourceServerTokenServices} that keeps track of the latency and of the failures
+ * of the calls made to a remote endpoint by another {@link ResourceServerTokenServices}.
+ * A token rejected by the endpoint counts as a successful call, only calls that did not
+ * get an answer are failures. Latencies are kept in a decaying histogram so that
+ * percentiles follow the recent calls.
+ *
+ * @since 2.7.0
+ */
+public class LatencyTrackingResourceServerTokenServices implements ResourceServerTokenServices {
+
+	private static final long DECAY_THRESHOLD = 10000;
+
+	private final ResourceServerTokenServices delegate;
+
+	private final LatencyHistogram latencies = new LatencyHistogram(DECAY_THRESHOLD);
+
+	private final LongAdder calls = new LongAdder();
+
+	private final LongAdder failures = new LongAdder();
+
+	private volatile long lastSuccess = -1;
+
+	private volatile long lastFailure = -1;
+
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Create a new {@link LatencyTrackingResourceServerTokenServices} instance.
+	 * @param delegate the token services calling the remote endpoint
+	 */
+	public LatencyTrackingResourceServerTokenServices(ResourceServerTokenServices delegate) {
+		Assert.notNull(delegate, "Delegate must not be null");
+		this.delegate = delegate;
+	}
+
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "Clock must not be null");
+		this.clock = clock;
+	}
+
+	@Override
+	public OAuth2Authentication loadAuthentication(String accessToken)
+			throws AuthenticationException, InvalidTokenException {
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			OAuth2Authentication authentication = this.delegate.loadAuthentication(accessToken);
+			success = true;
+			return authentication;
+		}
+		catch (TokenServicesUnavailableException ex) {
+			throw ex;
+		}
+		catch (OAuth2Exception | AuthenticationException ex) {
+			success = true;
+			throw ex;
+		}
+		finally {
+			record(System.nanoTime() - start, success);
+		}
+	}
+
+	private void record(long nanos, boolean success) {
+		this.latencies.record(nanos);
+		this.calls.increment();
+		if (success) {
+			this.lastSuccess = this.clock.millis();
+		}
+		else {
+			this.failures.increment();
+			this.lastFailure = this.clock.millis();
+		}
+	}
+
+	@Override
+	public OAuth2AccessToken readAccessToken(String accessToken) {
+		return this.delegate.readAccessToken(accessToken);
+	}
+
+	/**
+	 * Return the upper bound of the given percentile of the recent latencies.
+	 * @param percentile the percentile, between 0 and 1
+	 * @return the latency or {@link Duration#ZERO} if no call was made
+	 */
+	public Duration getLatency(double percentile) {
+		return Duration.ofNanos(this.latencies.getPercentile(percentile));
+	}
+
+	/**
+	 * Return the number of calls made to the remote endpoint.
+	 * @return the number of calls
+	 */
+	public long getCallCount() {
+		return this.calls.sum();
+	}
+
+	/**
+	 * Return the number of calls that failed because the remote endpoint was unavailable.
+	 * @return the number of failures
+	 */
+	public long getFailureCount() {
+		return this.failures.sum();
+	}
+
+	/**
+	 * Return the time of the last successful call.
+	 * @return the time of the last successful call or {@code null}
+	 */
+	public Instant getLastSuccess() {
+		long lastSuccess = this.lastSuccess;
+		return (lastSuccess != -1) ? Instant.ofEpochMilli(lastSuccess) : null;
+	}
+
+	/**
+	 * Return the time of the last failed call.
+	 * @return the time of the last failed call or {@code null}
+	 */
+	public Instant getLastFailure() {
+		long lastFailure = this.lastFailure;
+		return (lastFailure != -1) ? Instant.ofEpochMilli(lastFailure) : null;
+	}
+
+}
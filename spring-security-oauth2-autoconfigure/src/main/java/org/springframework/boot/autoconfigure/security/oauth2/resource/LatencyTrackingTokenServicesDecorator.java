@@ -0,0 +1,69 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.core.Ordered;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+/**
+ * {@link ResourceServerTokenServicesDecorator} that keeps track of the latency and of the
+ * failures of remote token services. It is applied innermost, so that only the calls that
+ * actually reach the remote endpoint are tracked, not the ones served from a cache or
+ * rejected by a circuit breaker.
+ *
+ * @since 2.7.0
+ * @see LatencyTrackingResourceServerTokenServices
+ */
+public class LatencyTrackingTokenServicesDecorator implements ResourceServerTokenServicesDecorator, Ordered {
+
+	/**
+	 * The order of the decorator.
+	 */
+	public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 80;
+
+	private final Map<TokenValidationStrategy, LatencyTrackingResourceServerTokenServices> tokenServices = new ConcurrentHashMap<>();
+
+	@Override
+	public int getOrder() {
+		return ORDER;
+	}
+
+	@Override
+	public ResourceServerTokenServices decorate(ResourceServerTokenServices tokenServices,
+			TokenValidationStrategy strategy) {
+		if (!strategy.isRemote()) {
+			return tokenServices;
+		}
+		LatencyTrackingResourceServerTokenServices tracking = new LatencyTrackingResourceServerTokenServices(
+				tokenServices);
+		this.tokenServices.put(strategy, tracking);
+		return tracking;
+	}
+
+	/**
+	 * Return the token services created by this decorator, keyed by their strategy.
+	 * @return the token services
+	 */
+	public Map<TokenValidationStrategy, LatencyTrackingResourceServerTokenServices> getTokenServices() {
+		return Collections.unmodifiableMap(this.tokenServices);
+	}
+
+}
@@ -0,0 +1,522 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.AbstractClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ClientHttpRequestFactory} that spreads the requests sent to the first of several
+ * equivalent endpoints, for instance the token info endpoints of the replicas of an
+ * authorization server, across all of them. Each request goes to the endpoint with the
+ * lowest moving average of latency weighted by its number of outstanding requests.
+ * Endpoints that fail several times in a row are ejected for a while. When hedging is
+ * enabled, requests are sent from a bounded pool of threads and a request that has not
+ * been answered after the 95th percentile of the recent latencies is also sent to a
+ * second endpoint. The first of the two requests to succeed provides the response and the
+ * response of the other one is closed as soon as it arrives.
+ *
+ * @since 2.7.0
+ */
+public class LoadBalancingClientHttpRequestFactory implements ClientHttpRequestFactory, DisposableBean {
+
+	private static final double EWMA_WEIGHT = 0.2;
+
+	private static final double HEDGE_PERCENTILE = 0.95;
+
+	private static final int MAX_THREADS = 64;
+
+	private final ClientHttpRequestFactory delegate;
+
+	private final List<Endpoint> endpoints;
+
+	private final String baseUri;
+
+	private final LatencyHistogram latencies = new LatencyHistogram(10000);
+
+	private final LongAdder hedges = new LongAdder();
+
+	private boolean hedging;
+
+	private long minHedgeDelay = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private int ejectionThreshold = 5;
+
+	private long ejectionDuration = TimeUnit.SECONDS.toMillis(30);
+
+	private ExecutorService executor = createExecutor();
+
+	private boolean executorOwned = true;
+
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Create a new {@link LoadBalancingClientHttpRequestFactory} instance. Requests must
+	 * be created for the first endpoint, or for a URI starting with it.
+	 * @param delegate the factory used to create the actual requests
+	 * @param endpoints the equivalent endpoints
+	 */
+	public LoadBalancingClientHttpRequestFactory(ClientHttpRequestFactory delegate, List<URI> endpoints) {
+		Assert.notNull(delegate, "Delegate must not be null");
+		Assert.notEmpty(endpoints, "Endpoints must not be empty");
+		this.delegate = delegate;
+		List<Endpoint> list = new ArrayList<>(endpoints.size());
+		for (URI endpoint : endpoints) {
+			Assert.notNull(endpoint, "Endpoints must not contain null elements");
+			list.add(new Endpoint(endpoint));
+		}
+		this.endpoints = Collections.unmodifiableList(list);
+		this.baseUri = endpoints.get(0).toString();
+	}
+
+	/**
+	 * Set whether requests that are slower than usual are also sent to a second endpoint.
+	 * Disabled by default. Only enable it for idempotent requests.
+	 * @param hedging whether to hedge slow requests
+	 */
+	public void setHedging(boolean hedging) {
+		this.hedging = hedging;
+	}
+
+	/**
+	 * Set the minimum time to wait for a response before hedging a request, used as long
+	 * as the 95th percentile of the recent latencies is lower.
+	 * @param minHedgeDelay the minimum hedge delay
+	 */
+	public void setMinHedgeDelay(Duration minHedgeDelay) {
+		Assert.notNull(minHedgeDelay, "MinHedgeDelay must not be null");
+		Assert.isTrue(!minHedgeDelay.isNegative(), "MinHedgeDelay must not be negative");
+		this.minHedgeDelay = minHedgeDelay.toNanos();
+	}
+
+	/**
+	 * Set the number of consecutive failures, I/O errors or server errors, after which an
+	 * endpoint is ejected and for how long. An endpoint is never ejected when all the
+	 * others already are.
+	 * @param threshold the number of consecutive failures
+	 * @param duration the ejection duration
+	 */
+	public void setEjection(int threshold, Duration duration) {
+		Assert.isTrue(threshold > 0, "Threshold must be positive");
+		Assert.notNull(duration, "Duration must not be null");
+		Assert.isTrue(!duration.isNegative(), "Duration must not be negative");
+		this.ejectionThreshold = threshold;
+		this.ejectionDuration = duration.toMillis();
+	}
+
+	/**
+	 * Set the executor used to send the requests when hedging is enabled. Defaults to a
+	 * pool of at most 64 daemon threads that is shut down when this factory is destroyed.
+	 * A request that the executor rejects is sent from the calling thread without
+	 * hedging. An executor set here is not shut down by this factory.
+	 * @param executor the executor
+	 */
+	public void setExecutor(ExecutorService executor) {
+		Assert.notNull(executor, "Executor must not be null");
+		if (this.executorOwned) {
+			this.executor.shutdownNow();
+			this.executorOwned = false;
+		}
+		this.executor = executor;
+	}
+
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "Clock must not be null");
+		this.clock = clock;
+	}
+
+	@Override
+	public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+		return new LoadBalancingClientHttpRequest(uri, httpMethod);
+	}
+
+	@Override
+	public void destroy() {
+		if (this.executorOwned) {
+			this.executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Return the endpoints requests are balanced across.
+	 * @return the endpoints
+	 */
+	public List<Endpoint> getEndpoints() {
+		return this.endpoints;
+	}
+
+	/**
+	 * Return the number of requests that were hedged.
+	 * @return the number of hedged requests
+	 */
+	public long getHedgeCount() {
+		return this.hedges.sum();
+	}
+
+	/**
+	 * Return the current hedge delay, the highest of the minimum hedge delay and of the
+	 * 95th percentile of the recent latencies.
+	 * @return the hedge delay
+	 */
+	public Duration getHedgeDelay() {
+		return Duration.ofNanos(hedgeDelay());
+	}
+
+	private long hedgeDelay() {
+		return Math.max(this.minHedgeDelay, this.latencies.getPercentile(HEDGE_PERCENTILE));
+	}
+
+	private ClientHttpResponse execute(HttpMethod method, URI uri, HttpHeaders headers, byte[] body)
+			throws IOException {
+		Endpoint primary = choose(null);
+		if (!this.hedging || this.endpoints.size() < 2) {
+			return execute(primary, method, uri, headers, body);
+		}
+		CompletableFuture<ClientHttpResponse> first = send(primary, method, uri, headers, body);
+		if (first == null) {
+			// All the threads are busy, send the request without hedging
+			return execute(primary, method, uri, headers, body);
+		}
+		ClientHttpResponse response = await(first, hedgeDelay());
+		if (response != null) {
+			return response;
+		}
+		Endpoint secondary = choose(primary);
+		CompletableFuture<ClientHttpResponse> second = (secondary != primary)
+				? send(secondary, method, uri, headers, body) : null;
+		if (second == null) {
+			return await(first, -1);
+		}
+		this.hedges.increment();
+		FirstResponse firstResponse = new FirstResponse();
+		first.whenComplete(firstResponse);
+		second.whenComplete(firstResponse);
+		return await(firstResponse, -1);
+	}
+
+	private CompletableFuture<ClientHttpResponse> send(Endpoint endpoint, HttpMethod method, URI uri,
+			HttpHeaders headers, byte[] body) {
+		CompletableFuture<ClientHttpResponse> response = new CompletableFuture<>();
+		try {
+			this.executor.execute(() -> {
+				try {
+					response.complete(execute(endpoint, method, uri, headers, body));
+				}
+				catch (Throwable ex) {
+					response.completeExceptionally(ex);
+				}
+			});
+			return response;
+		}
+		catch (RejectedExecutionException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Wait for a response.
+	 * @param future the future response
+	 * @param timeout the time to wait, in nanoseconds, or a negative value to wait until
+	 * the response is available
+	 * @return the response or {@code null} if the timeout elapsed first
+	 * @throws IOException if the request failed or if interrupted while waiting
+	 */
+	private ClientHttpResponse await(CompletableFuture<ClientHttpResponse> future, long timeout) throws IOException {
+		try {
+			return (timeout < 0) ? future.get() : future.get(timeout, TimeUnit.NANOSECONDS);
+		}
+		catch (TimeoutException ex) {
+			return null;
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			future.thenAccept(ClientHttpResponse::close);
+			throw new InterruptedIOException("Interrupted while waiting for " + this.baseUri);
+		}
+		catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	private ClientHttpResponse execute(Endpoint endpoint, HttpMethod method, URI uri, HttpHeaders headers, byte[] body)
+			throws IOException {
+		ClientHttpRequest request = this.delegate.createRequest(endpoint.resolve(this.baseUri, uri), method);
+		request.getHeaders().putAll(headers);
+		if (body.length > 0) {
+			request.getBody().write(body);
+		}
+		endpoint.outstanding.incrementAndGet();
+		long start = System.nanoTime();
+		try {
+			ClientHttpResponse response = request.execute();
+			long latency = System.nanoTime() - start;
+			this.latencies.record(latency);
+			endpoint.record(latency, response.getRawStatusCode() >= 500, this.clock.millis());
+			return response;
+		}
+		catch (IOException | RuntimeException ex) {
+			endpoint.record(System.nanoTime() - start, true, this.clock.millis());
+			throw ex;
+		}
+		finally {
+			endpoint.outstanding.decrementAndGet();
+		}
+	}
+
+	Endpoint choose(Endpoint excluded) {
+		long now = this.clock.millis();
+		int size = this.endpoints.size();
+		int offset = (size > 1) ? ThreadLocalRandom.current().nextInt(size) : 0;
+		Endpoint best = null;
+		Endpoint fallback = null;
+		for (int i = 0; i < size; i++) {
+			Endpoint endpoint = this.endpoints.get((offset + i) % size);
+			if (endpoint == excluded) {
+				continue;
+			}
+			if (!endpoint.isEjected(now)) {
+				best = lowestScore(best, endpoint);
+			}
+			fallback = lowestScore(fallback, endpoint);
+		}
+		if (best != null) {
+			return best;
+		}
+		return (fallback != null) ? fallback : excluded;
+	}
+
+	private Endpoint lowestScore(Endpoint current, Endpoint candidate) {
+		return (current == null || candidate.score() < current.score()) ? candidate : current;
+	}
+
+	private static ExecutorService createExecutor() {
+		return new ThreadPoolExecutor(0, MAX_THREADS, 1, TimeUnit.MINUTES, new SynchronousQueue<>(), (runnable) -> {
+			Thread thread = new Thread(runnable, "oauth2-hedged-request");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * The first successful response of a request and of its hedge. The other response is
+	 * closed as soon as it arrives. Fails with the first failure, the second one being
+	 * suppressed, when both requests fail.
+	 */
+	private static final class FirstResponse extends CompletableFuture<ClientHttpResponse>
+			implements BiConsumer<ClientHttpResponse, Throwable> {
+
+		private Throwable failure;
+
+		@Override
+		public void accept(ClientHttpResponse response, Throwable ex) {
+			if (ex == null) {
+				if (!complete(response)) {
+					response.close();
+				}
+				return;
+			}
+			Throwable failure;
+			synchronized (this) {
+				if (this.failure == null) {
+					this.failure = ex;
+					return;
+				}
+				failure = this.failure;
+			}
+			failure.addSuppressed(ex);
+			completeExceptionally(failure);
+		}
+
+	}
+
+	/**
+	 * The state of one of the endpoints requests are balanced across.
+	 */
+	public final class Endpoint {
+
+		private final URI uri;
+
+		private final String uriString;
+
+		private final AtomicInteger outstanding = new AtomicInteger();
+
+		private volatile double latencyAverage;
+
+		private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+		private volatile long ejectedUntil;
+
+		private Endpoint(URI uri) {
+			this.uri = uri;
+			this.uriString = uri.toString();
+		}
+
+		private URI resolve(String baseUri, URI uri) {
+			String value = uri.toString();
+			if (!value.startsWith(baseUri)) {
+				return uri;
+			}
+			return URI.create(this.uriString + value.substring(baseUri.length()));
+		}
+
+		private void record(long latency, boolean failure, long now) {
+			double average = this.latencyAverage;
+			double sample = failure ? Math.max(latency, average * 2) : latency;
+			this.latencyAverage = (average == 0) ? sample : average + EWMA_WEIGHT * (sample - average);
+			if (!failure) {
+				this.consecutiveFailures.set(0);
+				return;
+			}
+			int failures = this.consecutiveFailures.incrementAndGet();
+			// Only the thread that resets the counter ejects the endpoint
+			if (failures >= LoadBalancingClientHttpRequestFactory.this.ejectionThreshold
+					&& this.consecutiveFailures.compareAndSet(failures, 0)) {
+				this.ejectedUntil = now + LoadBalancingClientHttpRequestFactory.this.ejectionDuration;
+			}
+		}
+
+		private double score() {
+			double average = this.latencyAverage;
+			int outstanding = this.outstanding.get();
+			if (average == 0 && outstanding > 0) {
+				// Avoid piling requests on an endpoint whose first response is late
+				return Double.MAX_VALUE / 2;
+			}
+			return (average + 1) * (outstanding + 1);
+		}
+
+		public URI getUri() {
+			return this.uri;
+		}
+
+		/**
+		 * Return the number of requests sent to this endpoint that are not answered yet.
+		 * @return the number of outstanding requests
+		 */
+		public int getOutstanding() {
+			return this.outstanding.get();
+		}
+
+		/**
+		 * Return the exponentially weighted moving average of the latency of this
+		 * endpoint, failures counting as slow responses.
+		 * @return the average latency
+		 */
+		public Duration getLatencyAverage() {
+			return Duration.ofNanos((long) this.latencyAverage);
+		}
+
+		/**
+		 * Return whether this endpoint is currently ejected.
+		 * @return {@code true} if the endpoint is ejected
+		 */
+		public boolean isEjected() {
+			return isEjected(LoadBalancingClientHttpRequestFactory.this.clock.millis());
+		}
+
+		private boolean isEjected(long now) {
+			return now < this.ejectedUntil;
+		}
+
+		@Override
+		public String toString() {
+			return this.uriString;
+		}
+
+	}
+
+	private class LoadBalancingClientHttpRequest extends AbstractClientHttpRequest {
+
+		private final URI uri;
+
+		private final HttpMethod method;
+
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+
+		LoadBalancingClientHttpRequest(URI uri, HttpMethod method) {
+			this.uri = uri;
+			this.method = method;
+		}
+
+		@Override
+		public HttpMethod getMethod() {
+			return this.method;
+		}
+
+		@Override
+		public String getMethodValue() {
+			return this.method.name();
+		}
+
+		@Override
+		public URI getURI() {
+			return this.uri;
+		}
+
+		@Override
+		protected OutputStream getBodyInternal(HttpHeaders headers) {
+			return this.body;
+		}
+
+		@Override
+		protected ClientHttpResponse executeInternal(HttpHeaders headers) throws IOException {
+			return LoadBalancingClientHttpRequestFactory.this.execute(this.method, this.uri, headers,
+					this.body.toByteArray());
+		}
+
+	}
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.util.Assert;
+
+/**
+ * Path to a value nested in the maps and lists bound from a JSON response, compiled once
+ * from a JSON pointer such as {@code /realm_access/roles} or {@code /groups/0/name}. The
+ * leading slash can be omitted.
+ *
+ * @since 2.7.0
+ */
+final class MapPath {
+
+	private final String pointer;
+
+	private final String[] segments;
+
+	private final int[] indexes;
+
+	private MapPath(String pointer, String[] segments) {
+		this.pointer = pointer;
+		this.segments = segments;
+		this.indexes = new int[segments.length];
+		for (int i = 0; i < segments.length; i++) {
+			this.indexes[i] = parseIndex(segments[i]);
+		}
+	}
+
+	private static int parseIndex(String segment) {
+		if (segment.isEmpty() || segment.length() > 9 || (segment.length() > 1 && segment.charAt(0) == '0')) {
+			return -1;
+		}
+		for (int i = 0; i < segment.length(); i++) {
+			if (!Character.isDigit(segment.charAt(i))) {
+				return -1;
+			}
+		}
+		return Integer.parseInt(segment);
+	}
+
+	/**
+	 * Compile the given JSON pointer.
+	 * @param pointer the pointer
+	 * @return the compiled path
+	 */
+	static MapPath compile(String pointer) {
+		Assert.hasText(pointer, "Pointer must not be empty");
+		String path = (pointer.charAt(0) == '/') ? pointer.substring(1) : pointer;
+		List<String> segments = new ArrayList<>();
+		int start = 0;
+		while (true) {
+			int end = path.indexOf('/', start);
+			String segment = (end != -1) ? path.substring(start, end) : path.substring(start);
+			segments.add(unescape(segment));
+			if (end == -1) {
+				break;
+			}
+			start = end + 1;
+		}
+		return new MapPath(pointer, segments.toArray(new String[0]));
+	}
+
+	private static String unescape(String segment) {
+		if (segment.indexOf('~') == -1) {
+			return segment;
+		}
+		return segment.replace("~1", "/").replace("~0", "~");
+	}
+
+	/**
+	 * Return the name of the top-level field of the path.
+	 * @return the top-level field
+	 */
+	String getRoot() {
+		return this.segments[0];
+	}
+
+	/**
+	 * Return the value at this path in the given map.
+	 * @param map the map
+	 * @return the value or {@code null} if there is none
+	 */
+	Object resolve(Map<String, ?> map) {
+		Object current = map;
+		for (int i = 0; i < this.segments.length && current != null; i++) {
+			if (current instanceof Map) {
+				current = ((Map<?, ?>) current).get(this.segments[i]);
+			}
+			else if (current instanceof List && this.indexes[i] != -1) {
+				List<?> list = (List<?>) current;
+				current = (this.indexes[i] < list.size()) ? list.get(this.indexes[i]) : null;
+			}
+			else {
+				return null;
+			}
+		}
+		return current;
+	}
+
+	@Override
+	public String toString() {
+		return this.pointer;
+	}
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ResourceServerTokenServices} that records the latency and the outcome of the
+ * token validations made by another {@link ResourceServerTokenServices}. Validations are
+ * recorded by a {@code oauth2.resource.token.validation} timer tagged with the
+ * {@link TokenValidationStrategy#getName() strategy} and with an {@code outcome} that is
+ * either {@code valid}, {@code invalid} or {@code error}. The timers are registered
+ * upfront so that recording a validation does not allocate.
+ *
+ * @since 2.7.0
+ */
+public class MetricsResourceServerTokenServices implements ResourceServerTokenServices {
+
+	/**
+	 * The name of the timer recording the token validations.
+	 */
+	public static final String VALIDATION_METRIC = "oauth2.resource.token.validation";
+
+	private final ResourceServerTokenServices delegate;
+
+	private final Timer valid;
+
+	private final Timer invalid;
+
+	private final Timer error;
+
+	/**
+	 * Create a new {@link MetricsResourceServerTokenServices} instance.
+	 * @param delegate the token services to instrument
+	 * @param registry the registry of the timers
+	 * @param strategy the strategy of the token services
+	 */
+	public MetricsResourceServerTokenServices(ResourceServerTokenServices delegate, MeterRegistry registry,
+			TokenValidationStrategy strategy) {
+		Assert.notNull(delegate, "Delegate must not be null");
+		Assert.notNull(registry, "Registry must not be null");
+		Assert.notNull(strategy, "Strategy must not be null");
+		this.delegate = delegate;
+		this.valid = timer(registry, strategy, "valid");
+		this.invalid = timer(registry, strategy, "invalid");
+		this.error = timer(registry, strategy, "error");
+	}
+
+	private static Timer timer(MeterRegistry registry, TokenValidationStrategy strategy, String outcome) {
+		return Timer.builder(VALIDATION_METRIC).description("Validations of OAuth2 access tokens")
+				.tag("strategy", strategy.getName()).tag("outcome", outcome).register(registry);
+	}
+
+	@Override
+	public OAuth2Authentication loadAuthentication(String accessToken)
+			throws AuthenticationException, InvalidTokenException {
+		long start = System.nanoTime();
+		Timer timer = this.error;
+		try {
+			OAuth2Authentication authentication = this.delegate.loadAuthentication(accessToken);
+			timer = (authentication != null) ? this.valid : this.invalid;
+			return authentication;
+		}
+		catch (TokenServicesUnavailableException ex) {
+			throw ex;
+		}
+		catch (OAuth2Exception | AuthenticationException ex) {
+			timer = this.invalid;
+			throw ex;
+		}
+		finally {
+			timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public OAuth2AccessToken readAccessToken(String accessToken) {
+		return this.delegate.readAccessToken(accessToken);
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.function.ToDoubleFunction;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.core.Ordered;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ResourceServerTokenServicesDecorator} that records metrics for every token
+ * services. Validations are timed by {@link MetricsResourceServerTokenServices}. When
+ * authentications are cached, the hits, misses, stale hits, evictions and size of each
+ * cache are also exposed, read from the counters that the cache already maintains.
+ *
+ * @since 2.7.0
+ * @see MetricsResourceServerTokenServices
+ */
+public class MetricsTokenServicesDecorator implements ResourceServerTokenServicesDecorator, Ordered {
+
+	/**
+	 * The order of the decorator.
+	 */
+	public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 40;
+
+	/**
+	 * The name of the counter of the requests made to the caches of authentications.
+	 */
+	public static final String CACHE_REQUESTS_METRIC = "oauth2.resource.token.cache.requests";
+
+	/**
+	 * The name of the counter of the authentications evicted from the caches.
+	 */
+	public static final String CACHE_EVICTIONS_METRIC = "oauth2.resource.token.cache.evictions";
+
+	/**
+	 * The name of the gauge of the number of cached authentications.
+	 */
+	public static final String CACHE_SIZE_METRIC = "oauth2.resource.token.cache.size";
+
+	private final MeterRegistry registry;
+
+	private final CachingTokenServicesDecorator cachingDecorator;
+
+	/**
+	 * Create a new {@link MetricsTokenServicesDecorator} instance.
+	 * @param registry the registry of the meters
+	 * @param cachingDecorator the decorator caching the authentications or {@code null}
+	 */
+	public MetricsTokenServicesDecorator(MeterRegistry registry, CachingTokenServicesDecorator cachingDecorator) {
+		Assert.notNull(registry, "Registry must not be null");
+		this.registry = registry;
+		this.cachingDecorator = cachingDecorator;
+	}
+
+	@Override
+	public int getOrder() {
+		return ORDER;
+	}
+
+	@Override
+	public ResourceServerTokenServices decorate(ResourceServerTokenServices tokenServices,
+			TokenValidationStrategy strategy) {
+		if (this.cachingDecorator != null && strategy.isRemote()) {
+			bindCache(strategy);
+		}
+		return new MetricsResourceServerTokenServices(tokenServices, this.registry, strategy);
+	}
+
+	private void bindCache(TokenValidationStrategy strategy) {
+		cacheCounter(CACHE_REQUESTS_METRIC, strategy, "hit", CachingResourceServerTokenServices::getHitCount);
+		cacheCounter(CACHE_REQUESTS_METRIC, strategy, "miss", CachingResourceServerTokenServices::getMissCount);
+		cacheCounter(CACHE_REQUESTS_METRIC, strategy, "stale", CachingResourceServerTokenServices::getStaleHitCount);
+		FunctionCounter
+				.builder(CACHE_EVICTIONS_METRIC, this.cachingDecorator,
+						cacheFunction(strategy, CachingResourceServerTokenServices::getEvictionCount))
+				.description("Authentications evicted from the cache").tag("strategy", strategy.getName())
+				.register(this.registry);
+		Gauge.builder(CACHE_SIZE_METRIC, this.cachingDecorator,
+				cacheFunction(strategy, CachingResourceServerTokenServices::size))
+				.description("Number of cached authentications").tag("strategy", strategy.getName())
+				.register(this.registry);
+	}
+
+	private void cacheCounter(String name, TokenValidationStrategy strategy, String result,
+			ToDoubleFunction<CachingResourceServerTokenServices> function) {
+		FunctionCounter.builder(name, this.cachingDecorator, cacheFunction(strategy, function))
+				.description("Requests made to the cache of authentications").tag("strategy", strategy.getName())
+				.tag("result", result).register(this.registry);
+	}
+
+	private static ToDoubleFunction<CachingTokenServicesDecorator> cacheFunction(TokenValidationStrategy strategy,
+			ToDoubleFunction<CachingResourceServerTokenServices> function) {
+		return (decorator) -> {
+			CachingResourceServerTokenServices cache = decorator.getCaches().get(strategy);
+			return (cache != null) ? function.applyAsDouble(cache) : 0;
+		};
+	}
+
+}
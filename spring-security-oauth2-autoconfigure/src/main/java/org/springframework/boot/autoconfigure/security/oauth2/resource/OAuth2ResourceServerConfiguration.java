@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2017 the original author or authors.
+ * Copyright 2012-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,18 +18,23 @@ package org.springframework.boot.autoconfigure.security.oauth2.resource;
 
 import java.util.Map;
 
+import javax.servlet.http.HttpServletRequest;
+
 import org.springframework.beans.BeanUtils;
 import org.springframework.boot.autoconfigure.condition.ConditionMessage;
 import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.OnPropertyListCondition;
 import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
 import org.springframework.boot.autoconfigure.security.SecurityProperties;
 import org.springframework.boot.autoconfigure.security.oauth2.resource.OAuth2ResourceServerConfiguration.ResourceServerCondition;
 import org.springframework.boot.context.properties.bind.Bindable;
 import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Condition;
 import org.springframework.context.annotation.ConditionContext;
@@ -43,12 +48,17 @@ import org.springframework.core.env.Environment;
 import org.springframework.core.type.AnnotatedTypeMetadata;
 import org.springframework.core.type.StandardAnnotationMetadata;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.config.annotation.web.configuration.AuthorizationServerEndpointsConfiguration;
 import org.springframework.security.oauth2.config.annotation.web.configuration.EnableResourceServer;
 import org.springframework.security.oauth2.config.annotation.web.configuration.ResourceServerConfiguration;
 import org.springframework.security.oauth2.config.annotation.web.configuration.ResourceServerConfigurer;
 import org.springframework.security.oauth2.config.annotation.web.configuration.ResourceServerConfigurerAdapter;
 import org.springframework.security.oauth2.config.annotation.web.configurers.ResourceServerSecurityConfigurer;
+import org.springframework.security.oauth2.provider.authentication.BearerTokenExtractor;
+import org.springframework.security.oauth2.provider.authentication.TokenExtractor;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
 
@@ -81,10 +91,29 @@ public class OAuth2ResourceServerConfiguration {
 		return new ResourceSecurityConfigurer(this.resource);
 	}
 
+	@Bean
+	@Conditional(IgnoredPathsCondition.class)
+	public WebSecurityCustomizer oauth2IgnoredPathsWebSecurityCustomizer() {
+		RequestMatcher ignoredPaths = new PublicPathRequestMatcher(this.resource.getIgnoredPaths());
+		return (web) -> web.ignoring().requestMatchers(ignoredPaths);
+	}
+
+	@Bean
+	@ConditionalOnProperty(prefix = "security.oauth2.resource.server-timing", name = "enabled", havingValue = "true")
+	public FilterRegistrationBean<ServerTimingFilter> oauth2ServerTimingFilterRegistration(
+			SecurityProperties security) {
+		FilterRegistrationBean<ServerTimingFilter> registration = new FilterRegistrationBean<>(
+				new ServerTimingFilter());
+		registration.setOrder(security.getFilter().getOrder() - 1);
+		return registration;
+	}
+
 	protected static class ResourceSecurityConfigurer extends ResourceServerConfigurerAdapter {
 
 		private ResourceServerProperties resource;
 
+		private RequestMatcher publicPaths;
+
 		public ResourceSecurityConfigurer(ResourceServerProperties resource) {
 			this.resource = resource;
 		}
@@ -92,15 +121,51 @@ public class OAuth2ResourceServerConfiguration {
 		@Override
 		public void configure(ResourceServerSecurityConfigurer resources) throws Exception {
 			resources.resourceId(this.resource.getResourceId());
+			if (!this.resource.getPublicPaths().isEmpty()) {
+				this.publicPaths = new PublicPathRequestMatcher(this.resource.getPublicPaths());
+				resources.tokenExtractor(new PublicPathsTokenExtractor(this.publicPaths));
+			}
 		}
 
 		@Override
 		public void configure(HttpSecurity http) throws Exception {
+			if (this.publicPaths != null) {
+				http.authorizeRequests().requestMatchers(this.publicPaths).permitAll();
+			}
 			http.authorizeRequests().anyRequest().authenticated();
 		}
 
 	}
 
+	/**
+	 * {@link TokenExtractor} that ignores the tokens sent to public paths, so that the
+	 * OAuth2 authentication filter does not validate them.
+	 */
+	private static final class PublicPathsTokenExtractor implements TokenExtractor {
+
+		private final RequestMatcher publicPaths;
+
+		private final TokenExtractor delegate = new BearerTokenExtractor();
+
+		private PublicPathsTokenExtractor(RequestMatcher publicPaths) {
+			this.publicPaths = publicPaths;
+		}
+
+		@Override
+		public Authentication extract(HttpServletRequest request) {
+			return this.publicPaths.matches(request) ? null : this.delegate.extract(request);
+		}
+
+	}
+
+	protected static class IgnoredPathsCondition extends OnPropertyListCondition {
+
+		IgnoredPathsCondition() {
+			super("security.oauth2.resource.ignored-paths", () -> ConditionMessage.forCondition("Ignored Paths"));
+		}
+
+	}
+
 	protected static class ResourceServerCondition extends SpringBootCondition implements ConfigurationCondition {
 
 		private static final Bindable<Map<String, Object>> STRING_OBJECT_MAP = Bindable.mapOf(String.class,
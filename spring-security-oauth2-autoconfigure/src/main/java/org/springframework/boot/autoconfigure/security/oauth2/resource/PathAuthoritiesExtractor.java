@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link AuthoritiesExtractor} that extracts the authorities found at a JSON pointer, for
+ * instance {@code /realm_access/roles}. The value can be a collection of names or of
+ * objects, using the same keys as {@link FixedAuthoritiesExtractor}, or a comma-separated
+ * string. If no such value exists, a single {@code ROLE_USER} authority is returned. The
+ * authorities are canonical immutable lists from the
+ * {@link AuthorityInterner#getSharedInstance() shared interner}.
+ *
+ * @since 2.7.0
+ */
+public class PathAuthoritiesExtractor implements AuthoritiesExtractor {
+
+	private static final List<String> DEFAULT_AUTHORITIES = Collections.singletonList("ROLE_USER");
+
+	private final MapPath path;
+
+	private final AuthorityInterner interner = AuthorityInterner.getSharedInstance();
+
+	/**
+	 * Create a new {@link PathAuthoritiesExtractor} instance.
+	 * @param path the JSON pointer of the authorities
+	 */
+	public PathAuthoritiesExtractor(String path) {
+		this.path = MapPath.compile(path);
+	}
+
+	@Override
+	public List<GrantedAuthority> extractAuthorities(Map<String, Object> map) {
+		Object value = this.path.resolve(map);
+		if (value == null) {
+			return this.interner.getAuthorities(DEFAULT_AUTHORITIES);
+		}
+		if (ObjectUtils.isArray(value)) {
+			value = Arrays.asList(ObjectUtils.toObjectArray(value));
+		}
+		if (value instanceof Collection) {
+			return this.interner.getAuthorities(asAuthorityNames((Collection<?>) value));
+		}
+		return this.interner.getAuthorities(Arrays.asList(StringUtils.tokenizeToStringArray(value.toString(), ",")));
+	}
+
+	private Collection<?> asAuthorityNames(Collection<?> collection) {
+		boolean containsMaps = false;
+		for (Object element : collection) {
+			containsMaps = containsMaps || element instanceof Map;
+		}
+		if (!containsMaps) {
+			return collection;
+		}
+		List<Object> names = new ArrayList<>(collection.size());
+		for (Object element : collection) {
+			names.add((element instanceof Map) ? asAuthority((Map<?, ?>) element) : element);
+		}
+		return names;
+	}
+
+	private Object asAuthority(Map<?, ?> map) {
+		if (map.size() == 1) {
+			return map.values().iterator().next();
+		}
+		for (String key : FixedAuthoritiesExtractor.AUTHORITY_KEYS) {
+			if (map.containsKey(key)) {
+				return map.get(key);
+			}
+		}
+		return null;
+	}
+
+}
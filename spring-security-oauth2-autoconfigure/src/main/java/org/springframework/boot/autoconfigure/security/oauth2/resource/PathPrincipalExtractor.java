@@ -0,0 +1,44 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.Map;
+
+/**
+ * {@link PrincipalExtractor} that extracts the principal found at a JSON pointer, for
+ * instance {@code /preferred_username} or {@code /data/login}.
+ *
+ * @since 2.7.0
+ */
+public class PathPrincipalExtractor implements PrincipalExtractor {
+
+	private final MapPath path;
+
+	/**
+	 * Create a new {@link PathPrincipalExtractor} instance.
+	 * @param path the JSON pointer of the principal
+	 */
+	public PathPrincipalExtractor(String path) {
+		this.path = MapPath.compile(path);
+	}
+
+	@Override
+	public Object extractPrincipal(Map<String, Object> map) {
+		return this.path.resolve(map);
+	}
+
+}
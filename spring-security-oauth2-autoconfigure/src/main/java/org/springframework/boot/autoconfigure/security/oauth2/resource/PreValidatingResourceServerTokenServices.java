@@ -0,0 +1,58 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ResourceServerTokenServices} that checks the structure of a token with a
+ * {@link TokenPreValidator} before delegating to other token services.
+ *
+ * @since 2.7.0
+ */
+public class PreValidatingResourceServerTokenServices implements ResourceServerTokenServices {
+
+	private final ResourceServerTokenServices delegate;
+
+	private final TokenPreValidator validator;
+
+	public PreValidatingResourceServerTokenServices(ResourceServerTokenServices delegate, TokenPreValidator validator) {
+		Assert.notNull(delegate, "Delegate must not be null");
+		Assert.notNull(validator, "Validator must not be null");
+		this.delegate = delegate;
+		this.validator = validator;
+	}
+
+	@Override
+	public OAuth2Authentication loadAuthentication(String accessToken)
+			throws AuthenticationException, InvalidTokenException {
+		this.validator.validate(accessToken);
+		return this.delegate.loadAuthentication(accessToken);
+	}
+
+	@Override
+	public OAuth2AccessToken readAccessToken(String accessToken) {
+		this.validator.validate(accessToken);
+		return this.delegate.readAccessToken(accessToken);
+	}
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.util.Assert;
+
+/**
+ * {@link RequestMatcher} for public paths, compiled once into a prefix trie. Exact paths
+ * such as {@code /favicon.ico} and prefixes such as {@code /actuator/health/**} are
+ * matched character by character without allocating. Any other Ant pattern is matched
+ * with an {@link AntPathRequestMatcher}.
+ *
+ * @since 2.7.0
+ */
+public final class PublicPathRequestMatcher implements RequestMatcher {
+
+	private final Node root = new Node();
+
+	private final List<RequestMatcher> patterns = new ArrayList<>();
+
+	private final List<String> paths;
+
+	/**
+	 * Create a new {@link PublicPathRequestMatcher} instance.
+	 * @param paths the public paths, as Ant patterns
+	 */
+	public PublicPathRequestMatcher(Collection<String> paths) {
+		Assert.notNull(paths, "Paths must not be null");
+		for (String path : paths) {
+			Assert.isTrue(path != null && path.startsWith("/"), () -> "Path '" + path + "' must start with '/'");
+			if (path.endsWith("/**") && !hasWildcard(path.substring(0, path.length() - 3))) {
+				this.root.add(path.substring(0, path.length() - 3), 0).prefix = true;
+			}
+			else if (!hasWildcard(path)) {
+				this.root.add(path, 0).exact = true;
+			}
+			else {
+				this.patterns.add(new AntPathRequestMatcher(path));
+			}
+		}
+		this.paths = new ArrayList<>(paths);
+	}
+
+	private static boolean hasWildcard(String path) {
+		return path.indexOf('*') >= 0 || path.indexOf('?') >= 0 || path.indexOf('{') >= 0;
+	}
+
+	@Override
+	public boolean matches(HttpServletRequest request) {
+		if (matches(request.getServletPath(), request.getPathInfo())) {
+			return true;
+		}
+		for (RequestMatcher pattern : this.patterns) {
+			if (pattern.matches(request)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean matches(String servletPath, String pathInfo) {
+		Node node = this.root;
+		int servletPathLength = (servletPath != null) ? servletPath.length() : 0;
+		int length = servletPathLength + ((pathInfo != null) ? pathInfo.length() : 0);
+		for (int i = 0;; i++) {
+			char next = (i < length) ? charAt(servletPath, servletPathLength, pathInfo, i) : '/';
+			if (node.prefix && next == '/') {
+				return true;
+			}
+			if (i == length) {
+				return node.exact;
+			}
+			node = node.get(next);
+			if (node == null) {
+				return false;
+			}
+		}
+	}
+
+	private static char charAt(String servletPath, int servletPathLength, String pathInfo, int index) {
+		return (index < servletPathLength) ? servletPath.charAt(index) : pathInfo.charAt(index - servletPathLength);
+	}
+
+	@Override
+	public String toString() {
+		return "Public paths " + this.paths;
+	}
+
+	private static final class Node {
+
+		private static final char[] NO_KEYS = {};
+
+		private static final Node[] NO_CHILDREN = {};
+
+		private char[] keys = NO_KEYS;
+
+		private Node[] children = NO_CHILDREN;
+
+		private boolean exact;
+
+		private boolean prefix;
+
+		private Node add(String path, int index) {
+			if (index == path.length()) {
+				return this;
+			}
+			char key = path.charAt(index);
+			int position = Arrays.binarySearch(this.keys, key);
+			if (position < 0) {
+				position = -position - 1;
+				char[] keys = new char[this.keys.length + 1];
+				Node[] children = new Node[keys.length];
+				System.arraycopy(this.keys, 0, keys, 0, position);
+				System.arraycopy(this.children, 0, children, 0, position);
+				keys[position] = key;
+				children[position] = new Node();
+				System.arraycopy(this.keys, position, keys, position + 1, this.keys.length - position);
+				System.arraycopy(this.children, position, children, position + 1, this.keys.length - position);
+				this.keys = keys;
+				this.children = children;
+			}
+			return this.children[position].add(path, index + 1);
+		}
+
+		private Node get(char key) {
+			int position = Arrays.binarySearch(this.keys, key);
+			return (position >= 0) ? this.children[position] : null;
+		}
+
+	}
+
+}
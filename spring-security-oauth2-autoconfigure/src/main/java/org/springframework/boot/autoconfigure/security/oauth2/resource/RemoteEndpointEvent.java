@@ -0,0 +1,67 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for a call to a remote endpoint of the authorization server that
+ * is not a token validation, such as the fetch of the verifier key or of the user info.
+ *
+ * @since 2.7.0
+ * @see FlightRecorderSupport
+ */
+@Name("org.springframework.security.oauth2.RemoteEndpoint")
+@Label("OAuth2 Remote Endpoint Call")
+@Description("Call made by a resource server to an endpoint of the authorization server")
+@Category({ "Spring Security", "OAuth2" })
+@StackTrace(false)
+final class RemoteEndpointEvent extends Event {
+
+	@Label("Endpoint")
+	@Description("Kind of endpoint: key-uri or user-info-uri")
+	String endpoint;
+
+	@Label("URI")
+	String uri;
+
+	@Label("Outcome")
+	@Description("Outcome of the call: success or error")
+	String outcome;
+
+	static RemoteEndpointEvent start() {
+		RemoteEndpointEvent event = new RemoteEndpointEvent();
+		event.begin();
+		return event;
+	}
+
+	void end(String endpoint, String uri, boolean success) {
+		end();
+		if (shouldCommit()) {
+			this.endpoint = endpoint;
+			this.uri = uri;
+			this.outcome = success ? "success" : "error";
+			commit();
+		}
+	}
+
+}
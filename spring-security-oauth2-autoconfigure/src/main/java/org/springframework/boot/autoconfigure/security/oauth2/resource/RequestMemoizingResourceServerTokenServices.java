@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.util.Assert;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * {@link ResourceServerTokenServices} that keeps the outcome of a token validation as an
+ * attribute of the current request, so that the token is validated only once even when
+ * the request is forwarded, included, dispatched to an error page or redispatched after
+ * asynchronous processing. Calls made outside of a request are always delegated.
+ *
+ * @since 2.7.0
+ */
+public class RequestMemoizingResourceServerTokenServices implements ResourceServerTokenServices {
+
+	private final ResourceServerTokenServices delegate;
+
+	private final String attributeName;
+
+	/**
+	 * Create a new {@link RequestMemoizingResourceServerTokenServices} instance.
+	 * @param delegate the token services to delegate to
+	 * @param attributeName the name of the request attribute holding the outcome
+	 */
+	public RequestMemoizingResourceServerTokenServices(ResourceServerTokenServices delegate, String attributeName) {
+		Assert.notNull(delegate, "Delegate must not be null");
+		Assert.hasText(attributeName, "AttributeName must not be empty");
+		this.delegate = delegate;
+		this.attributeName = attributeName;
+	}
+
+	@Override
+	public OAuth2Authentication loadAuthentication(String accessToken)
+			throws AuthenticationException, InvalidTokenException {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes == null) {
+			return this.delegate.loadAuthentication(accessToken);
+		}
+		Object attribute = attributes.getAttribute(this.attributeName, RequestAttributes.SCOPE_REQUEST);
+		if (attribute instanceof Validation && ((Validation) attribute).accessToken.equals(accessToken)) {
+			return ((Validation) attribute).getAuthentication();
+		}
+		Validation validation;
+		try {
+			validation = new Validation(accessToken, this.delegate.loadAuthentication(accessToken), null);
+		}
+		catch (InvalidTokenException ex) {
+			validation = new Validation(accessToken, null, ex);
+		}
+		attributes.setAttribute(this.attributeName, validation, RequestAttributes.SCOPE_REQUEST);
+		return validation.getAuthentication();
+	}
+
+	@Override
+	public OAuth2AccessToken readAccessToken(String accessToken) {
+		return this.delegate.readAccessToken(accessToken);
+	}
+
+	private static final class Validation {
+
+		private final String accessToken;
+
+		private final OAuth2Authentication authentication;
+
+		private final InvalidTokenException exception;
+
+		private Validation(String accessToken, OAuth2Authentication authentication, InvalidTokenException exception) {
+			this.accessToken = accessToken;
+			this.authentication = authentication;
+			this.exception = exception;
+		}
+
+		private OAuth2Authentication getAuthentication() {
+			if (this.exception != null) {
+				throw this.exception;
+			}
+			return this.authentication;
+		}
+
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ResourceServerTokenServices} protecting calls to remote token services with a
+ * bulkhead, limiting the number of concurrent calls, and with a
+ * {@link TokenServicesCircuitBreaker circuit breaker}. Calls that are rejected or that
+ * fail with anything but an authentication error throw a
+ * {@link TokenServicesUnavailableException}.
+ *
+ * @since 2.7.0
+ */
+public class ResilientResourceServerTokenServices implements ResourceServerTokenServices {
+
+	private final ResourceServerTokenServices delegate;
+
+	private final Semaphore bulkhead;
+
+	private final long maxWait;
+
+	private final TokenServicesCircuitBreaker circuitBreaker;
+
+	/**
+	 * Create a new {@link ResilientResourceServerTokenServices} instance.
+	 * @param delegate the token services to protect
+	 * @param maxConcurrentCalls the maximum number of concurrent calls
+	 * @param maxWait how long a call waits for a free slot in the bulkhead
+	 * @param circuitBreaker the circuit breaker
+	 */
+	public ResilientResourceServerTokenServices(ResourceServerTokenServices delegate, int maxConcurrentCalls,
+			Duration maxWait, TokenServicesCircuitBreaker circuitBreaker) {
+		Assert.notNull(delegate, "Delegate must not be null");
+		Assert.isTrue(maxConcurrentCalls > 0, "MaxConcurrentCalls must be positive");
+		Assert.notNull(maxWait, "MaxWait must not be null");
+		Assert.notNull(circuitBreaker, "CircuitBreaker must not be null");
+		this.delegate = delegate;
+		this.bulkhead = new Semaphore(maxConcurrentCalls);
+		this.maxWait = maxWait.toNanos();
+		this.circuitBreaker = circuitBreaker;
+	}
+
+	@Override
+	public OAuth2Authentication loadAuthentication(String accessToken)
+			throws AuthenticationException, InvalidTokenException {
+		return call(this.delegate::loadAuthentication, accessToken);
+	}
+
+	@Override
+	public OAuth2AccessToken readAccessToken(String accessToken) {
+		return call(this.delegate::readAccessToken, accessToken);
+	}
+
+	private <T> T call(Function<String, T> operation, String accessToken) {
+		TokenServicesCircuitBreaker.Permission permission = this.circuitBreaker.tryAcquirePermission();
+		if (permission == null) {
+			throw new TokenServicesUnavailableException("Token validation is unavailable");
+		}
+		if (!acquireBulkhead()) {
+			permission.release();
+			throw new TokenServicesUnavailableException("Too many concurrent token validations");
+		}
+		try {
+			T result = operation.apply(accessToken);
+			permission.onSuccess();
+			return result;
+		}
+		catch (OAuth2Exception | AuthenticationException ex) {
+			permission.onSuccess();
+			throw ex;
+		}
+		catch (RuntimeException ex) {
+			permission.onFailure();
+			throw new TokenServicesUnavailableException("Token validation failed", ex);
+		}
+		finally {
+			this.bulkhead.release();
+		}
+	}
+
+	private boolean acquireBulkhead() {
+		if (this.bulkhead.tryAcquire()) {
+			return true;
+		}
+		try {
+			return this.maxWait > 0 && this.bulkhead.tryAcquire(this.maxWait, TimeUnit.NANOSECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Return the number of calls that can currently be made without waiting.
+	 * @return the number of free slots in the bulkhead
+	 */
+	public int getAvailableCalls() {
+		return this.bulkhead.availablePermits();
+	}
+
+	public TokenServicesCircuitBreaker getCircuitBreaker() {
+		return this.circuitBreaker;
+	}
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.core.Ordered;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+/**
+ * {@link ResourceServerTokenServicesDecorator} that protects remote token services with a
+ * bulkhead and a circuit breaker. It is applied innermost so that a cache can keep
+ * serving recently validated authentications while the breaker is open.
+ *
+ * @since 2.7.0
+ * @see ResilientResourceServerTokenServices
+ */
+public class ResilientTokenServicesDecorator implements ResourceServerTokenServicesDecorator, Ordered {
+
+	/**
+	 * The order of the decorator.
+	 */
+	public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 70;
+
+	private final int maxConcurrentCalls;
+
+	private final Duration maxWait;
+
+	private final int failureThreshold;
+
+	private final Duration openDuration;
+
+	private final Map<TokenValidationStrategy, ResilientResourceServerTokenServices> tokenServices = new ConcurrentHashMap<>();
+
+	public ResilientTokenServicesDecorator(int maxConcurrentCalls, Duration maxWait, int failureThreshold,
+			Duration openDuration) {
+		this.maxConcurrentCalls = maxConcurrentCalls;
+		this.maxWait = maxWait;
+		this.failureThreshold = failureThreshold;
+		this.openDuration = openDuration;
+	}
+
+	@Override
+	public int getOrder() {
+		return ORDER;
+	}
+
+	@Override
+	public ResourceServerTokenServices decorate(ResourceServerTokenServices tokenServices,
+			TokenValidationStrategy strategy) {
+		if (!strategy.isRemote()) {
+			return tokenServices;
+		}
+		if (tokenServices instanceof UserInfoTokenServices) {
+			((UserInfoTokenServices) tokenServices).setPropagateRemoteErrors(true);
+		}
+		ResilientResourceServerTokenServices resilient = new ResilientResourceServerTokenServices(tokenServices,
+				this.maxConcurrentCalls, this.maxWait,
+				new TokenServicesCircuitBreaker(this.failureThreshold, this.openDuration));
+		this.tokenServices.put(strategy, resilient);
+		return resilient;
+	}
+
+	/**
+	 * Return the token services created by this decorator, keyed by the strategy of the
+	 * token services they wrap.
+	 * @return the token services
+	 */
+	public Map<TokenValidationStrategy, ResilientResourceServerTokenServices> getTokenServices() {
+		return Collections.unmodifiableMap(this.tokenServices);
+	}
+
+}
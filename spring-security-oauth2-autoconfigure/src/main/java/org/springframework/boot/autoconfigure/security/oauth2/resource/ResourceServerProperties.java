@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2019 the original author or authors.
+ * Copyright 2012-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,10 @@
 
 package org.springframework.boot.autoconfigure.security.oauth2.resource;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import org.springframework.beans.BeansException;
@@ -68,7 +72,8 @@ public class ResourceServerProperties implements BeanFactoryAware, InitializingB
 	private String userInfoUri;
 
 	/**
-	 * URI of the token decoding endpoint.
+	 * URI of the token decoding endpoint. Several comma-separated URIs of equivalent
+	 * endpoints can be set to balance the requests across them.
 	 */
 	private String tokenInfoUri;
 
@@ -77,6 +82,38 @@ public class ResourceServerProperties implements BeanFactoryAware, InitializingB
 	 */
 	private boolean preferTokenInfo = true;
 
+	/**
+	 * Whether to verify JWT tokens locally and send only the other (opaque) tokens to the
+	 * token info URI, when both a JWT or JWK key and a token info URI are set.
+	 */
+	private boolean hybrid;
+
+	/**
+	 * JSON pointer of the principal in the user info response, for instance
+	 * "/preferred_username". By default, one of a few well-known keys is used.
+	 */
+	private String principalPath;
+
+	/**
+	 * JSON pointer of the authorities in the user info response, for instance
+	 * "/realm_access/roles". By default, the "authorities" key is used.
+	 */
+	private String authoritiesPath;
+
+	/**
+	 * Ant patterns of public paths, for instance "/actuator/health/**". Requests to these
+	 * paths are permitted without authentication and any token they carry is ignored, but
+	 * they still go through the other security filters.
+	 */
+	private List<String> publicPaths = new ArrayList<>();
+
+	/**
+	 * Ant patterns of paths ignored by Spring Security altogether, for instance static
+	 * resources. Requests to these paths get no security headers, no security context and
+	 * no protection from the firewall, prefer public paths when in doubt.
+	 */
+	private List<String> ignoredPaths = new ArrayList<>();
+
 	/**
 	 * The token type to send when using the userInfoUri.
 	 */
@@ -86,6 +123,32 @@ public class ResourceServerProperties implements BeanFactoryAware, InitializingB
 
 	private Jwk jwk = new Jwk();
 
+	private Cache cache = new Cache();
+
+	private Revocation revocation = new Revocation();
+
+	private PreValidation preValidation = new PreValidation();
+
+	private Resilience resilience = new Resilience();
+
+	private LoadBalancing loadBalancing = new LoadBalancing();
+
+	private FieldSelection fieldSelection = new FieldSelection();
+
+	private Details details = new Details();
+
+	private CompactAuthorities compactAuthorities = new CompactAuthorities();
+
+	private RequestMemoization requestMemoization = new RequestMemoization();
+
+	private Metrics metrics = new Metrics();
+
+	private FlightRecorder flightRecorder = new FlightRecorder();
+
+	private Health health = new Health();
+
+	private ServerTiming serverTiming = new ServerTiming();
+
 	public ResourceServerProperties() {
 		this(null, null);
 	}
@@ -144,6 +207,46 @@ public class ResourceServerProperties implements BeanFactoryAware, InitializingB
 		this.preferTokenInfo = preferTokenInfo;
 	}
 
+	public boolean isHybrid() {
+		return this.hybrid;
+	}
+
+	public void setHybrid(boolean hybrid) {
+		this.hybrid = hybrid;
+	}
+
+	public String getPrincipalPath() {
+		return this.principalPath;
+	}
+
+	public void setPrincipalPath(String principalPath) {
+		this.principalPath = principalPath;
+	}
+
+	public String getAuthoritiesPath() {
+		return this.authoritiesPath;
+	}
+
+	public void setAuthoritiesPath(String authoritiesPath) {
+		this.authoritiesPath = authoritiesPath;
+	}
+
+	public List<String> getPublicPaths() {
+		return this.publicPaths;
+	}
+
+	public void setPublicPaths(List<String> publicPaths) {
+		this.publicPaths = publicPaths;
+	}
+
+	public List<String> getIgnoredPaths() {
+		return this.ignoredPaths;
+	}
+
+	public void setIgnoredPaths(List<String> ignoredPaths) {
+		this.ignoredPaths = ignoredPaths;
+	}
+
 	public String getTokenType() {
 		return this.tokenType;
 	}
@@ -168,6 +271,110 @@ public class ResourceServerProperties implements BeanFactoryAware, InitializingB
 		this.jwk = jwk;
 	}
 
+	public Cache getCache() {
+		return this.cache;
+	}
+
+	public void setCache(Cache cache) {
+		this.cache = cache;
+	}
+
+	public Revocation getRevocation() {
+		return this.revocation;
+	}
+
+	public void setRevocation(Revocation revocation) {
+		this.revocation = revocation;
+	}
+
+	public PreValidation getPreValidation() {
+		return this.preValidation;
+	}
+
+	public void setPreValidation(PreValidation preValidation) {
+		this.preValidation = preValidation;
+	}
+
+	public Resilience getResilience() {
+		return this.resilience;
+	}
+
+	public void setResilience(Resilience resilience) {
+		this.resilience = resilience;
+	}
+
+	public LoadBalancing getLoadBalancing() {
+		return this.loadBalancing;
+	}
+
+	public void setLoadBalancing(LoadBalancing loadBalancing) {
+		this.loadBalancing = loadBalancing;
+	}
+
+	public FieldSelection getFieldSelection() {
+		return this.fieldSelection;
+	}
+
+	public void setFieldSelection(FieldSelection fieldSelection) {
+		this.fieldSelection = fieldSelection;
+	}
+
+	public Details getDetails() {
+		return this.details;
+	}
+
+	public void setDetails(Details details) {
+		this.details = details;
+	}
+
+	public CompactAuthorities getCompactAuthorities() {
+		return this.compactAuthorities;
+	}
+
+	public void setCompactAuthorities(CompactAuthorities compactAuthorities) {
+		this.compactAuthorities = compactAuthorities;
+	}
+
+	public RequestMemoization getRequestMemoization() {
+		return this.requestMemoization;
+	}
+
+	public void setRequestMemoization(RequestMemoization requestMemoization) {
+		this.requestMemoization = requestMemoization;
+	}
+
+	public Metrics getMetrics() {
+		return this.metrics;
+	}
+
+	public void setMetrics(Metrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public FlightRecorder getFlightRecorder() {
+		return this.flightRecorder;
+	}
+
+	public void setFlightRecorder(FlightRecorder flightRecorder) {
+		this.flightRecorder = flightRecorder;
+	}
+
+	public Health getHealth() {
+		return this.health;
+	}
+
+	public void setHealth(Health health) {
+		this.health = health;
+	}
+
+	public ServerTiming getServerTiming() {
+		return this.serverTiming;
+	}
+
+	public void setServerTiming(ServerTiming serverTiming) {
+		this.serverTiming = serverTiming;
+	}
+
 	public String getClientId() {
 		return this.clientId;
 	}
@@ -226,6 +433,15 @@ public class ResourceServerProperties implements BeanFactoryAware, InitializingB
 				}
 			}
 		}
+		if (this.hybrid && (jwtConfigPresent || jwkConfigPresent)) {
+			if (!StringUtils.hasText(this.tokenInfoUri)) {
+				errors.rejectValue("tokenInfoUri", "missing.tokenInfoUri",
+						"Missing tokenInfoUri for hybrid token validation");
+			}
+			else if (!StringUtils.hasText(this.clientSecret)) {
+				errors.rejectValue("clientSecret", "missing.clientSecret", "Missing client secret");
+			}
+		}
 		if (errors.hasErrors()) {
 			throw new BindException(errors);
 		}
@@ -334,4 +550,485 @@ public class ResourceServerProperties implements BeanFactoryAware, InitializingB
 
 	}
 
+	public class Cache {
+
+		/**
+		 * Whether to cache the authentications loaded from the token info or user info
+		 * endpoints.
+		 */
+		private boolean enabled;
+
+		/**
+		 * How long, in seconds, a cached authentication is reused before the remote
+		 * endpoint is called again. Revoked tokens are evicted early when revocation
+		 * events are received.
+		 */
+		private int timeToLiveSeconds = 300;
+
+		/**
+		 * Maximum number of cached authentications.
+		 */
+		private int maxSize = 10000;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getTimeToLiveSeconds() {
+			return this.timeToLiveSeconds;
+		}
+
+		public void setTimeToLiveSeconds(int timeToLiveSeconds) {
+			this.timeToLiveSeconds = timeToLiveSeconds;
+		}
+
+		public int getMaxSize() {
+			return this.maxSize;
+		}
+
+		public void setMaxSize(int maxSize) {
+			this.maxSize = maxSize;
+		}
+
+	}
+
+	public class Revocation {
+
+		/**
+		 * The URI of the server-sent events stream of token revocations published by the
+		 * authorization server. Cached authentications are evicted as soon as their token
+		 * is revoked or their user logs out.
+		 */
+		private String eventsUri;
+
+		/**
+		 * The URI of the JSON array of revoked JWT ids. When set, JWT tokens whose "jti"
+		 * claim is in the array are rejected without any remote call.
+		 */
+		private String revokedJtisUri;
+
+		/**
+		 * Number of seconds between two synchronizations of the revoked JWT ids.
+		 */
+		private long syncIntervalSeconds = 60;
+
+		public String getEventsUri() {
+			return this.eventsUri;
+		}
+
+		public void setEventsUri(String eventsUri) {
+			this.eventsUri = eventsUri;
+		}
+
+		public String getRevokedJtisUri() {
+			return this.revokedJtisUri;
+		}
+
+		public void setRevokedJtisUri(String revokedJtisUri) {
+			this.revokedJtisUri = revokedJtisUri;
+		}
+
+		public long getSyncIntervalSeconds() {
+			return this.syncIntervalSeconds;
+		}
+
+		public void setSyncIntervalSeconds(long syncIntervalSeconds) {
+			this.syncIntervalSeconds = syncIntervalSeconds;
+		}
+
+	}
+
+	public class PreValidation {
+
+		/**
+		 * Whether to check the structure of the tokens before validating them, so that
+		 * malformed tokens are rejected without any signature verification or remote
+		 * call.
+		 */
+		private boolean enabled;
+
+		/**
+		 * Maximum length of a token.
+		 */
+		private int maxLength = 8192;
+
+		/**
+		 * Allowed values of the "alg" header of JWT tokens.
+		 */
+		private List<String> allowedAlgorithms = new ArrayList<>(Arrays.asList("HS256", "HS384", "HS512", "RS256",
+				"RS384", "RS512", "ES256", "ES384", "ES512", "PS256", "PS384", "PS512"));
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getMaxLength() {
+			return this.maxLength;
+		}
+
+		public void setMaxLength(int maxLength) {
+			this.maxLength = maxLength;
+		}
+
+		public List<String> getAllowedAlgorithms() {
+			return this.allowedAlgorithms;
+		}
+
+		public void setAllowedAlgorithms(List<String> allowedAlgorithms) {
+			this.allowedAlgorithms = allowedAlgorithms;
+		}
+
+	}
+
+	public class Resilience {
+
+		/**
+		 * Whether to protect the calls to the token info or user info endpoints with a
+		 * bulkhead and a circuit breaker.
+		 */
+		private boolean enabled;
+
+		/**
+		 * Maximum number of concurrent calls to the remote endpoint.
+		 */
+		private int maxConcurrentCalls = 64;
+
+		/**
+		 * Maximum time, in milliseconds, a call waits for the number of concurrent calls
+		 * to drop below the maximum.
+		 */
+		private long maxWaitMillis = 100;
+
+		/**
+		 * Number of consecutive failures that open the circuit breaker.
+		 */
+		private int failureThreshold = 5;
+
+		/**
+		 * Number of seconds the circuit breaker stays open before a probe call is
+		 * allowed.
+		 */
+		private long openDurationSeconds = 10;
+
+		/**
+		 * Number of seconds after their expiry during which cached authentications are
+		 * still used when the remote endpoint is unavailable. Requires the cache.
+		 */
+		private long staleIfErrorSeconds;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getMaxConcurrentCalls() {
+			return this.maxConcurrentCalls;
+		}
+
+		public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+			this.maxConcurrentCalls = maxConcurrentCalls;
+		}
+
+		public long getMaxWaitMillis() {
+			return this.maxWaitMillis;
+		}
+
+		public void setMaxWaitMillis(long maxWaitMillis) {
+			this.maxWaitMillis = maxWaitMillis;
+		}
+
+		public int getFailureThreshold() {
+			return this.failureThreshold;
+		}
+
+		public void setFailureThreshold(int failureThreshold) {
+			this.failureThreshold = failureThreshold;
+		}
+
+		public long getOpenDurationSeconds() {
+			return this.openDurationSeconds;
+		}
+
+		public void setOpenDurationSeconds(long openDurationSeconds) {
+			this.openDurationSeconds = openDurationSeconds;
+		}
+
+		public long getStaleIfErrorSeconds() {
+			return this.staleIfErrorSeconds;
+		}
+
+		public void setStaleIfErrorSeconds(long staleIfErrorSeconds) {
+			this.staleIfErrorSeconds = staleIfErrorSeconds;
+		}
+
+	}
+
+	public class LoadBalancing {
+
+		/**
+		 * Whether to also send a request to a second token info URI when it has not been
+		 * answered after the 95th percentile of the recent latencies. The first
+		 * successful response is used.
+		 */
+		private boolean hedging;
+
+		/**
+		 * Minimum time, in milliseconds, to wait for a response before hedging a request.
+		 */
+		private long minHedgeDelayMillis = 10;
+
+		/**
+		 * Number of consecutive failures after which a token info URI is ejected.
+		 */
+		private int ejectionFailureThreshold = 5;
+
+		/**
+		 * Number of seconds an ejected token info URI receives no requests.
+		 */
+		private long ejectionDurationSeconds = 30;
+
+		public boolean isHedging() {
+			return this.hedging;
+		}
+
+		public void setHedging(boolean hedging) {
+			this.hedging = hedging;
+		}
+
+		public long getMinHedgeDelayMillis() {
+			return this.minHedgeDelayMillis;
+		}
+
+		public void setMinHedgeDelayMillis(long minHedgeDelayMillis) {
+			this.minHedgeDelayMillis = minHedgeDelayMillis;
+		}
+
+		public int getEjectionFailureThreshold() {
+			return this.ejectionFailureThreshold;
+		}
+
+		public void setEjectionFailureThreshold(int ejectionFailureThreshold) {
+			this.ejectionFailureThreshold = ejectionFailureThreshold;
+		}
+
+		public long getEjectionDurationSeconds() {
+			return this.ejectionDurationSeconds;
+		}
+
+		public void setEjectionDurationSeconds(long ejectionDurationSeconds) {
+			this.ejectionDurationSeconds = ejectionDurationSeconds;
+		}
+
+	}
+
+	public class FieldSelection {
+
+		/**
+		 * Whether to read only the fields of the token info or user info responses that
+		 * are needed to build the authentication, skipping the other ones.
+		 */
+		private boolean enabled;
+
+		/**
+		 * Paths of additional fields to read, for instance the ones used by a custom
+		 * principal or authorities extractor. Nested fields are separated by dots.
+		 */
+		private List<String> additionalFields = new ArrayList<>();
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public List<String> getAdditionalFields() {
+			return this.additionalFields;
+		}
+
+		public void setAdditionalFields(List<String> additionalFields) {
+			this.additionalFields = additionalFields;
+		}
+
+	}
+
+	public class Details {
+
+		/**
+		 * Attributes of the user info response to keep in the details of the
+		 * authentication. All of them are kept when empty.
+		 */
+		private List<String> attributes = new ArrayList<>();
+
+		public List<String> getAttributes() {
+			return this.attributes;
+		}
+
+		public void setAttributes(List<String> attributes) {
+			this.attributes = attributes;
+		}
+
+	}
+
+	public class CompactAuthorities {
+
+		/**
+		 * Whether to encode the authorities and scopes of the loaded authentications as
+		 * bit sets, so that checking whether one of them is granted takes constant time.
+		 */
+		private boolean enabled;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+	}
+
+	public class RequestMemoization {
+
+		/**
+		 * Whether to validate each token at most once per request, reusing the outcome on
+		 * forwards, includes, error dispatches and asynchronous redispatches.
+		 */
+		private boolean enabled;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+	}
+
+	public class Metrics {
+
+		/**
+		 * Whether to record the latency and the outcome of the token validations, as well
+		 * as the state of the authentication caches, when a MeterRegistry is available.
+		 */
+		private boolean enabled = true;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+	}
+
+	public class FlightRecorder {
+
+		/**
+		 * Whether to emit a Java Flight Recorder event for each token validation.
+		 */
+		private boolean enabled;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+	}
+
+	public class Health {
+
+		/**
+		 * Latency above which a remote endpoint is reported as degraded, in milliseconds.
+		 * The 95th percentile of the recent calls is used when there is traffic.
+		 */
+		private long latencySloMillis = 500;
+
+		/**
+		 * Time during which the result of a probe is reused, and during which calls made
+		 * by real traffic are considered recent enough to replace a probe, in seconds.
+		 */
+		private long probeIntervalSeconds = 30;
+
+		/**
+		 * Connect and read timeout of a probe, in milliseconds.
+		 */
+		private int probeTimeoutMillis = 2000;
+
+		/**
+		 * Maximum time since the verification keys were last confirmed by their endpoint
+		 * before they are reported as degraded, in seconds.
+		 */
+		private long keyRefreshIntervalSeconds = 3600;
+
+		public long getLatencySloMillis() {
+			return this.latencySloMillis;
+		}
+
+		public void setLatencySloMillis(long latencySloMillis) {
+			this.latencySloMillis = latencySloMillis;
+		}
+
+		public long getProbeIntervalSeconds() {
+			return this.probeIntervalSeconds;
+		}
+
+		public void setProbeIntervalSeconds(long probeIntervalSeconds) {
+			this.probeIntervalSeconds = probeIntervalSeconds;
+		}
+
+		public int getProbeTimeoutMillis() {
+			return this.probeTimeoutMillis;
+		}
+
+		public void setProbeTimeoutMillis(int probeTimeoutMillis) {
+			this.probeTimeoutMillis = probeTimeoutMillis;
+		}
+
+		public long getKeyRefreshIntervalSeconds() {
+			return this.keyRefreshIntervalSeconds;
+		}
+
+		public void setKeyRefreshIntervalSeconds(long keyRefreshIntervalSeconds) {
+			this.keyRefreshIntervalSeconds = keyRefreshIntervalSeconds;
+		}
+
+	}
+
+	public class ServerTiming {
+
+		/**
+		 * Whether to add a Server-Timing header to the responses, reporting the time
+		 * spent validating the access token, the strategy used and whether the
+		 * authentication was served from a cache.
+		 */
+		private boolean enabled;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2019 the original author or authors.
+ * Copyright 2012-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,13 +17,21 @@
 package org.springframework.boot.autoconfigure.security.oauth2.resource;
 
 import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionMessage;
@@ -32,10 +40,12 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.NoneNestedConditions;
 import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ConditionContext;
 import org.springframework.context.annotation.Conditional;
@@ -52,16 +62,20 @@ import org.springframework.http.MediaType;
 import org.springframework.http.client.ClientHttpRequestExecution;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.security.oauth2.client.OAuth2ClientContext;
 import org.springframework.security.oauth2.client.OAuth2RestOperations;
 import org.springframework.security.oauth2.client.resource.OAuth2ProtectedResourceDetails;
 import org.springframework.security.oauth2.client.token.AccessTokenRequest;
 import org.springframework.security.oauth2.client.token.RequestEnhancer;
 import org.springframework.security.oauth2.config.annotation.web.configuration.AuthorizationServerEndpointsConfiguration;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.DefaultAccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.DefaultTokenServices;
 import org.springframework.security.oauth2.provider.token.RemoteTokenServices;
 import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
 import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.security.oauth2.provider.token.UserAuthenticationConverter;
 import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
 import org.springframework.security.oauth2.provider.token.store.KeyStoreKeyFactory;
@@ -72,6 +86,7 @@ import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.MultiValueMap;
 import org.springframework.util.StringUtils;
+import org.springframework.web.client.DefaultResponseErrorHandler;
 import org.springframework.web.client.RestTemplate;
 
 /**
@@ -86,6 +101,19 @@ import org.springframework.web.client.RestTemplate;
 @ConditionalOnMissingBean(AuthorizationServerEndpointsConfiguration.class)
 public class ResourceServerTokenServicesConfiguration {
 
+	private static final List<String> TOKEN_INFO_FIELDS = Arrays.asList("active", "error", AccessTokenConverter.EXP,
+			AccessTokenConverter.CLIENT_ID, AccessTokenConverter.SCOPE, AccessTokenConverter.AUD,
+			AccessTokenConverter.GRANT_TYPE, AccessTokenConverter.AUTHORITIES, UserAuthenticationConverter.USERNAME);
+
+	private static final List<String> USER_INFO_FIELDS;
+
+	static {
+		List<String> fields = new ArrayList<>(Arrays.asList(FixedPrincipalExtractor.PRINCIPAL_KEYS));
+		fields.add("authorities");
+		fields.add("error");
+		USER_INFO_FIELDS = Collections.unmodifiableList(fields);
+	}
+
 	@Bean
 	@ConditionalOnMissingBean
 	public UserInfoRestTemplateFactory userInfoRestTemplateFactory(
@@ -95,16 +123,253 @@ public class ResourceServerTokenServicesConfiguration {
 		return new DefaultUserInfoRestTemplateFactory(customizers, details, oauth2ClientContext);
 	}
 
+	@Bean
+	static TokenServicesDecoratorPostProcessor tokenServicesDecoratorPostProcessor(
+			ObjectProvider<ResourceServerTokenServicesDecorator> decorators) {
+		return new TokenServicesDecoratorPostProcessor(decorators);
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = "security.oauth2.resource.server-timing", name = "enabled", havingValue = "true")
+	public ServerTimingTokenServicesDecorator serverTimingTokenServicesDecorator() {
+		return new ServerTimingTokenServicesDecorator();
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = "security.oauth2.resource.pre-validation", name = "enabled", havingValue = "true")
+	public PreValidatingTokenServicesDecorator preValidatingTokenServicesDecorator(ResourceServerProperties resource) {
+		ResourceServerProperties.PreValidation preValidation = resource.getPreValidation();
+		return new PreValidatingTokenServicesDecorator(preValidation.getMaxLength(),
+				preValidation.getAllowedAlgorithms());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = "security.oauth2.resource.request-memoization", name = "enabled",
+			havingValue = "true")
+	public RequestMemoizingTokenServicesDecorator requestMemoizingTokenServicesDecorator() {
+		return new RequestMemoizingTokenServicesDecorator();
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = "security.oauth2.resource.cache", name = "enabled", havingValue = "true")
+	public CachingTokenServicesDecorator cachingTokenServicesDecorator(ResourceServerProperties resource) {
+		CachingTokenServicesDecorator decorator = new CachingTokenServicesDecorator(
+				Duration.ofSeconds(resource.getCache().getTimeToLiveSeconds()), resource.getCache().getMaxSize());
+		if (resource.getResilience().isEnabled()) {
+			decorator.setStaleIfError(Duration.ofSeconds(resource.getResilience().getStaleIfErrorSeconds()));
+		}
+		return decorator;
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = "security.oauth2.resource.compact-authorities", name = "enabled",
+			havingValue = "true")
+	public CompactAuthoritiesTokenServicesDecorator compactAuthoritiesTokenServicesDecorator() {
+		return new CompactAuthoritiesTokenServicesDecorator(AuthorityDictionary.getSharedInstance());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnClass(name = "jdk.jfr.Event")
+	@ConditionalOnProperty(prefix = "security.oauth2.resource.flight-recorder", name = "enabled", havingValue = "true")
+	public FlightRecorderTokenServicesDecorator flightRecorderTokenServicesDecorator() {
+		return new FlightRecorderTokenServicesDecorator();
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = "security.oauth2.resource.resilience", name = "enabled", havingValue = "true")
+	public ResilientTokenServicesDecorator resilientTokenServicesDecorator(ResourceServerProperties resource) {
+		ResourceServerProperties.Resilience resilience = resource.getResilience();
+		return new ResilientTokenServicesDecorator(resilience.getMaxConcurrentCalls(),
+				Duration.ofMillis(resilience.getMaxWaitMillis()), resilience.getFailureThreshold(),
+				Duration.ofSeconds(resilience.getOpenDurationSeconds()));
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty("security.oauth2.resource.revocation.events-uri")
+	public TokenRevocationEventSubscriber tokenRevocationEventSubscriber(ResourceServerProperties resource,
+			ApplicationEventPublisher publisher, ObjectProvider<CachingTokenServicesDecorator> cachingDecorator) {
+		TokenRevocationEventSubscriber subscriber = new TokenRevocationEventSubscriber(
+				resource.getRevocation().getEventsUri(), new RestTemplate(), clientCredentialsHeaders(resource),
+				publisher);
+		cachingDecorator.ifAvailable((decorator) -> subscriber.setConnectedCallback(decorator::clear));
+		return subscriber;
+	}
+
+	/**
+	 * Create the remote token services for the token info URIs of the given properties.
+	 * @param resource the resource server properties
+	 * @param disposables callback registering the components to destroy with the
+	 * application context
+	 * @return the remote token services
+	 */
+	static RemoteTokenServices createRemoteTokenServices(ResourceServerProperties resource,
+			Consumer<DisposableBean> disposables) {
+		RemoteTokenServices services = new RemoteTokenServices();
+		String[] tokenInfoUris = StringUtils.tokenizeToStringArray(resource.getTokenInfoUri(), ",");
+		services.setCheckTokenEndpointUrl((tokenInfoUris.length > 1) ? tokenInfoUris[0] : resource.getTokenInfoUri());
+		if (tokenInfoUris.length > 1 || resource.getFieldSelection().isEnabled()) {
+			services.setRestTemplate(createTokenInfoRestTemplate(tokenInfoUris, resource, disposables));
+		}
+		services.setClientId(resource.getClientId());
+		services.setClientSecret(resource.getClientSecret());
+		services.setAccessTokenConverter(createAccessTokenConverter());
+		return services;
+	}
+
+	private static DefaultAccessTokenConverter createAccessTokenConverter() {
+		DefaultAccessTokenConverter converter = new DefaultAccessTokenConverter();
+		converter.setUserTokenConverter(new InterningUserAuthenticationConverter());
+		return converter;
+	}
+
+	private static RestTemplate createTokenInfoRestTemplate(String[] uris, ResourceServerProperties resource,
+			Consumer<DisposableBean> disposables) {
+		RestTemplate restTemplate = new RestTemplate();
+		if (uris.length > 1) {
+			LoadBalancingClientHttpRequestFactory requestFactory = createLoadBalancingRequestFactory(uris,
+					resource.getLoadBalancing());
+			disposables.accept(requestFactory);
+			restTemplate.setRequestFactory(requestFactory);
+		}
+		if (resource.getFieldSelection().isEnabled()) {
+			restTemplate.getMessageConverters().add(0, new FieldSelectingJsonHttpMessageConverter(
+					getSelectedFields(TOKEN_INFO_FIELDS, resource.getFieldSelection())));
+		}
+		restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+
+			// Ignore 400, like the default rest template of RemoteTokenServices
+			@Override
+			public void handleError(ClientHttpResponse response) throws IOException {
+				if (response.getRawStatusCode() != 400) {
+					super.handleError(response);
+				}
+			}
+
+		});
+		return restTemplate;
+	}
+
+	private static LoadBalancingClientHttpRequestFactory createLoadBalancingRequestFactory(String[] uris,
+			ResourceServerProperties.LoadBalancing loadBalancing) {
+		List<URI> endpoints = new ArrayList<>(uris.length);
+		for (String uri : uris) {
+			endpoints.add(URI.create(uri));
+		}
+		LoadBalancingClientHttpRequestFactory requestFactory = new LoadBalancingClientHttpRequestFactory(
+				new SimpleClientHttpRequestFactory(), endpoints);
+		requestFactory.setHedging(loadBalancing.isHedging());
+		requestFactory.setMinHedgeDelay(Duration.ofMillis(loadBalancing.getMinHedgeDelayMillis()));
+		requestFactory.setEjection(loadBalancing.getEjectionFailureThreshold(),
+				Duration.ofSeconds(loadBalancing.getEjectionDurationSeconds()));
+		return requestFactory;
+	}
+
+	private static List<String> getSelectedFields(List<String> defaultFields,
+			ResourceServerProperties.FieldSelection fieldSelection) {
+		List<String> fields = new ArrayList<>(defaultFields);
+		fields.addAll(fieldSelection.getAdditionalFields());
+		return fields;
+	}
+
+	private static List<List<String>> getUserInfoFieldPaths(ResourceServerProperties resource) {
+		List<List<String>> paths = new ArrayList<>();
+		for (String field : getSelectedFields(USER_INFO_FIELDS, resource.getFieldSelection())) {
+			paths.add(Arrays.asList(StringUtils.delimitedListToStringArray(field, ".")));
+		}
+		// Attribute names and JSON pointer segments can contain dots
+		for (String attribute : resource.getDetails().getAttributes()) {
+			paths.add(Collections.singletonList(attribute));
+		}
+		if (StringUtils.hasText(resource.getPrincipalPath())) {
+			paths.add(Collections.singletonList(MapPath.compile(resource.getPrincipalPath()).getRoot()));
+		}
+		if (StringUtils.hasText(resource.getAuthoritiesPath())) {
+			paths.add(Collections.singletonList(MapPath.compile(resource.getAuthoritiesPath()).getRoot()));
+		}
+		return paths;
+	}
+
+	private static PrincipalExtractor createPrincipalExtractor(ResourceServerProperties resource) {
+		String path = resource.getPrincipalPath();
+		return StringUtils.hasText(path) ? new PathPrincipalExtractor(path) : null;
+	}
+
+	private static AuthoritiesExtractor createAuthoritiesExtractor(ResourceServerProperties resource) {
+		String path = resource.getAuthoritiesPath();
+		return StringUtils.hasText(path) ? new PathAuthoritiesExtractor(path) : null;
+	}
+
+	private static DetailsExtractor createDetailsExtractor(ResourceServerProperties resource) {
+		List<String> attributes = resource.getDetails().getAttributes();
+		return attributes.isEmpty() ? null : new AllowlistDetailsExtractor(attributes);
+	}
+
+	private static HttpHeaders clientCredentialsHeaders(ResourceServerProperties resource) {
+		HttpHeaders headers = new HttpHeaders();
+		String username = resource.getClientId();
+		String password = resource.getClientSecret();
+		if (username != null && password != null) {
+			headers.setBasicAuth(username, password);
+		}
+		return headers;
+	}
+
+	@Configuration
+	@ConditionalOnClass(MeterRegistry.class)
+	@ConditionalOnBean(MeterRegistry.class)
+	@ConditionalOnProperty(prefix = "security.oauth2.resource.metrics", name = "enabled", matchIfMissing = true)
+	protected static class TokenServicesMetricsConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public MetricsTokenServicesDecorator metricsTokenServicesDecorator(MeterRegistry registry,
+				ObjectProvider<CachingTokenServicesDecorator> cachingDecorator) {
+			return new MetricsTokenServicesDecorator(registry, cachingDecorator.getIfAvailable());
+		}
+
+	}
+
+	@Configuration
+	@ConditionalOnProperty("security.oauth2.resource.revocation.revoked-jtis-uri")
+	protected static class JtiRevocationConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public JtiRevocationList jtiRevocationList() {
+			return new JtiRevocationList();
+		}
+
+		@Bean
+		@ConditionalOnMissingBean
+		public JtiRevocationListSynchronizer jtiRevocationListSynchronizer(ResourceServerProperties resource,
+				JtiRevocationList jtiRevocationList) {
+			ResourceServerProperties.Revocation revocation = resource.getRevocation();
+			return new JtiRevocationListSynchronizer(jtiRevocationList, revocation.getRevokedJtisUri(),
+					revocation.getSyncIntervalSeconds(), new RestTemplate(), clientCredentialsHeaders(resource));
+		}
+
+	}
+
 	@Configuration
 	@Conditional(RemoteTokenCondition.class)
 	protected static class RemoteTokenServicesConfiguration {
 
 		@Configuration
 		@Conditional(TokenInfoCondition.class)
-		protected static class TokenInfoServicesConfiguration {
+		protected static class TokenInfoServicesConfiguration implements DisposableBean {
 
 			private final ResourceServerProperties resource;
 
+			private final List<DisposableBean> disposables = new ArrayList<>();
+
 			protected TokenInfoServicesConfiguration(ResourceServerProperties resource) {
 				this.resource = resource;
 			}
@@ -112,11 +377,14 @@ public class ResourceServerTokenServicesConfiguration {
 			@Bean
 			@ConditionalOnMissingBean(ResourceServerTokenServices.class)
 			public RemoteTokenServices remoteTokenServices() {
-				RemoteTokenServices services = new RemoteTokenServices();
-				services.setCheckTokenEndpointUrl(this.resource.getTokenInfoUri());
-				services.setClientId(this.resource.getClientId());
-				services.setClientSecret(this.resource.getClientSecret());
-				return services;
+				return createRemoteTokenServices(this.resource, this.disposables::add);
+			}
+
+			@Override
+			public void destroy() throws Exception {
+				for (DisposableBean disposable : this.disposables) {
+					disposable.destroy();
+				}
 			}
 
 		}
@@ -136,16 +404,20 @@ public class ResourceServerTokenServicesConfiguration {
 
 			private final PrincipalExtractor principalExtractor;
 
+			private final DetailsExtractor detailsExtractor;
+
 			public SocialTokenServicesConfiguration(ResourceServerProperties sso,
 					ObjectProvider<OAuth2ConnectionFactory<?>> connectionFactory,
 					UserInfoRestTemplateFactory restTemplateFactory,
 					ObjectProvider<AuthoritiesExtractor> authoritiesExtractor,
-					ObjectProvider<PrincipalExtractor> principalExtractor) {
+					ObjectProvider<PrincipalExtractor> principalExtractor,
+					ObjectProvider<DetailsExtractor> detailsExtractor) {
 				this.sso = sso;
 				this.connectionFactory = connectionFactory.getIfAvailable();
 				this.restTemplate = restTemplateFactory.getUserInfoRestTemplate();
-				this.authoritiesExtractor = authoritiesExtractor.getIfAvailable();
-				this.principalExtractor = principalExtractor.getIfAvailable();
+				this.authoritiesExtractor = authoritiesExtractor.getIfAvailable(() -> createAuthoritiesExtractor(sso));
+				this.principalExtractor = principalExtractor.getIfAvailable(() -> createPrincipalExtractor(sso));
+				this.detailsExtractor = detailsExtractor.getIfAvailable(() -> createDetailsExtractor(sso));
 			}
 
 			@Bean
@@ -168,6 +440,10 @@ public class ResourceServerTokenServicesConfiguration {
 				if (this.principalExtractor != null) {
 					services.setPrincipalExtractor(this.principalExtractor);
 				}
+				services.setDetailsExtractor(this.detailsExtractor);
+				if (this.sso.getFieldSelection().isEnabled()) {
+					services.setResponseFieldPaths(getUserInfoFieldPaths(this.sso));
+				}
 				return services;
 			}
 
@@ -186,14 +462,18 @@ public class ResourceServerTokenServicesConfiguration {
 
 			private final PrincipalExtractor principalExtractor;
 
+			private final DetailsExtractor detailsExtractor;
+
 			public UserInfoTokenServicesConfiguration(ResourceServerProperties sso,
 					UserInfoRestTemplateFactory restTemplateFactory,
 					ObjectProvider<AuthoritiesExtractor> authoritiesExtractor,
-					ObjectProvider<PrincipalExtractor> principalExtractor) {
+					ObjectProvider<PrincipalExtractor> principalExtractor,
+					ObjectProvider<DetailsExtractor> detailsExtractor) {
 				this.sso = sso;
 				this.restTemplate = restTemplateFactory.getUserInfoRestTemplate();
-				this.authoritiesExtractor = authoritiesExtractor.getIfAvailable();
-				this.principalExtractor = principalExtractor.getIfAvailable();
+				this.authoritiesExtractor = authoritiesExtractor.getIfAvailable(() -> createAuthoritiesExtractor(sso));
+				this.principalExtractor = principalExtractor.getIfAvailable(() -> createPrincipalExtractor(sso));
+				this.detailsExtractor = detailsExtractor.getIfAvailable(() -> createDetailsExtractor(sso));
 			}
 
 			@Bean
@@ -209,6 +489,10 @@ public class ResourceServerTokenServicesConfiguration {
 				if (this.principalExtractor != null) {
 					services.setPrincipalExtractor(this.principalExtractor);
 				}
+				services.setDetailsExtractor(this.detailsExtractor);
+				if (this.sso.getFieldSelection().isEnabled()) {
+					services.setResponseFieldPaths(getUserInfoFieldPaths(this.sso));
+				}
 				return services;
 			}
 
@@ -237,7 +521,7 @@ public class ResourceServerTokenServicesConfiguration {
 		@Bean
 		@ConditionalOnMissingBean(TokenStore.class)
 		public TokenStore jwkTokenStore() {
-			return new JwkTokenStore(this.resource.getJwk().getKeySetUri());
+			return new JwkTokenStore(this.resource.getJwk().getKeySetUri(), createAccessTokenConverter());
 		}
 
 	}
@@ -252,12 +536,16 @@ public class ResourceServerTokenServicesConfiguration {
 
 		private final List<JwtAccessTokenConverterRestTemplateCustomizer> customizers;
 
+		private final JtiRevocationList revocationList;
+
 		public JwtTokenServicesConfiguration(ResourceServerProperties resource,
 				ObjectProvider<List<JwtAccessTokenConverterConfigurer>> configurers,
-				ObjectProvider<List<JwtAccessTokenConverterRestTemplateCustomizer>> customizers) {
+				ObjectProvider<List<JwtAccessTokenConverterRestTemplateCustomizer>> customizers,
+				ObjectProvider<JtiRevocationList> revocationList) {
 			this.resource = resource;
 			this.configurers = configurers.getIfAvailable();
 			this.customizers = customizers.getIfAvailable();
+			this.revocationList = revocationList.getIfAvailable();
 		}
 
 		@Bean
@@ -278,6 +566,7 @@ public class ResourceServerTokenServicesConfiguration {
 		@ConditionalOnMissingBean(JwtAccessTokenConverter.class)
 		public JwtAccessTokenConverter jwtTokenEnhancer() {
 			JwtAccessTokenConverter converter = new JwtAccessTokenConverter();
+			converter.setAccessTokenConverter(createAccessTokenConverter());
 			String keyValue = this.resource.getJwt().getKeyValue();
 			if (!StringUtils.hasText(keyValue)) {
 				keyValue = getKeyFromServer();
@@ -294,6 +583,7 @@ public class ResourceServerTokenServicesConfiguration {
 					configurer.configure(converter);
 				}
 			}
+			checkRevocation(converter, this.revocationList);
 			return converter;
 		}
 
@@ -313,7 +603,17 @@ public class ResourceServerTokenServicesConfiguration {
 			}
 			HttpEntity<Void> request = new HttpEntity<>(headers);
 			String url = this.resource.getJwt().getKeyUri();
-			return (String) keyUriRestTemplate.exchange(url, HttpMethod.GET, request, Map.class).getBody().get("value");
+			Object event = FlightRecorderSupport.beginRemoteCall();
+			boolean success = false;
+			try {
+				String key = (String) keyUriRestTemplate.exchange(url, HttpMethod.GET, request, Map.class).getBody()
+						.get("value");
+				success = true;
+				return key;
+			}
+			finally {
+				FlightRecorderSupport.endRemoteCall(event, "key-uri", url, success);
+			}
 		}
 
 	}
@@ -324,11 +624,15 @@ public class ResourceServerTokenServicesConfiguration {
 
 		private final ResourceServerProperties resource;
 
+		private final JtiRevocationList revocationList;
+
 		private ApplicationContext context;
 
 		@Autowired
-		public JwtKeyStoreConfiguration(ResourceServerProperties resource) {
+		public JwtKeyStoreConfiguration(ResourceServerProperties resource,
+				ObjectProvider<JtiRevocationList> revocationList) {
 			this.resource = resource;
+			this.revocationList = revocationList.getIfAvailable();
 		}
 
 		@Override
@@ -358,6 +662,7 @@ public class ResourceServerTokenServicesConfiguration {
 			Assert.notNull(this.resource.getJwt().getKeyAlias(), "keyAlias cannot be null");
 
 			JwtAccessTokenConverter converter = new JwtAccessTokenConverter();
+			converter.setAccessTokenConverter(createAccessTokenConverter());
 
 			Resource keyStore = this.context.getResource(this.resource.getJwt().getKeyStore());
 			char[] keyStorePassword = this.resource.getJwt().getKeyStorePassword().toCharArray();
@@ -367,12 +672,20 @@ public class ResourceServerTokenServicesConfiguration {
 			char[] keyPassword = Optional.ofNullable(this.resource.getJwt().getKeyPassword()).map(String::toCharArray)
 					.orElse(keyStorePassword);
 			converter.setKeyPair(keyStoreKeyFactory.getKeyPair(keyAlias, keyPassword));
+			checkRevocation(converter, this.revocationList);
 
 			return converter;
 		}
 
 	}
 
+	private static void checkRevocation(JwtAccessTokenConverter converter, JtiRevocationList revocationList) {
+		if (revocationList != null) {
+			converter.setAccessTokenConverter(
+					new JtiRevocationCheckingAccessTokenConverter(converter.getAccessTokenConverter(), revocationList));
+		}
+	}
+
 	private static class TokenInfoCondition extends SpringBootCondition {
 
 		@Override
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import org.springframework.core.Ordered;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+/**
+ * Callback interface that can be implemented by beans wishing to wrap the
+ * {@link ResourceServerTokenServices} created by
+ * {@link ResourceServerTokenServicesConfiguration}. Decorators are applied according to
+ * their {@link Ordered order} so that the decorator with the highest precedence ends up
+ * outermost and sees each call first.
+ *
+ * @since 2.7.0
+ */
+@FunctionalInterface
+public interface ResourceServerTokenServicesDecorator {
+
+	/**
+	 * Decorate the given token services.
+	 * @param tokenServices the token services to decorate
+	 * @param strategy the strategy used by the token services to validate tokens
+	 * @return the decorated token services, or the given instance if no decoration is
+	 * required
+	 */
+	ResourceServerTokenServices decorate(ResourceServerTokenServices tokenServices, TokenValidationStrategy strategy);
+
+}
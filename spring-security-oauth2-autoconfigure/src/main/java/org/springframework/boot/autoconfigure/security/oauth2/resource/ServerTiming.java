@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.Locale;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Time spent validating tokens during a request, reported in a {@code Server-Timing}
+ * header by the {@link ServerTimingFilter}. The timing is held by an attribute of the
+ * request, which the filter binds to the current thread while the request is processed.
+ *
+ * @since 2.7.0
+ */
+final class ServerTiming {
+
+	static final String ATTRIBUTE = ServerTiming.class.getName();
+
+	static final String HEADER = "Server-Timing";
+
+	private static final ThreadLocal<HttpServletRequest> currentRequest = new ThreadLocal<>();
+
+	private long nanos;
+
+	private TokenValidationStrategy strategy;
+
+	private String cache;
+
+	/**
+	 * Return the timing of the current request, if it is measured.
+	 * @return the timing or {@code null}
+	 */
+	static ServerTiming get() {
+		HttpServletRequest request = currentRequest.get();
+		Object timing = (request != null) ? request.getAttribute(ATTRIBUTE) : null;
+		return (timing instanceof ServerTiming) ? (ServerTiming) timing : null;
+	}
+
+	/**
+	 * Bind the given request to the current thread.
+	 * @param request the request holding the timing
+	 * @return the request previously bound or {@code null}
+	 */
+	static HttpServletRequest bind(HttpServletRequest request) {
+		HttpServletRequest previous = currentRequest.get();
+		currentRequest.set(request);
+		return previous;
+	}
+
+	/**
+	 * Restore the request bound to the current thread.
+	 * @param previous the request returned by {@link #bind(HttpServletRequest)}
+	 */
+	static void restore(HttpServletRequest previous) {
+		if (previous != null) {
+			currentRequest.set(previous);
+		}
+		else {
+			currentRequest.remove();
+		}
+	}
+
+	/**
+	 * Record whether the validation in progress was served by a cache.
+	 * @param cache the outcome, {@code hit}, {@code stale} or {@code miss}
+	 */
+	static void recordCache(String cache) {
+		ServerTiming timing = get();
+		if (timing != null) {
+			timing.cache = cache;
+		}
+	}
+
+	void start() {
+		this.cache = null;
+	}
+
+	void record(TokenValidationStrategy strategy, long nanos) {
+		this.strategy = strategy;
+		this.nanos += nanos;
+	}
+
+	boolean hasRecords() {
+		return this.strategy != null;
+	}
+
+	/**
+	 * Return the value of the {@code Server-Timing} header, for instance
+	 * {@code oauth2;desc="token-info cache-hit";dur=0.125}.
+	 * @return the value of the header
+	 */
+	String getHeaderValue() {
+		StringBuilder description = new StringBuilder(this.strategy.getName());
+		if (this.cache != null) {
+			description.append(" cache-").append(this.cache);
+		}
+		return String.format(Locale.ROOT, "oauth2;desc=\"%s\";dur=%.3f", description, this.nanos / 1000000.0);
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Filter that adds a {@code Server-Timing} header to the response, reporting the time
+ * spent validating the access token of the request together with the
+ * {@link TokenValidationStrategy strategy} used and whether the authentication was served
+ * from a cache. The time is measured by {@link ServerTimingResourceServerTokenServices},
+ * so the filter must run before the Spring Security filter chain. The header is added
+ * when the response is committed, or at the end of the request if it was not.
+ *
+ * @since 2.7.0
+ */
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		ServerTiming timing = new ServerTiming();
+		request.setAttribute(ServerTiming.ATTRIBUTE, timing);
+		ServerTimingResponseWrapper wrapper = new ServerTimingResponseWrapper(response, timing);
+		HttpServletRequest previous = ServerTiming.bind(request);
+		try {
+			chain.doFilter(request, wrapper);
+		}
+		finally {
+			ServerTiming.restore(previous);
+			wrapper.addServerTiming();
+		}
+	}
+
+	private static final class ServerTimingResponseWrapper extends OnCommittedResponseWrapper {
+
+		private final ServerTiming timing;
+
+		private ServerTimingResponseWrapper(HttpServletResponse response, ServerTiming timing) {
+			super(response);
+			this.timing = timing;
+		}
+
+		@Override
+		protected void onResponseCommitted() {
+			addServerTiming();
+		}
+
+		private void addServerTiming() {
+			if (isDisableOnResponseCommitted()) {
+				return;
+			}
+			disableOnResponseCommitted();
+			HttpServletResponse response = (HttpServletResponse) getResponse();
+			if (this.timing.hasRecords() && !response.isCommitted()) {
+				response.addHeader(ServerTiming.HEADER, this.timing.getHeaderValue());
+			}
+		}
+
+	}
+
+}
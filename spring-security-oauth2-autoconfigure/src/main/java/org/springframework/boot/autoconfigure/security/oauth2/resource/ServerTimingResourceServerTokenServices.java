@@ -0,0 +1,76 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ResourceServerTokenServices} that measures the time spent loading
+ * authentications, including the extraction of the principal and of the authorities, for
+ * the {@link ServerTimingFilter}. Whether the authentication was served from a cache is
+ * reported by the {@link CachingResourceServerTokenServices} handling the call. Calls
+ * made outside of a request measured by the filter are simply delegated.
+ *
+ * @since 2.7.0
+ */
+public class ServerTimingResourceServerTokenServices implements ResourceServerTokenServices {
+
+	private final ResourceServerTokenServices delegate;
+
+	private final TokenValidationStrategy strategy;
+
+	/**
+	 * Create a new {@link ServerTimingResourceServerTokenServices} instance.
+	 * @param delegate the token services to measure
+	 * @param strategy the strategy of the token services
+	 */
+	public ServerTimingResourceServerTokenServices(ResourceServerTokenServices delegate,
+			TokenValidationStrategy strategy) {
+		Assert.notNull(delegate, "Delegate must not be null");
+		Assert.notNull(strategy, "Strategy must not be null");
+		this.delegate = delegate;
+		this.strategy = strategy;
+	}
+
+	@Override
+	public OAuth2Authentication loadAuthentication(String accessToken)
+			throws AuthenticationException, InvalidTokenException {
+		ServerTiming timing = ServerTiming.get();
+		if (timing == null) {
+			return this.delegate.loadAuthentication(accessToken);
+		}
+		timing.start();
+		long start = System.nanoTime();
+		try {
+			return this.delegate.loadAuthentication(accessToken);
+		}
+		finally {
+			timing.record(this.strategy, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public OAuth2AccessToken readAccessToken(String accessToken) {
+		return this.delegate.readAccessToken(accessToken);
+	}
+
+}
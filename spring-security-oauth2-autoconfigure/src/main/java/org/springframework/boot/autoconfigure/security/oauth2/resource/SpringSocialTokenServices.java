@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,12 +16,12 @@
 
 package org.springframework.boot.autoconfigure.security.oauth2.resource;
 
+import java.util.Collections;
 import java.util.List;
 
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.oauth2.common.OAuth2AccessToken;
 import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
@@ -60,7 +60,8 @@ public class SpringSocialTokenServices implements ResourceServerTokenServices {
 
 	private OAuth2Authentication extractAuthentication(UserProfile user) {
 		String principal = user.getUsername();
-		List<GrantedAuthority> authorities = AuthorityUtils.commaSeparatedStringToAuthorityList("ROLE_USER");
+		List<GrantedAuthority> authorities = AuthorityInterner.getSharedInstance()
+				.getAuthorities(Collections.singletonList("ROLE_USER"));
 		OAuth2Request request = new OAuth2Request(null, this.clientId, null, true, null, null, null, null, null);
 		return new OAuth2Authentication(request,
 				new UsernamePasswordAuthenticationToken(principal, "N/A", authorities));
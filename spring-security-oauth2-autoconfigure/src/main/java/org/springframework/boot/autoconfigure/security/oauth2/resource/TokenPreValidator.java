@@ -0,0 +1,282 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.util.Assert;
+
+/**
+ * Cheap structural checks of an access token, used to reject malformed tokens before any
+ * signature verification or remote call. Opaque tokens are checked for their length and
+ * for the characters allowed in a bearer token. JWTs are also checked for their segments
+ * and for the {@code alg} of their header, which is decoded on the fly. Validation does
+ * not allocate unless the token is rejected.
+ *
+ * @since 2.7.0
+ */
+public final class TokenPreValidator {
+
+	private static final byte[] ALG = "alg".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] BASE64URL = new byte[128];
+
+	static {
+		for (int i = 0; i < BASE64URL.length; i++) {
+			BASE64URL[i] = -1;
+		}
+		String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+		for (int i = 0; i < alphabet.length(); i++) {
+			BASE64URL[alphabet.charAt(i)] = (byte) i;
+		}
+	}
+
+	private final int maxLength;
+
+	private final byte[][] algorithms;
+
+	private TokenPreValidator(int maxLength, byte[][] algorithms) {
+		Assert.isTrue(maxLength > 0, "MaxLength must be positive");
+		this.maxLength = maxLength;
+		this.algorithms = algorithms;
+	}
+
+	/**
+	 * Create a validator for opaque tokens.
+	 * @param maxLength the maximum length of a token
+	 * @return the validator
+	 */
+	public static TokenPreValidator opaque(int maxLength) {
+		return new TokenPreValidator(maxLength, null);
+	}
+
+	/**
+	 * Create a validator for JWTs.
+	 * @param maxLength the maximum length of a token
+	 * @param allowedAlgorithms the allowed values of the {@code alg} header
+	 * @return the validator
+	 */
+	public static TokenPreValidator jwt(int maxLength, Collection<String> allowedAlgorithms) {
+		Assert.notEmpty(allowedAlgorithms, "AllowedAlgorithms must not be empty");
+		Assert.isTrue(allowedAlgorithms.size() <= 64, "At most 64 algorithms can be allowed");
+		byte[][] algorithms = new byte[allowedAlgorithms.size()][];
+		int i = 0;
+		for (String algorithm : allowedAlgorithms) {
+			Assert.hasText(algorithm, "AllowedAlgorithms must not contain empty elements");
+			algorithms[i++] = algorithm.getBytes(StandardCharsets.UTF_8);
+		}
+		return new TokenPreValidator(maxLength, algorithms);
+	}
+
+	/**
+	 * Validate the structure of the given token.
+	 * @param token the token value
+	 * @throws InvalidTokenException if the token is malformed
+	 */
+	public void validate(String token) throws InvalidTokenException {
+		if (token == null || token.isEmpty()) {
+			throw new InvalidTokenException("Missing token");
+		}
+		if (token.length() > this.maxLength) {
+			throw new InvalidTokenException("Token is too long");
+		}
+		if (this.algorithms == null) {
+			validateOpaque(token);
+		}
+		else {
+			validateJwt(token);
+		}
+	}
+
+	/**
+	 * Check the RFC 6750 {@code b64token} syntax: a non-empty sequence of letters,
+	 * digits, {@code -._~+/} optionally followed by {@code =} padding.
+	 */
+	private void validateOpaque(String token) {
+		int length = token.length();
+		int end = length;
+		while (end > 0 && token.charAt(end - 1) == '=') {
+			end--;
+		}
+		if (end == 0) {
+			throw new InvalidTokenException("Malformed token");
+		}
+		for (int i = 0; i < end; i++) {
+			char c = token.charAt(i);
+			if (!isBase64UrlChar(c) && c != '.' && c != '~' && c != '+' && c != '/') {
+				throw new InvalidTokenException("Malformed token");
+			}
+		}
+	}
+
+	private void validateJwt(String token) {
+		int length = token.length();
+		int dots = 0;
+		int headerEnd = -1;
+		int segmentStart = 0;
+		for (int i = 0; i < length; i++) {
+			char c = token.charAt(i);
+			if (c == '.') {
+				if (dots == 0) {
+					headerEnd = i;
+				}
+				if (++dots > 2 || i == segmentStart || (i - segmentStart) % 4 == 1) {
+					throw new InvalidTokenException("Malformed token");
+				}
+				segmentStart = i + 1;
+			}
+			else if (!isBase64UrlChar(c)) {
+				throw new InvalidTokenException("Malformed token");
+			}
+		}
+		if (dots != 2 || (length - segmentStart) % 4 == 1) {
+			throw new InvalidTokenException("Malformed token");
+		}
+		if (!isAllowedAlgorithm(token, headerEnd)) {
+			throw new InvalidTokenException("Token algorithm is not allowed");
+		}
+	}
+
+	/**
+	 * Decode the Base64URL header in the first {@code end} characters of the token and
+	 * scan its JSON for a top-level {@code alg} string member whose value is allowed.
+	 */
+	private boolean isAllowedAlgorithm(String token, int end) {
+		long allCandidates = (this.algorithms.length == 64) ? -1L : (1L << this.algorithms.length) - 1;
+		int buffer = 0;
+		int bits = 0;
+		int depth = 0;
+		boolean inString = false;
+		boolean escaped = false;
+		boolean expectKey = false;
+		boolean key = false;
+		int keyPosition = 0;
+		boolean algValue = false;
+		boolean matchingValue = false;
+		long candidates = 0;
+		int valuePosition = 0;
+		boolean algSeen = false;
+		boolean allowed = true;
+		for (int i = 0; i < end; i++) {
+			buffer = (buffer << 6) | BASE64URL[token.charAt(i)];
+			bits += 6;
+			if (bits < 8) {
+				continue;
+			}
+			bits -= 8;
+			int c = (buffer >> bits) & 0xFF;
+			if (inString) {
+				if (escaped) {
+					escaped = false;
+					keyPosition = -1;
+					candidates = 0;
+				}
+				else if (c == '\\') {
+					escaped = true;
+				}
+				else if (c == '"') {
+					inString = false;
+					if (key) {
+						key = false;
+						algValue = keyPosition == ALG.length;
+					}
+					else if (matchingValue) {
+						matchingValue = false;
+						algValue = false;
+						algSeen = true;
+						allowed &= matchesCompletely(candidates, valuePosition);
+					}
+				}
+				else if (key) {
+					keyPosition = (keyPosition >= 0 && keyPosition < ALG.length && ALG[keyPosition] == c)
+							? keyPosition + 1 : -1;
+				}
+				else if (matchingValue) {
+					candidates = matchNext(candidates, valuePosition++, c);
+				}
+				continue;
+			}
+			if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+				continue;
+			}
+			if (c == '"') {
+				inString = true;
+				if (depth == 1 && expectKey) {
+					key = true;
+					keyPosition = 0;
+				}
+				else if (depth == 1 && algValue) {
+					matchingValue = true;
+					candidates = allCandidates;
+					valuePosition = 0;
+				}
+				continue;
+			}
+			if (depth == 1 && algValue && c != ':') {
+				algSeen = true;
+				allowed = false;
+				algValue = false;
+			}
+			if (c == '{' || c == '[') {
+				depth++;
+				expectKey = depth == 1 && c == '{';
+			}
+			else if (c == '}' || c == ']') {
+				depth--;
+			}
+			else if (c == ':' && depth == 1) {
+				expectKey = false;
+			}
+			else if (c == ',' && depth == 1) {
+				expectKey = true;
+			}
+		}
+		return algSeen && allowed && depth == 0 && !inString;
+	}
+
+	private long matchNext(long candidates, int position, int c) {
+		long remaining = candidates;
+		while (remaining != 0) {
+			int index = Long.numberOfTrailingZeros(remaining);
+			remaining &= remaining - 1;
+			byte[] algorithm = this.algorithms[index];
+			if (position >= algorithm.length || (algorithm[position] & 0xFF) != c) {
+				candidates &= ~(1L << index);
+			}
+		}
+		return candidates;
+	}
+
+	private boolean matchesCompletely(long candidates, int length) {
+		long remaining = candidates;
+		while (remaining != 0) {
+			int index = Long.numberOfTrailingZeros(remaining);
+			remaining &= remaining - 1;
+			if (this.algorithms[index].length == length) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isBase64UrlChar(char c) {
+		return c < 128 && BASE64URL[c] >= 0;
+	}
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.function.Consumer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.boot.autoconfigure.security.oauth2.revocation.TokenRevocationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.Assert;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Subscribes to the server-sent events stream of token revocations exposed by an
+ * authorization server and republishes each event locally as a
+ * {@link TokenRevocationEvent}. The connection is re-established with an exponential
+ * back-off whenever it is lost. Since the revocations published while the connection was
+ * lost are missed, a {@link #setConnectedCallback(Runnable) callback} can discard the
+ * state derived from them, typically the cached authentications, every time the
+ * connection is established.
+ *
+ * @since 2.7.0
+ */
+public class TokenRevocationEventSubscriber implements SmartLifecycle {
+
+	private static final Log logger = LogFactory.getLog(TokenRevocationEventSubscriber.class);
+
+	private static final long INITIAL_BACK_OFF = 1000;
+
+	private static final long MAX_BACK_OFF = 30000;
+
+	private final String eventsUri;
+
+	private final RestTemplate restTemplate;
+
+	private final HttpHeaders headers;
+
+	private final ApplicationEventPublisher publisher;
+
+	private Runnable connectedCallback = () -> {
+	};
+
+	private volatile boolean running;
+
+	private volatile Thread thread;
+
+	private volatile ClientHttpResponse response;
+
+	/**
+	 * Create a new {@link TokenRevocationEventSubscriber} instance.
+	 * @param eventsUri the URI of the revocation events stream
+	 * @param restTemplate the rest template used to connect to the stream
+	 * @param headers additional headers to send, for instance to authenticate
+	 * @param publisher the publisher used to republish the events
+	 */
+	public TokenRevocationEventSubscriber(String eventsUri, RestTemplate restTemplate, HttpHeaders headers,
+			ApplicationEventPublisher publisher) {
+		Assert.hasText(eventsUri, "EventsUri must not be empty");
+		Assert.notNull(restTemplate, "RestTemplate must not be null");
+		Assert.notNull(publisher, "Publisher must not be null");
+		this.eventsUri = eventsUri;
+		this.restTemplate = restTemplate;
+		this.headers = (headers != null) ? headers : new HttpHeaders();
+		this.publisher = publisher;
+	}
+
+	/**
+	 * Set a callback that is invoked every time the connection to the stream is
+	 * established, before any event is read.
+	 * @param connectedCallback the callback
+	 */
+	public void setConnectedCallback(Runnable connectedCallback) {
+		Assert.notNull(connectedCallback, "ConnectedCallback must not be null");
+		this.connectedCallback = connectedCallback;
+	}
+
+	@Override
+	public void start() {
+		if (this.running) {
+			return;
+		}
+		this.running = true;
+		Thread thread = new Thread(this::run, "oauth2-revocation-events");
+		thread.setDaemon(true);
+		this.thread = thread;
+		thread.start();
+	}
+
+	@Override
+	public void stop() {
+		this.running = false;
+		Thread thread = this.thread;
+		if (thread != null) {
+			thread.interrupt();
+		}
+		ClientHttpResponse response = this.response;
+		if (response != null) {
+			response.close();
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	private void run() {
+		long backOff = INITIAL_BACK_OFF;
+		while (this.running) {
+			try {
+				subscribe();
+				backOff = INITIAL_BACK_OFF;
+			}
+			catch (Exception ex) {
+				if (!this.running) {
+					return;
+				}
+				logger.warn("Lost connection to revocation events at " + this.eventsUri + ": " + ex.getMessage());
+			}
+			try {
+				Thread.sleep(backOff);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			backOff = Math.min(backOff * 2, MAX_BACK_OFF);
+		}
+	}
+
+	void subscribe() {
+		this.restTemplate.execute(this.eventsUri, HttpMethod.GET, (request) -> {
+			request.getHeaders().putAll(this.headers);
+			request.getHeaders().setAccept(Collections.singletonList(MediaType.TEXT_EVENT_STREAM));
+		}, (response) -> {
+			this.response = response;
+			this.connectedCallback.run();
+			try (Reader reader = new InputStreamReader(response.getBody(), StandardCharsets.UTF_8)) {
+				read(reader, this.publisher::publishEvent);
+			}
+			finally {
+				this.response = null;
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Read server-sent events from the given reader until the end of the stream and pass
+	 * each revocation event to the given consumer.
+	 * @param reader the reader
+	 * @param consumer the consumer of the events
+	 * @throws IOException on read error
+	 */
+	void read(Reader reader, Consumer<TokenRevocationEvent> consumer) throws IOException {
+		BufferedReader lines = new BufferedReader(reader);
+		String eventName = null;
+		StringBuilder data = new StringBuilder();
+		String line;
+		while ((line = lines.readLine()) != null) {
+			if (line.isEmpty()) {
+				dispatch(eventName, data, consumer);
+				eventName = null;
+				data.setLength(0);
+			}
+			else if (line.startsWith("event:")) {
+				eventName = value(line, 6);
+			}
+			else if (line.startsWith("data:")) {
+				if (data.length() > 0) {
+					data.append('\n');
+				}
+				data.append(value(line, 5));
+			}
+		}
+		dispatch(eventName, data, consumer);
+	}
+
+	private String value(String line, int offset) {
+		return line.startsWith(" ", offset) ? line.substring(offset + 1) : line.substring(offset);
+	}
+
+	private void dispatch(String eventName, StringBuilder data, Consumer<TokenRevocationEvent> consumer) {
+		TokenRevocationEvent.Type type = TokenRevocationEvent.Type.forEventName(eventName);
+		if (type != null && data.length() > 0) {
+			consumer.accept(new TokenRevocationEvent(this, type, data.toString()));
+		}
+	}
+
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.util.Assert;
+
+/**
+ * Circuit breaker guarding the calls to a remote token validation server. The breaker
+ * opens after a number of consecutive failures, rejects every call while it is open and
+ * then lets a single probe call through: the breaker closes again if the probe succeeds
+ * and reopens otherwise.
+ * <p>
+ * The state and a generation bumped on every transition are held in a single atomic
+ * snapshot, so that only one probe can be granted. Each {@link Permission} remembers the
+ * generation it was granted in, so that the result of a call that started before a
+ * transition, for instance a success admitted while the breaker was still closed, cannot
+ * close a breaker that opened in the meantime.
+ *
+ * @since 2.7.0
+ */
+public class TokenServicesCircuitBreaker {
+
+	private final int failureThreshold;
+
+	private final long openDuration;
+
+	private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(closed(0));
+
+	private final AtomicInteger failures = new AtomicInteger();
+
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Create a new {@link TokenServicesCircuitBreaker} instance.
+	 * @param failureThreshold the number of consecutive failures opening the breaker
+	 * @param openDuration how long the breaker stays open before a probe call is allowed
+	 */
+	public TokenServicesCircuitBreaker(int failureThreshold, Duration openDuration) {
+		Assert.isTrue(failureThreshold > 0, "FailureThreshold must be positive");
+		Assert.notNull(openDuration, "OpenDuration must not be null");
+		this.failureThreshold = failureThreshold;
+		this.openDuration = openDuration.toMillis();
+	}
+
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "Clock must not be null");
+		this.clock = clock;
+	}
+
+	/**
+	 * Try to acquire the permission to call the remote server. A granted permission must
+	 * be followed by a call to {@link Permission#onSuccess()},
+	 * {@link Permission#onFailure()} or {@link Permission#release()}.
+	 * @return the permission or {@code null} if the call is rejected
+	 */
+	public Permission tryAcquirePermission() {
+		while (true) {
+			Snapshot current = this.snapshot.get();
+			if (current.state == State.CLOSED) {
+				return current.permission;
+			}
+			if (current.state == State.HALF_OPEN || this.clock.millis() - current.openedAt < this.openDuration) {
+				return null;
+			}
+			Snapshot probing = new Snapshot(State.HALF_OPEN, current.generation + 1, current.openedAt);
+			if (this.snapshot.compareAndSet(current, probing)) {
+				return probing.permission;
+			}
+		}
+	}
+
+	private void onSuccess(Permission permission) {
+		Snapshot current = this.snapshot.get();
+		if (current.generation != permission.generation) {
+			return;
+		}
+		if (current.state == State.CLOSED) {
+			if (this.failures.get() != 0) {
+				this.failures.set(0);
+			}
+		}
+		else if (this.snapshot.compareAndSet(current, closed(current.generation + 1))) {
+			this.failures.set(0);
+		}
+	}
+
+	private void onFailure(Permission permission) {
+		Snapshot current = this.snapshot.get();
+		if (current.generation != permission.generation) {
+			return;
+		}
+		if (current.state == State.HALF_OPEN || this.failures.incrementAndGet() >= this.failureThreshold) {
+			if (this.snapshot.compareAndSet(current, open(current.generation + 1, this.clock.millis()))) {
+				this.failures.set(0);
+			}
+		}
+	}
+
+	private void release(Permission permission) {
+		Snapshot current = this.snapshot.get();
+		if (current.generation == permission.generation && current.state == State.HALF_OPEN) {
+			this.snapshot.compareAndSet(current, open(current.generation + 1, current.openedAt));
+		}
+	}
+
+	private Snapshot closed(long generation) {
+		return new Snapshot(State.CLOSED, generation, 0);
+	}
+
+	private Snapshot open(long generation, long openedAt) {
+		return new Snapshot(State.OPEN, generation, openedAt);
+	}
+
+	/**
+	 * Return the current state of the breaker.
+	 * @return the state
+	 */
+	public State getState() {
+		return this.snapshot.get().state;
+	}
+
+	/**
+	 * The permission to make a call, bound to the generation of the breaker it was
+	 * granted in. The outcome of the call is ignored if the breaker changed state since
+	 * then.
+	 */
+	public final class Permission {
+
+		private final long generation;
+
+		private Permission(long generation) {
+			this.generation = generation;
+		}
+
+		/**
+		 * Record a successful call.
+		 */
+		public void onSuccess() {
+			TokenServicesCircuitBreaker.this.onSuccess(this);
+		}
+
+		/**
+		 * Record a failed call.
+		 */
+		public void onFailure() {
+			TokenServicesCircuitBreaker.this.onFailure(this);
+		}
+
+		/**
+		 * Release a permission that was not used to call the remote server.
+		 */
+		public void release() {
+			TokenServicesCircuitBreaker.this.release(this);
+		}
+
+	}
+
+	private final class Snapshot {
+
+		private final State state;
+
+		private final long generation;
+
+		private final long openedAt;
+
+		private final Permission permission;
+
+		private Snapshot(State state, long generation, long openedAt) {
+			this.state = state;
+			this.generation = generation;
+			this.openedAt = openedAt;
+			this.permission = (state != State.OPEN) ? new Permission(generation) : null;
+		}
+
+	}
+
+	/**
+	 * The states of the breaker.
+	 */
+	public enum State {
+
+		/**
+		 * Calls are permitted.
+		 */
+		CLOSED,
+
+		/**
+		 * Calls are rejected.
+		 */
+		OPEN,
+
+		/**
+		 * A single probe call is permitted.
+		 */
+		HALF_OPEN
+
+	}
+
+}
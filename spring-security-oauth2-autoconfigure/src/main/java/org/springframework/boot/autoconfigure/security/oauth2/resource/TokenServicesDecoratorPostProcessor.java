@@ -0,0 +1,145 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link BeanPostProcessor} that applies the {@link ResourceServerTokenServicesDecorator
+ * decorators} to the {@link ResourceServerTokenServices} beans created by
+ * {@link ResourceServerTokenServicesConfiguration}. Token services defined by the user
+ * are left untouched. In {@link ResourceServerProperties#isHybrid() hybrid} mode, the JWT
+ * token services are also combined with remote token services for opaque tokens.
+ *
+ * @since 2.7.0
+ */
+class TokenServicesDecoratorPostProcessor implements BeanPostProcessor, BeanFactoryAware, DisposableBean {
+
+	private static final Map<String, TokenValidationStrategy> STRATEGIES;
+
+	static {
+		Map<String, TokenValidationStrategy> strategies = new HashMap<>();
+		strategies.put("remoteTokenServices", TokenValidationStrategy.TOKEN_INFO);
+		strategies.put("userInfoTokenServices", TokenValidationStrategy.USER_INFO);
+		strategies.put("socialTokenServices", TokenValidationStrategy.SOCIAL);
+		strategies.put("jwkTokenServices", TokenValidationStrategy.JWK);
+		strategies.put("jwtTokenServices", TokenValidationStrategy.JWT);
+		STRATEGIES = Collections.unmodifiableMap(strategies);
+	}
+
+	private static final String CONFIGURATION_PREFIX = ResourceServerTokenServicesConfiguration.class.getName() + "$";
+
+	private final ObjectProvider<ResourceServerTokenServicesDecorator> decorators;
+
+	private final List<DisposableBean> disposables = new CopyOnWriteArrayList<>();
+
+	private ConfigurableListableBeanFactory beanFactory;
+
+	TokenServicesDecoratorPostProcessor(ObjectProvider<ResourceServerTokenServicesDecorator> decorators) {
+		this.decorators = decorators;
+	}
+
+	@Override
+	public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+		this.beanFactory = (ConfigurableListableBeanFactory) beanFactory;
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		for (DisposableBean disposable : this.disposables) {
+			disposable.destroy();
+		}
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+		if (bean instanceof ResourceServerTokenServices) {
+			TokenValidationStrategy strategy = getStrategy(beanName);
+			if (strategy != null) {
+				ResourceServerTokenServices decorated = decorate((ResourceServerTokenServices) bean, strategy);
+				ResourceServerProperties resource = getHybridProperties(strategy);
+				if (resource != null) {
+					ResourceServerTokenServices opaque = decorate(ResourceServerTokenServicesConfiguration
+							.createRemoteTokenServices(resource, this.disposables::add),
+							TokenValidationStrategy.TOKEN_INFO);
+					return new HybridResourceServerTokenServices(decorated, opaque);
+				}
+				return decorated;
+			}
+		}
+		return bean;
+	}
+
+	ResourceServerTokenServices decorate(ResourceServerTokenServices tokenServices, TokenValidationStrategy strategy) {
+		List<ResourceServerTokenServicesDecorator> decorators = new ArrayList<>(
+				this.decorators.orderedStream().collect(Collectors.toList()));
+		Collections.reverse(decorators);
+		ResourceServerTokenServices decorated = tokenServices;
+		for (ResourceServerTokenServicesDecorator decorator : decorators) {
+			decorated = decorator.decorate(decorated, strategy);
+		}
+		return decorated;
+	}
+
+	private ResourceServerProperties getHybridProperties(TokenValidationStrategy strategy) {
+		if (strategy.isRemote()) {
+			return null;
+		}
+		ResourceServerProperties resource = this.beanFactory.getBeanProvider(ResourceServerProperties.class)
+				.getIfAvailable();
+		if (resource == null || !resource.isHybrid() || !StringUtils.hasText(resource.getTokenInfoUri())) {
+			return null;
+		}
+		return resource;
+	}
+
+	private TokenValidationStrategy getStrategy(String beanName) {
+		TokenValidationStrategy strategy = STRATEGIES.get(beanName);
+		if (strategy == null || this.beanFactory == null || !this.beanFactory.containsBeanDefinition(beanName)) {
+			return null;
+		}
+		BeanDefinition definition = this.beanFactory.getMergedBeanDefinition(beanName);
+		if (!(definition instanceof AnnotatedBeanDefinition)) {
+			return null;
+		}
+		MethodMetadata factoryMethod = ((AnnotatedBeanDefinition) definition).getFactoryMethodMetadata();
+		if (factoryMethod == null || !factoryMethod.getDeclaringClassName().startsWith(CONFIGURATION_PREFIX)) {
+			return null;
+		}
+		return strategy;
+	}
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
+
+/**
+ * Exception thrown when an access token cannot be validated because the remote server
+ * validating it is unavailable or overloaded. It is rendered as a
+ * {@code 503 Service Unavailable} response rather than as an invalid token.
+ *
+ * @since 2.7.0
+ */
+@SuppressWarnings("serial")
+public class TokenServicesUnavailableException extends OAuth2Exception {
+
+	public TokenServicesUnavailableException(String msg) {
+		super(msg);
+	}
+
+	public TokenServicesUnavailableException(String msg, Throwable cause) {
+		super(msg, cause);
+	}
+
+	@Override
+	public String getOAuth2ErrorCode() {
+		return "temporarily_unavailable";
+	}
+
+	@Override
+	public int getHttpErrorCode() {
+		return HttpStatus.SERVICE_UNAVAILABLE.value();
+	}
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for the validation of an access token. Only validations taking
+ * longer than the threshold, 1 ms by default, are recorded. The threshold can be changed
+ * with the {@code threshold} setting of the
+ * {@code org.springframework.security.oauth2.TokenValidation} event.
+ *
+ * @since 2.7.0
+ * @see FlightRecorderResourceServerTokenServices
+ */
+@Name("org.springframework.security.oauth2.TokenValidation")
+@Label("OAuth2 Token Validation")
+@Description("Validation of an OAuth2 access token by a resource server")
+@Category({ "Spring Security", "OAuth2" })
+@Threshold("1 ms")
+@StackTrace(false)
+final class TokenValidationEvent extends Event {
+
+	@Label("Strategy")
+	@Description("Strategy used to validate the token")
+	String strategy;
+
+	@Label("Outcome")
+	@Description("Outcome of the validation: valid, invalid or error")
+	String outcome;
+
+	void end(TokenValidationStrategy strategy, String outcome) {
+		end();
+		if (shouldCommit()) {
+			this.strategy = strategy.getName();
+			this.outcome = outcome;
+			commit();
+		}
+	}
+
+}
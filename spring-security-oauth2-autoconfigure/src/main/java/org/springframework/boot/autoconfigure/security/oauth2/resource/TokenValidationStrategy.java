@@ -0,0 +1,79 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+/**
+ * The strategies used by the {@link ResourceServerTokenServices} created by
+ * {@link ResourceServerTokenServicesConfiguration} to validate an access token.
+ *
+ * @since 2.7.0
+ */
+public enum TokenValidationStrategy {
+
+	/**
+	 * Tokens are JWTs verified locally with a key value, key URI or key store.
+	 */
+	JWT("jwt", false),
+
+	/**
+	 * Tokens are JWTs verified locally with keys from a JWK set URI.
+	 */
+	JWK("jwk", false),
+
+	/**
+	 * Tokens are validated remotely by the token info (check token) endpoint.
+	 */
+	TOKEN_INFO("token-info", true),
+
+	/**
+	 * Tokens are validated remotely by the user info endpoint.
+	 */
+	USER_INFO("user-info", true),
+
+	/**
+	 * Tokens are validated remotely by fetching the user profile with Spring Social.
+	 */
+	SOCIAL("social", true);
+
+	private final String name;
+
+	private final boolean remote;
+
+	TokenValidationStrategy(String name, boolean remote) {
+		this.name = name;
+		this.remote = remote;
+	}
+
+	/**
+	 * Return the name of the strategy, as used in property values and tags.
+	 * @return the name
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Return whether validating a token requires a call to a remote server.
+	 * @return {@code true} if the strategy is remote
+	 */
+	public boolean isRemote() {
+		return this.remote;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2017 the original author or authors.
+ * Copyright 2012-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.boot.autoconfigure.security.oauth2.resource;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -23,6 +24,8 @@ import java.util.Map;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.GrantedAuthority;
@@ -36,6 +39,10 @@ import org.springframework.security.oauth2.provider.OAuth2Authentication;
 import org.springframework.security.oauth2.provider.OAuth2Request;
 import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
 import org.springframework.util.Assert;
+import org.springframework.web.client.HttpMessageConverterExtractor;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
 
 /**
  * {@link ResourceServerTokenServices} that uses a user info REST service.
@@ -59,6 +66,12 @@ public class UserInfoTokenServices implements ResourceServerTokenServices {
 
 	private PrincipalExtractor principalExtractor = new FixedPrincipalExtractor();
 
+	private DetailsExtractor detailsExtractor;
+
+	private boolean propagateRemoteErrors;
+
+	private ResponseExtractor<Map<String, Object>> responseExtractor;
+
 	public UserInfoTokenServices(String userInfoEndpointUrl, String clientId) {
 		this.userInfoEndpointUrl = userInfoEndpointUrl;
 		this.clientId = clientId;
@@ -82,6 +95,55 @@ public class UserInfoTokenServices implements ResourceServerTokenServices {
 		this.principalExtractor = principalExtractor;
 	}
 
+	/**
+	 * Set the {@link DetailsExtractor} used to extract the details of the authentication.
+	 * By default the whole user info response is used.
+	 * @param detailsExtractor the details extractor or {@code null}
+	 * @since 2.7.0
+	 */
+	public void setDetailsExtractor(DetailsExtractor detailsExtractor) {
+		this.detailsExtractor = detailsExtractor;
+	}
+
+	/**
+	 * Set whether I/O errors and server errors of the user info endpoint should be
+	 * propagated rather than reported as an invalid token.
+	 * @param propagateRemoteErrors if remote errors should be propagated
+	 * @since 2.7.0
+	 */
+	public void setPropagateRemoteErrors(boolean propagateRemoteErrors) {
+		this.propagateRemoteErrors = propagateRemoteErrors;
+	}
+
+	/**
+	 * Set the fields of the user info response to read, the other ones being skipped. The
+	 * fields must include the ones needed by the {@link PrincipalExtractor} and the
+	 * {@link AuthoritiesExtractor}. By default the whole response is read.
+	 * @param responseFields the paths of the fields to read
+	 * @since 2.7.0
+	 * @see FieldSelectingJsonHttpMessageConverter
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void setResponseFields(Collection<String> responseFields) {
+		this.responseExtractor = (responseFields != null) ? new HttpMessageConverterExtractor(Map.class,
+				Collections.singletonList(new FieldSelectingJsonHttpMessageConverter(responseFields))) : null;
+	}
+
+	/**
+	 * Set the fields of the user info response to read, each one given by the list of the
+	 * names of the fields along its path, which can contain dots.
+	 * @param responseFieldPaths the paths of the fields to read
+	 * @since 2.7.0
+	 * @see FieldSelectingJsonHttpMessageConverter#forPaths(Collection)
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void setResponseFieldPaths(Collection<? extends List<String>> responseFieldPaths) {
+		this.responseExtractor = (responseFieldPaths != null)
+				? new HttpMessageConverterExtractor(Map.class,
+						Collections.singletonList(FieldSelectingJsonHttpMessageConverter.forPaths(responseFieldPaths)))
+				: null;
+	}
+
 	@Override
 	public OAuth2Authentication loadAuthentication(String accessToken)
 			throws AuthenticationException, InvalidTokenException {
@@ -101,7 +163,7 @@ public class UserInfoTokenServices implements ResourceServerTokenServices {
 		OAuth2Request request = new OAuth2Request(null, this.clientId, null, true, null, null, null, null, null);
 		UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(principal, "N/A",
 				authorities);
-		token.setDetails(map);
+		token.setDetails((this.detailsExtractor != null) ? this.detailsExtractor.extractDetails(map) : map);
 		return new OAuth2Authentication(request, token);
 	}
 
@@ -126,6 +188,8 @@ public class UserInfoTokenServices implements ResourceServerTokenServices {
 		if (this.logger.isDebugEnabled()) {
 			this.logger.debug("Getting user info from: " + path);
 		}
+		Object event = FlightRecorderSupport.beginRemoteCall();
+		boolean success = false;
 		try {
 			OAuth2RestOperations restTemplate = this.restTemplate;
 			if (restTemplate == null) {
@@ -139,12 +203,23 @@ public class UserInfoTokenServices implements ResourceServerTokenServices {
 				token.setTokenType(this.tokenType);
 				restTemplate.getOAuth2ClientContext().setAccessToken(token);
 			}
-			return restTemplate.getForEntity(path, Map.class).getBody();
+			Map<String, Object> map = (this.responseExtractor != null) ? restTemplate.execute(path, HttpMethod.GET,
+					(request) -> request.getHeaders().setAccept(Collections.singletonList(MediaType.APPLICATION_JSON)),
+					this.responseExtractor) : restTemplate.getForEntity(path, Map.class).getBody();
+			success = true;
+			return map;
 		}
 		catch (Exception ex) {
+			if (this.propagateRemoteErrors
+					&& (ex instanceof ResourceAccessException || ex instanceof HttpServerErrorException)) {
+				throw (RuntimeException) ex;
+			}
 			this.logger.warn("Could not fetch user details: " + ex.getClass() + ", " + ex.getMessage());
 			return Collections.<String, Object>singletonMap("error", "Could not fetch user details");
 		}
+		finally {
+			FlightRecorderSupport.endRemoteCall(event, "user-info-uri", path, success);
+		}
 	}
 
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.revocation;
+
+import java.util.Locale;
+
+import org.springframework.context.ApplicationEvent;
+import org.springframework.util.Assert;
+
+/**
+ * Event published when an access token, or all the tokens of a user, should no longer be
+ * accepted. Authorization servers publish it when a token is revoked or a user logs out
+ * and resource servers use it to evict any cached authentication.
+ *
+ * @since 2.7.0
+ */
+public class TokenRevocationEvent extends ApplicationEvent {
+
+	private final Type type;
+
+	private final String value;
+
+	/**
+	 * Create a new {@link TokenRevocationEvent} instance.
+	 * @param source the source of the event
+	 * @param type the type of revocation
+	 * @param value the token value or the user name, depending on the type
+	 */
+	public TokenRevocationEvent(Object source, Type type, String value) {
+		super(source);
+		Assert.notNull(type, "Type must not be null");
+		Assert.hasText(value, "Value must not be empty");
+		this.type = type;
+		this.value = value;
+	}
+
+	/**
+	 * Return the type of revocation.
+	 * @return the type
+	 */
+	public Type getType() {
+		return this.type;
+	}
+
+	/**
+	 * Return the revoked token value or the name of the user that logged out.
+	 * @return the value
+	 */
+	public String getValue() {
+		return this.value;
+	}
+
+	/**
+	 * Create an event revoking a single access token.
+	 * @param source the source of the event
+	 * @param tokenValue the token value
+	 * @return the event
+	 */
+	public static TokenRevocationEvent token(Object source, String tokenValue) {
+		return new TokenRevocationEvent(source, Type.TOKEN, tokenValue);
+	}
+
+	/**
+	 * Create an event revoking all the tokens of a user.
+	 * @param source the source of the event
+	 * @param username the name of the user
+	 * @return the event
+	 */
+	public static TokenRevocationEvent user(Object source, String username) {
+		return new TokenRevocationEvent(source, Type.USER, username);
+	}
+
+	/**
+	 * The type of revocation. The lower case name of the type is also used as the
+	 * {@code event} field of the server-sent events stream.
+	 */
+	public enum Type {
+
+		/**
+		 * A single access token has been revoked.
+		 */
+		TOKEN,
+
+		/**
+		 * A user logged out and all of their tokens should be discarded.
+		 */
+		USER;
+
+		/**
+		 * Return the name of the server-sent event for this type.
+		 * @return the event name
+		 */
+		public String getEventName() {
+			return name().toLowerCase(Locale.ENGLISH);
+		}
+
+		/**
+		 * Return the type matching the given server-sent event name.
+		 * @param eventName the event name
+		 * @return the type or {@code null} if the name is unknown
+		 */
+		public static Type forEventName(String eventName) {
+			for (Type candidate : values()) {
+				if (candidate.getEventName().equals(eventName)) {
+					return candidate;
+				}
+			}
+			return null;
+		}
+
+	}
+
+}
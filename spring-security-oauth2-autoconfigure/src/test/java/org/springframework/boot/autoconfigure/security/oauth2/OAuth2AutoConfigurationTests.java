@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2021 the original author or authors.
+ * Copyright 2012-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,20 +17,28 @@
 package org.springframework.boot.autoconfigure.security.oauth2;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Test;
 
 import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.oauth2.authserver.MetricsTokenIssuanceObserver;
 import org.springframework.boot.autoconfigure.security.oauth2.authserver.OAuth2AuthorizationServerConfiguration;
+import org.springframework.boot.autoconfigure.security.oauth2.method.CachingRoleHierarchy;
+import org.springframework.boot.autoconfigure.security.oauth2.method.CompiledExpressionParser;
 import org.springframework.boot.autoconfigure.security.oauth2.method.OAuth2MethodSecurityExpressionHandlerConfiguration;
 import org.springframework.boot.autoconfigure.security.oauth2.resource.OAuth2ResourceServerConfiguration;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.PublicPathRequestMatcher;
 import org.springframework.boot.autoconfigure.security.oauth2.resource.ResourceServerProperties;
+import org.springframework.boot.autoconfigure.security.oauth2.revocation.TokenRevocationEvent;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
 import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
 import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
@@ -40,6 +48,7 @@ import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
 import org.springframework.boot.web.servlet.context.AnnotationConfigServletWebServerApplicationContext;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -50,6 +59,9 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.RequestEntity;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.access.PermissionEvaluator;
 import org.springframework.security.access.annotation.Jsr250MethodSecurityMetadataSource;
 import org.springframework.security.access.annotation.SecuredAnnotationSecurityMetadataSource;
@@ -66,6 +78,7 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.method.configuration.GlobalMethodSecurityConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
 import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.crypto.password.NoOpPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -89,11 +102,16 @@ import org.springframework.security.oauth2.provider.approval.UserApprovalHandler
 import org.springframework.security.oauth2.provider.client.BaseClientDetails;
 import org.springframework.security.oauth2.provider.client.InMemoryClientDetailsService;
 import org.springframework.security.oauth2.provider.endpoint.AuthorizationEndpoint;
+import org.springframework.security.oauth2.provider.expression.OAuth2ExpressionParser;
 import org.springframework.security.oauth2.provider.expression.OAuth2MethodSecurityExpressionHandler;
+import org.springframework.security.oauth2.provider.token.ConsumerTokenServices;
 import org.springframework.security.oauth2.provider.token.DefaultTokenServices;
 import org.springframework.security.oauth2.provider.token.TokenStore;
 import org.springframework.security.oauth2.provider.token.store.InMemoryTokenStore;
 import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.web.DefaultSecurityFilterChain;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
@@ -143,6 +161,32 @@ public class OAuth2AutoConfigurationTests {
 		assertThat(this.context.getBeanNamesForType(OAuth2RestOperations.class)).isEmpty();
 	}
 
+	@Test
+	public void tokenIssuanceIsMeasured() {
+		this.context = new AnnotationConfigServletWebServerApplicationContext();
+		this.context.register(MeterRegistryConfiguration.class, AuthorizationAndResourceServerConfiguration.class,
+				MinimalSecureWebApplication.class);
+		this.context.refresh();
+		BaseClientDetails config = this.context.getBean(BaseClientDetails.class);
+		verifyAuthentication(config);
+		// The client authentication of the other endpoints is not timed
+		String baseUrl = "http://localhost:" + this.context.getWebServer().getPort();
+		new TestRestTemplate().exchange(new RequestEntity<Void>(getHeaders(config), HttpMethod.GET,
+				URI.create(baseUrl + "/oauth/check_token?token=foo")), String.class);
+		MeterRegistry registry = this.context.getBean(MeterRegistry.class);
+		assertThat(registry.get(MetricsTokenIssuanceObserver.ISSUANCE_METRIC).tag("grant_type", "password")
+				.tag("outcome", "success").timer().count()).isEqualTo(1);
+		assertThat(
+				registry.get(MetricsTokenIssuanceObserver.SIZE_METRIC).tag("grant_type", "password").summary().count())
+						.isEqualTo(1);
+		assertThat(registry.get(MetricsTokenIssuanceObserver.PHASE_METRIC).tag("phase", "client-authentication").timer()
+				.count()).isEqualTo(1);
+		assertThat(registry.get(MetricsTokenIssuanceObserver.PHASE_METRIC).tag("phase", "user-authentication").timer()
+				.count()).isEqualTo(1);
+		assertThat(registry.get(MetricsTokenIssuanceObserver.PHASE_METRIC).tag("phase", "store").timer().count())
+				.isGreaterThanOrEqualTo(1);
+	}
+
 	@Test
 	public void methodSecurityExpressionHandlerIsConfiguredWithRoleHierarchyFromTheContext() {
 		this.context = new AnnotationConfigServletWebServerApplicationContext();
@@ -153,7 +197,9 @@ public class OAuth2AutoConfigurationTests {
 		MethodSecurityExpressionHandler expressionHandler = (MethodSecurityExpressionHandler) ReflectionTestUtils
 				.getField(advice, "expressionHandler");
 		RoleHierarchy roleHierarchy = (RoleHierarchy) ReflectionTestUtils.getField(expressionHandler, "roleHierarchy");
-		assertThat(roleHierarchy).isSameAs(this.context.getBean(RoleHierarchy.class));
+		assertThat(roleHierarchy).isInstanceOf(CachingRoleHierarchy.class);
+		assertThat(((CachingRoleHierarchy) roleHierarchy).getDelegate())
+				.isSameAs(this.context.getBean(RoleHierarchy.class));
 	}
 
 	@Test
@@ -170,6 +216,40 @@ public class OAuth2AutoConfigurationTests {
 		assertThat(permissionEvaluator).isSameAs(this.context.getBean(PermissionEvaluator.class));
 	}
 
+	@Test
+	public void methodSecurityExpressionHandlerIsConfiguredWithCompiledExpressionParser() {
+		this.context = new AnnotationConfigServletWebServerApplicationContext();
+		TestPropertyValues.of("security.oauth2.method.compiled-expressions=true").applyTo(this.context);
+		this.context.register(AuthorizationAndResourceServerConfiguration.class, MinimalSecureWebApplication.class);
+		this.context.refresh();
+		PreInvocationAuthorizationAdvice advice = this.context.getBean(PreInvocationAuthorizationAdvice.class);
+		MethodSecurityExpressionHandler expressionHandler = (MethodSecurityExpressionHandler) ReflectionTestUtils
+				.getField(advice, "expressionHandler");
+		assertThat(expressionHandler.getExpressionParser()).isInstanceOf(OAuth2ExpressionParser.class)
+				.hasFieldOrPropertyWithValue("delegate", CompiledExpressionParser.getSharedInstance());
+	}
+
+	@Test
+	public void methodSecurityExpressionHandlerUsesCompactAuthoritiesOnlyWhenEnabled() {
+		this.context = new AnnotationConfigServletWebServerApplicationContext();
+		this.context.register(AuthorizationAndResourceServerConfiguration.class, MinimalSecureWebApplication.class);
+		this.context.refresh();
+		assertThat(getMethodSecurityExpressionHandler())
+				.isExactlyInstanceOf(OAuth2MethodSecurityExpressionHandler.class);
+		this.context.close();
+		this.context = new AnnotationConfigServletWebServerApplicationContext();
+		TestPropertyValues.of("security.oauth2.resource.compact-authorities.enabled=true").applyTo(this.context);
+		this.context.register(AuthorizationAndResourceServerConfiguration.class, MinimalSecureWebApplication.class);
+		this.context.refresh();
+		assertThat(getMethodSecurityExpressionHandler().getClass().getSimpleName())
+				.isEqualTo("CompactAuthoritiesMethodSecurityExpressionHandler");
+	}
+
+	private MethodSecurityExpressionHandler getMethodSecurityExpressionHandler() {
+		PreInvocationAuthorizationAdvice advice = this.context.getBean(PreInvocationAuthorizationAdvice.class);
+		return (MethodSecurityExpressionHandler) ReflectionTestUtils.getField(advice, "expressionHandler");
+	}
+
 	@Test
 	public void testEnvironmentalOverrides() {
 		this.context = new AnnotationConfigServletWebServerApplicationContext();
@@ -270,6 +350,50 @@ public class OAuth2AutoConfigurationTests {
 		assertThat(countBeans(DefaultTokenServices.class)).isEqualTo(1);
 	}
 
+	@Test
+	public void publicPathsArePermittedWithoutValidatingTokens() throws Exception {
+		this.context = new AnnotationConfigServletWebServerApplicationContext();
+		this.context.register(ResourceServerConfiguration.class, MinimalSecureWebApplication.class);
+		TestPropertyValues.of("security.oauth2.resource.jwt.keyValue:DEADBEEF",
+				"security.oauth2.resource.public-paths:/favicon.ico,/actuator/health/**").applyTo(this.context);
+		ConfigurationPropertySources.attach(this.context.getEnvironment());
+		this.context.refresh();
+		assertThat(this.context.getBeansOfType(WebSecurityCustomizer.class)).isEmpty();
+		FilterChainProxy filterChainProxy = this.context.getBean(FilterChainProxy.class);
+		MockHttpServletResponse response = filter(filterChainProxy, "/actuator/health/liveness");
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(response.getHeader("X-Content-Type-Options")).isEqualTo("nosniff");
+		assertThat(filter(filterChainProxy, "/api").getStatus()).isEqualTo(HttpStatus.UNAUTHORIZED.value());
+	}
+
+	@Test
+	public void ignoredPathsBypassTheSecurityFilterChain() {
+		this.context = new AnnotationConfigServletWebServerApplicationContext();
+		this.context.register(ResourceServerConfiguration.class, MinimalSecureWebApplication.class);
+		TestPropertyValues.of("security.oauth2.resource.jwt.keyValue:DEADBEEF",
+				"security.oauth2.resource.ignored-paths[0]:/static/**").applyTo(this.context);
+		ConfigurationPropertySources.attach(this.context.getEnvironment());
+		this.context.refresh();
+		List<SecurityFilterChain> chains = this.context.getBean(FilterChainProxy.class).getFilterChains();
+		DefaultSecurityFilterChain ignoredChain = (DefaultSecurityFilterChain) chains.get(0);
+		assertThat(ignoredChain.getRequestMatcher()).isInstanceOf(PublicPathRequestMatcher.class);
+		assertThat(ignoredChain.getFilters()).isEmpty();
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setServletPath("/static/app.js");
+		assertThat(ignoredChain.matches(request)).isTrue();
+		request.setServletPath("/api");
+		assertThat(ignoredChain.matches(request)).isFalse();
+	}
+
+	private MockHttpServletResponse filter(FilterChainProxy filterChainProxy, String path) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+		request.setServletPath(path);
+		request.addHeader("Authorization", "Bearer invalid");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filterChainProxy.doFilter(request, response, new MockFilterChain());
+		return response;
+	}
+
 	@Test
 	public void testResourceServerOverride() {
 		this.context = new AnnotationConfigServletWebServerApplicationContext();
@@ -416,6 +540,40 @@ public class OAuth2AutoConfigurationTests {
 		assertThat(countBeans(JwtAccessTokenConverter.class)).isEqualTo(1);
 	}
 
+	@Test
+	public void revokeTokenWhenInMemoryTokenStoreThenPublishesRevocationEvent() {
+		this.context = new AnnotationConfigServletWebServerApplicationContext();
+		this.context.register(RevocationEventsConfiguration.class, AuthorizationServerConfiguration.class,
+				MinimalSecureWebApplication.class);
+		this.context.refresh();
+		assertRevocationEventPublished();
+	}
+
+	@Test
+	public void revokeTokenWhenJwtTokenStoreThenPublishesRevocationEvent() {
+		this.context = new AnnotationConfigServletWebServerApplicationContext();
+		TestPropertyValues.of("security.oauth2.authorization.jwt.keyValue:DEADBEEF").applyTo(this.context);
+		this.context.register(RevocationEventsConfiguration.class, AuthorizationServerConfiguration.class,
+				MinimalSecureWebApplication.class);
+		this.context.refresh();
+		assertRevocationEventPublished();
+	}
+
+	private void assertRevocationEventPublished() {
+		String token = getAccessToken(this.context.getBean(BaseClientDetails.class));
+		ConsumerTokenServices tokenServices = this.context.getBean(ConsumerTokenServices.class);
+		assertThat(tokenServices.revokeToken(token)).isTrue();
+		assertThat(this.context.getBean(RevocationEventsConfiguration.class).events)
+				.extracting(TokenRevocationEvent::getValue).containsExactly(token);
+	}
+
+	private String getAccessToken(ClientDetails config) {
+		String url = "http://localhost:" + this.context.getWebServer().getPort() + "/oauth/token";
+		JsonNode tokenResponse = new TestRestTemplate().postForObject(url,
+				new HttpEntity<>(getBody(), getHeaders(config)), JsonNode.class);
+		return tokenResponse.findValue("access_token").asText();
+	}
+
 	/**
 	 * Connect to the oauth service, get a token, and then attempt some operations using
 	 * it.
@@ -550,12 +708,34 @@ public class OAuth2AutoConfigurationTests {
 
 	}
 
+	@Configuration
+	protected static class MeterRegistryConfiguration {
+
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+
+	}
+
 	@Configuration
 	@EnableAuthorizationServer
 	protected static class AuthorizationServerConfiguration extends TestSecurityConfiguration {
 
 	}
 
+	@Configuration
+	protected static class RevocationEventsConfiguration implements ApplicationListener<TokenRevocationEvent> {
+
+		private final List<TokenRevocationEvent> events = new ArrayList<>();
+
+		@Override
+		public void onApplicationEvent(TokenRevocationEvent event) {
+			this.events.add(event);
+		}
+
+	}
+
 	@Configuration
 	@EnableResourceServer
 	protected static class ResourceServerConfiguration extends TestSecurityConfiguration {
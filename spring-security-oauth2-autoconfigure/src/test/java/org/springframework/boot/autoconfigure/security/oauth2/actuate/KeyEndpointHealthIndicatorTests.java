@@ -0,0 +1,164 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.actuate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.http.MediaType;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+/**
+ * Tests for {@link VerifierKeyHealthIndicator} and {@link KeySetHealthIndicator}.
+ */
+public class KeyEndpointHealthIndicatorTests {
+
+	private static final String KEY_URI = "https://example.com/token_key";
+
+	private static final String KEY_SET_URI = "https://example.com/token_keys";
+
+	private final Instant start = Instant.parse("2022-05-01T10:00:00Z");
+
+	private final MutableClock clock = new MutableClock(this.start);
+
+	private final RestTemplate restTemplate = new RestTemplate();
+
+	private final MockRestServiceServer server = MockRestServiceServer.bindTo(this.restTemplate).build();
+
+	private final JwtAccessTokenConverter converter = new JwtAccessTokenConverter();
+
+	@Test
+	public void matchingVerifierKeyIsUp() {
+		this.converter.setVerifierKey("-----BEGIN PUBLIC KEY-----\nabc\n-----END PUBLIC KEY-----");
+		this.server.expect(requestTo(KEY_URI)).andRespond(withSuccess(
+				"{\"alg\":\"SHA256withRSA\",\"value\":\"-----BEGIN PUBLIC KEY-----abc-----END PUBLIC KEY-----\"}",
+				MediaType.APPLICATION_JSON));
+		Health health = verifierKeyIndicator(Duration.ofSeconds(1)).health();
+		assertThat(health.getStatus()).isEqualTo(Status.UP);
+		assertThat(health.getDetails()).containsEntry("keyAgeSeconds", 0L);
+	}
+
+	@Test
+	public void rotatedVerifierKeyIsDegraded() {
+		this.converter.setVerifierKey("-----BEGIN PUBLIC KEY-----abc-----END PUBLIC KEY-----");
+		this.server.expect(requestTo(KEY_URI)).andRespond(withSuccess(
+				"{\"value\":\"-----BEGIN PUBLIC KEY-----def-----END PUBLIC KEY-----\"}", MediaType.APPLICATION_JSON));
+		Health health = verifierKeyIndicator(Duration.ofSeconds(1)).health();
+		assertThat(health.getStatus()).isEqualTo(RemoteEndpointHealthIndicator.DEGRADED);
+		assertThat(health.getDetails()).containsEntry("error",
+				"The verifier key in use differs from the key served by the endpoint");
+	}
+
+	@Test
+	public void unreachableKeyUriIsUpUntilKeyIsDueForRefresh() {
+		this.server.expect(requestTo(KEY_URI)).andRespond(withServerError());
+		this.server.expect(requestTo(KEY_URI)).andRespond(withServerError());
+		VerifierKeyHealthIndicator indicator = verifierKeyIndicator(Duration.ofSeconds(1));
+		assertThat(indicator.health().getStatus()).isEqualTo(Status.UP);
+		this.clock.now = this.start.plus(Duration.ofMinutes(61));
+		Health health = indicator.health();
+		assertThat(health.getStatus()).isEqualTo(RemoteEndpointHealthIndicator.DEGRADED);
+		assertThat(health.getDetails()).containsEntry("keyAgeSeconds", 3660L);
+	}
+
+	@Test
+	public void keySetIdsAreReported() {
+		this.server.expect(requestTo(KEY_SET_URI)).andRespond(
+				withSuccess("{\"keys\":[{\"kid\":\"one\",\"kty\":\"RSA\"},{\"kid\":\"two\",\"kty\":\"RSA\"}]}",
+						MediaType.APPLICATION_JSON));
+		Health health = keySetIndicator(Duration.ofSeconds(1)).health();
+		assertThat(health.getStatus()).isEqualTo(Status.UP);
+		assertThat(health.getDetails()).containsEntry("keyIds", Arrays.asList("one", "two"));
+	}
+
+	@Test
+	public void emptyKeySetIsDegraded() {
+		this.server.expect(requestTo(KEY_SET_URI)).andRespond(withSuccess("{\"keys\":[]}", MediaType.APPLICATION_JSON));
+		Health health = keySetIndicator(Duration.ofSeconds(1)).health();
+		assertThat(health.getStatus()).isEqualTo(RemoteEndpointHealthIndicator.DEGRADED);
+		assertThat(health.getDetails()).containsEntry("error", "No keys in the response");
+	}
+
+	@Test
+	public void slowKeySetIsDegraded() {
+		this.server.expect(requestTo(KEY_SET_URI))
+				.andRespond(withSuccess("{\"keys\":[{\"kid\":\"one\"}]}", MediaType.APPLICATION_JSON));
+		Health health = keySetIndicator(Duration.ZERO).health();
+		assertThat(health.getStatus()).isEqualTo(RemoteEndpointHealthIndicator.DEGRADED);
+	}
+
+	private VerifierKeyHealthIndicator verifierKeyIndicator(Duration latencySlo) {
+		EndpointProbe probe = new EndpointProbe(this.restTemplate, KEY_URI, null, Duration.ofSeconds(30));
+		VerifierKeyHealthIndicator indicator = new VerifierKeyHealthIndicator(probe, () -> this.converter, latencySlo,
+				Duration.ofHours(1));
+		setClock(probe, indicator);
+		return indicator;
+	}
+
+	private KeySetHealthIndicator keySetIndicator(Duration latencySlo) {
+		EndpointProbe probe = new EndpointProbe(this.restTemplate, KEY_SET_URI, null, Duration.ofSeconds(30));
+		KeySetHealthIndicator indicator = new KeySetHealthIndicator(probe, latencySlo, Duration.ofHours(1));
+		setClock(probe, indicator);
+		return indicator;
+	}
+
+	private void setClock(EndpointProbe probe, KeyEndpointHealthIndicator indicator) {
+		probe.setClock(this.clock);
+		indicator.setClock(this.clock);
+	}
+
+	static class MutableClock extends Clock {
+
+		private Instant now;
+
+		MutableClock(Instant now) {
+			this.now = now;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return this.now;
+		}
+
+	}
+
+}
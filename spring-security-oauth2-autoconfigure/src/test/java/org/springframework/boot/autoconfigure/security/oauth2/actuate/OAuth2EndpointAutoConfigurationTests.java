@@ -0,0 +1,60 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.actuate;
+
+import org.junit.Test;
+
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.LatencyTrackingTokenServicesDecorator;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link OAuth2EndpointAutoConfiguration}.
+ */
+public class OAuth2EndpointAutoConfigurationTests {
+
+	private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+			.withConfiguration(AutoConfigurations.of(OAuth2EndpointAutoConfiguration.class));
+
+	@Test
+	public void endpointIsNotAvailableByDefault() {
+		this.contextRunner.run((context) -> {
+			assertThat(context).doesNotHaveBean(OAuth2Endpoint.class);
+			assertThat(context).doesNotHaveBean(LatencyTrackingTokenServicesDecorator.class);
+		});
+	}
+
+	@Test
+	public void exposedEndpointTracksLatency() {
+		this.contextRunner.withPropertyValues("management.endpoints.web.exposure.include=oauth2").run((context) -> {
+			assertThat(context).hasSingleBean(OAuth2Endpoint.class);
+			assertThat(context).hasSingleBean(LatencyTrackingTokenServicesDecorator.class);
+		});
+	}
+
+	@Test
+	public void disabledEndpointIsNotAvailable() {
+		this.contextRunner.withPropertyValues("management.endpoints.web.exposure.include=oauth2",
+				"management.endpoint.oauth2.enabled=false").run((context) -> {
+					assertThat(context).doesNotHaveBean(OAuth2Endpoint.class);
+					assertThat(context).doesNotHaveBean(LatencyTrackingTokenServicesDecorator.class);
+				});
+	}
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.actuate;
+
+import java.security.KeyPairGenerator;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.autoconfigure.security.oauth2.actuate.OAuth2Endpoint.CacheDescriptor;
+import org.springframework.boot.autoconfigure.security.oauth2.actuate.OAuth2Endpoint.KeyDescriptor;
+import org.springframework.boot.autoconfigure.security.oauth2.actuate.OAuth2Endpoint.OAuth2Descriptor;
+import org.springframework.boot.autoconfigure.security.oauth2.actuate.OAuth2Endpoint.RemoteEndpointDescriptor;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.CachingTokenServicesDecorator;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.LatencyTrackingTokenServicesDecorator;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.ResilientTokenServicesDecorator;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.ResourceServerProperties;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.TokenValidationStrategy;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link OAuth2Endpoint}.
+ */
+public class OAuth2EndpointTests {
+
+	private final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+
+	private final ResourceServerTokenServices delegate = mock(ResourceServerTokenServices.class);
+
+	@Test
+	public void cachesAreDescribed() {
+		ResourceServerTokenServices services = cache(TokenValidationStrategy.TOKEN_INFO);
+		services.loadAuthentication("alice");
+		services.loadAuthentication("alice");
+		services.loadAuthentication("alice");
+		services.loadAuthentication("bob");
+		OAuth2Descriptor descriptor = createEndpoint().oauth2();
+		assertThat(descriptor.getCaches()).containsOnlyKeys("token-info");
+		CacheDescriptor cache = descriptor.getCaches().get("token-info");
+		assertThat(cache.getSize()).isEqualTo(2);
+		assertThat(cache.getHits()).isEqualTo(2);
+		assertThat(cache.getMisses()).isEqualTo(2);
+		assertThat(cache.getHitRatio()).isEqualTo(0.5);
+		assertThat(cache.getEvictions()).isZero();
+	}
+
+	@Test
+	public void evictRemovesOneToken() {
+		ResourceServerTokenServices services = cache(TokenValidationStrategy.USER_INFO);
+		services.loadAuthentication("alice");
+		services.loadAuthentication("bob");
+		OAuth2Endpoint endpoint = createEndpoint();
+		assertThat(endpoint.evict("alice")).isTrue();
+		assertThat(endpoint.evict("alice")).isFalse();
+		CacheDescriptor cache = endpoint.oauth2().getCaches().get("user-info");
+		assertThat(cache.getSize()).isEqualTo(1);
+		assertThat(cache.getEvictions()).isEqualTo(1);
+	}
+
+	@Test
+	public void clearRemovesAllTokens() {
+		ResourceServerTokenServices services = cache(TokenValidationStrategy.USER_INFO);
+		services.loadAuthentication("alice");
+		services.loadAuthentication("bob");
+		OAuth2Endpoint endpoint = createEndpoint();
+		endpoint.clear();
+		assertThat(endpoint.oauth2().getCaches().get("user-info").getSize()).isZero();
+	}
+
+	@Test
+	public void withoutCachesNothingIsEvicted() {
+		OAuth2Endpoint endpoint = createEndpoint();
+		assertThat(endpoint.evict("alice")).isFalse();
+		endpoint.clear();
+		assertThat(endpoint.oauth2().getCaches()).isEmpty();
+	}
+
+	@Test
+	public void publicKeysAreFingerprintedAndAged() throws Exception {
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+		generator.initialize(2048);
+		JwtAccessTokenConverter converter = new JwtAccessTokenConverter();
+		converter.setKeyPair(generator.generateKeyPair());
+		this.beanFactory.registerSingleton("converter", converter);
+		OAuth2Endpoint endpoint = createEndpoint();
+		Instant start = Instant.parse("2022-05-01T10:00:00Z");
+		endpoint.setClock(Clock.fixed(start, ZoneOffset.UTC));
+		endpoint.afterSingletonsInstantiated();
+		endpoint.setClock(Clock.fixed(start.plus(Duration.ofMinutes(5)), ZoneOffset.UTC));
+		assertThat(endpoint.oauth2().getKeys()).hasSize(1);
+		KeyDescriptor key = endpoint.oauth2().getKeys().get(0);
+		assertThat(key.getType()).isEqualTo("jwt");
+		assertThat(key.getId()).hasSize(43);
+		assertThat(key.getAlgorithm()).isEqualTo("SHA256withRSA");
+		assertThat(key.getAgeSeconds()).isEqualTo(300);
+	}
+
+	@Test
+	public void symmetricKeysAreNotFingerprinted() {
+		JwtAccessTokenConverter converter = new JwtAccessTokenConverter();
+		converter.setSigningKey("secret");
+		this.beanFactory.registerSingleton("converter", converter);
+		KeyDescriptor key = createEndpoint().oauth2().getKeys().get(0);
+		assertThat(key.getId()).isNull();
+		assertThat(key.getAlgorithm()).isEqualTo("HMACSHA256");
+	}
+
+	@Test
+	public void keySetUriIsDescribed() {
+		ResourceServerProperties resource = new ResourceServerProperties();
+		resource.getJwk().setKeySetUri("https://example.com/token_keys");
+		this.beanFactory.registerSingleton("resource", resource);
+		assertThat(createEndpoint().oauth2().getKeys()).extracting("type", "keySetUri")
+				.containsExactly(tuple("jwk", "https://example.com/token_keys"));
+	}
+
+	@Test
+	public void remoteEndpointsAreDescribed() {
+		ResourceServerProperties resource = new ResourceServerProperties();
+		resource.setTokenInfoUri("https://example.com/check_token");
+		this.beanFactory.registerSingleton("resource", resource);
+		LatencyTrackingTokenServicesDecorator latencyTracking = new LatencyTrackingTokenServicesDecorator();
+		this.beanFactory.registerSingleton("latencyTracking", latencyTracking);
+		ResilientTokenServicesDecorator resilient = new ResilientTokenServicesDecorator(10, Duration.ZERO, 5,
+				Duration.ofSeconds(30));
+		this.beanFactory.registerSingleton("resilient", resilient);
+		ResourceServerTokenServices services = resilient.decorate(
+				latencyTracking.decorate(this.delegate, TokenValidationStrategy.TOKEN_INFO),
+				TokenValidationStrategy.TOKEN_INFO);
+		services.loadAuthentication("alice");
+		RemoteEndpointDescriptor endpoint = createEndpoint().oauth2().getRemoteEndpoints().get("token-info");
+		assertThat(endpoint.getUris()).containsExactly("https://example.com/check_token");
+		assertThat(endpoint.getCalls()).isEqualTo(1);
+		assertThat(endpoint.getFailures()).isZero();
+		assertThat(endpoint.getLatencyMillis()).containsOnlyKeys("p50", "p95", "p99");
+		assertThat(endpoint.getCircuitBreaker()).isEqualTo("CLOSED");
+		assertThat(endpoint.getAvailableCalls()).isEqualTo(10);
+	}
+
+	@Test
+	public void balancedRemoteEndpointsAreDescribed() {
+		ResourceServerProperties resource = new ResourceServerProperties();
+		resource.setTokenInfoUri("https://a.example.com/check_token, https://b.example.com/check_token");
+		this.beanFactory.registerSingleton("resource", resource);
+		LatencyTrackingTokenServicesDecorator latencyTracking = new LatencyTrackingTokenServicesDecorator();
+		this.beanFactory.registerSingleton("latencyTracking", latencyTracking);
+		latencyTracking.decorate(this.delegate, TokenValidationStrategy.TOKEN_INFO);
+		RemoteEndpointDescriptor endpoint = createEndpoint().oauth2().getRemoteEndpoints().get("token-info");
+		assertThat(endpoint.getUris()).containsExactly("https://a.example.com/check_token",
+				"https://b.example.com/check_token");
+	}
+
+	private ResourceServerTokenServices cache(TokenValidationStrategy strategy) {
+		given(this.delegate.loadAuthentication("alice")).willReturn(authentication());
+		given(this.delegate.loadAuthentication("bob")).willReturn(authentication());
+		CachingTokenServicesDecorator caching = new CachingTokenServicesDecorator(Duration.ofMinutes(1), 10);
+		this.beanFactory.registerSingleton("caching", caching);
+		return caching.decorate(this.delegate, strategy);
+	}
+
+	private OAuth2Authentication authentication() {
+		return new OAuth2Authentication(new OAuth2Request(null, "client", null, true, null, null, null, null, null),
+				null);
+	}
+
+	private OAuth2Endpoint createEndpoint() {
+		return new OAuth2Endpoint(this.beanFactory.getBeanProvider(CachingTokenServicesDecorator.class),
+				this.beanFactory.getBeanProvider(LatencyTrackingTokenServicesDecorator.class),
+				this.beanFactory.getBeanProvider(ResilientTokenServicesDecorator.class),
+				this.beanFactory.getBeanProvider(JwtAccessTokenConverter.class),
+				this.beanFactory.getBeanProvider(ResourceServerProperties.class));
+	}
+
+}
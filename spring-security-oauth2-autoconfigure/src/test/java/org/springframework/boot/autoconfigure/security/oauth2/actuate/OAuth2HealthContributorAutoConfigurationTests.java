@@ -0,0 +1,185 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.actuate;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.boot.actuate.autoconfigure.health.HealthContributorAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.health.HealthEndpointAutoConfiguration;
+import org.springframework.boot.actuate.endpoint.ApiVersion;
+import org.springframework.boot.actuate.endpoint.SecurityContext;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.WebServerNamespace;
+import org.springframework.boot.actuate.health.CompositeHealthContributor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthComponent;
+import org.springframework.boot.actuate.health.HealthContributor;
+import org.springframework.boot.actuate.health.HealthEndpointWebExtension;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.NamedContributor;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.LatencyTrackingTokenServicesDecorator;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.ResourceServerProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.assertj.AssertableWebApplicationContext;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.test.context.runner.WebApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link OAuth2HealthContributorAutoConfiguration}.
+ */
+public class OAuth2HealthContributorAutoConfigurationTests {
+
+	private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+			.withUserConfiguration(ResourceConfiguration.class)
+			.withConfiguration(AutoConfigurations.of(OAuth2HealthContributorAutoConfiguration.class));
+
+	@Test
+	public void noContributorWithoutRemoteEndpoint() {
+		this.contextRunner.withPropertyValues("security.oauth2.resource.jwt.key-value=secret").run((context) -> {
+			assertThat(context).doesNotHaveBean("oauth2HealthContributor");
+			assertThat(context).doesNotHaveBean(LatencyTrackingTokenServicesDecorator.class);
+		});
+	}
+
+	@Test
+	public void contributorHasOneIndicatorPerRemoteEndpoint() {
+		this.contextRunner.withPropertyValues("security.oauth2.resource.token-info-uri=https://example.com/check_token",
+				"security.oauth2.resource.user-info-uri=https://example.com/user",
+				"security.oauth2.resource.jwt.key-uri=https://example.com/token_key",
+				"security.oauth2.resource.jwk.key-set-uri=https://example.com/token_keys").run((context) -> {
+					assertThat(context).hasSingleBean(LatencyTrackingTokenServicesDecorator.class);
+					CompositeHealthContributor contributor = context.getBean("oauth2HealthContributor",
+							CompositeHealthContributor.class);
+					assertThat(contributor.stream().map(NamedContributor::getName)).containsExactly("tokenInfoUri",
+							"userInfoUri", "jwtKeyUri", "jwkKeySetUri");
+				});
+	}
+
+	@Test
+	public void balancedTokenInfoEndpointsAreAllProbed() {
+		this.contextRunner.withPropertyValues(
+				"security.oauth2.resource.token-info-uri=https://a.example.com/check_token, https://b.example.com/check_token")
+				.run((context) -> {
+					CompositeHealthContributor contributor = context.getBean("oauth2HealthContributor",
+							CompositeHealthContributor.class);
+					List<EndpointProbe> probes = (List<EndpointProbe>) ReflectionTestUtils
+							.getField(contributor.getContributor("tokenInfoUri"), "probes");
+					assertThat(probes).extracting(EndpointProbe::getUri)
+							.containsExactly("https://a.example.com/check_token", "https://b.example.com/check_token");
+				});
+	}
+
+	@Test
+	public void contributorCanBeDisabled() {
+		this.contextRunner
+				.withPropertyValues("security.oauth2.resource.token-info-uri=https://example.com/check_token",
+						"management.health.oauth2.enabled=false")
+				.run((context) -> assertThat(context).doesNotHaveBean("oauth2HealthContributor"));
+	}
+
+	@Test
+	public void degradedEndpointIsKeptInTheAggregatedHealth() {
+		healthContextRunner().run((context) -> {
+			WebEndpointResponse<HealthComponent> response = health(context);
+			assertThat(response.getBody().getStatus()).isEqualTo(RemoteEndpointHealthIndicator.DEGRADED);
+			assertThat(response.getStatus()).isEqualTo(200);
+		});
+	}
+
+	@Test
+	public void degradedEndpointCanBeMappedToServiceUnavailable() {
+		healthContextRunner().withPropertyValues("management.endpoint.health.status.http-mapping.down=503",
+				"management.endpoint.health.status.http-mapping.out-of-service=503",
+				"management.endpoint.health.status.http-mapping.degraded=503").run((context) -> {
+					WebEndpointResponse<HealthComponent> response = health(context);
+					assertThat(response.getBody().getStatus()).isEqualTo(RemoteEndpointHealthIndicator.DEGRADED);
+					assertThat(response.getStatus()).isEqualTo(503);
+				});
+	}
+
+	@Test
+	public void downEndpointWinsOverDegradedEndpoint() {
+		healthContextRunner().withUserConfiguration(DownHealthConfiguration.class).run((context) -> {
+			WebEndpointResponse<HealthComponent> response = health(context);
+			assertThat(response.getBody().getStatus()).isEqualTo(Status.DOWN);
+			assertThat(response.getStatus()).isEqualTo(503);
+		});
+	}
+
+	@Test
+	public void configuredStatusOrderIsUsed() {
+		healthContextRunner().withPropertyValues("management.endpoint.health.status.order=degraded,up")
+				.run((context) -> assertThat(health(context).getBody().getStatus())
+						.isEqualTo(RemoteEndpointHealthIndicator.DEGRADED));
+	}
+
+	private WebApplicationContextRunner healthContextRunner() {
+		return new WebApplicationContextRunner()
+				.withUserConfiguration(ResourceConfiguration.class, DegradedHealthConfiguration.class)
+				.withConfiguration(AutoConfigurations.of(OAuth2HealthContributorAutoConfiguration.class,
+						HealthContributorAutoConfiguration.class, HealthEndpointAutoConfiguration.class))
+				.withPropertyValues("security.oauth2.resource.token-info-uri=https://example.com/check_token");
+	}
+
+	private WebEndpointResponse<HealthComponent> health(AssertableWebApplicationContext context) {
+		return context.getBean(HealthEndpointWebExtension.class).health(ApiVersion.V3, WebServerNamespace.SERVER,
+				SecurityContext.NONE);
+	}
+
+	@Configuration
+	@EnableConfigurationProperties(ResourceServerProperties.class)
+	static class ResourceConfiguration {
+
+	}
+
+	@Configuration
+	static class DegradedHealthConfiguration {
+
+		@Bean
+		HealthContributor oauth2HealthContributor() {
+			HealthIndicator degraded = () -> Health.status(RemoteEndpointHealthIndicator.DEGRADED).build();
+			return CompositeHealthContributor.fromMap(Collections.singletonMap("tokenInfoUri", degraded));
+		}
+
+		@Bean
+		HealthIndicator diskSpaceHealthIndicator() {
+			return () -> Health.up().build();
+		}
+
+	}
+
+	@Configuration
+	static class DownHealthConfiguration {
+
+		@Bean
+		HealthIndicator dbHealthIndicator() {
+			return () -> Health.down().build();
+		}
+
+	}
+
+}
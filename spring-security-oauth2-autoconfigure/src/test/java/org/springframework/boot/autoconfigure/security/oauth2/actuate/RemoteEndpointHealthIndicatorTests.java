@@ -0,0 +1,192 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.actuate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.LatencyTrackingResourceServerTokenServices;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.TokenServicesUnavailableException;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+
+/**
+ * Tests for {@link RemoteEndpointHealthIndicator}.
+ */
+public class RemoteEndpointHealthIndicatorTests {
+
+	private static final String URI = "https://example.com/check_token";
+
+	private static final String OTHER_URI = "https://other.example.com/check_token";
+
+	private final Clock clock = Clock.fixed(Instant.parse("2022-05-01T10:00:00Z"), ZoneOffset.UTC);
+
+	private final RestTemplate restTemplate = new RestTemplate();
+
+	private final MockRestServiceServer server = MockRestServiceServer.bindTo(this.restTemplate).build();
+
+	private final ResourceServerTokenServices delegate = mock(ResourceServerTokenServices.class);
+
+	private final LatencyTrackingResourceServerTokenServices tracking = new LatencyTrackingResourceServerTokenServices(
+			this.delegate);
+
+	@Before
+	public void setUp() {
+		this.tracking.setClock(this.clock);
+	}
+
+	@Test
+	public void reachableEndpointIsUp() {
+		this.server.expect(requestTo(URI)).andRespond(withStatus(HttpStatus.BAD_REQUEST));
+		Health health = createIndicator(Duration.ofSeconds(1), null).health();
+		assertThat(health.getStatus()).isEqualTo(Status.UP);
+		assertThat(health.getDetails()).containsEntry("source", "probe").containsEntry("uri", URI);
+	}
+
+	@Test
+	public void probeIsCached() {
+		this.server.expect(requestTo(URI)).andRespond(withStatus(HttpStatus.UNAUTHORIZED));
+		RemoteEndpointHealthIndicator indicator = createIndicator(Duration.ofSeconds(1), null);
+		indicator.health();
+		assertThat(indicator.health().getStatus()).isEqualTo(Status.UP);
+		this.server.verify();
+	}
+
+	@Test
+	public void failingEndpointIsDown() {
+		this.server.expect(requestTo(URI)).andRespond(withServerError());
+		Health health = createIndicator(Duration.ofSeconds(1), null).health();
+		assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+		assertThat(health.getDetails()).containsEntry("error", "Responded with status 500");
+	}
+
+	@Test
+	public void slowEndpointIsDegraded() {
+		this.server.expect(requestTo(URI)).andRespond(withStatus(HttpStatus.UNAUTHORIZED));
+		Health health = createIndicator(Duration.ZERO, null).health();
+		assertThat(health.getStatus()).isEqualTo(RemoteEndpointHealthIndicator.DEGRADED);
+	}
+
+	@Test
+	public void recentTrafficReplacesProbe() {
+		this.tracking.loadAuthentication("token");
+		Health health = createIndicator(Duration.ofSeconds(1), this.tracking).health();
+		assertThat(health.getStatus()).isEqualTo(Status.UP);
+		assertThat(health.getDetails()).containsEntry("source", "traffic");
+		this.server.verify();
+	}
+
+	@Test
+	public void recentFailureIsDown() {
+		given(this.delegate.loadAuthentication("token")).willThrow(new TokenServicesUnavailableException("down"));
+		assertThatExceptionOfType(TokenServicesUnavailableException.class)
+				.isThrownBy(() -> this.tracking.loadAuthentication("token"));
+		Health health = createIndicator(Duration.ofSeconds(1), this.tracking).health();
+		assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+		assertThat(health.getDetails()).containsEntry("failures", 1L);
+	}
+
+	@Test
+	public void slowTrafficIsDegraded() {
+		this.tracking.loadAuthentication("token");
+		Health health = createIndicator(Duration.ZERO, this.tracking).health();
+		assertThat(health.getStatus()).isEqualTo(RemoteEndpointHealthIndicator.DEGRADED);
+	}
+
+	@Test
+	public void oldTrafficIsIgnored() {
+		this.tracking.setClock(Clock.offset(this.clock, Duration.ofMinutes(-5)));
+		this.tracking.loadAuthentication("token");
+		this.server.expect(requestTo(URI)).andRespond(withStatus(HttpStatus.UNAUTHORIZED));
+		Health health = createIndicator(Duration.ofSeconds(1), this.tracking).health();
+		assertThat(health.getDetails()).containsEntry("source", "probe");
+	}
+
+	@Test
+	public void balancedEndpointsAreAllProbed() {
+		this.server.expect(requestTo(URI)).andRespond(withStatus(HttpStatus.UNAUTHORIZED));
+		this.server.expect(requestTo(OTHER_URI)).andRespond(withStatus(HttpStatus.UNAUTHORIZED));
+		Health health = createBalancedIndicator().health();
+		assertThat(health.getStatus()).isEqualTo(Status.UP);
+		assertThat(health.getDetails()).containsEntry("uris", Arrays.asList(URI, OTHER_URI));
+		assertThat(endpoints(health)).containsOnlyKeys(URI, OTHER_URI);
+		this.server.verify();
+	}
+
+	@Test
+	public void balancedEndpointsAreDegradedWhenOneIsUnreachable() {
+		this.server.expect(requestTo(URI)).andRespond(withServerError());
+		this.server.expect(requestTo(OTHER_URI)).andRespond(withStatus(HttpStatus.UNAUTHORIZED));
+		Health health = createBalancedIndicator().health();
+		assertThat(health.getStatus()).isEqualTo(RemoteEndpointHealthIndicator.DEGRADED);
+		assertThat(endpoints(health).get(URI)).containsEntry("error", "Responded with status 500");
+	}
+
+	@Test
+	public void balancedEndpointsAreDownWhenNoneIsReachable() {
+		this.server.expect(requestTo(URI)).andRespond(withServerError());
+		this.server.expect(requestTo(OTHER_URI)).andRespond(withServerError());
+		Health health = createBalancedIndicator().health();
+		assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Map<String, Object>> endpoints(Health health) {
+		return (Map<String, Map<String, Object>>) health.getDetails().get("endpoints");
+	}
+
+	private RemoteEndpointHealthIndicator createBalancedIndicator() {
+		EndpointProbe probe = new EndpointProbe(this.restTemplate, URI, null, Duration.ofSeconds(30));
+		probe.setClock(this.clock);
+		EndpointProbe other = new EndpointProbe(this.restTemplate, OTHER_URI, null, Duration.ofSeconds(30));
+		other.setClock(this.clock);
+		RemoteEndpointHealthIndicator indicator = new RemoteEndpointHealthIndicator(Arrays.asList(probe, other),
+				() -> null, Duration.ofSeconds(1), Duration.ofSeconds(30));
+		indicator.setClock(this.clock);
+		return indicator;
+	}
+
+	private RemoteEndpointHealthIndicator createIndicator(Duration latencySlo,
+			LatencyTrackingResourceServerTokenServices tracking) {
+		EndpointProbe probe = new EndpointProbe(this.restTemplate, URI, null, Duration.ofSeconds(30));
+		probe.setClock(this.clock);
+		RemoteEndpointHealthIndicator indicator = new RemoteEndpointHealthIndicator(probe, () -> tracking, latencySlo,
+				Duration.ofSeconds(30));
+		indicator.setClock(this.clock);
+		return indicator;
+	}
+
+}
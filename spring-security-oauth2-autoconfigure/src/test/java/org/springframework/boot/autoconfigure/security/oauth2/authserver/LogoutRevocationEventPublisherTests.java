@@ -0,0 +1,59 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.authserver;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.boot.autoconfigure.security.oauth2.revocation.TokenRevocationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.event.LogoutSuccessEvent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Tests for {@link LogoutRevocationEventPublisher}.
+ */
+public class LogoutRevocationEventPublisherTests {
+
+	private final ApplicationEventPublisher publisher = mock(ApplicationEventPublisher.class);
+
+	private final LogoutRevocationEventPublisher listener = new LogoutRevocationEventPublisher(this.publisher);
+
+	@Test
+	public void logoutPublishesUserRevocationEvent() {
+		this.listener
+				.onApplicationEvent(new LogoutSuccessEvent(new UsernamePasswordAuthenticationToken("alice", "N/A")));
+		ArgumentCaptor<TokenRevocationEvent> event = ArgumentCaptor.forClass(TokenRevocationEvent.class);
+		verify(this.publisher).publishEvent(event.capture());
+		assertThat(event.getValue().getType()).isEqualTo(TokenRevocationEvent.Type.USER);
+		assertThat(event.getValue().getValue()).isEqualTo("alice");
+		assertThat(event.getValue().getSource()).isSameAs(this.listener);
+	}
+
+	@Test
+	public void logoutWithoutUserNamePublishesNothing() {
+		this.listener.onApplicationEvent(new LogoutSuccessEvent(new TestingAuthenticationToken("", "N/A")));
+		verifyNoInteractions(this.publisher);
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.authserver;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import javax.servlet.ServletException;
+
+import org.junit.Test;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidGrantException;
+import org.springframework.security.oauth2.provider.TokenGranter;
+import org.springframework.security.oauth2.provider.token.TokenEnhancer;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.security.oauth2.provider.token.store.InMemoryTokenStore;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link TokenIssuanceInstrumentation}, {@link MetricsTokenIssuanceObserver}
+ * and {@link TokenIssuanceEvent}.
+ */
+public class TokenIssuanceInstrumentationTests {
+
+	private final MeterRegistry registry = new SimpleMeterRegistry();
+
+	private final TokenIssuanceInstrumentation instrumentation = new TokenIssuanceInstrumentation(
+			Collections.singletonList(new MetricsTokenIssuanceObserver(this.registry)), false);
+
+	@Test
+	public void issuancesAreTimedByGrantTypeAndOutcome() {
+		TokenGranter granter = this.instrumentation.tokenGranter((grantType, tokenRequest) -> {
+			if ("password".equals(grantType)) {
+				throw new InvalidGrantException("Bad credentials");
+			}
+			return "client_credentials".equals(grantType) ? new DefaultOAuth2AccessToken("0123456789") : null;
+		});
+		assertThat(granter.grant("client_credentials", null).getValue()).isEqualTo("0123456789");
+		assertThatExceptionOfType(InvalidGrantException.class).isThrownBy(() -> granter.grant("password", null));
+		assertThat(granter.grant("urn:custom", null)).isNull();
+		assertThat(issuances("client_credentials", "success")).isEqualTo(1);
+		assertThat(issuances("password", "failure")).isEqualTo(1);
+		assertThat(issuances("other", "failure")).isEqualTo(1);
+		assertThat(this.registry.get(MetricsTokenIssuanceObserver.SIZE_METRIC).tag("grant_type", "client_credentials")
+				.summary().totalAmount()).isEqualTo(10);
+	}
+
+	@Test
+	public void phasesAreTimed() throws Exception {
+		TokenEnhancer enhancer = this.instrumentation.tokenEnhancer((accessToken, authentication) -> accessToken);
+		enhancer.enhance(new DefaultOAuth2AccessToken("token"), null);
+		TokenStore store = this.instrumentation.tokenStore(new InMemoryTokenStore());
+		store.removeAccessToken(new DefaultOAuth2AccessToken("token"));
+		store.readAccessToken("token");
+		authenticateClient("/oauth/token");
+		this.instrumentation.authenticationManager((authentication) -> authentication).authenticate(null);
+		assertThat(phases("signing")).isEqualTo(1);
+		assertThat(phases("store")).isEqualTo(1);
+		assertThat(phases("client-authentication")).isEqualTo(1);
+		assertThat(phases("user-authentication")).isEqualTo(1);
+	}
+
+	@Test
+	public void clientAuthenticationIsTimedForTokenEndpointOnly() throws Exception {
+		authenticateClient("/oauth/check_token");
+		authenticateClient("/oauth/token_key");
+		assertThat(this.instrumentation.passwordEncoder(NoOpPasswordEncoder.getInstance()).matches("secret", "secret"))
+				.isTrue();
+		assertThat(phases("client-authentication")).isZero();
+		authenticateClient("/oauth/token");
+		assertThat(phases("client-authentication")).isEqualTo(1);
+	}
+
+	@Test
+	public void issuancesAreRecordedByFlightRecorder() throws IOException {
+		TokenGranter granter = new TokenIssuanceInstrumentation(Collections.emptyList(), true)
+				.tokenGranter((grantType, tokenRequest) -> new DefaultOAuth2AccessToken("token"));
+		Path file = Files.createTempFile("issuance", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("org.springframework.security.oauth2.TokenIssuance").withThreshold(Duration.ZERO);
+			recording.start();
+			granter.grant("client_credentials", null);
+			recording.stop();
+			recording.dump(file);
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+			assertThat(events).hasSize(1);
+			assertThat(events.get(0).getString("grantType")).isEqualTo("client_credentials");
+			assertThat(events.get(0).getString("outcome")).isEqualTo("success");
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	private void authenticateClient(String path) throws ServletException, IOException {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+		request.setServletPath(path);
+		PasswordEncoder encoder = this.instrumentation.passwordEncoder(NoOpPasswordEncoder.getInstance());
+		this.instrumentation.tokenEndpointFilter(new AntPathRequestMatcher("/oauth/token")).doFilter(request,
+				new MockHttpServletResponse(), (req, res) -> assertThat(encoder.matches("secret", "secret")).isTrue());
+	}
+
+	private long issuances(String grantType, String outcome) {
+		return this.registry.get(MetricsTokenIssuanceObserver.ISSUANCE_METRIC).tag("grant_type", grantType)
+				.tag("outcome", outcome).timer().count();
+	}
+
+	private long phases(String phase) {
+		return this.registry.get(MetricsTokenIssuanceObserver.PHASE_METRIC).tag("phase", phase).timer().count();
+	}
+
+}
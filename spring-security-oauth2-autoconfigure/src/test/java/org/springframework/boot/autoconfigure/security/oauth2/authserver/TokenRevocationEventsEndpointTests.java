@@ -0,0 +1,114 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.authserver;
+
+import java.time.Duration;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.boot.autoconfigure.security.oauth2.revocation.TokenRevocationEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.security.oauth2.provider.endpoint.FrameworkEndpointHandlerMapping;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Tests for {@link TokenRevocationEventsEndpoint}.
+ */
+public class TokenRevocationEventsEndpointTests {
+
+	private AnnotationConfigWebApplicationContext context;
+
+	private TokenRevocationEventsEndpoint endpoint = new TokenRevocationEventsEndpoint(Duration.ofMinutes(1));
+
+	@After
+	public void close() {
+		if (this.context != null) {
+			this.context.close();
+		}
+	}
+
+	@Test
+	public void eventsAreStreamedToSubscribers() throws Exception {
+		MockMvc mvc = createMockMvc();
+		MvcResult result = mvc.perform(get(TokenRevocationEventsEndpoint.PATH)).andExpect(request().asyncStarted())
+				.andReturn();
+		assertThat(this.endpoint.getSubscriberCount()).isEqualTo(1);
+		this.endpoint.onApplicationEvent(TokenRevocationEvent.token(this, "0123456789"));
+		this.endpoint.onApplicationEvent(TokenRevocationEvent.user(this, "alice"));
+		assertThat(result.getResponse().getContentType()).startsWith("text/event-stream");
+		assertThat(result.getResponse().getContentAsString())
+				.isEqualTo("event:token\ndata:0123456789\n\nevent:user\ndata:alice\n\n");
+	}
+
+	@Test
+	public void eventsAreSentToEverySubscriber() throws Exception {
+		MockMvc mvc = createMockMvc();
+		MvcResult first = mvc.perform(get(TokenRevocationEventsEndpoint.PATH)).andReturn();
+		MvcResult second = mvc.perform(get(TokenRevocationEventsEndpoint.PATH)).andReturn();
+		this.endpoint.onApplicationEvent(TokenRevocationEvent.user(this, "alice"));
+		assertThat(first.getResponse().getContentAsString()).isEqualTo("event:user\ndata:alice\n\n");
+		assertThat(second.getResponse().getContentAsString()).isEqualTo("event:user\ndata:alice\n\n");
+	}
+
+	@Test
+	public void completedSubscribersAreDropped() {
+		SseEmitter completed = this.endpoint.subscribe();
+		this.endpoint.subscribe();
+		completed.complete();
+		assertThat(this.endpoint.getSubscriberCount()).isEqualTo(2);
+		this.endpoint.onApplicationEvent(TokenRevocationEvent.token(this, "0123456789"));
+		assertThat(this.endpoint.getSubscriberCount()).isEqualTo(1);
+	}
+
+	private MockMvc createMockMvc() {
+		this.context = new AnnotationConfigWebApplicationContext();
+		this.context.setServletContext(new MockServletContext());
+		this.context.register(EndpointConfiguration.class);
+		this.context.refresh();
+		this.endpoint = this.context.getBean(TokenRevocationEventsEndpoint.class);
+		return MockMvcBuilders.webAppContextSetup(this.context).build();
+	}
+
+	@Configuration
+	@EnableWebMvc
+	static class EndpointConfiguration {
+
+		@Bean
+		TokenRevocationEventsEndpoint tokenRevocationEventsEndpoint() {
+			return new TokenRevocationEventsEndpoint(Duration.ofMinutes(1));
+		}
+
+		@Bean
+		FrameworkEndpointHandlerMapping frameworkEndpointHandlerMapping() {
+			return new FrameworkEndpointHandlerMapping();
+		}
+
+	}
+
+}
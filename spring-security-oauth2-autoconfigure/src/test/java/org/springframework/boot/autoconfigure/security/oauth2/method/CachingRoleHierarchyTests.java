@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.method;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.boot.autoconfigure.security.oauth2.resource.AuthorityBitSet;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.AuthorityDictionary;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchyImpl;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link CachingRoleHierarchy}.
+ */
+public class CachingRoleHierarchyTests {
+
+	private final RoleHierarchy delegate = spy(createRoleHierarchy());
+
+	private final CachingRoleHierarchy roleHierarchy = new CachingRoleHierarchy(this.delegate, 1);
+
+	@Test
+	public void reachableAuthoritiesAreCachedPerSet() {
+		Collection<? extends GrantedAuthority> reachable = this.roleHierarchy
+				.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_ADMIN", "audit"));
+		assertThat(reachable).extracting(GrantedAuthority::getAuthority).containsExactlyInAnyOrder("ROLE_ADMIN",
+				"ROLE_STAFF", "ROLE_USER", "audit");
+		assertThat(this.roleHierarchy
+				.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("audit", "ROLE_ADMIN")))
+						.isSameAs(reachable);
+		verify(this.delegate, times(1)).getReachableGrantedAuthorities(any());
+	}
+
+	@Test
+	public void bitSetsAreUsedAsKeys() {
+		AuthorityDictionary dictionary = new AuthorityDictionary(10);
+		List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("ROLE_STAFF");
+		Collection<? extends GrantedAuthority> reachable = this.roleHierarchy
+				.getReachableGrantedAuthorities(AuthorityBitSet.of(authorities, dictionary));
+		assertThat(this.roleHierarchy.getReachableGrantedAuthorities(authorities)).isSameAs(reachable);
+		assertThat(reachable).extracting(GrantedAuthority::getAuthority).containsExactlyInAnyOrder("ROLE_STAFF",
+				"ROLE_USER");
+	}
+
+	@Test
+	public void leastRecentlyUsedSetIsEvictedWhenFull() {
+		CachingRoleHierarchy roleHierarchy = new CachingRoleHierarchy(this.delegate, 2);
+		Collection<? extends GrantedAuthority> admin = roleHierarchy
+				.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_ADMIN"));
+		Collection<? extends GrantedAuthority> staff = roleHierarchy
+				.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_STAFF"));
+		assertThat(roleHierarchy.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_ADMIN")))
+				.isSameAs(admin);
+		Collection<? extends GrantedAuthority> user = roleHierarchy
+				.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_USER"));
+		assertThat(roleHierarchy.size()).isEqualTo(2);
+		assertThat(roleHierarchy.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_ADMIN")))
+				.isSameAs(admin);
+		assertThat(roleHierarchy.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_USER")))
+				.isSameAs(user);
+		assertThat(roleHierarchy.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_STAFF")))
+				.isNotSameAs(staff).isEqualTo(staff);
+		verify(this.delegate, times(4)).getReachableGrantedAuthorities(any());
+	}
+
+	@Test
+	public void newSetsAreStillCachedOnceFull() {
+		this.roleHierarchy.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_ADMIN"));
+		Collection<? extends GrantedAuthority> reachable = this.roleHierarchy
+				.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_STAFF"));
+		assertThat(this.roleHierarchy.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_STAFF")))
+				.isSameAs(reachable);
+		assertThat(this.roleHierarchy.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void emptyAuthoritiesAreNotCached() {
+		assertThat(this.roleHierarchy.getReachableGrantedAuthorities(AuthorityUtils.NO_AUTHORITIES)).isEmpty();
+		assertThat(this.roleHierarchy.size()).isZero();
+	}
+
+	private static RoleHierarchy createRoleHierarchy() {
+		RoleHierarchyImpl roleHierarchy = new RoleHierarchyImpl();
+		roleHierarchy.setHierarchy("ROLE_ADMIN > ROLE_STAFF\nROLE_STAFF > ROLE_USER");
+		return roleHierarchy;
+	}
+
+}
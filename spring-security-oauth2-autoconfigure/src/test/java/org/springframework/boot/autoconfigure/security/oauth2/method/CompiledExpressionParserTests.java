@@ -0,0 +1,222 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.method;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.boot.autoconfigure.security.oauth2.resource.AuthorityDictionary;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.CompactOAuth2Authentication;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.PermissionEvaluator;
+import org.springframework.security.access.expression.SecurityExpressionRoot;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.common.exceptions.InsufficientScopeException;
+import org.springframework.security.oauth2.provider.expression.OAuth2ExpressionParser;
+import org.springframework.security.oauth2.provider.expression.OAuth2MethodSecurityExpressionHandler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link CompiledExpressionParser}.
+ */
+public class CompiledExpressionParserTests {
+
+	private final CompiledExpressionParser parser = new CompiledExpressionParser(2);
+
+	private OAuth2Authentication authentication;
+
+	private EvaluationContext context;
+
+	@Before
+	public void setUp() throws Exception {
+		OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "client", null, true,
+				new HashSet<>(Arrays.asList("read", "write")), null, null, null, null);
+		UsernamePasswordAuthenticationToken user = new UsernamePasswordAuthenticationToken("user", "N/A",
+				AuthorityUtils.createAuthorityList("ROLE_USER", "audit"));
+		this.authentication = new OAuth2Authentication(request, user);
+		this.context = createContext(this.authentication);
+	}
+
+	private EvaluationContext createContext(Authentication authentication) throws Exception {
+		MethodInvocation invocation = mock(MethodInvocation.class);
+		given(invocation.getMethod()).willReturn(Object.class.getMethod("toString"));
+		given(invocation.getThis()).willReturn(new Object());
+		OAuth2MethodSecurityExpressionHandler handler = new CompactAuthoritiesMethodSecurityExpressionHandler();
+		handler.setPermissionEvaluator(new PermissionEvaluator() {
+
+			@Override
+			public boolean hasPermission(Authentication authentication, Object target, Object permission) {
+				return "read".equals(permission);
+			}
+
+			@Override
+			public boolean hasPermission(Authentication authentication, Serializable targetId, String targetType,
+					Object permission) {
+				return false;
+			}
+
+		});
+		return handler.createEvaluationContext(authentication, invocation);
+	}
+
+	@Test
+	public void simpleChecksUseFastPath() {
+		assertFastPath("hasRole('USER')", true);
+		assertFastPath("hasRole('ADMIN')", false);
+		assertFastPath("hasAnyRole('ADMIN', 'USER')", true);
+		assertFastPath("hasAuthority('audit')", true);
+		assertFastPath(" hasAnyAuthority('ROLE_ADMIN','admin') ", false);
+		assertFastPath("#oauth2.hasScope('read')", true);
+		assertFastPath("#oauth2.hasScope('trust')", false);
+		assertFastPath("#oauth2.hasAnyScope('trust', 'write')", true);
+	}
+
+	@Test
+	public void wrappedChecksUseFastPath() {
+		ExpressionParser parser = new OAuth2ExpressionParser(this.parser);
+		Expression expression = parser.parseExpression("hasRole('USER')");
+		assertThat(expression).isInstanceOf(FastPathExpression.class);
+		assertThat(expression.getValue(this.context, Boolean.class)).isTrue();
+		assertThat(parser.parseExpression("#oauth2.hasScope('read')").getValue(this.context, Boolean.class)).isTrue();
+		assertThatExceptionOfType(AccessDeniedException.class).isThrownBy(
+				() -> parser.parseExpression("#oauth2.hasAnyScope('trust')").getValue(this.context, Boolean.class))
+				.withCauseInstanceOf(InsufficientScopeException.class);
+	}
+
+	@Test
+	public void scopeChecksUseEncodedScopesOfCompactAuthentication() throws Exception {
+		this.context = createContext(
+				new CompactOAuth2Authentication(this.authentication, AuthorityDictionary.getSharedInstance()));
+		assertFastPath("#oauth2.hasScope('read')", true);
+		assertFastPath("#oauth2.hasScope('trust')", false);
+		assertFastPath("#oauth2.hasAnyScope('trust', 'write')", true);
+		assertFastPath("#oauth2.hasAnyScope('trust', 'admin')", false);
+		assertFastPath("hasRole('USER')", true);
+	}
+
+	@Test
+	public void authorityChecksUseEncodedAuthoritiesOfCompactAuthentication() throws Exception {
+		CompactOAuth2Authentication authentication = spy(
+				new CompactOAuth2Authentication(this.authentication, AuthorityDictionary.getSharedInstance()));
+		this.context = createContext(authentication);
+		assertFastPath("hasRole('USER')", true);
+		assertFastPath("hasRole('ROLE_USER')", true);
+		assertFastPath("hasAnyRole('ADMIN', 'USER')", true);
+		assertFastPath("hasAuthority('audit')", true);
+		assertFastPath("hasAnyAuthority('ROLE_ADMIN', 'admin')", false);
+		assertSpel("hasRole('USER') and principal == 'user'", true);
+		verify(authentication, atLeast(6)).hasAuthority("ROLE_USER");
+		verify(authentication, atLeast(3)).hasAuthority("audit");
+	}
+
+	@Test
+	public void compactAuthenticationKeepsTheMembersOfTheDefaultRoot() throws Exception {
+		CompactOAuth2Authentication authentication = spy(
+				new CompactOAuth2Authentication(this.authentication, AuthorityDictionary.getSharedInstance()));
+		this.context = createContext(authentication);
+		assertThat(this.context.getRootObject().getValue()).isInstanceOf(SecurityExpressionRoot.class);
+		assertSpel("hasPermission('document', read) and !hasPermission('document', write)", true);
+		assertSpel("permitAll and !denyAll and admin == 'administration' and create == 'create'", true);
+		assertSpel("hasAnyAuthority(principal) or hasRole('USER')", true);
+		verify(authentication).hasAuthority("ROLE_USER");
+	}
+
+	@Test
+	public void otherExpressionsUseSpel() {
+		assertSpel("hasRole('USER') and #oauth2.hasScope('read')", true);
+		assertSpel("#oauth2.isClient()", false);
+		assertSpel("isAuthenticated()", true);
+		assertThat(this.parser.parseExpression("hasRole('ADMIN', 'USER')")).isInstanceOf(SpelExpression.class);
+		assertThat(this.parser.parseExpression("hasRole('it''s')")).isInstanceOf(SpelExpression.class);
+	}
+
+	@Test
+	public void fastPathFallsBackToSpelForOtherRootObjects() {
+		Expression expression = this.parser.parseExpression("hasRole('USER')");
+		StandardEvaluationContext context = new StandardEvaluationContext(new Roles());
+		assertThat(expression.getValue(context, Boolean.class)).isTrue();
+	}
+
+	@Test
+	public void expressionsAreCachedUpToMaxSize() {
+		Expression first = this.parser.parseExpression("hasRole('USER')");
+		Expression second = this.parser.parseExpression("isAuthenticated()");
+		Expression third = this.parser.parseExpression("isAnonymous()");
+		assertThat(this.parser.parseExpression("hasRole('USER')")).isSameAs(first);
+		assertThat(this.parser.parseExpression("isAuthenticated()")).isSameAs(second);
+		assertThat(this.parser.parseExpression("isAnonymous()")).isNotSameAs(third);
+		assertThat(this.parser.size()).isEqualTo(2);
+	}
+
+	@Test
+	public void compiledExpressionsMatchInterpretedOnes() {
+		String expressionString = "hasRole('USER') and #oauth2.hasAnyScope('read') and principal == 'user'";
+		Expression compiled = this.parser.parseExpression(expressionString);
+		Expression interpreted = new SpelExpressionParser().parseExpression(expressionString);
+		for (int i = 0; i < 200; i++) {
+			assertThat(compiled.getValue(this.context, Boolean.class))
+					.isEqualTo(interpreted.getValue(this.context, Boolean.class)).isTrue();
+		}
+	}
+
+	private void assertFastPath(String expressionString, boolean expected) {
+		Expression expression = this.parser.parseExpression(expressionString);
+		assertThat(expression).isInstanceOf(FastPathExpression.class);
+		assertThat(expression.getValue(this.context, Boolean.class)).isEqualTo(expected);
+		assertThat(expression.getValue(this.context)).isEqualTo(expected);
+		assertThat(new SpelExpressionParser().parseExpression(expressionString).getValue(this.context, Boolean.class))
+				.isEqualTo(expected);
+	}
+
+	private void assertSpel(String expressionString, boolean expected) {
+		Expression expression = this.parser.parseExpression(expressionString);
+		assertThat(expression).isInstanceOf(SpelExpression.class);
+		assertThat(expression.getValue(this.context, Boolean.class)).isEqualTo(expected);
+	}
+
+	public static class Roles {
+
+		public boolean hasRole(String role) {
+			return "USER".equals(role);
+		}
+
+	}
+
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link AuthorityBitSet}.
+ */
+public class AuthorityBitSetTests {
+
+	private final AuthorityDictionary dictionary = new AuthorityDictionary(100);
+
+	@Test
+	public void containsEncodedAuthorities() {
+		AuthorityBitSet authorities = AuthorityBitSet.of(authorities(200), this.dictionary);
+		assertThat(authorities).hasSize(200);
+		assertThat(this.dictionary.size()).isEqualTo(100);
+		assertThat(authorities.hasAuthority("ROLE_0")).isTrue();
+		assertThat(authorities.hasAuthority("ROLE_99")).isTrue();
+		assertThat(authorities.hasAuthority("ROLE_150")).isTrue();
+		assertThat(authorities.hasAuthority("ROLE_200")).isFalse();
+		assertThat(authorities.hasAnyAuthority("ROLE_200", "ROLE_64")).isTrue();
+		assertThat(authorities.contains(new SimpleGrantedAuthority("ROLE_63"))).isTrue();
+		assertThat(authorities.contains(new SimpleGrantedAuthority("ROLE_199"))).isTrue();
+		assertThat(authorities.contains("ROLE_1")).isFalse();
+		assertThat(authorities).containsExactlyInAnyOrderElementsOf(authorities(200));
+	}
+
+	@Test
+	public void keepsOtherAuthoritiesAsTheyAre() {
+		GrantedAuthority custom = () -> "ROLE_CUSTOM";
+		AuthorityBitSet authorities = AuthorityBitSet
+				.of(Arrays.asList(new SimpleGrantedAuthority("ROLE_USER"), custom, custom), this.dictionary);
+		assertThat(authorities).containsExactly(new SimpleGrantedAuthority("ROLE_USER"), custom, custom);
+		assertThat(authorities.asSet()).containsExactlyInAnyOrder(new SimpleGrantedAuthority("ROLE_USER"), custom);
+		assertThat(authorities.contains(custom)).isTrue();
+		assertThat(authorities.contains(new SimpleGrantedAuthority("ROLE_CUSTOM"))).isFalse();
+		assertThat(authorities.hasAuthority("ROLE_CUSTOM")).isTrue();
+		assertThat(this.dictionary.getId("ROLE_CUSTOM")).isEqualTo(-1);
+	}
+
+	@Test
+	public void keepsOriginalOrderAndDuplicates() {
+		List<GrantedAuthority> original = AuthorityUtils.createAuthorityList("ROLE_B", "ROLE_A", "ROLE_B", "ROLE_C");
+		AuthorityBitSet authorities = AuthorityBitSet.of(original, this.dictionary);
+		assertThat(authorities).containsExactlyElementsOf(original);
+		assertThat(authorities.get(2)).isSameAs(authorities.get(0));
+		assertThat(authorities.asSet()).hasSize(3);
+	}
+
+	@Test
+	public void encodesSparseIdsWithoutAllocatingLeadingWords() {
+		AuthorityDictionary dictionary = new AuthorityDictionary(20000);
+		for (int i = 0; i < 10000; i++) {
+			dictionary.getOrCreateId("ROLE_" + i);
+		}
+		AuthorityBitSet authorities = AuthorityBitSet
+				.of(AuthorityUtils.createAuthorityList("ROLE_9999", "ROLE_3", "ROLE_NEW"), dictionary);
+		long[] words = (long[]) ReflectionTestUtils.getField(authorities, "words");
+		assertThat(words).hasSize(2);
+		assertThat(authorities.hasAuthority("ROLE_9999")).isTrue();
+		assertThat(authorities.hasAuthority("ROLE_3")).isTrue();
+		assertThat(authorities.hasAuthority("ROLE_NEW")).isTrue();
+		assertThat(authorities.hasAuthority("ROLE_4")).isFalse();
+		assertThat(authorities.asSet()).extracting(GrantedAuthority::getAuthority)
+				.containsExactlyInAnyOrder("ROLE_9999", "ROLE_3", "ROLE_NEW");
+		assertThat(authorities.containsAny(AuthorityBitSet.ofNames(Arrays.asList("ROLE_5", "ROLE_9999"), dictionary)))
+				.isTrue();
+		assertThat(authorities.containsAny(AuthorityBitSet.ofNames(Arrays.asList("ROLE_5", "ROLE_9998"), dictionary)))
+				.isFalse();
+	}
+
+	@Test
+	public void iteratesOverCanonicalInstances() {
+		AuthorityBitSet authorities = AuthorityBitSet.of(AuthorityUtils.createAuthorityList("ROLE_USER"),
+				this.dictionary);
+		assertThat(authorities.iterator().next()).isSameAs(this.dictionary.getAuthority(0))
+				.isSameAs(AuthorityInterner.getSharedInstance().getAuthority("ROLE_USER"));
+	}
+
+	@Test
+	public void equalsAndContainsAll() {
+		AuthorityBitSet all = AuthorityBitSet.of(authorities(130), this.dictionary);
+		AuthorityBitSet some = AuthorityBitSet.of(authorities(70), this.dictionary);
+		assertThat(all.containsAll(some)).isTrue();
+		assertThat(some.containsAll(all)).isFalse();
+		assertThat(all).isEqualTo(AuthorityBitSet.of(authorities(130), this.dictionary));
+		assertThat(all).isEqualTo(authorities(130)).isNotEqualTo(some);
+		assertThat(all.hashCode()).isEqualTo(authorities(130).hashCode());
+		assertThat(authorities(130)).isEqualTo(all);
+		assertThat(all.asSet()).isEqualTo(new HashSet<>(authorities(130)));
+	}
+
+	@Test
+	public void containsAnyOfNames() {
+		AuthorityBitSet scopes = AuthorityBitSet.ofNames(Arrays.asList("read", "write", ""), this.dictionary);
+		assertThat(scopes).hasSize(2);
+		assertThat(scopes.containsAny(AuthorityBitSet.ofNames(Arrays.asList("trust", "write"), this.dictionary)))
+				.isTrue();
+		assertThat(scopes.containsAny(AuthorityBitSet.ofNames(Collections.singleton("trust"), this.dictionary)))
+				.isFalse();
+		assertThat(
+				scopes.containsAny(AuthorityBitSet.ofNames(Collections.singleton("read"), new AuthorityDictionary(10))))
+						.isTrue();
+	}
+
+	@Test
+	public void isImmutable() {
+		AuthorityBitSet authorities = AuthorityBitSet.of(authorities(2), this.dictionary);
+		assertThatExceptionOfType(UnsupportedOperationException.class)
+				.isThrownBy(() -> authorities.add(new SimpleGrantedAuthority("ROLE_ADMIN")));
+		assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> authorities.clear());
+	}
+
+	@Test
+	public void compactAuthenticationIsSerializedAsRegularAuthentication() throws Exception {
+		OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "client", authorities(3), true,
+				Collections.singleton("read"), null, null, null, null);
+		UsernamePasswordAuthenticationToken user = new UsernamePasswordAuthenticationToken("user", "N/A",
+				authorities(5));
+		OAuth2Authentication authentication = new OAuth2Authentication(request, user);
+		authentication.setDetails("details");
+		CompactOAuth2Authentication compact = new CompactOAuth2Authentication(authentication, this.dictionary);
+		assertThat(compact.getAuthorities()).containsExactlyInAnyOrderElementsOf(authorities(5));
+		assertThat(compact.hasAuthority("ROLE_4")).isTrue();
+		assertThat(compact.hasScope("read")).isTrue();
+		assertThat(compact.getScopes()).extracting(GrantedAuthority::getAuthority).containsExactly("read");
+		assertThat(compact.getDetails()).isEqualTo("details");
+		assertThat(compact.isAuthenticated()).isTrue();
+		assertThat(compact).isEqualTo(new CompactOAuth2Authentication(authentication, this.dictionary));
+		assertThat(compact.toString()).contains("ROLE_4");
+		Object copy = copy(compact);
+		assertThat(copy).isExactlyInstanceOf(OAuth2Authentication.class).isEqualTo(authentication);
+	}
+
+	@Test
+	public void compactAuthenticationIsEqualToTheAuthenticationItWasCreatedFrom() {
+		OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "client", authorities(3), true,
+				Collections.singleton("read"), null, null, null, null);
+		OAuth2Authentication authentication = new OAuth2Authentication(request,
+				new UsernamePasswordAuthenticationToken("user", "N/A", authorities(5)));
+		CompactOAuth2Authentication compact = new CompactOAuth2Authentication(authentication, this.dictionary);
+		CompactOAuth2Authentication other = new CompactOAuth2Authentication(authentication, this.dictionary);
+		assertThat(compact).isEqualTo(other).hasSameHashCodeAs(other);
+		assertThat(compact).isEqualTo(authentication).hasSameHashCodeAs(authentication);
+		assertThat(authentication).isEqualTo(compact);
+	}
+
+	@Test
+	public void compactAuthenticationPassesRequestAndUserAuthenticationToSuperclass() {
+		OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "client", authorities(3), true,
+				Collections.singleton("read"), null, null, null, null);
+		UsernamePasswordAuthenticationToken user = new UsernamePasswordAuthenticationToken("user", "N/A",
+				authorities(5));
+		CompactOAuth2Authentication compact = new CompactOAuth2Authentication(new OAuth2Authentication(request, user),
+				this.dictionary);
+		assertThat(ReflectionTestUtils.getField(compact, OAuth2Authentication.class, "storedRequest"))
+				.isSameAs(request);
+		assertThat(ReflectionTestUtils.getField(compact, OAuth2Authentication.class, "userAuthentication"))
+				.isSameAs(user);
+		assertThat(compact.getAuthorities()).containsExactlyElementsOf(authorities(5));
+		assertThat(compact.getPrincipal()).isEqualTo("user");
+		assertThat(compact.isClientOnly()).isFalse();
+	}
+
+	@Test
+	public void compactAuthenticationSurvivesSerializationRoundTrip() throws Exception {
+		OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "client", authorities(3), true,
+				Collections.singleton("read"), null, null, null, null);
+		OAuth2Authentication authentication = new OAuth2Authentication(request, null);
+		authentication.setDetails("details");
+		CompactOAuth2Authentication compact = new CompactOAuth2Authentication(authentication, this.dictionary);
+		OAuth2Authentication copy = (OAuth2Authentication) copy(compact);
+		assertThat(copy).isEqualTo(compact).isEqualTo(authentication);
+		assertThat(copy.getOAuth2Request()).isEqualTo(request);
+		assertThat(copy.getUserAuthentication()).isNull();
+		assertThat(copy.getAuthorities()).containsExactlyInAnyOrderElementsOf(authorities(3));
+		assertThat(copy.getDetails()).isEqualTo("details");
+		CompactOAuth2Authentication recompacted = new CompactOAuth2Authentication(copy, this.dictionary);
+		OAuth2Authentication expected = new OAuth2Authentication(copy.getOAuth2Request(), null);
+		expected.setDetails("details");
+		assertThat(recompacted).isEqualTo(expected);
+		assertThat(recompacted.getAuthorities()).containsExactlyElementsOf(expected.getAuthorities());
+		assertThat(recompacted.hasScope("read")).isTrue();
+	}
+
+	private List<GrantedAuthority> authorities(int count) {
+		String[] names = new String[count];
+		for (int i = 0; i < count; i++) {
+			names[i] = "ROLE_" + i;
+		}
+		return AuthorityUtils.createAuthorityList(names);
+	}
+
+	private Object copy(Object object) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+			output.writeObject(object);
+		}
+		try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return input.readObject();
+		}
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.provider.token.DefaultUserAuthenticationConverter;
+import org.springframework.security.oauth2.provider.token.UserAuthenticationConverter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link AuthorityInterner}.
+ */
+public class AuthorityInternerTests {
+
+	private final AuthorityInterner interner = new AuthorityInterner(2, 1);
+
+	@Test
+	public void getAuthorityReturnsCanonicalInstance() {
+		GrantedAuthority admin = this.interner.getAuthority("ROLE_ADMIN");
+		assertThat(admin.getAuthority()).isEqualTo("ROLE_ADMIN");
+		assertThat(this.interner.getAuthority(new String("ROLE_ADMIN"))).isSameAs(admin);
+	}
+
+	@Test
+	public void getAuthorityWhenFullIsNotRetained() {
+		this.interner.getAuthority("ROLE_USER");
+		this.interner.getAuthority("ROLE_ADMIN");
+		GrantedAuthority other = this.interner.getAuthority("ROLE_OTHER");
+		assertThat(other.getAuthority()).isEqualTo("ROLE_OTHER");
+		assertThat(this.interner.getAuthority("ROLE_OTHER")).isNotSameAs(other).isEqualTo(other);
+		assertThat(this.interner.size()).isEqualTo(2);
+	}
+
+	@Test
+	public void getAuthoritiesReturnsCanonicalImmutableList() {
+		List<GrantedAuthority> authorities = this.interner
+				.getAuthorities(Arrays.asList("ROLE_USER", " ROLE_ADMIN", ""));
+		assertThat(authorities).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_USER", "ROLE_ADMIN");
+		assertThat(this.interner.getAuthorities(Arrays.asList("ROLE_USER", " ROLE_ADMIN", ""))).isSameAs(authorities);
+		assertThat(authorities.get(0)).isSameAs(this.interner.getAuthority("ROLE_USER"));
+		assertThatExceptionOfType(UnsupportedOperationException.class)
+				.isThrownBy(() -> authorities.add(this.interner.getAuthority("ROLE_USER")));
+	}
+
+	@Test
+	public void getAuthoritiesWhenFullIsNotRetained() {
+		List<GrantedAuthority> user = this.interner.getAuthorities(Collections.singletonList("ROLE_USER"));
+		List<GrantedAuthority> admin = this.interner.getAuthorities(Collections.singletonList("ROLE_ADMIN"));
+		assertThat(this.interner.getAuthorities(Collections.singletonList("ROLE_USER"))).isSameAs(user);
+		assertThat(this.interner.getAuthorities(Collections.singletonList("ROLE_ADMIN"))).isNotSameAs(admin)
+				.isEqualTo(admin);
+	}
+
+	@Test
+	public void userAuthenticationConverterUsesInterner() {
+		InterningUserAuthenticationConverter converter = new InterningUserAuthenticationConverter(this.interner);
+		Map<String, Object> token = new HashMap<>();
+		token.put(UserAuthenticationConverter.USERNAME, "spencer");
+		token.put(UserAuthenticationConverter.AUTHORITIES, Arrays.asList("ROLE_USER", "ROLE_ADMIN"));
+		Authentication authentication = converter.extractAuthentication(token);
+		assertThat(authentication.getName()).isEqualTo("spencer");
+		assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+				.containsExactly("ROLE_USER", "ROLE_ADMIN");
+		assertThat(authentication.getAuthorities().iterator().next()).isSameAs(this.interner.getAuthority("ROLE_USER"));
+	}
+
+	@Test
+	public void userAuthenticationConverterSplitsCollectionElementsLikeDefaultConverter() {
+		Map<String, Object> token = new HashMap<>();
+		token.put(UserAuthenticationConverter.USERNAME, "spencer");
+		token.put(UserAuthenticationConverter.AUTHORITIES, Arrays.asList("ROLE_USER, ROLE_ADMIN", " ", "ROLE_READER"));
+		assertSameAuthoritiesAsDefaultConverter(token, "ROLE_USER", "ROLE_ADMIN", "ROLE_READER");
+	}
+
+	@Test
+	public void userAuthenticationConverterKeepsNullElementsLikeDefaultConverter() {
+		Map<String, Object> token = new HashMap<>();
+		token.put(UserAuthenticationConverter.USERNAME, "spencer");
+		token.put(UserAuthenticationConverter.AUTHORITIES, Arrays.asList("ROLE_USER", null, 42));
+		assertSameAuthoritiesAsDefaultConverter(token, "ROLE_USER", "null", "42");
+	}
+
+	private void assertSameAuthoritiesAsDefaultConverter(Map<String, Object> token, String... expected) {
+		Authentication interned = new InterningUserAuthenticationConverter(new AuthorityInterner(16, 16))
+				.extractAuthentication(token);
+		Authentication reference = new DefaultUserAuthenticationConverter().extractAuthentication(token);
+		assertThat(reference.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly(expected);
+		assertThat(interned.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly(expected);
+	}
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link CachingResourceServerTokenServices}.
+ */
+public class CachingResourceServerTokenServicesTests {
+
+	private ResourceServerTokenServices delegate = mock(ResourceServerTokenServices.class);
+
+	private CachingResourceServerTokenServices services = new CachingResourceServerTokenServices(this.delegate,
+			Duration.ofMinutes(1), 2);
+
+	@Before
+	public void init() {
+		given(this.delegate.loadAuthentication(anyString()))
+				.willAnswer((invocation) -> authentication(invocation.getArgument(0)));
+	}
+
+	@Test
+	public void loadAuthenticationIsCached() {
+		OAuth2Authentication authentication = this.services.loadAuthentication("alice");
+		assertThat(this.services.loadAuthentication("alice")).isSameAs(authentication);
+		verify(this.delegate).loadAuthentication("alice");
+		assertThat(this.services.getHitCount()).isEqualTo(1);
+		assertThat(this.services.getMissCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void loadAuthenticationWhenExpiredCallsDelegate() {
+		Instant now = Instant.now();
+		this.services.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		this.services.loadAuthentication("alice");
+		this.services.setClock(Clock.fixed(now.plus(Duration.ofMinutes(1)), ZoneOffset.UTC));
+		this.services.loadAuthentication("alice");
+		verify(this.delegate, times(2)).loadAuthentication("alice");
+		assertThat(this.services.getEvictionCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void loadAuthenticationWhenExpiredAndUnavailableServesStaleAuthentication() {
+		Instant now = Instant.now();
+		this.services.setStaleIfError(Duration.ofMinutes(1));
+		this.services.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		OAuth2Authentication authentication = this.services.loadAuthentication("alice");
+		given(this.delegate.loadAuthentication("alice")).willThrow(new TokenServicesUnavailableException("down"));
+		this.services.setClock(Clock.fixed(now.plus(Duration.ofSeconds(90)), ZoneOffset.UTC));
+		assertThat(this.services.loadAuthentication("alice")).isSameAs(authentication);
+		assertThat(this.services.getStaleHitCount()).isEqualTo(1);
+		this.services.setClock(Clock.fixed(now.plus(Duration.ofMinutes(2)), ZoneOffset.UTC));
+		assertThatExceptionOfType(TokenServicesUnavailableException.class)
+				.isThrownBy(() -> this.services.loadAuthentication("alice"));
+		assertThat(this.services.size()).isZero();
+	}
+
+	@Test
+	public void evictRemovesToken() {
+		this.services.loadAuthentication("alice");
+		assertThat(this.services.evict("alice")).isTrue();
+		assertThat(this.services.evict("alice")).isFalse();
+		this.services.loadAuthentication("alice");
+		verify(this.delegate, times(2)).loadAuthentication("alice");
+	}
+
+	@Test
+	public void evictUserRemovesAllTokensOfUser() {
+		given(this.delegate.loadAuthentication("other")).willReturn(authentication("alice"));
+		this.services.loadAuthentication("alice");
+		this.services.loadAuthentication("other");
+		assertThat(this.services.evictUser("alice")).isEqualTo(2);
+		assertThat(this.services.size()).isZero();
+	}
+
+	@Test
+	public void loadAuthenticationWhenFullEvictsEntry() {
+		this.services.loadAuthentication("alice");
+		this.services.loadAuthentication("bob");
+		this.services.loadAuthentication("carol");
+		assertThat(this.services.size()).isEqualTo(2);
+		assertThat(this.services.getEvictionCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void evictDuringLoadAuthenticationIsNotUndone() throws Exception {
+		assertEvictionDuringLoadAuthenticationIsNotUndone((services) -> services.evict("alice"));
+	}
+
+	@Test
+	public void evictUserDuringLoadAuthenticationIsNotUndone() throws Exception {
+		assertEvictionDuringLoadAuthenticationIsNotUndone((services) -> services.evictUser("alice"));
+	}
+
+	@Test
+	public void clearDuringLoadAuthenticationIsNotUndone() throws Exception {
+		assertEvictionDuringLoadAuthenticationIsNotUndone(CachingResourceServerTokenServices::clear);
+	}
+
+	private void assertEvictionDuringLoadAuthenticationIsNotUndone(
+			Consumer<CachingResourceServerTokenServices> eviction) throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch evicted = new CountDownLatch(1);
+		given(this.delegate.loadAuthentication("alice")).willAnswer((invocation) -> {
+			loading.countDown();
+			assertThat(evicted.await(10, TimeUnit.SECONDS)).isTrue();
+			return authentication("alice");
+		});
+		CompletableFuture<OAuth2Authentication> load = CompletableFuture
+				.supplyAsync(() -> this.services.loadAuthentication("alice"));
+		assertThat(loading.await(10, TimeUnit.SECONDS)).isTrue();
+		eviction.accept(this.services);
+		evicted.countDown();
+		assertThat(load.get(10, TimeUnit.SECONDS)).isNotNull();
+		assertThat(this.services.contains("alice")).isFalse();
+		this.services.loadAuthentication("alice");
+		verify(this.delegate, times(2)).loadAuthentication("alice");
+	}
+
+	private static OAuth2Authentication authentication(String name) {
+		OAuth2Request request = new OAuth2Request(null, "client", null, true, null, null, null, null, null);
+		return new OAuth2Authentication(request, new UsernamePasswordAuthenticationToken(name, "N/A",
+				AuthorityUtils.commaSeparatedStringToAuthorityList("ROLE_USER")));
+	}
+
+}
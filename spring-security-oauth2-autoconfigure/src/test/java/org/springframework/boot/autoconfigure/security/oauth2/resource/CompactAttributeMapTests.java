@@ -0,0 +1,102 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link CompactAttributeMap}.
+ */
+public class CompactAttributeMapTests {
+
+	private final Map<String, Object> source = new LinkedHashMap<>();
+
+	@Test
+	public void ofHasSameEntries() {
+		this.source.put("name", "spencer");
+		this.source.put("email", "spencer@example.com");
+		this.source.put("age", 42);
+		this.source.put("nickname", null);
+		CompactAttributeMap map = CompactAttributeMap.of(this.source);
+		assertThat(map).isEqualTo(this.source);
+		assertThat(map.hashCode()).isEqualTo(this.source.hashCode());
+		assertThat(map.get("email")).isEqualTo("spencer@example.com");
+		assertThat(map.containsKey("nickname")).isTrue();
+		assertThat(map.get("missing")).isNull();
+		assertThat(map.get(1)).isNull();
+		assertThat(map.keySet()).containsExactly("age", "email", "name", "nickname");
+	}
+
+	@Test
+	public void ofCompactsNestedValues() {
+		Map<String, Object> address = new LinkedHashMap<>();
+		address.put("city", "London");
+		List<Object> groups = new ArrayList<>(Arrays.asList("admin", Collections.singletonMap("id", 1)));
+		this.source.put("address", address);
+		this.source.put("groups", groups);
+		CompactAttributeMap map = CompactAttributeMap.of(this.source);
+		assertThat(map).isEqualTo(this.source);
+		assertThat(map.get("address")).isInstanceOf(CompactAttributeMap.class);
+		assertThat(((List<?>) map.get("groups")).get(1)).isInstanceOf(CompactAttributeMap.class);
+	}
+
+	@Test
+	public void mapIsImmutable() {
+		this.source.put("name", "spencer");
+		CompactAttributeMap map = CompactAttributeMap.of(this.source);
+		assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> map.put("name", "phil"));
+		assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> map.remove("name"));
+		assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(map::clear);
+		assertThatExceptionOfType(UnsupportedOperationException.class)
+				.isThrownBy(() -> map.entrySet().iterator().next().setValue("phil"));
+	}
+
+	@Test
+	public void ofWhenEmptyReturnsSharedInstance() {
+		assertThat(CompactAttributeMap.of(this.source)).isSameAs(CompactAttributeMap.of(new LinkedHashMap<>()));
+	}
+
+	@Test
+	public void mapIsSerializable() throws IOException, ClassNotFoundException {
+		this.source.put("name", "spencer");
+		this.source.put("groups", Arrays.asList("admin", "user"));
+		CompactAttributeMap map = CompactAttributeMap.of(this.source);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+			output.writeObject(map);
+		}
+		try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			assertThat(input.readObject()).isEqualTo(map);
+		}
+	}
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.util.LinkedMultiValueMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * Tests for {@link FieldSelectingJsonHttpMessageConverter}.
+ */
+public class FieldSelectingJsonHttpMessageConverterTests {
+
+	private final FieldSelectingJsonHttpMessageConverter converter = new FieldSelectingJsonHttpMessageConverter(
+			Arrays.asList("user_name", "scope", "exp", "realm_access.roles", "missing"));
+
+	@Test
+	public void readSelectedFields() throws IOException {
+		Map<String, Object> map = read("{\"user_name\":\"spencer\",\"picture\":{\"large\":[1,2,{\"a\":\"b\"}]},"
+				+ "\"scope\":[\"read\",\"write\"],\"exp\":1234567890123,\"address\":\"somewhere\"}");
+		assertThat(map).containsOnly(entry("user_name", "spencer"), entry("scope", Arrays.asList("read", "write")),
+				entry("exp", 1234567890123L));
+	}
+
+	@Test
+	public void readNestedFields() throws IOException {
+		Map<String, Object> map = read("{\"realm_access\":{\"groups\":[\"a\"],\"roles\":[\"admin\"]},\"exp\":null}");
+		assertThat(map).containsOnly(
+				entry("realm_access", Collections.singletonMap("roles", Collections.singletonList("admin"))),
+				entry("exp", null));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void readWholeObjectWhenParentIsSelected() throws IOException {
+		FieldSelectingJsonHttpMessageConverter converter = new FieldSelectingJsonHttpMessageConverter(
+				Arrays.asList("realm_access.roles", "realm_access"));
+		Map<String, Object> map = read(converter, "{\"realm_access\":{\"groups\":[\"a\"],\"roles\":[\"admin\"]}}");
+		assertThat(map).containsOnlyKeys("realm_access");
+		assertThat((Map<String, Object>) map.get("realm_access")).containsOnlyKeys("groups", "roles");
+	}
+
+	@Test
+	public void readFieldsWithDotsInTheirNames() throws IOException {
+		FieldSelectingJsonHttpMessageConverter converter = FieldSelectingJsonHttpMessageConverter
+				.forPaths(Arrays.asList(Collections.singletonList("https://example.com/roles"),
+						Arrays.asList("realm_access", "roles.v2")));
+		Map<String, Object> map = read(converter, "{\"https://example.com/roles\":[\"admin\"],\"https://example\":1,"
+				+ "\"realm_access\":{\"roles\":[\"a\"],\"roles.v2\":[\"b\"]}}");
+		assertThat(map).containsOnly(entry("https://example.com/roles", Collections.singletonList("admin")),
+				entry("realm_access", Collections.singletonMap("roles.v2", Collections.singletonList("b"))));
+	}
+
+	@Test
+	public void readWhenNotAnObjectThrowsException() {
+		assertThatExceptionOfType(HttpMessageNotReadableException.class).isThrownBy(() -> read("[1,2]"));
+	}
+
+	@Test
+	public void readWhenInvalidThrowsException() {
+		assertThatExceptionOfType(HttpMessageNotReadableException.class)
+				.isThrownBy(() -> read("{\"user_name\":\"spencer\",\"scope\":["));
+	}
+
+	@Test
+	public void cannotWrite() {
+		assertThat(this.converter.canRead(Map.class, MediaType.APPLICATION_JSON)).isTrue();
+		assertThat(this.converter.canRead(String.class, MediaType.APPLICATION_JSON)).isFalse();
+		assertThat(this.converter.canWrite(LinkedMultiValueMap.class, MediaType.APPLICATION_FORM_URLENCODED)).isFalse();
+		assertThat(this.converter.canWrite(Map.class, MediaType.APPLICATION_JSON)).isFalse();
+	}
+
+	private Map<String, Object> read(String json) throws IOException {
+		return read(this.converter, json);
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private Map<String, Object> read(FieldSelectingJsonHttpMessageConverter converter, String json) throws IOException {
+		MockHttpInputMessage message = new MockHttpInputMessage(json.getBytes(StandardCharsets.UTF_8));
+		return converter.read((Class) LinkedHashMap.class, message);
+	}
+
+}
@@ -20,10 +20,14 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.junit.Test;
 
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 /**
@@ -43,6 +47,19 @@ public class FixedAuthoritiesExtractorTests {
 		assertThat(this.extractor.extractAuthorities(this.map).toString()).isEqualTo("[ROLE_ADMIN]");
 	}
 
+	@Test
+	public void authoritiesAreSharedInMutableList() {
+		this.map.put("authorities", "ROLE_USER,ROLE_ADMIN");
+		List<GrantedAuthority> authorities = this.extractor.extractAuthorities(this.map);
+		List<GrantedAuthority> other = this.extractor
+				.extractAuthorities(Collections.singletonMap("authorities", "ROLE_USER,ROLE_ADMIN"));
+		assertThat(other).isNotSameAs(authorities);
+		assertThat(other.get(0)).isSameAs(authorities.get(0));
+		authorities.add(new SimpleGrantedAuthority("ROLE_EXTRA"));
+		assertThat(authorities).hasSize(3);
+		assertThat(other).hasSize(2);
+	}
+
 	@Test
 	public void authoritiesCommaSeparated() {
 		this.map.put("authorities", "ROLE_USER,ROLE_ADMIN");
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link FlightRecorderResourceServerTokenServices} and
+ * {@link FlightRecorderSupport}.
+ */
+public class FlightRecorderResourceServerTokenServicesTests {
+
+	private final ResourceServerTokenServices delegate = mock(ResourceServerTokenServices.class);
+
+	private final Recording recording = new Recording();
+
+	private Path file;
+
+	@Before
+	public void start() throws IOException {
+		this.file = Files.createTempFile("validation", ".jfr");
+		this.recording.enable("org.springframework.security.oauth2.TokenValidation").withThreshold(Duration.ZERO);
+		this.recording.enable("org.springframework.security.oauth2.RemoteEndpoint");
+		this.recording.start();
+	}
+
+	@After
+	public void close() throws IOException {
+		this.recording.close();
+		Files.delete(this.file);
+	}
+
+	@Test
+	public void validationsAreRecordedWithStrategyAndOutcome() throws IOException {
+		given(this.delegate.loadAuthentication("valid")).willReturn(new OAuth2Authentication(
+				new OAuth2Request(null, "client", null, true, null, null, null, null, null), null));
+		given(this.delegate.loadAuthentication("invalid")).willThrow(new InvalidTokenException("invalid"));
+		given(this.delegate.loadAuthentication("error")).willThrow(new IllegalStateException("error"));
+		ResourceServerTokenServices services = new FlightRecorderTokenServicesDecorator().decorate(this.delegate,
+				TokenValidationStrategy.USER_INFO);
+		services.loadAuthentication("valid");
+		assertThatExceptionOfType(InvalidTokenException.class).isThrownBy(() -> services.loadAuthentication("invalid"));
+		assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> services.loadAuthentication("error"));
+		List<RecordedEvent> events = stop();
+		assertThat(events).extracting((event) -> event.getString("strategy")).containsOnly("user-info");
+		assertThat(events).extracting((event) -> event.getString("outcome")).containsExactly("valid", "invalid",
+				"error");
+	}
+
+	@Test
+	public void remoteCallsAreRecorded() throws IOException {
+		FlightRecorderSupport.endRemoteCall(FlightRecorderSupport.beginRemoteCall(), "key-uri",
+				"https://example.com/token_key", true);
+		List<RecordedEvent> events = stop();
+		assertThat(events).hasSize(1);
+		assertThat(events.get(0).getString("endpoint")).isEqualTo("key-uri");
+		assertThat(events.get(0).getString("uri")).isEqualTo("https://example.com/token_key");
+		assertThat(events.get(0).getString("outcome")).isEqualTo("success");
+	}
+
+	private List<RecordedEvent> stop() throws IOException {
+		this.recording.stop();
+		this.recording.dump(this.file);
+		return RecordingFile.readAllEvents(this.file);
+	}
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link JtiRevocationList}.
+ */
+public class JtiRevocationListTests {
+
+	private JtiRevocationList list = new JtiRevocationList();
+
+	@Test
+	public void isRevokedWhenEmpty() {
+		assertThat(this.list.isRevoked("a")).isFalse();
+		assertThat(this.list.isRevoked(null)).isFalse();
+	}
+
+	@Test
+	public void isRevokedWhenListed() {
+		this.list.update(Arrays.asList("a", "b", null));
+		assertThat(this.list.size()).isEqualTo(2);
+		assertThat(this.list.isRevoked("a")).isTrue();
+		assertThat(this.list.isRevoked("b")).isTrue();
+		assertThat(this.list.isRevoked("c")).isFalse();
+	}
+
+	@Test
+	public void updateReplacesContent() {
+		this.list.update(Collections.singletonList("a"));
+		this.list.update(Collections.singletonList("b"));
+		assertThat(this.list.isRevoked("a")).isFalse();
+		assertThat(this.list.isRevoked("b")).isTrue();
+	}
+
+	@Test
+	public void isRevokedWithManyIds() {
+		List<String> jtis = new ArrayList<>();
+		for (int i = 0; i < 10000; i++) {
+			jtis.add("revoked-" + i);
+		}
+		this.list.update(jtis);
+		for (String jti : jtis) {
+			assertThat(this.list.isRevoked(jti)).isTrue();
+		}
+		for (int i = 0; i < 10000; i++) {
+			assertThat(this.list.isRevoked("valid-" + i)).isFalse();
+		}
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.junit.Test;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTests {
+
+	@Test
+	public void percentileWhenEmptyIsZero() {
+		assertThat(new LatencyHistogram(100).getPercentile(0.95)).isZero();
+	}
+
+	@Test
+	public void percentileIsAccurateWithinBucketWidth() {
+		LatencyHistogram histogram = new LatencyHistogram(1000);
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+		}
+		long p95 = TimeUnit.NANOSECONDS.toMillis(histogram.getPercentile(0.95));
+		assertThat(p95).isBetween(95L, 119L);
+		long p50 = TimeUnit.NANOSECONDS.toMillis(histogram.getPercentile(0.5));
+		assertThat(p50).isBetween(50L, 63L);
+	}
+
+	@Test
+	public void decayHalvesCounts() {
+		LatencyHistogram histogram = new LatencyHistogram(10);
+		for (int i = 0; i < 9; i++) {
+			histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+		}
+		assertThat(histogram.getCount()).isEqualTo(9);
+		histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+		assertThat(histogram.getCount()).isEqualTo(5);
+	}
+
+	@Test
+	public void concurrentDecaysKeepCountConsistent() throws Exception {
+		LatencyHistogram histogram = new LatencyHistogram(100);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(() -> {
+					for (int j = 0; j < 20000; j++) {
+						histogram.record(TimeUnit.MICROSECONDS.toNanos(j % 1000));
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		AtomicLongArray buckets = (AtomicLongArray) ReflectionTestUtils.getField(histogram, "buckets");
+		long total = 0;
+		for (int i = 0; i < buckets.length(); i++) {
+			total += buckets.get(i);
+		}
+		assertThat(histogram.getCount()).isEqualTo(total).isLessThan(100);
+	}
+
+	@Test
+	public void bucketsAreContiguous() {
+		for (long micros = 0; micros < 100000; micros++) {
+			int index = LatencyHistogram.index(micros);
+			assertThat(LatencyHistogram.upperBound(index)).isGreaterThan(micros);
+			if (index > 0) {
+				assertThat(LatencyHistogram.upperBound(index - 1)).isLessThanOrEqualTo(micros);
+			}
+		}
+	}
+
+}
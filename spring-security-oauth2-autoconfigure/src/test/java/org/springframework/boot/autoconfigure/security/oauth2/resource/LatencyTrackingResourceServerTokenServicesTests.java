@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link LatencyTrackingTokenServicesDecorator} and
+ * {@link LatencyTrackingResourceServerTokenServices}.
+ */
+public class LatencyTrackingResourceServerTokenServicesTests {
+
+	private final ResourceServerTokenServices delegate = mock(ResourceServerTokenServices.class);
+
+	private final Instant now = Instant.parse("2022-05-01T10:00:00Z");
+
+	@Test
+	public void onlyRemoteTokenServicesAreTracked() {
+		LatencyTrackingTokenServicesDecorator decorator = new LatencyTrackingTokenServicesDecorator();
+		assertThat(decorator.decorate(this.delegate, TokenValidationStrategy.JWT)).isSameAs(this.delegate);
+		assertThat(decorator.decorate(this.delegate, TokenValidationStrategy.TOKEN_INFO))
+				.isInstanceOf(LatencyTrackingResourceServerTokenServices.class);
+		assertThat(decorator.getTokenServices()).containsOnlyKeys(TokenValidationStrategy.TOKEN_INFO);
+	}
+
+	@Test
+	public void rejectedTokensAreSuccessfulCalls() {
+		given(this.delegate.loadAuthentication("invalid")).willThrow(new InvalidTokenException("invalid"));
+		LatencyTrackingResourceServerTokenServices services = createTokenServices();
+		services.loadAuthentication("unknown");
+		assertThatExceptionOfType(InvalidTokenException.class).isThrownBy(() -> services.loadAuthentication("invalid"));
+		assertThat(services.getCallCount()).isEqualTo(2);
+		assertThat(services.getFailureCount()).isZero();
+		assertThat(services.getLastSuccess()).isEqualTo(this.now);
+		assertThat(services.getLastFailure()).isNull();
+		assertThat(services.getLatency(0.99)).isGreaterThan(Duration.ZERO);
+	}
+
+	@Test
+	public void unavailableEndpointIsAFailure() {
+		given(this.delegate.loadAuthentication("token")).willThrow(new TokenServicesUnavailableException("down"));
+		LatencyTrackingResourceServerTokenServices services = createTokenServices();
+		assertThatExceptionOfType(TokenServicesUnavailableException.class)
+				.isThrownBy(() -> services.loadAuthentication("token"));
+		assertThat(services.getCallCount()).isEqualTo(1);
+		assertThat(services.getFailureCount()).isEqualTo(1);
+		assertThat(services.getLastSuccess()).isNull();
+		assertThat(services.getLastFailure()).isEqualTo(this.now);
+	}
+
+	@Test
+	public void latencyIsZeroWithoutCalls() {
+		assertThat(createTokenServices().getLatency(0.5)).isEqualTo(Duration.ZERO);
+	}
+
+	private LatencyTrackingResourceServerTokenServices createTokenServices() {
+		LatencyTrackingResourceServerTokenServices services = new LatencyTrackingResourceServerTokenServices(
+				this.delegate);
+		services.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+		return services;
+	}
+
+}
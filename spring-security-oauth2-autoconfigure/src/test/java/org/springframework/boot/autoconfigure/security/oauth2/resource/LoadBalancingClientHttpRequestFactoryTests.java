@@ -0,0 +1,305 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import org.springframework.boot.autoconfigure.security.oauth2.resource.LoadBalancingClientHttpRequestFactory.Endpoint;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.StreamUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link LoadBalancingClientHttpRequestFactory}.
+ */
+public class LoadBalancingClientHttpRequestFactoryTests {
+
+	private static final URI FIRST = URI.create("https://first.example.com/check_token");
+
+	private static final URI SECOND = URI.create("https://second.example.com/check_token");
+
+	private final List<URI> sent = new CopyOnWriteArrayList<>();
+
+	private final Instant now = Instant.now();
+
+	@Test
+	public void requestsAreSentToAllEndpoints() throws IOException {
+		LoadBalancingClientHttpRequestFactory factory = createFactory(null, null, 0);
+		for (int i = 0; i < 10; i++) {
+			assertThat(execute(factory, URI.create(FIRST + "?token=foo"))).isEqualTo("ok");
+		}
+		assertThat(this.sent).contains(URI.create(FIRST + "?token=foo"), URI.create(SECOND + "?token=foo"));
+	}
+
+	@Test
+	public void requestsPreferFasterEndpoint() throws IOException {
+		LoadBalancingClientHttpRequestFactory factory = createFactory(FIRST, null, 50);
+		for (int i = 0; i < 2; i++) {
+			execute(factory, FIRST);
+		}
+		this.sent.clear();
+		for (int i = 0; i < 5; i++) {
+			execute(factory, FIRST);
+		}
+		assertThat(this.sent).containsOnly(SECOND);
+	}
+
+	@Test
+	public void failingEndpointIsEjected() throws IOException {
+		LoadBalancingClientHttpRequestFactory factory = createFactory(null, FIRST, 0);
+		factory.setEjection(1, Duration.ofSeconds(30));
+		factory.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+		for (int i = 0; i < 2; i++) {
+			try {
+				execute(factory, FIRST);
+			}
+			catch (ConnectException ex) {
+				// Expected once
+			}
+		}
+		Endpoint first = factory.getEndpoints().get(0);
+		assertThat(first.isEjected()).isTrue();
+		this.sent.clear();
+		for (int i = 0; i < 5; i++) {
+			assertThat(execute(factory, FIRST)).isEqualTo("ok");
+		}
+		assertThat(this.sent).containsOnly(SECOND);
+		factory.setClock(Clock.fixed(this.now.plusSeconds(30), ZoneOffset.UTC));
+		assertThat(first.isEjected()).isFalse();
+	}
+
+	@Test
+	public void concurrentFailuresAreAllCounted() throws Exception {
+		LoadBalancingClientHttpRequestFactory factory = new LoadBalancingClientHttpRequestFactory(
+				createDelegate(null, FIRST, 0), Arrays.asList(FIRST));
+		factory.setEjection(800, Duration.ofSeconds(30));
+		factory.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(() -> {
+					for (int j = 0; j < 100; j++) {
+						assertThatExceptionOfType(ConnectException.class).isThrownBy(() -> execute(factory, FIRST));
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertThat(factory.getEndpoints().get(0).isEjected()).isTrue();
+	}
+
+	@Test
+	public void lastEndpointIsNeverEjected() throws IOException {
+		LoadBalancingClientHttpRequestFactory factory = new LoadBalancingClientHttpRequestFactory(
+				createDelegate(null, FIRST, 0), Arrays.asList(FIRST));
+		factory.setEjection(1, Duration.ofSeconds(30));
+		for (int i = 0; i < 2; i++) {
+			try {
+				execute(factory, FIRST);
+			}
+			catch (ConnectException ex) {
+				// Expected
+			}
+		}
+		assertThat(this.sent).containsExactly(FIRST, FIRST);
+	}
+
+	@Test
+	public void slowFailingRequestIsAnsweredByHedge() throws IOException {
+		LoadBalancingClientHttpRequestFactory factory = createFactory(FIRST, FIRST, 200);
+		factory.setHedging(true);
+		factory.setMinHedgeDelay(Duration.ofMillis(20));
+		for (int i = 0; i < 2; i++) {
+			assertThat(execute(factory, FIRST)).isEqualTo("ok");
+		}
+		assertThat(factory.getHedgeCount()).isEqualTo(1);
+		assertThat(this.sent).contains(FIRST, SECOND);
+	}
+
+	@Test
+	public void slowRequestIsBeatenByHedge() throws Exception {
+		AtomicInteger count = new AtomicInteger();
+		List<ClientHttpResponse> closed = new CopyOnWriteArrayList<>();
+		LoadBalancingClientHttpRequestFactory factory = new LoadBalancingClientHttpRequestFactory(
+				(uri, method) -> new MockClientHttpRequest(method, uri) {
+
+					@Override
+					protected ClientHttpResponse executeInternal() throws IOException {
+						LoadBalancingClientHttpRequestFactoryTests.this.sent.add(uri);
+						if (count.getAndIncrement() == 0) {
+							try {
+								Thread.sleep(2000);
+							}
+							catch (InterruptedException ex) {
+								Thread.currentThread().interrupt();
+							}
+						}
+						return new MockClientHttpResponse(uri.getHost().getBytes(StandardCharsets.UTF_8),
+								HttpStatus.OK) {
+
+							@Override
+							public void close() {
+								closed.add(this);
+							}
+
+						};
+					}
+
+				}, Arrays.asList(FIRST, SECOND));
+		factory.setHedging(true);
+		factory.setMinHedgeDelay(Duration.ofMillis(20));
+		long start = System.nanoTime();
+		String host = execute(factory, FIRST);
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+		assertThat(factory.getHedgeCount()).isEqualTo(1);
+		assertThat(this.sent).hasSize(2);
+		assertThat(host).isEqualTo(this.sent.get(1).getHost());
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (closed.size() < 2 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(closed).hasSize(2);
+	}
+
+	@Test
+	public void requestIsSentFromCallingThreadWhenExecutorIsSaturated() throws IOException {
+		Thread caller = Thread.currentThread();
+		List<Thread> threads = new CopyOnWriteArrayList<>();
+		ClientHttpRequestFactory delegate = createDelegate(null, null, 0);
+		LoadBalancingClientHttpRequestFactory factory = new LoadBalancingClientHttpRequestFactory((uri, method) -> {
+			threads.add(Thread.currentThread());
+			return delegate.createRequest(uri, method);
+		}, Arrays.asList(FIRST, SECOND));
+		factory.setHedging(true);
+		// A shut down executor rejects every task
+		ExecutorService saturated = Executors.newSingleThreadExecutor();
+		saturated.shutdown();
+		factory.setExecutor(saturated);
+		assertThat(execute(factory, FIRST)).isEqualTo("ok");
+		assertThat(threads).containsExactly(caller);
+		assertThat(factory.getHedgeCount()).isZero();
+	}
+
+	@Test
+	public void fastRequestIsNotHedged() throws IOException {
+		LoadBalancingClientHttpRequestFactory factory = createFactory(null, null, 0);
+		factory.setHedging(true);
+		factory.setMinHedgeDelay(Duration.ofSeconds(10));
+		for (int i = 0; i < 5; i++) {
+			assertThat(execute(factory, FIRST)).isEqualTo("ok");
+		}
+		assertThat(factory.getHedgeCount()).isZero();
+		assertThat(this.sent).hasSize(5);
+	}
+
+	@Test
+	public void destroyShutsDownDefaultExecutorOnly() {
+		LoadBalancingClientHttpRequestFactory factory = createFactory(null, null, 0);
+		ExecutorService executor = (ExecutorService) ReflectionTestUtils.getField(factory, "executor");
+		factory.destroy();
+		assertThat(executor.isShutdown()).isTrue();
+		ExecutorService custom = Executors.newSingleThreadExecutor();
+		try {
+			factory = createFactory(null, null, 0);
+			factory.setExecutor(custom);
+			factory.destroy();
+			assertThat(custom.isShutdown()).isFalse();
+		}
+		finally {
+			custom.shutdown();
+		}
+	}
+
+	@Test
+	public void hedgeDelayFollowsLatencies() throws IOException {
+		LoadBalancingClientHttpRequestFactory factory = createFactory(FIRST, null, 50);
+		factory.setMinHedgeDelay(Duration.ofMillis(1));
+		execute(factory, FIRST);
+		execute(factory, FIRST);
+		assertThat(factory.getHedgeDelay()).isGreaterThanOrEqualTo(Duration.ofMillis(40));
+	}
+
+	private LoadBalancingClientHttpRequestFactory createFactory(URI slow, URI failing, long delay) {
+		return new LoadBalancingClientHttpRequestFactory(createDelegate(slow, failing, delay),
+				Arrays.asList(FIRST, SECOND));
+	}
+
+	private ClientHttpRequestFactory createDelegate(URI slow, URI failing, long delay) {
+		return (uri, method) -> new MockClientHttpRequest(method, uri) {
+
+			@Override
+			protected ClientHttpResponse executeInternal() throws IOException {
+				LoadBalancingClientHttpRequestFactoryTests.this.sent.add(uri);
+				if (uri.getHost().equals((slow != null) ? slow.getHost() : null)) {
+					try {
+						Thread.sleep(delay);
+					}
+					catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				if (uri.getHost().equals((failing != null) ? failing.getHost() : null)) {
+					throw new ConnectException("Connection refused");
+				}
+				return new MockClientHttpResponse("ok".getBytes(StandardCharsets.UTF_8), HttpStatus.OK);
+			}
+
+		};
+	}
+
+	private String execute(ClientHttpRequestFactory factory, URI uri) throws IOException {
+		ClientHttpRequest request = factory.createRequest(uri, HttpMethod.POST);
+		request.getBody().write("token=foo".getBytes(StandardCharsets.UTF_8));
+		try (ClientHttpResponse response = request.execute()) {
+			return StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8);
+		}
+	}
+
+}
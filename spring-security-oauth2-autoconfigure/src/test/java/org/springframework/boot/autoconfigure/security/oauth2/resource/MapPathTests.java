@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link MapPath}.
+ */
+public class MapPathTests {
+
+	private Map<String, Object> map = new LinkedHashMap<>();
+
+	@Test
+	public void resolveTopLevelField() {
+		this.map.put("login", "spencer");
+		assertThat(MapPath.compile("/login").resolve(this.map)).isEqualTo("spencer");
+		assertThat(MapPath.compile("login").resolve(this.map)).isEqualTo("spencer");
+	}
+
+	@Test
+	public void resolveNestedFieldAndIndex() {
+		this.map.put("groups", Arrays.asList(Collections.singletonMap("name", "admin")));
+		MapPath path = MapPath.compile("/groups/0/name");
+		assertThat(path.getRoot()).isEqualTo("groups");
+		assertThat(path.resolve(this.map)).isEqualTo("admin");
+		assertThat(MapPath.compile("/groups/1/name").resolve(this.map)).isNull();
+		assertThat(MapPath.compile("/groups/01/name").resolve(this.map)).isNull();
+	}
+
+	@Test
+	public void resolveEscapedField() {
+		this.map.put("https://example.com/roles", Collections.singletonMap("a~b", "admin"));
+		assertThat(MapPath.compile("/https:~1~1example.com~1roles/a~0b").resolve(this.map)).isEqualTo("admin");
+	}
+
+	@Test
+	public void resolveMissingField() {
+		this.map.put("login", "spencer");
+		assertThat(MapPath.compile("/login/name").resolve(this.map)).isNull();
+		assertThat(MapPath.compile("/name").resolve(this.map)).isNull();
+	}
+
+	@Test
+	public void compileEmptyPointer() {
+		assertThatIllegalArgumentException().isThrownBy(() -> MapPath.compile(""));
+	}
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.time.Duration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link MetricsTokenServicesDecorator} and
+ * {@link MetricsResourceServerTokenServices}.
+ */
+public class MetricsTokenServicesDecoratorTests {
+
+	private final MeterRegistry registry = new SimpleMeterRegistry();
+
+	private final ResourceServerTokenServices delegate = mock(ResourceServerTokenServices.class);
+
+	@Test
+	public void validationsAreTimedByStrategyAndOutcome() {
+		OAuth2Authentication authentication = new OAuth2Authentication(
+				new OAuth2Request(null, "client", null, true, null, null, null, null, null), null);
+		given(this.delegate.loadAuthentication("valid")).willReturn(authentication);
+		given(this.delegate.loadAuthentication("invalid")).willThrow(new InvalidTokenException("invalid"));
+		given(this.delegate.loadAuthentication("error")).willThrow(new IllegalStateException("error"));
+		given(this.delegate.loadAuthentication("unavailable"))
+				.willThrow(new TokenServicesUnavailableException("unavailable"));
+		ResourceServerTokenServices services = new MetricsTokenServicesDecorator(this.registry, null)
+				.decorate(this.delegate, TokenValidationStrategy.TOKEN_INFO);
+		assertThat(services.loadAuthentication("valid")).isSameAs(authentication);
+		assertThat(services.loadAuthentication("unknown")).isNull();
+		assertThatExceptionOfType(InvalidTokenException.class).isThrownBy(() -> services.loadAuthentication("invalid"));
+		assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> services.loadAuthentication("error"));
+		assertThatExceptionOfType(TokenServicesUnavailableException.class)
+				.isThrownBy(() -> services.loadAuthentication("unavailable"));
+		assertThat(count("valid")).isEqualTo(1);
+		assertThat(count("invalid")).isEqualTo(2);
+		assertThat(count("error")).isEqualTo(2);
+	}
+
+	@Test
+	public void cachesAreMeasured() {
+		given(this.delegate.loadAuthentication("alice")).willReturn(new OAuth2Authentication(
+				new OAuth2Request(null, "client", null, true, null, null, null, null, null), null));
+		CachingTokenServicesDecorator cachingDecorator = new CachingTokenServicesDecorator(Duration.ofMinutes(1), 10);
+		MetricsTokenServicesDecorator metricsDecorator = new MetricsTokenServicesDecorator(this.registry,
+				cachingDecorator);
+		ResourceServerTokenServices services = cachingDecorator.decorate(
+				metricsDecorator.decorate(this.delegate, TokenValidationStrategy.USER_INFO),
+				TokenValidationStrategy.USER_INFO);
+		services.loadAuthentication("alice");
+		services.loadAuthentication("alice");
+		services.loadAuthentication("alice");
+		assertThat(this.registry.get(MetricsTokenServicesDecorator.CACHE_REQUESTS_METRIC).tag("strategy", "user-info")
+				.tag("result", "hit").functionCounter().count()).isEqualTo(2);
+		assertThat(this.registry.get(MetricsTokenServicesDecorator.CACHE_REQUESTS_METRIC).tag("strategy", "user-info")
+				.tag("result", "miss").functionCounter().count()).isEqualTo(1);
+		assertThat(this.registry.get(MetricsTokenServicesDecorator.CACHE_SIZE_METRIC).tag("strategy", "user-info")
+				.gauge().value()).isEqualTo(1);
+		assertThat(this.registry.get(MetricsResourceServerTokenServices.VALIDATION_METRIC).tag("strategy", "user-info")
+				.tag("outcome", "valid").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	public void localStrategiesAreNotCached() {
+		CachingTokenServicesDecorator cachingDecorator = new CachingTokenServicesDecorator(Duration.ofMinutes(1), 10);
+		new MetricsTokenServicesDecorator(this.registry, cachingDecorator).decorate(this.delegate,
+				TokenValidationStrategy.JWT);
+		assertThat(this.registry.find(MetricsTokenServicesDecorator.CACHE_SIZE_METRIC).gauges()).isEmpty();
+		assertThat(
+				this.registry.get(MetricsResourceServerTokenServices.VALIDATION_METRIC).tag("strategy", "jwt").timers())
+						.hasSize(3);
+	}
+
+	private long count(String outcome) {
+		return this.registry.get(MetricsResourceServerTokenServices.VALIDATION_METRIC).tag("strategy", "token-info")
+				.tag("outcome", outcome).timer().count();
+	}
+
+}
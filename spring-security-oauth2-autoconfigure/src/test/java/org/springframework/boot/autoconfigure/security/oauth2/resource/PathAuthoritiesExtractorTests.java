@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link PathAuthoritiesExtractor}.
+ */
+public class PathAuthoritiesExtractorTests {
+
+	private PathAuthoritiesExtractor extractor = new PathAuthoritiesExtractor("/realm_access/roles");
+
+	private Map<String, Object> map = new LinkedHashMap<>();
+
+	@Test
+	public void authoritiesList() {
+		this.map.put("realm_access", Collections.singletonMap("roles", Arrays.asList("ROLE_USER", "ROLE_ADMIN")));
+		assertThat(this.extractor.extractAuthorities(this.map).toString()).isEqualTo("[ROLE_USER, ROLE_ADMIN]");
+	}
+
+	@Test
+	public void authoritiesCommaSeparated() {
+		this.map.put("realm_access", Collections.singletonMap("roles", "ROLE_USER, ROLE_ADMIN"));
+		assertThat(this.extractor.extractAuthorities(this.map).toString()).isEqualTo("[ROLE_USER, ROLE_ADMIN]");
+	}
+
+	@Test
+	public void authoritiesMaps() {
+		Map<String, Object> admin = new LinkedHashMap<>();
+		admin.put("id", 1);
+		admin.put("role", "ROLE_ADMIN");
+		this.map.put("realm_access",
+				Collections.singletonMap("roles", Arrays.asList(Collections.singletonMap("name", "ROLE_USER"), admin)));
+		assertThat(this.extractor.extractAuthorities(this.map).toString()).isEqualTo("[ROLE_USER, ROLE_ADMIN]");
+	}
+
+	@Test
+	public void authoritiesArray() {
+		this.map.put("realm_access", Collections.singletonMap("roles", new String[] { "ROLE_ADMIN" }));
+		assertThat(this.extractor.extractAuthorities(this.map).toString()).isEqualTo("[ROLE_ADMIN]");
+	}
+
+	@Test
+	public void authoritiesMissing() {
+		this.map.put("realm_access", Collections.singletonMap("groups", Arrays.asList("admin")));
+		assertThat(this.extractor.extractAuthorities(this.map).toString()).isEqualTo("[ROLE_USER]");
+	}
+
+}
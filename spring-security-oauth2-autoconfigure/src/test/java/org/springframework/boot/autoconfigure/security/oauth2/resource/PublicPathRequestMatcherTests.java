@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link PublicPathRequestMatcher}.
+ */
+public class PublicPathRequestMatcherTests {
+
+	private final PublicPathRequestMatcher matcher = new PublicPathRequestMatcher(
+			Arrays.asList("/favicon.ico", "/actuator/health/**", "/static/**", "/docs/*.html"));
+
+	@Test
+	public void matchesExactPath() {
+		assertThat(matches("/favicon.ico")).isTrue();
+		assertThat(matches("/favicon.ico/")).isFalse();
+		assertThat(matches("/favicon")).isFalse();
+		assertThat(matches("/favicon.icon")).isFalse();
+	}
+
+	@Test
+	public void matchesPrefix() {
+		assertThat(matches("/actuator/health")).isTrue();
+		assertThat(matches("/actuator/health/")).isTrue();
+		assertThat(matches("/actuator/health/liveness")).isTrue();
+		assertThat(matches("/actuator/healthy")).isFalse();
+		assertThat(matches("/actuator")).isFalse();
+		assertThat(matches("/static/css/site.css")).isTrue();
+		assertThat(matches("/api/static")).isFalse();
+	}
+
+	@Test
+	public void matchesOtherPatterns() {
+		assertThat(matches("/docs/index.html")).isTrue();
+		assertThat(matches("/docs/api/index.html")).isFalse();
+	}
+
+	@Test
+	public void matchesServletPathAndPathInfo() {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setServletPath("/actuator");
+		request.setPathInfo("/health/readiness");
+		assertThat(this.matcher.matches(request)).isTrue();
+		request.setPathInfo("/info");
+		assertThat(this.matcher.matches(request)).isFalse();
+	}
+
+	@Test
+	public void matchesEverything() {
+		PublicPathRequestMatcher matcher = new PublicPathRequestMatcher(Collections.singletonList("/**"));
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setServletPath("/api/resource");
+		assertThat(matcher.matches(request)).isTrue();
+	}
+
+	@Test
+	public void pathMustStartWithSlash() {
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> new PublicPathRequestMatcher(Collections.singletonList("static/**")));
+	}
+
+	private boolean matches(String path) {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setServletPath(path);
+		return this.matcher.matches(request);
+	}
+
+}
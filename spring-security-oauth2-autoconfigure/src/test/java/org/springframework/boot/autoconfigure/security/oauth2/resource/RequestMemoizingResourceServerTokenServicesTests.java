@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.util.Collections;
+
+import javax.servlet.http.HttpServletRequestWrapper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link RequestMemoizingResourceServerTokenServices}.
+ */
+public class RequestMemoizingResourceServerTokenServicesTests {
+
+	private final ResourceServerTokenServices delegate = mock(ResourceServerTokenServices.class);
+
+	private final RequestMemoizingResourceServerTokenServices services = new RequestMemoizingResourceServerTokenServices(
+			this.delegate, "test.authentication");
+
+	private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+	@Before
+	public void init() {
+		given(this.delegate.loadAuthentication(anyString()))
+				.willAnswer((invocation) -> authentication(invocation.getArgument(0)));
+		given(this.delegate.loadAuthentication("invalid")).willThrow(new InvalidTokenException("invalid"));
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(this.request));
+	}
+
+	@After
+	public void close() {
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	@Test
+	public void loadAuthenticationIsMemoizedForTheRequest() {
+		OAuth2Authentication authentication = this.services.loadAuthentication("alice");
+		RequestContextHolder
+				.setRequestAttributes(new ServletRequestAttributes(new HttpServletRequestWrapper(this.request)));
+		assertThat(this.services.loadAuthentication("alice")).isSameAs(authentication);
+		verify(this.delegate).loadAuthentication("alice");
+	}
+
+	@Test
+	public void loadAuthenticationWithOtherTokenCallsDelegate() {
+		this.services.loadAuthentication("alice");
+		this.services.loadAuthentication("bob");
+		this.services.loadAuthentication("alice");
+		verify(this.delegate, times(2)).loadAuthentication("alice");
+		verify(this.delegate).loadAuthentication("bob");
+	}
+
+	@Test
+	public void invalidTokenIsMemoizedForTheRequest() {
+		assertThatExceptionOfType(InvalidTokenException.class)
+				.isThrownBy(() -> this.services.loadAuthentication("invalid"));
+		assertThatExceptionOfType(InvalidTokenException.class)
+				.isThrownBy(() -> this.services.loadAuthentication("invalid"));
+		verify(this.delegate).loadAuthentication("invalid");
+	}
+
+	@Test
+	public void loadAuthenticationWithoutRequestCallsDelegate() {
+		RequestContextHolder.resetRequestAttributes();
+		this.services.loadAuthentication("alice");
+		this.services.loadAuthentication("alice");
+		verify(this.delegate, times(2)).loadAuthentication("alice");
+	}
+
+	@Test
+	public void loadAuthenticationInNewRequestCallsDelegate() {
+		this.services.loadAuthentication("alice");
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+		this.services.loadAuthentication("alice");
+		verify(this.delegate, times(2)).loadAuthentication("alice");
+	}
+
+	private OAuth2Authentication authentication(String name) {
+		OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "client", null, true, null, null, null, null,
+				null);
+		return new OAuth2Authentication(request,
+				new UsernamePasswordAuthenticationToken(name, "N/A", AuthorityUtils.createAuthorityList("ROLE_USER")));
+	}
+
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.springframework.boot.autoconfigure.security.oauth2.resource.TokenServicesCircuitBreaker.Permission;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.TokenServicesCircuitBreaker.State;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.web.client.ResourceAccessException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link ResilientResourceServerTokenServices}.
+ */
+public class ResilientResourceServerTokenServicesTests {
+
+	private final Instant now = Instant.now();
+
+	private ResourceServerTokenServices delegate = mock(ResourceServerTokenServices.class);
+
+	private TokenServicesCircuitBreaker circuitBreaker = new TokenServicesCircuitBreaker(2, Duration.ofSeconds(10));
+
+	private ResilientResourceServerTokenServices services = new ResilientResourceServerTokenServices(this.delegate, 1,
+			Duration.ZERO, this.circuitBreaker);
+
+	@Test
+	public void invalidTokenDoesNotOpenCircuitBreaker() {
+		given(this.delegate.loadAuthentication("token")).willThrow(new InvalidTokenException("token"));
+		for (int i = 0; i < 3; i++) {
+			assertThatExceptionOfType(InvalidTokenException.class)
+					.isThrownBy(() -> this.services.loadAuthentication("token"));
+		}
+		assertThat(this.circuitBreaker.getState()).isEqualTo(State.CLOSED);
+	}
+
+	@Test
+	public void failuresOpenCircuitBreaker() {
+		this.circuitBreaker.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+		given(this.delegate.loadAuthentication("token")).willThrow(new ResourceAccessException("timeout"));
+		for (int i = 0; i < 3; i++) {
+			assertThatExceptionOfType(TokenServicesUnavailableException.class)
+					.isThrownBy(() -> this.services.loadAuthentication("token"));
+		}
+		assertThat(this.circuitBreaker.getState()).isEqualTo(State.OPEN);
+		verify(this.delegate, times(2)).loadAuthentication("token");
+	}
+
+	@Test
+	public void probeClosesCircuitBreaker() {
+		this.circuitBreaker.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+		open(this.circuitBreaker);
+		this.circuitBreaker.setClock(Clock.fixed(this.now.plusSeconds(10), ZoneOffset.UTC));
+		Permission probe = this.circuitBreaker.tryAcquirePermission();
+		assertThat(probe).isNotNull();
+		assertThat(this.circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+		assertThat(this.circuitBreaker.tryAcquirePermission()).isNull();
+		probe.onSuccess();
+		assertThat(this.circuitBreaker.getState()).isEqualTo(State.CLOSED);
+	}
+
+	@Test
+	public void failedProbeReopensCircuitBreaker() {
+		this.circuitBreaker.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+		open(this.circuitBreaker);
+		this.circuitBreaker.setClock(Clock.fixed(this.now.plusSeconds(10), ZoneOffset.UTC));
+		this.circuitBreaker.tryAcquirePermission().onFailure();
+		assertThat(this.circuitBreaker.getState()).isEqualTo(State.OPEN);
+		assertThat(this.circuitBreaker.tryAcquirePermission()).isNull();
+	}
+
+	@Test
+	public void releasedProbeLetsAnotherProbeThrough() {
+		this.circuitBreaker.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+		open(this.circuitBreaker);
+		this.circuitBreaker.setClock(Clock.fixed(this.now.plusSeconds(10), ZoneOffset.UTC));
+		Permission probe = this.circuitBreaker.tryAcquirePermission();
+		probe.release();
+		assertThat(this.circuitBreaker.getState()).isEqualTo(State.OPEN);
+		Permission next = this.circuitBreaker.tryAcquirePermission();
+		assertThat(next).isNotNull();
+		probe.onSuccess();
+		assertThat(this.circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+	}
+
+	@Test
+	public void concurrentCallsAfterOpenDurationGrantSingleProbe() throws Exception {
+		TokenServicesCircuitBreaker circuitBreaker = new TokenServicesCircuitBreaker(1, Duration.ZERO);
+		for (int round = 0; round < 50; round++) {
+			open(circuitBreaker);
+			CountDownLatch start = new CountDownLatch(1);
+			List<CompletableFuture<Permission>> calls = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				calls.add(CompletableFuture.supplyAsync(() -> {
+					awaitUninterruptibly(start);
+					return circuitBreaker.tryAcquirePermission();
+				}));
+			}
+			start.countDown();
+			List<Permission> probes = new ArrayList<>();
+			for (CompletableFuture<Permission> call : calls) {
+				probes.add(call.get(10, TimeUnit.SECONDS));
+			}
+			probes.removeIf(Objects::isNull);
+			assertThat(probes).hasSize(1);
+			probes.get(0).onFailure();
+		}
+	}
+
+	@Test
+	public void successOfCallAdmittedWhileClosedDoesNotCloseOpenedCircuitBreaker() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		given(this.delegate.loadAuthentication("slow")).willAnswer((invocation) -> {
+			started.countDown();
+			release.await();
+			return null;
+		});
+		given(this.delegate.loadAuthentication("token")).willThrow(new ResourceAccessException("timeout"));
+		ResilientResourceServerTokenServices services = new ResilientResourceServerTokenServices(this.delegate, 3,
+				Duration.ZERO, this.circuitBreaker);
+		CompletableFuture<?> slow = CompletableFuture.runAsync(() -> services.loadAuthentication("slow"));
+		assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+		for (int i = 0; i < 2; i++) {
+			assertThatExceptionOfType(TokenServicesUnavailableException.class)
+					.isThrownBy(() -> services.loadAuthentication("token"));
+		}
+		assertThat(this.circuitBreaker.getState()).isEqualTo(State.OPEN);
+		release.countDown();
+		slow.get(10, TimeUnit.SECONDS);
+		assertThat(this.circuitBreaker.getState()).isEqualTo(State.OPEN);
+	}
+
+	@Test
+	public void failureOfCallAdmittedBeforeProbeIsIgnored() {
+		this.circuitBreaker.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+		Permission stale = this.circuitBreaker.tryAcquirePermission();
+		open(this.circuitBreaker);
+		this.circuitBreaker.setClock(Clock.fixed(this.now.plusSeconds(10), ZoneOffset.UTC));
+		this.circuitBreaker.tryAcquirePermission().onSuccess();
+		stale.onFailure();
+		this.circuitBreaker.tryAcquirePermission().onFailure();
+		assertThat(this.circuitBreaker.getState()).isEqualTo(State.CLOSED);
+	}
+
+	@Test
+	public void bulkheadRejectsConcurrentCalls() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		given(this.delegate.loadAuthentication("slow")).willAnswer((invocation) -> {
+			started.countDown();
+			release.await();
+			return null;
+		});
+		Thread thread = new Thread(() -> this.services.loadAuthentication("slow"));
+		thread.start();
+		started.await();
+		assertThatExceptionOfType(TokenServicesUnavailableException.class)
+				.isThrownBy(() -> this.services.loadAuthentication("other"));
+		release.countDown();
+		thread.join();
+		assertThat(this.services.getAvailableCalls()).isEqualTo(1);
+	}
+
+	private static void open(TokenServicesCircuitBreaker circuitBreaker) {
+		while (circuitBreaker.getState() != State.OPEN) {
+			circuitBreaker.tryAcquirePermission().onFailure();
+		}
+	}
+
+	private static void awaitUninterruptibly(CountDownLatch latch) {
+		try {
+			latch.await();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2017 the original author or authors.
+ * Copyright 2012-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -109,6 +109,26 @@ public class ResourceServerPropertiesTests {
 		verifyNoInteractions(this.errors);
 	}
 
+	@Test
+	public void validateWhenHybridAndTokenInfoUriAbsentShouldFail() throws Exception {
+		this.properties.getJwt().setKeyValue("my-key");
+		this.properties.setHybrid(true);
+		setListableBeanFactory();
+		this.thrown.expect(IllegalStateException.class);
+		this.thrown.expect(getMatcher("Missing tokenInfoUri for hybrid token validation", "tokenInfoUri"));
+		this.properties.validate();
+	}
+
+	@Test
+	public void validateWhenHybridAndTokenInfoUriPresentShouldSucceed() throws Exception {
+		this.properties.getJwt().setKeyValue("my-key");
+		this.properties.setTokenInfoUri("https://idp.example.com/check_token");
+		this.properties.setHybrid(true);
+		setListableBeanFactory();
+		this.properties.validate();
+		verifyNoInteractions(this.errors);
+	}
+
 	@Test
 	public void validateWhenKeysUriOrValuePresentAndUserInfoAbsentShouldNotFail() throws Exception {
 		this.properties = new ResourceServerProperties("client", "");
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2019 the original author or authors.
+ * Copyright 2012-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,17 @@
 
 package org.springframework.boot.autoconfigure.security.oauth2.resource;
 
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.After;
 import org.junit.Rule;
 import org.junit.Test;
@@ -28,6 +39,7 @@ import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
 import org.springframework.boot.autoconfigure.security.oauth2.OAuth2ClientProperties;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.LoadBalancingClientHttpRequestFactory.Endpoint;
 import org.springframework.boot.autoconfigure.security.oauth2.client.OAuth2RestOperationsConfiguration;
 import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -42,6 +54,8 @@ import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.env.StandardEnvironment;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
 import org.springframework.mock.http.client.MockClientHttpResponse;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.authority.AuthorityUtils;
@@ -61,6 +75,7 @@ import org.springframework.social.autoconfigure.SocialWebAutoConfiguration;
 import org.springframework.social.connect.ConnectionFactoryLocator;
 import org.springframework.social.facebook.autoconfigure.FacebookAutoConfiguration;
 import org.springframework.stereotype.Component;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.RestTemplate;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -106,6 +121,145 @@ public class ResourceServerTokenServicesConfigurationTests {
 		assertThat(services).isNotNull();
 	}
 
+	@Test
+	public void useLoadBalancedRemoteTokenServices() {
+		TestPropertyValues
+				.of("security.oauth2.resource.tokenInfoUri:https://first.example.com, https://second.example.com",
+						"security.oauth2.resource.load-balancing.hedging=true")
+				.applyTo(this.environment);
+		this.context = new SpringApplicationBuilder(ResourceConfiguration.class).environment(this.environment)
+				.web(WebApplicationType.NONE).run();
+		RemoteTokenServices services = this.context.getBean(RemoteTokenServices.class);
+		assertThat(ReflectionTestUtils.getField(services, "checkTokenEndpointUrl"))
+				.isEqualTo("https://first.example.com");
+		RestTemplate restTemplate = (RestTemplate) ReflectionTestUtils.getField(services, "restTemplate");
+		assertThat(restTemplate.getRequestFactory()).isInstanceOf(LoadBalancingClientHttpRequestFactory.class);
+		LoadBalancingClientHttpRequestFactory requestFactory = (LoadBalancingClientHttpRequestFactory) restTemplate
+				.getRequestFactory();
+		assertThat(requestFactory.getEndpoints()).extracting(Endpoint::getUri)
+				.containsExactly(URI.create("https://first.example.com"), URI.create("https://second.example.com"));
+		ExecutorService executor = (ExecutorService) ReflectionTestUtils.getField(requestFactory, "executor");
+		this.context.close();
+		assertThat(executor.isShutdown()).isTrue();
+	}
+
+	@Test
+	public void useFieldSelectingRemoteTokenServices() {
+		TestPropertyValues.of("security.oauth2.resource.tokenInfoUri:https://example.com",
+				"security.oauth2.resource.field-selection.enabled=true").applyTo(this.environment);
+		this.context = new SpringApplicationBuilder(ResourceConfiguration.class).environment(this.environment)
+				.web(WebApplicationType.NONE).run();
+		RemoteTokenServices services = this.context.getBean(RemoteTokenServices.class);
+		RestTemplate restTemplate = (RestTemplate) ReflectionTestUtils.getField(services, "restTemplate");
+		assertThat(restTemplate.getMessageConverters().get(0))
+				.isInstanceOf(FieldSelectingJsonHttpMessageConverter.class);
+	}
+
+	@Test
+	public void useCachingRemoteTokenServices() {
+		TestPropertyValues.of("security.oauth2.resource.tokenInfoUri:https://example.com",
+				"security.oauth2.resource.cache.enabled=true").applyTo(this.environment);
+		this.context = new SpringApplicationBuilder(ResourceConfiguration.class).environment(this.environment)
+				.web(WebApplicationType.NONE).run();
+		ResourceServerTokenServices services = this.context.getBean(ResourceServerTokenServices.class);
+		assertThat(services).isInstanceOf(CachingResourceServerTokenServices.class);
+		assertThat(services).extracting("delegate").isInstanceOf(RemoteTokenServices.class);
+		assertThat(this.context.getBean(CachingTokenServicesDecorator.class).getCaches())
+				.containsEntry(TokenValidationStrategy.TOKEN_INFO, (CachingResourceServerTokenServices) services);
+	}
+
+	@Test
+	public void useCompactAuthoritiesRemoteTokenServices() {
+		TestPropertyValues.of("security.oauth2.resource.tokenInfoUri:https://example.com",
+				"security.oauth2.resource.compact-authorities.enabled=true",
+				"security.oauth2.resource.cache.enabled=true").applyTo(this.environment);
+		this.context = new SpringApplicationBuilder(ResourceConfiguration.class).environment(this.environment)
+				.web(WebApplicationType.NONE).run();
+		ResourceServerTokenServices services = this.context.getBean(ResourceServerTokenServices.class);
+		assertThat(services).isInstanceOf(CachingResourceServerTokenServices.class);
+		assertThat(services).extracting("delegate").isInstanceOf(CompactAuthoritiesResourceServerTokenServices.class)
+				.extracting("delegate").isInstanceOf(RemoteTokenServices.class);
+	}
+
+	@Test
+	public void useRequestMemoizingRemoteTokenServices() {
+		TestPropertyValues.of("security.oauth2.resource.tokenInfoUri:https://example.com",
+				"security.oauth2.resource.request-memoization.enabled=true",
+				"security.oauth2.resource.cache.enabled=true").applyTo(this.environment);
+		this.context = new SpringApplicationBuilder(ResourceConfiguration.class).environment(this.environment)
+				.web(WebApplicationType.NONE).run();
+		ResourceServerTokenServices services = this.context.getBean(ResourceServerTokenServices.class);
+		assertThat(services).isInstanceOf(RequestMemoizingResourceServerTokenServices.class);
+		assertThat(services).extracting("delegate").isInstanceOf(CachingResourceServerTokenServices.class);
+	}
+
+	@Test
+	public void useFlightRecorderRemoteTokenServices() {
+		TestPropertyValues.of("security.oauth2.resource.tokenInfoUri:https://example.com",
+				"security.oauth2.resource.flight-recorder.enabled=true").applyTo(this.environment);
+		this.context = new SpringApplicationBuilder(ResourceConfiguration.class).environment(this.environment)
+				.web(WebApplicationType.NONE).run();
+		ResourceServerTokenServices services = this.context.getBean(ResourceServerTokenServices.class);
+		assertThat(services).isInstanceOf(FlightRecorderResourceServerTokenServices.class);
+		assertThat(services).extracting("delegate").isInstanceOf(RemoteTokenServices.class);
+	}
+
+	@Test
+	public void useServerTimingRemoteTokenServices() {
+		TestPropertyValues.of("security.oauth2.resource.tokenInfoUri:https://example.com",
+				"security.oauth2.resource.cache.enabled=true", "security.oauth2.resource.server-timing.enabled=true")
+				.applyTo(this.environment);
+		this.context = new SpringApplicationBuilder(ResourceConfiguration.class).environment(this.environment)
+				.web(WebApplicationType.NONE).run();
+		ResourceServerTokenServices services = this.context.getBean(ResourceServerTokenServices.class);
+		assertThat(services).isInstanceOf(ServerTimingResourceServerTokenServices.class);
+		assertThat(services).extracting("delegate").isInstanceOf(CachingResourceServerTokenServices.class);
+	}
+
+	@Test
+	public void useMetricsRemoteTokenServices() {
+		TestPropertyValues.of("security.oauth2.resource.tokenInfoUri:https://example.com",
+				"security.oauth2.resource.cache.enabled=true").applyTo(this.environment);
+		this.context = new SpringApplicationBuilder(MeterRegistryConfiguration.class, ResourceConfiguration.class)
+				.environment(this.environment).web(WebApplicationType.NONE).run();
+		ResourceServerTokenServices services = this.context.getBean(ResourceServerTokenServices.class);
+		assertThat(services).isInstanceOf(CachingResourceServerTokenServices.class);
+		assertThat(services).extracting("delegate").isInstanceOf(MetricsResourceServerTokenServices.class);
+		assertThat(this.context.getBean(MeterRegistry.class).find(MetricsTokenServicesDecorator.CACHE_SIZE_METRIC)
+				.tag("strategy", "token-info").gauge()).isNotNull();
+	}
+
+	@Test
+	public void metricsCanBeDisabled() {
+		TestPropertyValues.of("security.oauth2.resource.tokenInfoUri:https://example.com",
+				"security.oauth2.resource.metrics.enabled=false").applyTo(this.environment);
+		this.context = new SpringApplicationBuilder(MeterRegistryConfiguration.class, ResourceConfiguration.class)
+				.environment(this.environment).web(WebApplicationType.NONE).run();
+		assertThat(this.context.getBean(ResourceServerTokenServices.class)).isInstanceOf(RemoteTokenServices.class);
+	}
+
+	@Test
+	public void noMetricsWithoutMeterRegistry() {
+		TestPropertyValues.of("security.oauth2.resource.tokenInfoUri:https://example.com").applyTo(this.environment);
+		this.context = new SpringApplicationBuilder(ResourceConfiguration.class).environment(this.environment)
+				.web(WebApplicationType.NONE).run();
+		assertThat(this.context.getBean(ResourceServerTokenServices.class)).isInstanceOf(RemoteTokenServices.class);
+	}
+
+	@Test
+	public void preValidateRemoteTokenServices() {
+		TestPropertyValues.of("security.oauth2.resource.tokenInfoUri:https://example.com",
+				"security.oauth2.resource.pre-validation.enabled=true", "security.oauth2.resource.cache.enabled=true")
+				.applyTo(this.environment);
+		this.context = new SpringApplicationBuilder(ResourceConfiguration.class).environment(this.environment)
+				.web(WebApplicationType.NONE).run();
+		ResourceServerTokenServices services = this.context.getBean(ResourceServerTokenServices.class);
+		assertThat(services).isInstanceOf(PreValidatingResourceServerTokenServices.class);
+		assertThat(services).extracting("delegate").isInstanceOf(CachingResourceServerTokenServices.class);
+		this.thrown.expect(InvalidTokenException.class);
+		services.loadAuthentication("not a token");
+	}
+
 	@Test
 	public void overrideRemoteTokenServices() {
 		TestPropertyValues.of("security.oauth2.resource.tokenInfoUri:https://example.com").applyTo(this.environment);
@@ -126,6 +280,49 @@ public class ResourceServerTokenServicesConfigurationTests {
 		assertThat(services).isNotNull();
 	}
 
+	@Test
+	public void userInfoWithDetailsAttributes() {
+		TestPropertyValues.of("security.oauth2.resource.userInfoUri:https://example.com",
+				"security.oauth2.resource.details.attributes=name,email").applyTo(this.environment);
+		this.context = new SpringApplicationBuilder(ResourceConfiguration.class).environment(this.environment)
+				.web(WebApplicationType.NONE).run();
+		UserInfoTokenServices services = this.context.getBean(UserInfoTokenServices.class);
+		assertThat(services).extracting("detailsExtractor").isInstanceOf(AllowlistDetailsExtractor.class);
+	}
+
+	@Test
+	public void userInfoWithPaths() {
+		TestPropertyValues.of("security.oauth2.resource.userInfoUri:https://example.com",
+				"security.oauth2.resource.principal-path=/preferred_username",
+				"security.oauth2.resource.authorities-path=/realm_access/roles").applyTo(this.environment);
+		this.context = new SpringApplicationBuilder(ResourceConfiguration.class).environment(this.environment)
+				.web(WebApplicationType.NONE).run();
+		UserInfoTokenServices services = this.context.getBean(UserInfoTokenServices.class);
+		assertThat(services).extracting("principalExtractor").isInstanceOf(PathPrincipalExtractor.class);
+		assertThat(services).extracting("authoritiesExtractor").isInstanceOf(PathAuthoritiesExtractor.class);
+	}
+
+	@Test
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void userInfoWithFieldSelectionKeepsNamespacedClaimsAndAttributes() throws Exception {
+		TestPropertyValues
+				.of("security.oauth2.resource.userInfoUri:https://example.com",
+						"security.oauth2.resource.field-selection.enabled=true",
+						"security.oauth2.resource.details.attributes=urn.example.tenant",
+						"security.oauth2.resource.authorities-path=/https:~1~1example.com~1roles")
+				.applyTo(this.environment);
+		this.context = new SpringApplicationBuilder(ResourceConfiguration.class).environment(this.environment)
+				.web(WebApplicationType.NONE).run();
+		UserInfoTokenServices services = this.context.getBean(UserInfoTokenServices.class);
+		List<HttpMessageConverter<?>> converters = (List<HttpMessageConverter<?>>) ReflectionTestUtils
+				.getField(ReflectionTestUtils.getField(services, "responseExtractor"), "messageConverters");
+		MockHttpInputMessage message = new MockHttpInputMessage(("{\"login\":\"alice\",\"picture\":\"x\","
+				+ "\"https://example.com/roles\":[\"admin\"],\"urn.example.tenant\":\"acme\"}")
+						.getBytes(StandardCharsets.UTF_8));
+		Map<String, Object> map = ((HttpMessageConverter<Map>) converters.get(0)).read(LinkedHashMap.class, message);
+		assertThat(map).containsOnlyKeys("login", "https://example.com/roles", "urn.example.tenant");
+	}
+
 	@Test
 	public void userInfoWithAuthorities() {
 		TestPropertyValues.of("security.oauth2.resource.userInfoUri:https://example.com").applyTo(this.environment);
@@ -245,6 +442,40 @@ public class ResourceServerTokenServicesConfigurationTests {
 		assertThat(this.context.getBeansOfType(JwtAccessTokenConverter.class)).hasSize(1);
 	}
 
+	@Test
+	public void hybridTokenServices() {
+		TestPropertyValues
+				.of("security.oauth2.resource.jwt.keyValue=FOOBAR",
+						"security.oauth2.resource.tokenInfoUri:https://example.com",
+						"security.oauth2.resource.hybrid=true", "security.oauth2.resource.cache.enabled=true")
+				.applyTo(this.environment);
+		this.context = new SpringApplicationBuilder(ResourceConfiguration.class).environment(this.environment)
+				.web(WebApplicationType.NONE).run();
+		ResourceServerTokenServices services = this.context.getBean(ResourceServerTokenServices.class);
+		assertThat(services).isInstanceOf(HybridResourceServerTokenServices.class);
+		HybridResourceServerTokenServices hybrid = (HybridResourceServerTokenServices) services;
+		assertThat(hybrid.getJwtTokenServices()).isInstanceOf(DefaultTokenServices.class);
+		assertThat(hybrid.getOpaqueTokenServices()).isInstanceOf(CachingResourceServerTokenServices.class);
+		assertThat(hybrid.getOpaqueTokenServices()).extracting("delegate").isInstanceOf(RemoteTokenServices.class);
+	}
+
+	@Test
+	public void jwtTokenServicesWhenRevokedJtisUriIsProvidedThenChecksRevocation() {
+		TestPropertyValues
+				.of("security.oauth2.resource.jwt.keyValue=FOOBAR",
+						"security.oauth2.resource.revocation.revoked-jtis-uri=http://localhost:12345/revoked")
+				.applyTo(this.environment);
+		this.context = new SpringApplicationBuilder(ResourceConfiguration.class).environment(this.environment)
+				.web(WebApplicationType.NONE).run();
+		JwtAccessTokenConverter converter = this.context.getBean(JwtAccessTokenConverter.class);
+		assertThat(converter.getAccessTokenConverter()).isInstanceOf(JtiRevocationCheckingAccessTokenConverter.class);
+		this.context.getBean(JtiRevocationList.class).update(Collections.singletonList("revoked"));
+		Map<String, Object> claims = new HashMap<>();
+		claims.put("jti", "revoked");
+		this.thrown.expect(InvalidTokenException.class);
+		converter.extractAuthentication(claims);
+	}
+
 	@Test
 	public void jwkTokenStoreShouldBeConditionalOnMissingBean() throws Exception {
 		TestPropertyValues.of("security.oauth2.resource.jwk.key-set-uri=https://idp.example.com/token_keys")
@@ -351,6 +582,16 @@ public class ResourceServerTokenServicesConfigurationTests {
 
 	}
 
+	@Configuration
+	protected static class MeterRegistryConfiguration {
+
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+
+	}
+
 	@Configuration
 	protected static class AuthoritiesConfiguration extends ResourceConfiguration {
 
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link ServerTimingFilter} and
+ * {@link ServerTimingResourceServerTokenServices}.
+ */
+public class ServerTimingFilterTests {
+
+	private final ResourceServerTokenServices delegate = mock(ResourceServerTokenServices.class);
+
+	private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+	private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+	@Test
+	public void validationIsReportedWhenResponseIsCommitted() throws Exception {
+		given(this.delegate.loadAuthentication("token")).willReturn(authentication());
+		ResourceServerTokenServices services = new ServerTimingTokenServicesDecorator().decorate(this.delegate,
+				TokenValidationStrategy.JWT);
+		filter((request, response) -> {
+			services.loadAuthentication("token");
+			response.getWriter().write("hello");
+			response.flushBuffer();
+			assertThat(this.response.getHeader("Server-Timing")).matches("oauth2;desc=\"jwt\";dur=\\d+\\.\\d{3}");
+		});
+		assertThat(this.response.getHeaders("Server-Timing")).hasSize(1);
+	}
+
+	@Test
+	public void cacheHitsAndMissesAreReported() throws Exception {
+		given(this.delegate.loadAuthentication("token")).willReturn(authentication());
+		CachingTokenServicesDecorator caching = new CachingTokenServicesDecorator(Duration.ofMinutes(1), 10);
+		ServerTimingTokenServicesDecorator serverTiming = new ServerTimingTokenServicesDecorator();
+		ResourceServerTokenServices services = serverTiming.decorate(
+				caching.decorate(this.delegate, TokenValidationStrategy.TOKEN_INFO),
+				TokenValidationStrategy.TOKEN_INFO);
+		filter((request, response) -> services.loadAuthentication("token"));
+		assertThat(this.response.getHeader("Server-Timing")).startsWith("oauth2;desc=\"token-info cache-miss\";");
+		MockHttpServletResponse second = new MockHttpServletResponse();
+		filter(new MockHttpServletRequest(), second, (request, response) -> services.loadAuthentication("token"));
+		assertThat(second.getHeader("Server-Timing")).startsWith("oauth2;desc=\"token-info cache-hit\";");
+	}
+
+	@Test
+	public void cacheOutcomeIsReportedByTheCallItself() throws Exception {
+		given(this.delegate.loadAuthentication("token")).willReturn(authentication());
+		CachingTokenServicesDecorator caching = new CachingTokenServicesDecorator(Duration.ofMinutes(1), 10);
+		ResourceServerTokenServices services = new ServerTimingTokenServicesDecorator().decorate(
+				caching.decorate(this.delegate, TokenValidationStrategy.TOKEN_INFO),
+				TokenValidationStrategy.TOKEN_INFO);
+		services.loadAuthentication("token");
+		// The cached authentication expires between two reads of the clock
+		AtomicLong millis = new AtomicLong(System.currentTimeMillis() + 30000);
+		CachingResourceServerTokenServices cache = caching.getCaches().get(TokenValidationStrategy.TOKEN_INFO);
+		cache.setClock(new Clock() {
+
+			@Override
+			public ZoneId getZone() {
+				return ZoneOffset.UTC;
+			}
+
+			@Override
+			public Clock withZone(ZoneId zone) {
+				return this;
+			}
+
+			@Override
+			public Instant instant() {
+				return Instant.ofEpochMilli(millis.getAndAdd(31000));
+			}
+
+		});
+		filter((request, response) -> services.loadAuthentication("token"));
+		assertThat(this.response.getHeader("Server-Timing")).startsWith("oauth2;desc=\"token-info cache-hit\";");
+		assertThat(cache.getHitCount()).isEqualTo(1);
+		assertThat(cache.getMissCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void callWithoutCacheAfterCachedCallIsReportedWithoutCache() throws Exception {
+		given(this.delegate.loadAuthentication("token")).willReturn(authentication());
+		CachingTokenServicesDecorator caching = new CachingTokenServicesDecorator(Duration.ofMinutes(1), 10);
+		ServerTimingTokenServicesDecorator serverTiming = new ServerTimingTokenServicesDecorator();
+		ResourceServerTokenServices cached = serverTiming.decorate(
+				caching.decorate(this.delegate, TokenValidationStrategy.TOKEN_INFO),
+				TokenValidationStrategy.TOKEN_INFO);
+		ResourceServerTokenServices uncached = serverTiming.decorate(this.delegate, TokenValidationStrategy.JWT);
+		filter((request, response) -> {
+			cached.loadAuthentication("token");
+			uncached.loadAuthentication("token");
+		});
+		assertThat(this.response.getHeader("Server-Timing")).startsWith("oauth2;desc=\"jwt\";");
+	}
+
+	@Test
+	public void rejectedTokenIsReported() throws Exception {
+		given(this.delegate.loadAuthentication("token")).willThrow(new InvalidTokenException("invalid"));
+		ResourceServerTokenServices services = new ServerTimingTokenServicesDecorator().decorate(this.delegate,
+				TokenValidationStrategy.USER_INFO);
+		filter((request, response) -> {
+			assertThatExceptionOfType(InvalidTokenException.class)
+					.isThrownBy(() -> services.loadAuthentication("token"));
+			((HttpServletResponse) response).sendError(401);
+		});
+		assertThat(this.response.getHeader("Server-Timing")).startsWith("oauth2;desc=\"user-info\";");
+	}
+
+	@Test
+	public void requestWithoutValidationHasNoHeader() throws Exception {
+		filter((request, response) -> response.getWriter().write("hello"));
+		assertThat(this.response.getHeader("Server-Timing")).isNull();
+	}
+
+	@Test
+	public void callOutsideOfAFilteredRequestIsDelegated() throws Exception {
+		given(this.delegate.loadAuthentication("token")).willReturn(authentication());
+		ResourceServerTokenServices services = new ServerTimingTokenServicesDecorator().decorate(this.delegate,
+				TokenValidationStrategy.JWT);
+		filter((request, response) -> {
+		});
+		assertThat(services.loadAuthentication("token")).isNotNull();
+		assertThat(ServerTiming.get()).isNull();
+	}
+
+	private void filter(FilterChain chain) throws Exception {
+		filter(this.request, this.response, chain);
+	}
+
+	private void filter(MockHttpServletRequest request, MockHttpServletResponse response, FilterChain chain)
+			throws Exception {
+		new ServerTimingFilter().doFilter(request, response, chain);
+	}
+
+	private OAuth2Authentication authentication() {
+		return new OAuth2Authentication(new OAuth2Request(null, "client", null, true, null, null, null, null, null),
+				null);
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+import org.junit.Test;
+
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link TokenPreValidator}.
+ */
+public class TokenPreValidatorTests {
+
+	private TokenPreValidator jwt = TokenPreValidator.jwt(1024, Arrays.asList("RS256", "RS512", "ES256"));
+
+	private TokenPreValidator opaque = TokenPreValidator.opaque(64);
+
+	@Test
+	public void validateJwtWithAllowedAlgorithm() {
+		assertValid(this.jwt, token("{\"alg\":\"RS256\",\"typ\":\"JWT\"}"));
+		assertValid(this.jwt, token("{\"kid\":\"alg\", \"alg\" : \"ES256\"}"));
+		assertValid(this.jwt, token("{\"typ\":\"JWT\",\"x5c\":[\"alg\",{\"alg\":\"none\"}],\"alg\":\"RS512\"}"));
+	}
+
+	@Test
+	public void validateJwtWithDisallowedAlgorithm() {
+		assertInvalid(this.jwt, token("{\"alg\":\"none\"}"));
+		assertInvalid(this.jwt, token("{\"alg\":\"RS2\"}"));
+		assertInvalid(this.jwt, token("{\"alg\":\"RS2560\"}"));
+		assertInvalid(this.jwt, token("{\"alg\":\"RS256\",\"alg\":\"HS256\"}"));
+		assertInvalid(this.jwt, token("{\"alg\":[\"RS256\"]}"));
+		assertInvalid(this.jwt, token("{\"alg\":\"RS\\u0032\"}"));
+		assertInvalid(this.jwt, token("{\"typ\":\"JWT\"}"));
+		assertInvalid(this.jwt, token("{\"nested\":{\"alg\":\"RS256\"}}"));
+	}
+
+	@Test
+	public void validateJwtWithInvalidStructure() {
+		String header = encode("{\"alg\":\"RS256\"}");
+		assertInvalid(this.jwt, header + ".e30");
+		assertInvalid(this.jwt, header + ".e30.c2ln.c2ln");
+		assertInvalid(this.jwt, header + "..c2ln");
+		assertInvalid(this.jwt, header + ".e30.c2ln=");
+		assertInvalid(this.jwt, header + ".e30.c2l+");
+		assertInvalid(this.jwt, header + ".e30.c");
+		assertInvalid(this.jwt, "");
+		assertInvalid(this.jwt, null);
+	}
+
+	@Test
+	public void validateWhenTooLong() {
+		char[] chars = new char[65];
+		Arrays.fill(chars, 'a');
+		assertInvalid(this.opaque, new String(chars));
+	}
+
+	@Test
+	public void validateOpaque() {
+		assertValid(this.opaque, "2YotnFZFEjr1zCsicMWpAA");
+		assertValid(this.opaque, "a-b.c_d~e+f/g==");
+		assertInvalid(this.opaque, "a b");
+		assertInvalid(this.opaque, "a=b");
+		assertInvalid(this.opaque, "==");
+		assertInvalid(this.opaque, "töken");
+	}
+
+	private static String token(String header) {
+		return encode(header) + "." + encode("{\"sub\":\"user\"}") + ".c2lnbmF0dXJl";
+	}
+
+	private static String encode(String json) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void assertValid(TokenPreValidator validator, String token) {
+		assertThatCode(() -> validator.validate(token)).as(token).doesNotThrowAnyException();
+	}
+
+	private static void assertInvalid(TokenPreValidator validator, String token) {
+		assertThatExceptionOfType(InvalidTokenException.class).as(String.valueOf(token))
+				.isThrownBy(() -> validator.validate(token));
+	}
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2012-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.autoconfigure.security.oauth2.resource;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import org.springframework.boot.autoconfigure.security.oauth2.revocation.TokenRevocationEvent;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+/**
+ * Tests for {@link TokenRevocationEventSubscriber}.
+ */
+public class TokenRevocationEventSubscriberTests {
+
+	private List<TokenRevocationEvent> events = new ArrayList<>();
+
+	private TokenRevocationEventSubscriber subscriber = new TokenRevocationEventSubscriber("https://example.com",
+			new RestTemplate(), null, (event) -> {
+			});
+
+	@Test
+	public void readDispatchesEvents() throws Exception {
+		this.subscriber.read(new StringReader("event:token\ndata:abc\n\nevent: user\ndata: alice\n"), this.events::add);
+		assertThat(this.events).extracting(TokenRevocationEvent::getType)
+				.containsExactly(TokenRevocationEvent.Type.TOKEN, TokenRevocationEvent.Type.USER);
+		assertThat(this.events).extracting(TokenRevocationEvent::getValue).containsExactly("abc", "alice");
+	}
+
+	@Test
+	public void readIgnoresUnknownEventsAndComments() throws Exception {
+		this.subscriber.read(new StringReader(":keep-alive\n\nevent:other\ndata:abc\n\ndata:def\n\n"),
+				this.events::add);
+		assertThat(this.events).isEmpty();
+	}
+
+	@Test
+	public void subscribeInvokesConnectedCallbackOnEveryConnection() {
+		RestTemplate restTemplate = new RestTemplate();
+		MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+		server.expect(requestTo("https://example.com"))
+				.andRespond(withSuccess("event:token\ndata:abc\n\n", MediaType.TEXT_EVENT_STREAM));
+		server.expect(requestTo("https://example.com"))
+				.andRespond(withSuccess("event:token\ndata:def\n\n", MediaType.TEXT_EVENT_STREAM));
+		AtomicInteger connections = new AtomicInteger();
+		List<Integer> connectionsAtEvent = new ArrayList<>();
+		TokenRevocationEventSubscriber subscriber = new TokenRevocationEventSubscriber("https://example.com",
+				restTemplate, null, (event) -> {
+					this.events.add((TokenRevocationEvent) event);
+					connectionsAtEvent.add(connections.get());
+				});
+		subscriber.setConnectedCallback(connections::incrementAndGet);
+		subscriber.subscribe();
+		subscriber.subscribe();
+		server.verify();
+		assertThat(connections).hasValue(2);
+		assertThat(this.events).extracting(TokenRevocationEvent::getValue).containsExactly("abc", "def");
+		assertThat(connectionsAtEvent).containsExactly(1, 2);
+	}
+
+}
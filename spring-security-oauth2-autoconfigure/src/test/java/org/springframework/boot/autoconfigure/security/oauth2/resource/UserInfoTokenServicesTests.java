@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2017 the original author or authors.
+ * Copyright 2012-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,8 @@
 
 package org.springframework.boot.autoconfigure.security.oauth2.resource;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -25,16 +27,23 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.client.MockClientHttpResponse;
 import org.springframework.security.oauth2.client.OAuth2ClientContext;
 import org.springframework.security.oauth2.client.OAuth2RestOperations;
 import org.springframework.security.oauth2.client.resource.BaseOAuth2ProtectedResourceDetails;
 import org.springframework.security.oauth2.client.resource.UserRedirectRequiredException;
 import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
 import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
@@ -83,6 +92,38 @@ public class UserInfoTokenServicesTests {
 		assertThat(this.services.loadAuthentication("FOO").getName()).isEqualTo("unknown");
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void responseFields() {
+		byte[] body = "{\"login\":\"spencer\",\"bio\":\"...\",\"authorities\":[\"ROLE_ADMIN\"]}"
+				.getBytes(StandardCharsets.UTF_8);
+		MockClientHttpResponse response = new MockClientHttpResponse(body, HttpStatus.OK);
+		response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+		given(this.template.execute(any(String.class), eq(HttpMethod.GET), any(RequestCallback.class),
+				any(ResponseExtractor.class))).willAnswer(
+						(invocation) -> invocation.getArgument(3, ResponseExtractor.class).extractData(response));
+		this.services.setRestTemplate(this.template);
+		this.services.setResponseFields(Arrays.asList("login", "authorities"));
+		OAuth2Authentication authentication = this.services.loadAuthentication("FOO");
+		assertThat(authentication.getName()).isEqualTo("spencer");
+		assertThat(authentication.getAuthorities()).extracting("authority").containsExactly("ROLE_ADMIN");
+		assertThat((Map<String, Object>) authentication.getUserAuthentication().getDetails()).containsOnlyKeys("login",
+				"authorities");
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void detailsExtractor() {
+		this.map.put("login", "spencer");
+		this.map.put("bio", "...");
+		this.services.setRestTemplate(this.template);
+		this.services.setDetailsExtractor(new AllowlistDetailsExtractor(Arrays.asList("login", "email")));
+		OAuth2Authentication authentication = this.services.loadAuthentication("FOO");
+		assertThat(authentication.getName()).isEqualTo("spencer");
+		assertThat((Map<String, Object>) authentication.getUserAuthentication().getDetails())
+				.isInstanceOf(CompactAttributeMap.class).containsOnly(entry("login", "spencer"));
+	}
+
 	@Test
 	public void userId() {
 		this.map.put("userid", "spencer");